@@ -0,0 +1,48 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.CatalogueMappe;
+import com.example.backautodoc.PrixArticles;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Catalogue de prix partagé par tous les threads d'un benchmark.
+ *
+ * Le fichier est généré une fois par essai dans un dossier temporaire, puis ouvert
+ * avec {@link CatalogueMappe} comme en production.
+ */
+@State(Scope.Benchmark)
+public class CatalogueEtat {
+
+    @Param({"1000000", "10000000"})
+    public int tailleCatalogue;
+
+    public PrixArticles prixArticles;
+    private Path fichier;
+
+    @Setup(Level.Trial)
+    public void creerCatalogue() throws IOException {
+        SplittableRandom aleatoire = new SplittableRandom(42);
+        int[] prix = new int[tailleCatalogue];
+        for (int i = 0; i < prix.length; i++) {
+            prix[i] = 1 + aleatoire.nextInt(500);
+        }
+        fichier = Files.createTempFile("catalogue-bench", ".bin");
+        CatalogueMappe.ecrire(fichier, prix);
+        prixArticles = new PrixArticles(CatalogueMappe.ouvrir(fichier));
+    }
+
+    @TearDown(Level.Trial)
+    public void supprimerCatalogue() throws IOException {
+        Files.deleteIfExists(fichier);
+    }
+}
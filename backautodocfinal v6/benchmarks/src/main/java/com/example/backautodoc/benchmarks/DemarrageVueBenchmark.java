@@ -0,0 +1,69 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.HelloApplication;
+import javafx.application.Platform;
+import javafx.scene.Parent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le temps de construction de la vue principale au démarrage : chargement de `hello-view.fxml`
+ * par FXMLLoader (analyse XML et injection par réflexion) contre la vue générée au build.
+ *
+ * Chaque JVM ne construit la vue qu'une fois, sans préchauffage : on mesure un démarrage à froid
+ * (chargement des classes et code interprété compris), moyenné sur plusieurs JVM.
+ * La vue est construite sur le thread JavaFX, comme dans l'application. Un affichage est nécessaire.
+ *
+ * Ce benchmark fixe son propre mode : le lancer avec le lanceur JMH standard,
+ * `java -cp benchmarks.jar org.openjdk.jmh.Main DemarrageVue`, et non avec {@link LanceurBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(20)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class DemarrageVueBenchmark {
+
+    @Setup(Level.Trial)
+    public void demarrerJavaFx() throws InterruptedException {
+        CountDownLatch pret = new CountDownLatch(1);
+        Platform.startup(pret::countDown);
+        pret.await();
+    }
+
+    @Benchmark
+    public Parent vueFxml() throws Exception {
+        return construire(true);
+    }
+
+    @Benchmark
+    public Parent vueGeneree() throws Exception {
+        return construire(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreterJavaFx() {
+        Platform.exit();
+    }
+
+    private static Parent construire(boolean avecFxml) throws Exception {
+        FutureTask<Parent> construction = new FutureTask<>(() -> HelloApplication.creerVue(avecFxml));
+        Platform.runLater(construction);
+        return construction.get();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.RouteurPaniers;
+import com.example.backautodoc.ServeurHttp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Essai de bout en bout de {@link RouteurPaniers} avec plusieurs serveurs {@link ServeurHttp}, chacun dans sa propre JVM
+ * sur la machine locale.
+ *
+ * Déroulement :
+ * 1. Démarre N serveurs et un routeur devant eux, puis remplit des paniers à travers le routeur.
+ * 2. Ajoute un serveur : vérifie que seuls les paniers qui lui reviennent ont bougé (environ 1/(N+1) des paniers)
+ *    et que chaque panier, lu à travers le routeur, a gardé son contenu.
+ * 3. Retire un des premiers serveurs : vérifie que seuls ses paniers ont bougé, et de nouveau leur contenu.
+ * Chaque panier doit se trouver sur exactement un serveur à chaque étape.
+ *
+ * Utilisation (depuis benchmarks.jar) :
+ *   java -cp benchmarks.jar com.example.backautodoc.benchmarks.EssaiRepartition [serveurs, défaut 3] [paniers, défaut 5000]
+ * Le code de sortie est 1 si une vérification échoue.
+ */
+public final class EssaiRepartition {
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private EssaiRepartition() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nombreServeurs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int nombrePaniers = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        List<Process> processus = new ArrayList<>();
+        RouteurPaniers routeur = null;
+        boolean valide = true;
+        try {
+            List<String> serveurs = new ArrayList<>();
+            for (int i = 0; i < nombreServeurs + 1; i++) {
+                int port = portLibre();
+                processus.add(demarrerServeur(port));
+                serveurs.add("http://127.0.0.1:" + port);
+            }
+            for (String serveur : serveurs) {
+                attendre(serveur);
+            }
+            routeur = new RouteurPaniers(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    serveurs.subList(0, nombreServeurs), 160);
+            routeur.demarrer();
+            String adresseRouteur = "http://127.0.0.1:" + routeur.getPort();
+
+            long debut = System.nanoTime();
+            remplir(adresseRouteur, nombrePaniers);
+            System.out.printf("%d paniers remplis à travers le routeur en %d ms%n",
+                    nombrePaniers, (System.nanoTime() - debut) / 1_000_000);
+            Map<String, String> avant = localiser(serveurs);
+            valide &= verifier("Répartition initiale", avant, nombrePaniers, adresseRouteur, null, null);
+
+            String ajoute = serveurs.get(nombreServeurs);
+            debut = System.nanoTime();
+            int deplaces = routeur.ajouterNoeud(ajoute);
+            System.out.printf("Ajout de %s : %d paniers déplacés (%.1f %%, attendu ≈ %.1f %%) en %d ms%n", ajoute, deplaces,
+                    100.0 * deplaces / nombrePaniers, 100.0 / (nombreServeurs + 1), (System.nanoTime() - debut) / 1_000_000);
+            Map<String, String> apresAjout = localiser(serveurs);
+            valide &= verifier("Après ajout", apresAjout, nombrePaniers, adresseRouteur, avant, ajoute);
+
+            String retire = serveurs.get(0);
+            debut = System.nanoTime();
+            deplaces = routeur.retirerNoeud(retire);
+            System.out.printf("Retrait de %s : %d paniers déplacés en %d ms%n", retire, deplaces,
+                    (System.nanoTime() - debut) / 1_000_000);
+            Map<String, String> apresRetrait = localiser(serveurs);
+            valide &= verifier("Après retrait", apresRetrait, nombrePaniers, adresseRouteur, apresAjout, retire);
+        } finally {
+            if (routeur != null) {
+                routeur.arreter();
+            }
+            for (Process p : processus) {
+                p.destroy();
+            }
+        }
+        System.out.println(valide ? "OK" : "ÉCHEC");
+        System.exit(valide ? 0 : 1);
+    }
+
+    private static Process demarrerServeur(int port) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ServeurHttp.class.getName(), String.valueOf(port))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static int portLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void attendre(String serveur) throws InterruptedException {
+        for (int essai = 0; essai < 300; essai++) {
+            try {
+                envoyer("GET", serveur + "/marques");
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Serveur injoignable : " + serveur);
+    }
+
+    /**
+     * Panier i : marque Toyota, freins cochés, quantité (i % 7) + 1.
+     */
+    private static void remplir(String routeur, int nombrePaniers) throws Exception {
+        try (ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> envois = new ArrayList<>();
+            for (int i = 0; i < nombrePaniers; i++) {
+                String session = routeur + "/sessions/client-" + i;
+                int quantite = i % 7 + 1;
+                envois.add(executeur.submit(() -> {
+                    envoyer("POST", session + "/marque?nom=Toyota");
+                    envoyer("POST", session + "/selection?piece=freins&actif=true");
+                    return envoyer("POST", session + "/quantite?piece=freins&delta=" + quantite);
+                }));
+            }
+            for (Future<String> envoi : envois) {
+                envoi.get();
+            }
+        }
+    }
+
+    /**
+     * Serveur de chaque panier, lu directement sur les serveurs (GET /migration), sans passer par le routeur.
+     * Un panier présent sur deux serveurs est associé à la valeur "double".
+     */
+    private static Map<String, String> localiser(List<String> serveurs) throws Exception {
+        Map<String, String> emplacements = new HashMap<>();
+        for (String serveur : serveurs) {
+            for (String session : envoyer("GET", serveur + "/migration").lines().toList()) {
+                emplacements.merge(session, serveur, (a, b) -> "double");
+            }
+        }
+        return emplacements;
+    }
+
+    private static boolean verifier(String etape, Map<String, String> emplacements, int nombrePaniers, String routeur,
+                                    Map<String, String> precedents, String noeudChange) throws Exception {
+        int erreurs = 0;
+        for (int i = 0; i < nombrePaniers; i++) {
+            String session = "client-" + i;
+            String serveur = emplacements.get(session);
+            if (serveur == null || serveur.equals("double")) {
+                erreurs++;
+                continue;
+            }
+            // Seuls les paniers du serveur ajouté ou retiré peuvent changer de serveur
+            if (precedents != null && !serveur.equals(precedents.get(session))
+                    && !serveur.equals(noeudChange) && !precedents.get(session).equals(noeudChange)) {
+                erreurs++;
+                continue;
+            }
+            String etat = envoyer("GET", routeur + "/sessions/" + session);
+            if (!etat.contains("\"quantite\":" + (i % 7 + 1) + ",")) {
+                erreurs++;
+            }
+        }
+        if (emplacements.size() != nombrePaniers) {
+            erreurs++;
+        }
+        System.out.println(etape + " : " + (erreurs == 0 ? "paniers intacts" : erreurs + " erreurs"));
+        return erreurs == 0;
+    }
+
+    private static String envoyer(String methode, String adresse) throws IOException, InterruptedException {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(adresse))
+                .method(methode, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> reponse = CLIENT.send(requete, HttpResponse.BodyHandlers.ofString());
+        if (reponse.statusCode() >= 300) {
+            throw new IOException(methode + " " + adresse + " : code " + reponse.statusCode() + " " + reponse.body());
+        }
+        return reponse.body();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.Facture;
+import com.example.backautodoc.GestionQuantites;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Mesure le calcul du total et la génération de la facture selon la taille du panier.
+ *
+ * Chaque thread possède son propre panier ; le catalogue de prix est partagé ({@link CatalogueEtat}).
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FactureBenchmark {
+
+    @Param({"3", "1000", "100000", "1000000"})
+    public int taillePanier;
+
+    private Facture facture;
+    private final WritableByteChannel canalVide = Channels.newChannel(OutputStream.nullOutputStream());
+
+    @Setup(Level.Trial)
+    public void remplirPanier(CatalogueEtat catalogue) {
+        GestionQuantites panier = new GestionQuantites(catalogue.tailleCatalogue, catalogue.prixArticles);
+        int lignes = Math.min(taillePanier, catalogue.tailleCatalogue);
+        int pas = catalogue.tailleCatalogue / lignes;
+        for (int i = 0; i < lignes; i++) {
+            panier.modifierQuantite(i * pas, 1 + i % 7);
+        }
+        facture = new Facture(panier, catalogue.prixArticles);
+    }
+
+    @Benchmark
+    public long calculerPrixTotal() {
+        return facture.calculerPrixTotal();
+    }
+
+    @Benchmark
+    public long recalculerPrixTotal() {
+        return facture.recalculerPrixTotal();
+    }
+
+    @Benchmark
+    public String genererFacture() {
+        return facture.genererFacture("Toyota");
+    }
+
+    @Benchmark
+    public void ecrireFactureCanal() throws IOException {
+        facture.ecrireFacture("Toyota", canalVide);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.GestionQuantites;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+
+/**
+ * Mesure {@link GestionQuantites#modifierQuantite(int, int)} sur des pièces tirées au hasard dans le catalogue.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GestionQuantitesBenchmark {
+
+    private static final int NOMBRE_TIRAGES = 1 << 16;
+
+    private GestionQuantites panier;
+    private final int[] pieces = new int[NOMBRE_TIRAGES];
+    private int suivant;
+
+    @Setup(Level.Trial)
+    public void preparer(CatalogueEtat catalogue) {
+        panier = new GestionQuantites(catalogue.tailleCatalogue, catalogue.prixArticles);
+        SplittableRandom aleatoire = new SplittableRandom(7);
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = aleatoire.nextInt(catalogue.tailleCatalogue);
+        }
+    }
+
+    @Benchmark
+    public boolean modifierQuantite() {
+        int i = suivant++;
+        // Alterne ajouts et retraits pour que le panier garde une taille stable
+        return panier.modifierQuantite(pieces[i & (NOMBRE_TIRAGES - 1)], (i & NOMBRE_TIRAGES) == 0 ? 1 : -1);
+    }
+}
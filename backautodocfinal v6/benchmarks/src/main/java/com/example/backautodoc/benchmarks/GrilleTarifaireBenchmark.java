@@ -0,0 +1,83 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.Facture;
+import com.example.backautodoc.GestionQuantites;
+import com.example.backautodoc.GrilleTarifaire;
+import com.example.backautodoc.ReglesTarifaires;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+
+/**
+ * Mesure le coût des règles de prix compilées ({@link GrilleTarifaire}) sur le total d'un panier,
+ * en fonction du nombre de règles actives. Le total brut sert de référence.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GrilleTarifaireBenchmark {
+
+    private static final String[] MARQUES = {"Toyota", "Ford", "BMW"};
+
+    @Param({"0", "1000", "10000"})
+    public int nombreRegles;
+
+    @Param({"1000"})
+    public int taillePanier;
+
+    private Facture facture;
+
+    @Setup(Level.Trial)
+    public void preparer(CatalogueEtat catalogue) {
+        SplittableRandom aleatoire = new SplittableRandom(5);
+        GestionQuantites panier = new GestionQuantites(catalogue.tailleCatalogue, catalogue.prixArticles);
+        int[] piecesPanier = new int[taillePanier];
+        for (int i = 0; i < taillePanier; i++) {
+            piecesPanier[i] = aleatoire.nextInt(catalogue.tailleCatalogue);
+            panier.modifierQuantite(piecesPanier[i], 1 + aleatoire.nextInt(20));
+        }
+
+        // Un tiers de paliers, un tiers de lots, le reste en remises de marque ; la moitié des
+        // paliers et des lots portent sur des pièces du panier pour qu'ils soient réellement évalués
+        ReglesTarifaires regles = new ReglesTarifaires(catalogue.tailleCatalogue);
+        for (int i = 0; i < nombreRegles; i++) {
+            int piece = aleatoire.nextBoolean()
+                    ? piecesPanier[aleatoire.nextInt(taillePanier)]
+                    : aleatoire.nextInt(catalogue.tailleCatalogue);
+            switch (i % 3) {
+                case 0:
+                    regles.palier(piece, 1 + aleatoire.nextInt(20), aleatoire.nextInt(2000));
+                    break;
+                case 1:
+                    int autre = piecesPanier[aleatoire.nextInt(taillePanier)];
+                    if (autre != piece) {
+                        regles.lot(1 + aleatoire.nextInt(30), piece, autre);
+                    }
+                    break;
+                default:
+                    regles.remiseMarque(MARQUES[i % MARQUES.length], aleatoire.nextInt(1000));
+            }
+        }
+        facture = new Facture(panier, catalogue.prixArticles);
+        facture.setGrilleTarifaire(regles.compiler());
+    }
+
+    @Benchmark
+    public long totalBrut() {
+        return facture.calculerPrixTotal();
+    }
+
+    @Benchmark
+    public long totalRemise() {
+        return facture.calculerPrixTotal("BMW");
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.Commande;
+import com.example.backautodoc.HistoriqueCommandes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure les analyses de l'historique des ventes ({@link HistoriqueCommandes}) sur un an de commandes :
+ * chiffre d'affaires par marque, par jour, et les 20 pièces les plus vendues d'un mois pour une marque.
+ *
+ * Les commandes ont 8 lignes, tirées au hasard dans le catalogue de {@link CatalogueEtat}.
+ * 100 millions de lignes occupent environ 1,9 Go : d'où le tas de 4 Go.
+ *
+ * Ce benchmark fixe son propre mode : le lancer avec le lanceur JMH standard,
+ * `java -cp benchmarks.jar org.openjdk.jmh.Main HistoriqueCommandes`, et non avec {@link LanceurBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HistoriqueCommandesBenchmark {
+
+    private static final List<String> MARQUES = List.of("Toyota", "Ford", "BMW");
+    private static final LocalDate PREMIER_JOUR = LocalDate.of(2025, 1, 1);
+    private static final int LIGNES_PAR_COMMANDE = 8;
+
+    @Param({"100000000"})
+    public long lignes;
+
+    private HistoriqueCommandes historique;
+
+    @Setup(Level.Trial)
+    public void remplir(CatalogueEtat catalogue) {
+        historique = new HistoriqueCommandes();
+        SplittableRandom aleatoire = new SplittableRandom(25);
+        long commandes = lignes / LIGNES_PAR_COMMANDE;
+        for (long c = 0; c < commandes; c++) {
+            int[] pieces = new int[LIGNES_PAR_COMMANDE];
+            int[] quantites = new int[LIGNES_PAR_COMMANDE];
+            for (int i = 0; i < LIGNES_PAR_COMMANDE; i++) {
+                pieces[i] = aleatoire.nextInt(catalogue.tailleCatalogue);
+                quantites[i] = 1 + aleatoire.nextInt(4);
+            }
+            // Commandes dans l'ordre des jours, comme en production
+            LocalDate jour = PREMIER_JOUR.plusDays(c * 365 / commandes);
+            historique.ajouter(jour, new Commande(MARQUES.get(aleatoire.nextInt(MARQUES.size())), pieces, quantites),
+                    catalogue.prixArticles);
+        }
+    }
+
+    @Benchmark
+    public List<HistoriqueCommandes.Groupe> parMarque() {
+        return historique.agreger(HistoriqueCommandes.Axe.MARQUE, null, null, null).getGroupes();
+    }
+
+    @Benchmark
+    public List<HistoriqueCommandes.Groupe> parJour() {
+        return historique.agreger(HistoriqueCommandes.Axe.JOUR, null, null, null).getGroupes();
+    }
+
+    @Benchmark
+    public List<HistoriqueCommandes.Groupe> topPiecesAnnee() {
+        return historique.agreger(HistoriqueCommandes.Axe.PIECE, null, null, null).top(20);
+    }
+
+    @Benchmark
+    public List<HistoriqueCommandes.Groupe> topPiecesMoisMarque() {
+        return historique.agreger(HistoriqueCommandes.Axe.PIECE, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 30),
+                "Toyota").top(20);
+    }
+}
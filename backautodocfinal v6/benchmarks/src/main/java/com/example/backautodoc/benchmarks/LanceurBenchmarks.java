@@ -0,0 +1,75 @@
+package com.example.backautodoc.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Point d'entrée de benchmarks.jar.
+ *
+ * Lance les benchmarks sélectionnés une fois par nombre de threads, en mesurant :
+ * - le débit (opérations par seconde) ;
+ * - la latence par échantillonnage (percentiles p50, p90, p99, p99.9...) ;
+ * - le taux d'allocation, avec le profileur GC.
+ *
+ * Les benchmarks qui fixent leur propre mode ({@link #REGLAGES_PROPRES}) ne sont jamais lancés ici, même
+ * s'ils correspondent à l'expression : les options du lanceur remplaceraient leur mode (SingleShotTime,
+ * AverageTime). Ils se lancent avec le lanceur JMH standard, `org.openjdk.jmh.Main`.
+ *
+ * Utilisation :
+ *   java -jar benchmarks.jar [expression régulière des benchmarks] [liste de threads, ex. 1,4,16]
+ * Les résultats sont aussi écrits en JSON dans resultats-threads-N.json.
+ */
+public final class LanceurBenchmarks {
+
+    /**
+     * Benchmarks exclus : chacun fixe son propre mode avec {@link org.openjdk.jmh.annotations.BenchmarkMode}.
+     */
+    static final List<Class<?>> REGLAGES_PROPRES = List.of(
+            RecuperationBenchmark.class,
+            DemarrageVueBenchmark.class,
+            LectureCatalogueBenchmark.class,
+            HistoriqueCommandesBenchmark.class);
+
+    private LanceurBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String selection = args.length > 0 ? args[0] : ".*Benchmark.*";
+        String threads = args.length > 1 ? args[1] : "1,4,16";
+
+        for (String nombre : threads.split(",")) {
+            int nombreThreads = Integer.parseInt(nombre.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(selection)
+                    .exclude(exclusion())
+                    .threads(nombreThreads)
+                    .mode(Mode.Throughput)
+                    .mode(Mode.SampleTime)
+                    .timeUnit(TimeUnit.MICROSECONDS)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("resultats-threads-" + nombreThreads + ".json");
+            new Runner(options.build()).run();
+        }
+    }
+
+    /**
+     * Retourne l'expression qui écarte les benchmarks de {@link #REGLAGES_PROPRES} (nom complet de la classe
+     * suivi du nom de la méthode).
+     */
+    static String exclusion() {
+        return REGLAGES_PROPRES.stream()
+                .map(classe -> Pattern.quote(classe.getName() + "."))
+                .collect(Collectors.joining("|", "^(?:", ")"));
+    }
+}
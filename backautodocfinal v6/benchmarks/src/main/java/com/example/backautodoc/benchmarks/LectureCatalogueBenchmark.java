@@ -0,0 +1,217 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.CatalogueColonnaire;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le chargement du catalogue fournisseur selon son format : colonnes binaires projetées
+ * ({@link CatalogueColonnaire}), CSV et JSON (un objet par ligne), lus comme le ferait un chargeur classique.
+ *
+ * Chaque mesure ouvre le fichier puis lit ce dont une facture et la table du catalogue ont besoin : tous les prix
+ * et quelques libellés. Le temps est celui d'un démarrage à froid (une seule exécution par JVM).
+ * En plus du temps, le résultat indique la mémoire retenue après chargement :
+ * - `tasRetenu` : octets du tas Java encore utilisés par le catalogue chargé (après un ramasse-miettes) ;
+ * - `residentAjoute` : augmentation de la mémoire résidente du processus (Linux seulement, -1 ailleurs),
+ *   qui compte aussi les pages du fichier projeté effectivement lues.
+ *
+ * Ce benchmark fixe son propre mode : le lancer avec le lanceur JMH standard,
+ * `java -cp benchmarks.jar org.openjdk.jmh.Main LectureCatalogue`, et non avec {@link LanceurBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(5)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class LectureCatalogueBenchmark {
+
+    private static final String[] TYPES = {"Plaquettes de frein", "Huile moteur 5W30", "Filtre à air",
+            "Bougie d'allumage", "Courroie de distribution", "Amortisseur avant", "Disque de frein", "Batterie 12 V"};
+    private static final List<String> MARQUES = List.of("Toyota", "Ford", "BMW");
+    private static final int LIBELLES_LUS = 1000;
+
+    @Param({"1000000"})
+    public int tailleCatalogue;
+
+    private Path colonnes;
+    private Path csv;
+    private Path json;
+
+    /**
+     * Mémoire retenue par le catalogue chargé, ajoutée aux résultats de JMH.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Memoire {
+        public long tasRetenu;
+        public long residentAjoute;
+        private long tasAvant;
+        private long residentAvant;
+        private Object charge; // Le catalogue chargé, gardé jusqu'à la mesure
+
+        @Setup(Level.Iteration)
+        public void mesurerAvant() {
+            charge = null;
+            tasAvant = tasUtilise();
+            residentAvant = memoireResidente();
+        }
+
+        @TearDown(Level.Iteration)
+        public void mesurerApres() {
+            tasRetenu = tasUtilise() - tasAvant;
+            residentAjoute = residentAvant < 0 ? -1 : memoireResidente() - residentAvant;
+            charge = null;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void creerFichiers() throws IOException {
+        SplittableRandom aleatoire = new SplittableRandom(21);
+        long[] references = new long[tailleCatalogue];
+        int[] prix = new int[tailleCatalogue];
+        int[] marques = new int[tailleCatalogue];
+        String[] libelles = new String[tailleCatalogue];
+        for (int i = 0; i < tailleCatalogue; i++) {
+            references[i] = 4_000_000_000_000L + i;
+            prix[i] = 1 + aleatoire.nextInt(500);
+            marques[i] = 1 + aleatoire.nextInt(7);
+            libelles[i] = TYPES[aleatoire.nextInt(TYPES.length)] + " " + (1 + aleatoire.nextInt(200));
+        }
+
+        colonnes = Files.createTempFile("catalogue-bench", ".adcc");
+        CatalogueColonnaire.ecrire(colonnes, references, prix, marques, MARQUES, libelles);
+        csv = Files.createTempFile("catalogue-bench", ".csv");
+        json = Files.createTempFile("catalogue-bench", ".jsonl");
+        try (BufferedWriter ecritureCsv = Files.newBufferedWriter(csv, StandardCharsets.UTF_8);
+             BufferedWriter ecritureJson = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+            ecritureCsv.write("piece;reference;prix;marques;libelle\n");
+            for (int i = 0; i < tailleCatalogue; i++) {
+                ecritureCsv.write(i + ";" + references[i] + ";" + prix[i] + ";" + marques[i] + ";" + libelles[i] + "\n");
+                ecritureJson.write("{\"piece\":" + i + ",\"reference\":" + references[i] + ",\"prix\":" + prix[i]
+                        + ",\"marques\":" + marques[i] + ",\"libelle\":\"" + libelles[i] + "\"}\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void supprimerFichiers() throws IOException {
+        Files.deleteIfExists(colonnes);
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(json);
+    }
+
+    @Benchmark
+    public long colonnes(Memoire memoire) throws IOException {
+        CatalogueColonnaire catalogue = CatalogueColonnaire.ouvrir(colonnes);
+        int[] prix = new int[catalogue.getNombrePieces()];
+        catalogue.copierPrix(prix);
+        long somme = 0;
+        for (int pieceId = 0; pieceId < LIBELLES_LUS; pieceId++) {
+            somme += catalogue.getLibelle(pieceId).length();
+        }
+        memoire.charge = new Object[]{catalogue, prix};
+        return somme + prix[prix.length - 1];
+    }
+
+    @Benchmark
+    public long csv(Memoire memoire) throws IOException {
+        int[] prix = new int[tailleCatalogue];
+        String[] libelles = new String[tailleCatalogue];
+        try (BufferedReader lecteur = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            lecteur.readLine(); // En-tête
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                String[] champs = ligne.split(";", -1);
+                int pieceId = Integer.parseInt(champs[0]);
+                prix[pieceId] = Integer.parseInt(champs[2]);
+                libelles[pieceId] = champs[4];
+            }
+        }
+        return garder(memoire, prix, libelles);
+    }
+
+    @Benchmark
+    public long json(Memoire memoire) throws IOException {
+        int[] prix = new int[tailleCatalogue];
+        String[] libelles = new String[tailleCatalogue];
+        try (BufferedReader lecteur = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                int pieceId = Integer.parseInt(champ(ligne, "piece"));
+                prix[pieceId] = Integer.parseInt(champ(ligne, "prix"));
+                libelles[pieceId] = champ(ligne, "libelle");
+            }
+        }
+        return garder(memoire, prix, libelles);
+    }
+
+    private static long garder(Memoire memoire, int[] prix, String[] libelles) {
+        long somme = 0;
+        for (int pieceId = 0; pieceId < LIBELLES_LUS; pieceId++) {
+            somme += libelles[pieceId].length();
+        }
+        memoire.charge = new Object[]{prix, libelles};
+        return somme + prix[prix.length - 1];
+    }
+
+    /**
+     * Valeur d'un champ d'un objet JSON plat (nombre ou chaîne sans caractère échappé).
+     */
+    private static String champ(String objet, String nom) {
+        int debut = objet.indexOf("\"" + nom + "\":") + nom.length() + 3;
+        if (objet.charAt(debut) == '"') {
+            return objet.substring(debut + 1, objet.indexOf('"', debut + 1));
+        }
+        int fin = debut;
+        while (fin < objet.length() && objet.charAt(fin) != ',' && objet.charAt(fin) != '}') {
+            fin++;
+        }
+        return objet.substring(debut, fin);
+    }
+
+    private static long tasUtilise() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Mémoire résidente du processus en octets (VmRSS), ou -1 si elle n'est pas disponible.
+     */
+    private static long memoireResidente() {
+        try {
+            for (String ligne : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (ligne.startsWith("VmRSS:")) {
+                    return Long.parseLong(ligne.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
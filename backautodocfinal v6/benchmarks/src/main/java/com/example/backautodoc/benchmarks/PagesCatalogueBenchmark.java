@@ -0,0 +1,56 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.PagesCatalogue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+
+/**
+ * Mesure la lecture des lignes visibles de la table du catalogue ({@link PagesCatalogue}) :
+ * défilement continu (les pages sont presque toujours en mémoire) et sauts à une position
+ * quelconque (glissement de la barre de défilement : une page à charger à chaque fois).
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PagesCatalogueBenchmark {
+
+    private static final int LIGNES_VISIBLES = 40;
+
+    private PagesCatalogue pages;
+    private SplittableRandom aleatoire;
+    private int premiereLigne;
+
+    @Setup(Level.Trial)
+    public void preparer(CatalogueEtat catalogue) {
+        pages = new PagesCatalogue(catalogue.prixArticles, catalogue.tailleCatalogue, 64);
+        aleatoire = new SplittableRandom(11);
+    }
+
+    @Benchmark
+    public void defilement(Blackhole trou) {
+        premiereLigne = (premiereLigne + 3) % (pages.getNombrePieces() - LIGNES_VISIBLES);
+        lireEcran(trou);
+    }
+
+    @Benchmark
+    public void saut(Blackhole trou) {
+        premiereLigne = aleatoire.nextInt(pages.getNombrePieces() - LIGNES_VISIBLES);
+        lireEcran(trou);
+    }
+
+    private void lireEcran(Blackhole trou) {
+        for (int i = premiereLigne; i < premiereLigne + LIGNES_VISIBLES; i++) {
+            trou.consume(pages.getLigne(i));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.CalculTotaux;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compare le produit scalaire quantités × prix de {@link CalculTotaux} (API Vector) à la boucle scalaire,
+ * et à l'ancienne boucle `int` de Facture (qui déborde silencieusement sur les gros paniers).
+ *
+ * Le fork est lancé avec `--add-modules jdk.incubator.vector` : sans ce module,
+ * {@link CalculTotaux#produitScalaire} retombe sur la boucle scalaire.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProduitScalaireBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int taille;
+
+    private int[] quantites;
+    private int[] prix;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        SplittableRandom aleatoire = new SplittableRandom(3);
+        quantites = new int[taille];
+        prix = new int[taille];
+        for (int i = 0; i < taille; i++) {
+            quantites[i] = aleatoire.nextInt(50);
+            prix[i] = 1 + aleatoire.nextInt(500);
+        }
+        if (!CalculTotaux.isVectorise()) {
+            System.err.println("API Vector indisponible : produitScalaire utilise la boucle scalaire");
+        }
+    }
+
+    @Benchmark
+    public int boucleInt() {
+        int total = 0;
+        for (int i = 0; i < taille; i++) {
+            total += quantites[i] * prix[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long scalaire() {
+        return CalculTotaux.produitScalaireScalaire(quantites, prix, taille);
+    }
+
+    @Benchmark
+    public long vectorise() {
+        return CalculTotaux.produitScalaire(quantites, prix, taille);
+    }
+}
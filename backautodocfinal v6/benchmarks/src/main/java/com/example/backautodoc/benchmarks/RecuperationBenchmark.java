@@ -0,0 +1,144 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.CatalogueMappe;
+import com.example.backautodoc.InstantanesPaniers;
+import com.example.backautodoc.JournalCommandes;
+import com.example.backautodoc.MoteurCommandes;
+import com.example.backautodoc.Pieces;
+import com.example.backautodoc.PrixArticles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Mesure le temps de démarrage d'un serveur : chargement du dernier instantané des paniers,
+ * puis relecture de la fin du journal ({@link InstantanesPaniers#restaurer}).
+ *
+ * Chaque mesure est un démarrage à froid du point de vue des données (mode SingleShotTime) :
+ * les paniers sont reconstruits dans une table vide.
+ *
+ * `tailleCatalogue` fixe la taille du catalogue des paniers : 3 pour les seules pièces de base,
+ * ou un catalogue fournisseur (fichier {@link CatalogueMappe}) dont chaque panier contient aussi
+ * quelques références tirées au hasard, comme en production.
+ *
+ * Ce benchmark fixe son propre mode : le lancer avec le lanceur JMH standard,
+ * `java -cp benchmarks.jar org.openjdk.jmh.Main Recuperation`, et non avec {@link LanceurBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class RecuperationBenchmark {
+
+    private static final List<String> MARQUES = List.of("Toyota", "Ford", "BMW");
+
+    @Param({"100000", "1000000"})
+    public int nombrePaniers;
+
+    @Param({"100000"})
+    public int evenementsJournal;
+
+    @Param({"3", "1000000"})
+    public int tailleCatalogue;
+
+    @Param({"5"})
+    public int lignesCatalogue;
+
+    private PrixArticles prixArticles;
+    private Path dossier;
+    private Path dossierJournal;
+    private Path dossierInstantanes;
+
+    @Setup(Level.Trial)
+    public void preparer() throws IOException {
+        dossier = Files.createTempDirectory("recuperation-bench");
+        dossierJournal = dossier.resolve("journal");
+        dossierInstantanes = dossier.resolve("instantanes");
+        SplittableRandom aleatoire = new SplittableRandom(11);
+        if (tailleCatalogue > Pieces.NOMBRE_PIECES_BASE) {
+            int[] prix = new int[tailleCatalogue];
+            for (int i = 0; i < prix.length; i++) {
+                prix[i] = 1 + aleatoire.nextInt(500);
+            }
+            Path fichier = dossier.resolve("catalogue.bin");
+            CatalogueMappe.ecrire(fichier, prix);
+            prixArticles = new PrixArticles(CatalogueMappe.ouvrir(fichier));
+        } else {
+            prixArticles = new PrixArticles();
+        }
+
+        try (JournalCommandes journal = new JournalCommandes(dossierJournal, 64L * 1024 * 1024)) {
+            // Instantané : chaque moteur est écrit puis abandonné, pour ne pas garder un million de paniers en mémoire
+            try (InstantanesPaniers.Redaction redaction =
+                         InstantanesPaniers.commencer(dossierInstantanes, journal.getDernierLsn())) {
+                for (int i = 0; i < nombrePaniers; i++) {
+                    MoteurCommandes moteur = nouveauMoteur();
+                    moteur.selectionnerMarque(MARQUES.get(aleatoire.nextInt(MARQUES.size())));
+                    for (int pieceId = 0; pieceId < Pieces.NOMBRE_PIECES_BASE; pieceId++) {
+                        if (aleatoire.nextBoolean()) {
+                            moteur.selectionnerPiece(pieceId, true);
+                            moteur.modifierQuantite(pieceId, 1 + aleatoire.nextInt(5));
+                        }
+                    }
+                    if (tailleCatalogue > Pieces.NOMBRE_PIECES_BASE) {
+                        for (int l = 0; l < lignesCatalogue; l++) {
+                            moteur.modifierQuantite(aleatoire.nextInt(tailleCatalogue), 1 + aleatoire.nextInt(5));
+                        }
+                    }
+                    redaction.ajouter("session-" + i, moteur);
+                }
+                redaction.terminer();
+            }
+
+            // Fin du journal : modifications faites après l'instantané
+            for (int i = 0; i < evenementsJournal; i++) {
+                String session = "session-" + aleatoire.nextInt(nombrePaniers);
+                journal.ajouterAsync(JournalCommandes.TYPE_QUANTITE, JournalCommandes.encoderQuantite(session,
+                        aleatoire.nextInt(tailleCatalogue), aleatoire.nextInt(10)));
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, MoteurCommandes> restaurer() throws IOException {
+        Map<String, MoteurCommandes> sessions = new HashMap<>(2 * nombrePaniers);
+        InstantanesPaniers.restaurer(dossierInstantanes, dossierJournal, sessions, sessionId -> nouveauMoteur());
+        return sessions;
+    }
+
+    private MoteurCommandes nouveauMoteur() {
+        return new MoteurCommandes(prixArticles, tailleCatalogue);
+    }
+
+    @TearDown(Level.Trial)
+    public void nettoyer() throws IOException {
+        try (Stream<Path> fichiers = Files.walk(dossier)) {
+            for (Path fichier : fichiers.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(fichier);
+            }
+        }
+    }
+}
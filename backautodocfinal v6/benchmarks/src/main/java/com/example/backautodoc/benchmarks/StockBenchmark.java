@@ -0,0 +1,75 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.Commande;
+import com.example.backautodoc.StockPieces;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mesure la réservation de stock ({@link StockPieces}) sous contention : tous les threads se partagent
+ * le même stock et réservent des commandes de trois lignes tirées parmi `piecesChaudes` pièces.
+ * Avec une seule pièce chaude, tous les threads se disputent le même compteur ; avec 1024, ils ne se
+ * croisent presque jamais. Lancer avec plusieurs threads ({@link LanceurBenchmarks}).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StockBenchmark {
+
+    private static final int LIGNES_COMMANDE = 3;
+
+    @Param({"1", "16", "1024"})
+    public int piecesChaudes;
+
+    private StockPieces stock;
+    private Commande[] commandes;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        // Stock assez grand pour ne jamais manquer : on mesure la contention, pas les refus
+        stock = new StockPieces(piecesChaudes, Duration.ofMinutes(10));
+        for (int pieceId = 0; pieceId < piecesChaudes; pieceId++) {
+            stock.ajouterStock(pieceId, Integer.MAX_VALUE / 2);
+        }
+        commandes = new Commande[1024];
+        ThreadLocalRandom aleatoire = ThreadLocalRandom.current();
+        for (int i = 0; i < commandes.length; i++) {
+            int[] pieces = new int[LIGNES_COMMANDE];
+            int[] quantites = new int[LIGNES_COMMANDE];
+            for (int ligne = 0; ligne < LIGNES_COMMANDE; ligne++) {
+                pieces[ligne] = aleatoire.nextInt(piecesChaudes);
+                quantites[ligne] = 1 + aleatoire.nextInt(3);
+            }
+            commandes[i] = new Commande("Toyota", pieces, quantites);
+        }
+    }
+
+    @Benchmark
+    public boolean reserverPuisAnnuler() {
+        Commande commande = commandes[ThreadLocalRandom.current().nextInt(commandes.length)];
+        StockPieces.Reservation reservation = stock.reserver(commande);
+        return reservation.annuler();
+    }
+
+    @Benchmark
+    public int lireDisponible() {
+        return stock.getDisponible(ThreadLocalRandom.current().nextInt(piecesChaudes));
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        stock.close();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.backautodoc.benchmarks;
+
+import com.example.backautodoc.NumerotationFactures;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test de charge de {@link NumerotationFactures} : plusieurs processus locaux, chacun avec de nombreux threads,
+ * tirent des numéros du même fichier en même temps.
+ *
+ * Chaque processus écrit les blocs qu'il a reçus (premier numéro, nombre de numéros tirés) ; le processus
+ * principal vérifie ensuite :
+ * - que les numéros tirés dans chaque bloc se suivent sans trou ;
+ * - qu'aucun numéro n'a été attribué deux fois, ni par deux threads ni par deux processus ;
+ * - que la marque haute du fichier est au-delà de tous les numéros attribués.
+ *
+ * Utilisation (depuis benchmarks.jar) :
+ *   java -cp benchmarks.jar com.example.backautodoc.benchmarks.StressNumerotation
+ *        [processus, défaut 4] [threads par processus, défaut 32] [numéros par thread, défaut 100000]
+ * Le code de sortie est 1 si une vérification échoue.
+ */
+public final class StressNumerotation {
+
+    private static final String MODE_TRAVAILLEUR = "--travailleur";
+    private static final int TAILLE_BLOC = 64;
+    private static final int BLOCS_PAR_BAIL = 16;
+
+    private StressNumerotation() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(MODE_TRAVAILLEUR)) {
+            travailler(Path.of(args[1]), Path.of(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            return;
+        }
+        int processus = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int numerosParThread = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        Path dossier = Files.createTempDirectory("stress-numerotation");
+        Path fichier = dossier.resolve("numeros.adnf");
+        String java = ProcessHandle.current().info().command().orElse("java");
+        long debut = System.nanoTime();
+        List<Process> lances = new ArrayList<>();
+        for (int i = 0; i < processus; i++) {
+            lances.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    StressNumerotation.class.getName(), MODE_TRAVAILLEUR, fichier.toString(),
+                    dossier.resolve("blocs-" + i).toString(), String.valueOf(threads), String.valueOf(numerosParThread))
+                    .inheritIO()
+                    .start());
+        }
+        for (Process p : lances) {
+            if (p.waitFor() != 0) {
+                System.err.println("Un processus travailleur a échoué (code " + p.exitValue() + ")");
+                System.exit(1);
+            }
+        }
+        long duree = System.nanoTime() - debut;
+
+        // Rassemble tous les blocs : chaque numéro attribué est couvert par exactement un bloc
+        List<long[]> blocs = new ArrayList<>();
+        for (int i = 0; i < processus; i++) {
+            try (DataInputStream entree = new DataInputStream(Files.newInputStream(dossier.resolve("blocs-" + i)))) {
+                while (true) {
+                    long premier;
+                    try {
+                        premier = entree.readLong();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    blocs.add(new long[]{premier, entree.readLong()});
+                }
+            }
+        }
+        blocs.sort((a, b) -> Long.compare(a[0], b[0]));
+        long attribues = 0;
+        long chevauchements = 0;
+        long finPrecedente = 0;
+        for (long[] bloc : blocs) {
+            if (bloc[0] < finPrecedente) {
+                chevauchements++;
+            }
+            finPrecedente = Math.max(finPrecedente, bloc[0] + bloc[1]);
+            attribues += bloc[1];
+        }
+        long marqueHaute;
+        try (NumerotationFactures numerotation = NumerotationFactures.ouvrir(fichier)) {
+            marqueHaute = numerotation.getMarqueHaute();
+        }
+
+        long attendus = (long) processus * threads * numerosParThread;
+        boolean valide = attribues == attendus && chevauchements == 0 && finPrecedente <= marqueHaute;
+        System.out.printf("%d processus x %d threads : %d numéros en %d blocs, %.1f M numéros/s%n",
+                processus, threads, attribues, blocs.size(), attribues * 1e3 / duree);
+        System.out.printf("Chevauchements : %d, plus grand numéro : %d, marque haute : %d, numéros perdus : %d%n",
+                chevauchements, finPrecedente - 1, marqueHaute, marqueHaute - 1 - attribues);
+        System.out.println(valide ? "OK" : "ÉCHEC (attendu " + attendus + " numéros)");
+        try (var fichiers = Files.list(dossier)) {
+            for (Path f : fichiers.toList()) {
+                Files.delete(f);
+            }
+        }
+        Files.delete(dossier);
+        System.exit(valide ? 0 : 1);
+    }
+
+    /**
+     * Processus travailleur : chaque thread tire ses numéros un par un et note ses blocs.
+     * Un bloc dont les numéros ne se suivent pas fait échouer le processus.
+     */
+    private static void travailler(Path fichier, Path sortie, int threads, int numerosParThread) throws Exception {
+        long[][] blocsParThread = new long[threads][];
+        int[] nombreBlocs = new int[threads];
+        Throwable[] erreurs = new Throwable[threads];
+        CountDownLatch depart = new CountDownLatch(1);
+        Thread[] lances = new Thread[threads];
+        try (NumerotationFactures numerotation = NumerotationFactures.ouvrir(fichier, TAILLE_BLOC, BLOCS_PAR_BAIL)) {
+            for (int t = 0; t < threads; t++) {
+                int indice = t;
+                lances[t] = Thread.ofPlatform().start(() -> {
+                    long[] blocs = new long[16];
+                    int n = 0;
+                    try {
+                        depart.await();
+                        NumerotationFactures.Bloc bloc = null;
+                        long attendu = -1;
+                        for (int i = 0; i < numerosParThread; i++) {
+                            if (bloc == null || !bloc.restant()) {
+                                bloc = numerotation.reserverBloc();
+                                attendu = -1;
+                                if (n + 2 > blocs.length) {
+                                    blocs = Arrays.copyOf(blocs, 2 * blocs.length);
+                                }
+                                n += 2;
+                            }
+                            long numero = bloc.suivant();
+                            if (attendu == -1) {
+                                blocs[n - 2] = numero;
+                            } else if (numero != attendu) {
+                                throw new IllegalStateException("Trou dans un bloc : " + attendu + " puis " + numero);
+                            }
+                            blocs[n - 1]++;
+                            attendu = numero + 1;
+                        }
+                    } catch (Throwable e) {
+                        erreurs[indice] = e;
+                    }
+                    blocsParThread[indice] = blocs;
+                    nombreBlocs[indice] = n;
+                });
+            }
+            depart.countDown();
+            for (Thread t : lances) {
+                t.join();
+            }
+        }
+        try (DataOutputStream ecriture = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sortie)))) {
+            for (int t = 0; t < threads; t++) {
+                if (erreurs[t] != null) {
+                    erreurs[t].printStackTrace();
+                    System.exit(1);
+                }
+                for (int i = 0; i < nombreBlocs[t]; i++) {
+                    ecriture.writeLong(blocsParThread[t][i]);
+                }
+            }
+        }
+    }
+}
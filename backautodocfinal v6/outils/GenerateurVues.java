@@ -0,0 +1,285 @@
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Génère, au moment du build, une classe Java qui construit une vue décrite en FXML.
+ *
+ * Rôles principaux :
+ * 1. Lire le fichier FXML une fois pour toutes, pendant le build (phase generate-sources).
+ * 2. Écrire une classe `<NomDuFichier>Generee` dont la méthode `creer(controleur)` crée les nœuds,
+ *    renseigne les champs `fx:id` du contrôleur, branche les `onAction` et appelle `initialize()` :
+ *    au démarrage de l'application, ni analyse XML, ni réflexion.
+ *
+ * Fonctionnement :
+ * - Programme Java en un seul fichier, lancé par exec-maven-plugin avec `java GenerateurVues.java` :
+ *   il n'utilise que le JDK (DOM) et n'a pas besoin de JavaFX.
+ * - Sous-ensemble de FXML pris en charge : `<?import?>` de classes, conteneurs dont les enfants vont dans
+ *   `getChildren()` (directement ou dans `<children>`), `fx:id`, `fx:controller`, `onAction="#methode"`
+ *   (méthode sans paramètre), et les propriétés de la table {@link #PROPRIETES}.
+ *   Tout le reste (`fx:include`, expressions `$`, ressources `%`...) arrête le build avec un message clair :
+ *   il faut alors compléter le générateur, ou revenir à FXMLLoader.
+ * - Les champs `fx:id` du contrôleur doivent être accessibles depuis son paquetage (pas `private`).
+ *
+ * Arguments : <fichier.fxml> <dossier des sources générées>
+ */
+public class GenerateurVues {
+
+    // Propriété FXML -> type du paramètre de son setter
+    private static final Map<String, String> PROPRIETES = Map.ofEntries(
+            Map.entry("text", "String"),
+            Map.entry("promptText", "String"),
+            Map.entry("spacing", "double"),
+            Map.entry("prefWidth", "double"),
+            Map.entry("prefHeight", "double"),
+            Map.entry("minWidth", "double"),
+            Map.entry("maxWidth", "double"),
+            Map.entry("prefColumnCount", "int"),
+            Map.entry("visible", "boolean"),
+            Map.entry("disable", "boolean"),
+            Map.entry("editable", "boolean"),
+            Map.entry("wrapText", "boolean"),
+            Map.entry("alignment", "Pos"));
+
+    // Classes génériques : le type de leurs éléments est celui du champ du contrôleur
+    private static final Set<String> GENERIQUES = Set.of("ComboBox", "ChoiceBox", "ListView", "Spinner",
+            "TableView", "TableColumn", "TreeView", "TreeTableView");
+
+    private final Map<String, String> imports = new HashMap<>(); // Nom simple -> nom complet
+    private final TreeSet<String> importsUtilises = new TreeSet<>();
+    private final StringBuilder corps = new StringBuilder();
+    private final Map<String, Integer> compteurs = new HashMap<>();
+    private final Path fichier;
+
+    private GenerateurVues(Path fichier) {
+        this.fichier = fichier;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage : java GenerateurVues.java <fichier.fxml> <dossier des sources générées>");
+            System.exit(2);
+        }
+        Path fxml = Path.of(args[0]);
+        Path sortie = Path.of(args[1]);
+        try {
+            new GenerateurVues(fxml).generer(sortie);
+        } catch (IllegalArgumentException e) {
+            System.err.println(fxml + " : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void generer(Path dossierSortie) throws Exception {
+        DocumentBuilderFactory fabrique = DocumentBuilderFactory.newInstance();
+        fabrique.setNamespaceAware(true);
+        Document document = fabrique.newDocumentBuilder().parse(fichier.toFile());
+        for (Node noeud = document.getFirstChild(); noeud != null; noeud = noeud.getNextSibling()) {
+            if (noeud instanceof ProcessingInstruction instruction && "import".equals(instruction.getTarget())) {
+                ajouterImport(instruction.getData().strip());
+            }
+        }
+
+        Element racine = document.getDocumentElement();
+        String controleurComplet = attributFx(racine, "controller");
+        if (controleurComplet == null) {
+            throw new IllegalArgumentException("fx:controller manquant sur l'élément racine");
+        }
+        int point = controleurComplet.lastIndexOf('.');
+        String paquetage = controleurComplet.substring(0, point);
+        String controleur = controleurComplet.substring(point + 1);
+        String classe = nomClasse(fichier.getFileName().toString());
+
+        String variableRacine = genererNoeud(racine);
+
+        StringBuilder source = new StringBuilder();
+        source.append("// Généré par outils/GenerateurVues.java à partir de ").append(fichier.getFileName())
+                .append(" : ne pas modifier.\n");
+        source.append("package ").append(paquetage).append(";\n\n");
+        for (String nom : importsUtilises) {
+            source.append("import ").append(nom).append(";\n");
+        }
+        source.append("\n/**\n * Construit la vue ").append(fichier.getFileName())
+                .append(" en Java, sans FXMLLoader ni réflexion.\n */\n");
+        source.append("final class ").append(classe).append(" {\n\n");
+        source.append("    private ").append(classe).append("() {\n    }\n\n");
+        source.append("    static ").append(racine.getLocalName()).append(" creer(").append(controleur)
+                .append(" controleur) {\n");
+        source.append(corps);
+        source.append("        controleur.initialize();\n");
+        source.append("        return ").append(variableRacine).append(";\n");
+        source.append("    }\n}\n");
+
+        Path destination = dossierSortie.resolve(paquetage.replace('.', '/')).resolve(classe + ".java");
+        Files.createDirectories(destination.getParent());
+        // Fichier inchangé : pas de réécriture, pour ne pas relancer la compilation incrémentale
+        byte[] octets = source.toString().getBytes(StandardCharsets.UTF_8);
+        if (!Files.exists(destination) || !Arrays.equals(Files.readAllBytes(destination), octets)) {
+            Files.write(destination, octets);
+        }
+    }
+
+    private String genererNoeud(Element element) {
+        String type = element.getLocalName();
+        utiliser(type);
+        String id = attributFx(element, "id");
+        String variable = id != null ? id : nouvelleVariable(type);
+        if (!GENERIQUES.contains(type)) {
+            corps.append("        ").append(type).append(' ').append(variable).append(" = new ").append(type).append("();\n");
+        } else if (id != null) {
+            // Le diamant prend le paramètre de type du champ : ComboBox<String> marqueComboBox
+            corps.append("        controleur.").append(id).append(" = new ").append(type).append("<>();\n");
+            corps.append("        ").append(type).append("<?> ").append(variable).append(" = controleur.").append(id).append(";\n");
+        } else {
+            corps.append("        ").append(type).append("<Object> ").append(variable).append(" = new ").append(type).append("<>();\n");
+        }
+
+        for (int i = 0; i < element.getAttributes().getLength(); i++) {
+            Node attribut = element.getAttributes().item(i);
+            String nom = attribut.getLocalName() != null ? attribut.getLocalName() : attribut.getNodeName();
+            String espace = attribut.getNamespaceURI();
+            if (espace != null) {
+                // xmlns:fx, fx:id et fx:controller sont traités à part ; les autres attributs fx: ne sont pas pris en charge
+                if (espace.startsWith("http://javafx.com/fxml") && !nom.equals("id") && !nom.equals("controller")) {
+                    throw new IllegalArgumentException("attribut fx:" + nom + " non pris en charge");
+                }
+                continue;
+            }
+            String valeur = attribut.getNodeValue();
+            if (nom.equals("onAction")) {
+                if (!valeur.startsWith("#")) {
+                    throw new IllegalArgumentException("onAction doit désigner une méthode du contrôleur (#methode) : " + valeur);
+                }
+                corps.append("        ").append(variable).append(".setOnAction(e -> controleur.")
+                        .append(valeur.substring(1)).append("());\n");
+                continue;
+            }
+            corps.append("        ").append(variable).append(".set").append(Character.toUpperCase(nom.charAt(0)))
+                    .append(nom.substring(1)).append('(').append(litteral(type, nom, valeur)).append(");\n");
+        }
+        if (id != null && !GENERIQUES.contains(type)) {
+            corps.append("        controleur.").append(id).append(" = ").append(variable).append(";\n");
+        }
+
+        for (Node enfant = element.getFirstChild(); enfant != null; enfant = enfant.getNextSibling()) {
+            if (!(enfant instanceof Element elementEnfant)) {
+                continue;
+            }
+            if (Character.isLowerCase(elementEnfant.getLocalName().charAt(0))) {
+                // Élément de propriété : seul <children> est pris en charge
+                if (!elementEnfant.getLocalName().equals("children")) {
+                    throw new IllegalArgumentException("propriété <" + elementEnfant.getLocalName() + "> non prise en charge");
+                }
+                for (Node petitEnfant = elementEnfant.getFirstChild(); petitEnfant != null; petitEnfant = petitEnfant.getNextSibling()) {
+                    if (petitEnfant instanceof Element elementPetitEnfant) {
+                        ajouterEnfant(variable, elementPetitEnfant);
+                    }
+                }
+            } else {
+                ajouterEnfant(variable, elementEnfant);
+            }
+        }
+        return variable;
+    }
+
+    private void ajouterEnfant(String parent, Element enfant) {
+        String variable = genererNoeud(enfant);
+        corps.append("        ").append(parent).append(".getChildren().add(").append(variable).append(");\n");
+    }
+
+    private String litteral(String type, String propriete, String valeur) {
+        String typeValeur = PROPRIETES.get(propriete);
+        if (typeValeur == null) {
+            throw new IllegalArgumentException("propriété \"" + propriete + "\" de " + type
+                    + " non prise en charge (à ajouter dans GenerateurVues.PROPRIETES)");
+        }
+        switch (typeValeur) {
+            case "String":
+                if (!valeur.isEmpty() && "$%@".indexOf(valeur.charAt(0)) >= 0) {
+                    throw new IllegalArgumentException("expression FXML non prise en charge : " + valeur);
+                }
+                return chaineJava(valeur);
+            case "double":
+                return Double.toString(Double.parseDouble(valeur));
+            case "int":
+                return Integer.toString(Integer.parseInt(valeur));
+            case "boolean":
+                return Boolean.toString(Boolean.parseBoolean(valeur));
+            case "Pos":
+                importsUtilises.add("javafx.geometry.Pos");
+                return "Pos." + valeur;
+            default:
+                throw new IllegalStateException(typeValeur);
+        }
+    }
+
+    private void ajouterImport(String nom) {
+        if (nom.endsWith(".*")) {
+            throw new IllegalArgumentException("import générique non pris en charge : " + nom);
+        }
+        imports.put(nom.substring(nom.lastIndexOf('.') + 1), nom);
+    }
+
+    private void utiliser(String type) {
+        String nom = imports.get(type);
+        if (nom == null) {
+            throw new IllegalArgumentException("classe " + type + " non importée");
+        }
+        importsUtilises.add(nom);
+    }
+
+    private String nouvelleVariable(String type) {
+        int numero = compteurs.merge(type, 1, Integer::sum);
+        return Character.toLowerCase(type.charAt(0)) + type.substring(1) + numero;
+    }
+
+    private static String attributFx(Element element, String nom) {
+        for (int i = 0; i < element.getAttributes().getLength(); i++) {
+            Node attribut = element.getAttributes().item(i);
+            if (nom.equals(attribut.getLocalName()) && attribut.getNamespaceURI() != null
+                    && attribut.getNamespaceURI().startsWith("http://javafx.com/fxml")) {
+                return attribut.getNodeValue();
+            }
+        }
+        return null;
+    }
+
+    // hello-view.fxml -> HelloViewGeneree
+    private static String nomClasse(String nomFichier) {
+        StringBuilder nom = new StringBuilder();
+        boolean majuscule = true;
+        for (char c : nomFichier.substring(0, nomFichier.lastIndexOf('.')).toCharArray()) {
+            if (!Character.isLetterOrDigit(c)) {
+                majuscule = true;
+            } else {
+                nom.append(majuscule ? Character.toUpperCase(c) : c);
+                majuscule = false;
+            }
+        }
+        return nom.append("Generee").toString();
+    }
+
+    private static String chaineJava(String valeur) {
+        StringBuilder chaine = new StringBuilder("\"");
+        for (char c : valeur.toCharArray()) {
+            switch (c) {
+                case '"' -> chaine.append("\\\"");
+                case '\\' -> chaine.append("\\\\");
+                case '\n' -> chaine.append("\\n");
+                default -> chaine.append(c);
+            }
+        }
+        return chaine.append('"').toString();
+    }
+}
@@ -13,6 +13,9 @@ import javafx.scene.control.Alert;
  * - Les méthodes `showError` et `showInfo` permettent de créer et d'afficher des alertes
  *   avec des titres, des en-têtes, et des messages personnalisés.
  * - Ces méthodes utilisent la classe {@link Alert} de JavaFX.
+ * - `showError` et `showInfo` attendent que l'utilisateur ferme l'alerte ; `notifyError` et `notifyInfo`
+ *   l'ouvrent et rendent la main immédiatement (le thread JavaFX continue d'animer l'interface).
+ *   Seules ces dernières peuvent être appelées pendant une animation (répétition d'un bouton, minuteur).
  */
 public class AlertHelper {
 
@@ -38,6 +41,28 @@ public class AlertHelper {
         showAlert(title, header, content, Alert.AlertType.INFORMATION);
     }
 
+    /**
+     * Affiche une alerte d'erreur sans attendre qu'elle soit fermée.
+     *
+     * @param title Le titre de l'alerte.
+     * @param header L'en-tête de l'alerte.
+     * @param content Le contenu détaillé de l'alerte.
+     */
+    public static void notifyError(String title, String header, String content) {
+        createAlert(title, header, content, Alert.AlertType.ERROR).show();
+    }
+
+    /**
+     * Affiche une alerte d'information sans attendre qu'elle soit fermée.
+     *
+     * @param title Le titre de l'alerte.
+     * @param header L'en-tête de l'alerte.
+     * @param content Le contenu détaillé de l'alerte.
+     */
+    public static void notifyInfo(String title, String header, String content) {
+        createAlert(title, header, content, Alert.AlertType.INFORMATION).show();
+    }
+
     /**
      * Méthode privée utilisée pour créer et afficher une alerte.
      *
@@ -47,11 +72,15 @@ public class AlertHelper {
      * @param type Le type d'alerte ({@link Alert.AlertType}).
      */
     private static void showAlert(String title, String header, String content, Alert.AlertType type) {
+        createAlert(title, header, content, type).showAndWait(); // Attend que l'utilisateur ferme l'alerte
+    }
+
+    private static Alert createAlert(String title, String header, String content, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
         alert.setHeaderText(header);
         alert.setContentText(content);
-        alert.showAndWait(); // Attend que l'utilisateur ferme l'alerte
+        return alert;
     }
 }
 
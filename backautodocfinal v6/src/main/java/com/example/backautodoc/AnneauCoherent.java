@@ -0,0 +1,133 @@
+package com.example.backautodoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cette classe répartit des clés (identifiants de session) entre plusieurs nœuds par hachage cohérent.
+ *
+ * Rôles principaux :
+ * 1. Associer chaque clé à un nœud, toujours le même tant que la liste des nœuds ne change pas.
+ * 2. Quand un nœud est ajouté ou retiré, ne déplacer que les clés qui doivent l'être :
+ *    environ 1/N des clés à l'ajout du N-ième nœud, et seulement celles du nœud retiré au retrait.
+ *
+ * Fonctionnement :
+ * - Chaque nœud est placé en `noeudsVirtuels` points d'un anneau de 2^64 positions (hachage de « nœud#i »).
+ *   Les nombreux points par nœud lissent la répartition : sans eux, un nœud pourrait recevoir une part
+ *   bien plus grande que les autres.
+ * - Une clé appartient au premier point rencontré en partant de son propre hachage dans le sens croissant
+ *   (recherche dichotomique dans un tableau trié des positions).
+ * - Un anneau est immuable : {@link #avec(String)} et {@link #sans(String)} retournent un nouvel anneau,
+ *   ce qui permet de comparer l'ancienne et la nouvelle répartition pendant un rééquilibrage.
+ *
+ * Liens avec d'autres classes :
+ * - {@link RouteurPaniers} : Choisit le serveur de chaque session, et déplace les paniers quand les nœuds changent.
+ */
+public final class AnneauCoherent {
+
+    public static final int NOEUDS_VIRTUELS_DEFAUT = 160;
+
+    private final List<String> noeuds;
+    private final int noeudsVirtuels;
+    private final long[] positions;    // Positions des points sur l'anneau, triées
+    private final int[] proprietaires; // Indice dans `noeuds` du nœud de chaque point
+
+    /**
+     * Construit l'anneau d'une liste de nœuds.
+     *
+     * @param noeuds Les nœuds (par exemple des adresses de serveurs), sans doublon.
+     * @param noeudsVirtuels Le nombre de points de chaque nœud sur l'anneau.
+     */
+    public AnneauCoherent(List<String> noeuds, int noeudsVirtuels) {
+        if (noeudsVirtuels < 1) {
+            throw new IllegalArgumentException("Nombre de nœuds virtuels invalide : " + noeudsVirtuels);
+        }
+        if (noeuds.stream().distinct().count() != noeuds.size()) {
+            throw new IllegalArgumentException("Nœud en double : " + noeuds);
+        }
+        this.noeuds = List.copyOf(noeuds);
+        this.noeudsVirtuels = noeudsVirtuels;
+
+        int nombrePoints = noeuds.size() * noeudsVirtuels;
+        long[] points = new long[nombrePoints];
+        for (int n = 0; n < noeuds.size(); n++) {
+            for (int v = 0; v < noeudsVirtuels; v++) {
+                points[n * noeudsVirtuels + v] = hacher(noeuds.get(n) + "#" + v);
+            }
+        }
+        // Trie les points en gardant leur propriétaire : ordre des positions, puis des indices en cas d'égalité
+        Integer[] ordre = new Integer[nombrePoints];
+        for (int i = 0; i < nombrePoints; i++) {
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, (a, b) -> points[a] != points[b] ? Long.compare(points[a], points[b]) : Integer.compare(a, b));
+        positions = new long[nombrePoints];
+        proprietaires = new int[nombrePoints];
+        for (int i = 0; i < nombrePoints; i++) {
+            positions[i] = points[ordre[i]];
+            proprietaires[i] = ordre[i] / noeudsVirtuels;
+        }
+    }
+
+    /**
+     * Retourne le nœud d'une clé.
+     *
+     * @param cle La clé (identifiant de session).
+     * @return Le nœud responsable de la clé.
+     * @throws IllegalStateException Si l'anneau ne contient aucun nœud.
+     */
+    public String noeudDe(String cle) {
+        if (positions.length == 0) {
+            throw new IllegalStateException("Aucun nœud dans l'anneau");
+        }
+        int i = Arrays.binarySearch(positions, hacher(cle));
+        if (i < 0) {
+            i = -i - 1; // Premier point de position supérieure
+        }
+        return noeuds.get(proprietaires[i == positions.length ? 0 : i]);
+    }
+
+    /**
+     * @return Un nouvel anneau avec ce nœud en plus.
+     */
+    public AnneauCoherent avec(String noeud) {
+        List<String> nouveaux = new ArrayList<>(noeuds);
+        nouveaux.add(noeud);
+        return new AnneauCoherent(nouveaux, noeudsVirtuels);
+    }
+
+    /**
+     * @return Un nouvel anneau sans ce nœud.
+     */
+    public AnneauCoherent sans(String noeud) {
+        List<String> restants = new ArrayList<>(noeuds);
+        restants.remove(noeud);
+        return new AnneauCoherent(restants, noeudsVirtuels);
+    }
+
+    /**
+     * @return Les nœuds de l'anneau, dans leur ordre d'ajout.
+     */
+    public List<String> getNoeuds() {
+        return noeuds;
+    }
+
+    /**
+     * Hachage 64 bits d'une chaîne : FNV-1a sur les caractères, puis mélange final de MurmurHash3
+     * pour que des clés voisines (« client-41 », « client-42 ») tombent loin l'une de l'autre sur l'anneau.
+     */
+    static long hacher(String cle) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < cle.length(); i++) {
+            h ^= cle.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.backautodoc;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cette classe garde les devis (totaux et texte de facture) des paniers les plus fréquents.
+ *
+ * Rôles principaux :
+ * 1. Éviter de recalculer le total et de réécrire la facture des paniers identiques
+ *    (forfaits d'entretien : freins + huile + filtres pour une marque donnée).
+ * 2. Limiter le nombre de devis gardés, en conservant de préférence les paniers souvent demandés.
+ * 3. Compter les succès, les échecs et les évictions (JMX et `/metrics`).
+ *
+ * Clé d'un devis :
+ * - La marque, les lignes du panier dans l'ordre de la facture (pièces de base puis autres lignes),
+ *   la version des prix ({@link PrixArticles#getVersion()}) et la grille tarifaire appliquée.
+ * - Un changement de prix ou de grille change la clé : les anciens devis ne sont plus jamais trouvés
+ *   et finissent par être évincés. {@link #vider()} les supprime immédiatement.
+ * - Une empreinte de 64 bits sert au hachage ; l'égalité compare le contenu complet de la clé,
+ *   deux paniers différents ne partagent donc jamais un devis.
+ * - Les paniers de plus de {@value #LIGNES_MAX} lignes ne sont pas mis en cache : ce ne sont pas des forfaits,
+ *   et construire leur clé coûterait autant que le calcul.
+ *
+ * Éviction (W-TinyLFU) :
+ * - Un nouveau devis entre dans une petite fenêtre LRU (1 % de la capacité), qui absorbe les rafales.
+ * - Quand la fenêtre déborde, son plus ancien devis est candidat à l'entrée dans la zone principale
+ *   (LRU segmentée : probation puis protégée, 80 % de la zone). Si celle-ci est pleine, le candidat
+ *   n'entre que s'il a été demandé plus souvent que le devis qu'il remplacerait.
+ * - Les fréquences sont estimées par un « count-min sketch » de compteurs de 4 bits, divisés par deux
+ *   régulièrement : les paniers anciens perdent leur avance, et la mémoire ne dépend pas du nombre de paniers vus.
+ *
+ * Concurrence :
+ * - Les lectures ne prennent pas de verrou bloquant : la table est une {@link ConcurrentHashMap}. La mise à jour
+ *   de l'ordre LRU et des fréquences est sautée si un autre thread tient le verrou (une lecture perdue
+ *   n'affecte que la précision de l'éviction).
+ * - Les insertions et évictions sont faites sous un verrou unique.
+ *
+ * Liens avec d'autres classes :
+ * - {@link Facture} : Consulte le cache dans {@link Facture#calculerPrixTotal(String)} et {@link Facture#genererFacture(String)}.
+ * - {@link ServeurHttp} : Partage un cache entre toutes les sessions et publie ses compteurs.
+ */
+public final class CacheDevis implements CacheDevisMXBean {
+
+    static final int LIGNES_MAX = 64;
+    private static final int POURCENT_FENETRE = 1;
+    private static final int POURCENT_PROTEGEE = 80;
+    private static final int ECHANTILLON_PAR_ENTREE = 10; // Vieillissement des fréquences tous les 10 × capacité accès
+
+    /**
+     * Un devis : totaux du panier et, si elle a déjà été générée, la facture.
+     *
+     * @param totalBrut Le total avant remises.
+     * @param total Le total après la grille tarifaire.
+     * @param facture Le texte de la facture, ou null.
+     */
+    public record Devis(long totalBrut, long total, String facture) {
+    }
+
+    private final int capacite;
+    private final int fenetreMax;
+    private final int protegeeMax;
+    private final ConcurrentHashMap<Cle, Noeud> devis;
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Frequences frequences;
+    // Listes LRU (tête = plus récent), protégées par le verrou
+    private final Liste fenetre = new Liste();
+    private final Liste probation = new Liste();
+    private final Liste protegee = new Liste();
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Crée un cache vide.
+     *
+     * @param capacite Le nombre maximal de devis gardés (au moins 1).
+     */
+    public CacheDevis(int capacite) {
+        if (capacite < 1) {
+            throw new IllegalArgumentException("Capacité du cache invalide : " + capacite);
+        }
+        this.capacite = capacite;
+        this.fenetreMax = Math.max(1, capacite * POURCENT_FENETRE / 100);
+        this.protegeeMax = (capacite - fenetreMax) * POURCENT_PROTEGEE / 100;
+        this.devis = new ConcurrentHashMap<>(Math.min(capacite, 1 << 16));
+        this.frequences = new Frequences(capacite);
+    }
+
+    /**
+     * Construit la clé du panier courant.
+     *
+     * @param panier Le panier.
+     * @param prixArticles Les prix utilisés (leur version fait partie de la clé).
+     * @param grille La grille tarifaire appliquée.
+     * @param marque La marque sélectionnée (ou null).
+     * @return La clé, ou null si le panier est trop grand pour être mis en cache.
+     */
+    public Cle cle(GestionQuantites panier, PrixArticles prixArticles, GrilleTarifaire grille, String marque) {
+        int nombreLignes = panier.getNombreLignes();
+        if (nombreLignes > LIGNES_MAX) {
+            return null;
+        }
+        // Ordre de la facture (voir RenduFacture) : le texte mis en cache est celui de ce panier
+        int[] lignes = new int[2 * nombreLignes];
+        int n = 0;
+        int nombreBase = Math.min(Pieces.NOMBRE_PIECES_BASE, panier.getNombrePieces());
+        for (int pieceId = 0; pieceId < nombreBase; pieceId++) {
+            if (panier.getQuantite(pieceId) > 0) {
+                lignes[n++] = pieceId;
+                lignes[n++] = panier.getQuantite(pieceId);
+            }
+        }
+        for (int i = 0; i < nombreLignes; i++) {
+            int pieceId = panier.getPieceLigne(i);
+            if (pieceId >= Pieces.NOMBRE_PIECES_BASE) {
+                lignes[n++] = pieceId;
+                lignes[n++] = panier.getQuantite(pieceId);
+            }
+        }
+        return new Cle(marque, prixArticles.getVersion(), grille, lignes);
+    }
+
+    /**
+     * Retourne le devis d'un panier.
+     *
+     * @param cle La clé du panier ({@link #cle}).
+     * @return Le devis, ou null s'il n'est pas dans le cache.
+     */
+    public Devis get(Cle cle) {
+        Noeud noeud = devis.get(cle);
+        if (noeud == null) {
+            echecs.increment();
+            return null;
+        }
+        succes.increment();
+        if (verrou.tryLock()) {
+            try {
+                if (noeud.liste != null) { // Pas évincé entre-temps
+                    frequences.incrementer(cle.empreinte);
+                    acceder(noeud);
+                }
+            } finally {
+                verrou.unlock();
+            }
+        }
+        return noeud.devis;
+    }
+
+    /**
+     * Ajoute ou remplace le devis d'un panier ; un autre devis peut être évincé.
+     *
+     * @param cle La clé du panier ({@link #cle}).
+     * @param valeur Le devis.
+     */
+    public void put(Cle cle, Devis valeur) {
+        verrou.lock();
+        try {
+            frequences.incrementer(cle.empreinte);
+            Noeud noeud = devis.get(cle);
+            if (noeud != null) {
+                noeud.devis = valeur;
+                acceder(noeud);
+                return;
+            }
+            noeud = new Noeud(cle, valeur);
+            devis.put(cle, noeud);
+            fenetre.ajouterEnTete(noeud);
+            if (fenetre.taille > fenetreMax) {
+                admettre(fenetre.queue);
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Supprime tous les devis (par exemple après une modification des prix faite hors de {@link PrixArticles}).
+     */
+    public void vider() {
+        verrou.lock();
+        try {
+            for (Liste liste : new Liste[]{fenetre, probation, protegee}) {
+                for (Noeud noeud = liste.tete; noeud != null; noeud = noeud.suivant) {
+                    noeud.liste = null;
+                }
+                liste.tete = liste.queue = null;
+                liste.taille = 0;
+            }
+            devis.clear();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Fait passer le plus ancien devis de la fenêtre dans la zone principale, si sa fréquence le justifie.
+     */
+    private void admettre(Noeud candidat) {
+        fenetre.retirer(candidat);
+        if (probation.taille + protegee.taille < capacite - fenetreMax) {
+            probation.ajouterEnTete(candidat);
+            return;
+        }
+        Noeud victime = probation.queue != null ? probation.queue : protegee.queue;
+        if (victime != null && frequences.estimer(candidat.cle.empreinte) > frequences.estimer(victime.cle.empreinte)) {
+            victime.liste.retirer(victime);
+            evincer(victime);
+            probation.ajouterEnTete(candidat);
+        } else {
+            evincer(candidat);
+        }
+    }
+
+    private void evincer(Noeud noeud) {
+        devis.remove(noeud.cle, noeud);
+        evictions.increment();
+    }
+
+    /**
+     * Met à jour les listes après un accès : plus récent dans sa liste, ou promu de la probation à la zone protégée.
+     */
+    private void acceder(Noeud noeud) {
+        Liste liste = noeud.liste;
+        liste.retirer(noeud);
+        if (liste == probation) {
+            protegee.ajouterEnTete(noeud);
+            if (protegee.taille > protegeeMax && protegee.queue != null) {
+                Noeud retrograde = protegee.queue;
+                protegee.retirer(retrograde);
+                probation.ajouterEnTete(retrograde);
+            }
+        } else {
+            liste.ajouterEnTete(noeud);
+        }
+    }
+
+    @Override
+    public long getSucces() {
+        return succes.sum();
+    }
+
+    @Override
+    public long getEchecs() {
+        return echecs.sum();
+    }
+
+    @Override
+    public double getTauxSucces() {
+        long s = succes.sum();
+        long total = s + echecs.sum();
+        return total == 0 ? 0 : (double) s / total;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public int getTaille() {
+        return devis.size();
+    }
+
+    @Override
+    public int getCapacite() {
+        return capacite;
+    }
+
+    /**
+     * Écrit les compteurs du cache au format texte de Prometheus (voir {@link Metriques#ecrireTexte(StringBuilder)}).
+     *
+     * @param texte La destination.
+     */
+    public void ecrireTexte(StringBuilder texte) {
+        texte.append("# HELP backautodoc_cache_devis_requetes_total Consultations du cache des devis.\n");
+        texte.append("# TYPE backautodoc_cache_devis_requetes_total counter\n");
+        texte.append("backautodoc_cache_devis_requetes_total{resultat=\"succes\"} ").append(getSucces()).append('\n');
+        texte.append("backautodoc_cache_devis_requetes_total{resultat=\"echec\"} ").append(getEchecs()).append('\n');
+        texte.append("# HELP backautodoc_cache_devis_evictions_total Devis évincés pour faire de la place.\n");
+        texte.append("# TYPE backautodoc_cache_devis_evictions_total counter\n");
+        texte.append("backautodoc_cache_devis_evictions_total ").append(getEvictions()).append('\n');
+        texte.append("# HELP backautodoc_cache_devis_entrees Devis actuellement gardés.\n");
+        texte.append("# TYPE backautodoc_cache_devis_entrees gauge\n");
+        texte.append("backautodoc_cache_devis_entrees ").append(getTaille()).append('\n');
+    }
+
+    /**
+     * Clé d'un devis (voir la description de la classe).
+     */
+    public static final class Cle {
+        private final String marque;
+        private final long versionPrix;
+        private final GrilleTarifaire grille;
+        private final int[] lignes; // Paires (pièce, quantité) dans l'ordre de la facture
+        private final long empreinte;
+
+        Cle(String marque, long versionPrix, GrilleTarifaire grille, int[] lignes) {
+            this.marque = marque;
+            this.versionPrix = versionPrix;
+            this.grille = grille;
+            this.lignes = lignes;
+            long h = versionPrix * 0x9E3779B97F4A7C15L + System.identityHashCode(grille);
+            h = h * 0x9E3779B97F4A7C15L + (marque == null ? 0 : marque.hashCode());
+            for (int valeur : lignes) {
+                h = h * 0x9E3779B97F4A7C15L + valeur;
+            }
+            this.empreinte = melanger(h);
+        }
+
+        @Override
+        public boolean equals(Object autre) {
+            return autre instanceof Cle cle && empreinte == cle.empreinte && versionPrix == cle.versionPrix
+                    && grille == cle.grille && Objects.equals(marque, cle.marque)
+                    && Arrays.equals(lignes, cle.lignes);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (empreinte ^ (empreinte >>> 32));
+        }
+    }
+
+    /**
+     * Dernière étape de MurmurHash3 : chaque bit de l'entrée influence tous les bits de la sortie.
+     */
+    private static long melanger(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static final class Noeud {
+        final Cle cle;
+        volatile Devis devis; // Lu sans verrou par get()
+        Liste liste;          // null une fois évincé
+        Noeud precedent;
+        Noeud suivant;
+
+        Noeud(Cle cle, Devis devis) {
+            this.cle = cle;
+            this.devis = devis;
+        }
+    }
+
+    /**
+     * Liste doublement chaînée intrusive (les nœuds portent leurs liens) : déplacer un nœud est en O(1).
+     */
+    private static final class Liste {
+        Noeud tete;
+        Noeud queue;
+        int taille;
+
+        void ajouterEnTete(Noeud noeud) {
+            noeud.liste = this;
+            noeud.precedent = null;
+            noeud.suivant = tete;
+            if (tete != null) {
+                tete.precedent = noeud;
+            } else {
+                queue = noeud;
+            }
+            tete = noeud;
+            taille++;
+        }
+
+        void retirer(Noeud noeud) {
+            if (noeud.precedent != null) {
+                noeud.precedent.suivant = noeud.suivant;
+            } else {
+                tete = noeud.suivant;
+            }
+            if (noeud.suivant != null) {
+                noeud.suivant.precedent = noeud.precedent;
+            } else {
+                queue = noeud.precedent;
+            }
+            noeud.precedent = noeud.suivant = null;
+            noeud.liste = null;
+            taille--;
+        }
+    }
+
+    /**
+     * Estimation des fréquences d'accès : 4 rangées de compteurs de 4 bits (16 par long), la fréquence
+     * estimée étant le plus petit des 4 compteurs de la clé. Protégée par le verrou du cache.
+     */
+    private static final class Frequences {
+        private static final long[] GRAINES = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L,
+                0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+        private final long[] compteurs;
+        private final int masque;        // Nombre de compteurs par rangée - 1 (puissance de 2)
+        private final int tailleEchantillon;
+        private int increments;
+
+        Frequences(int capacite) {
+            int parRangee = Integer.highestOneBit(Math.max(16, Math.min(capacite, 1 << 24) - 1) << 1);
+            this.masque = parRangee - 1;
+            this.compteurs = new long[GRAINES.length * parRangee / 16];
+            this.tailleEchantillon = (int) Math.min(Integer.MAX_VALUE, (long) ECHANTILLON_PAR_ENTREE * capacite);
+        }
+
+        int estimer(long empreinte) {
+            int minimum = 15;
+            for (int rangee = 0; rangee < GRAINES.length; rangee++) {
+                int position = position(empreinte, rangee);
+                minimum = Math.min(minimum, (int) (compteurs[position >>> 4] >>> ((position & 15) << 2)) & 0xF);
+            }
+            return minimum;
+        }
+
+        void incrementer(long empreinte) {
+            boolean incremente = false;
+            for (int rangee = 0; rangee < GRAINES.length; rangee++) {
+                int position = position(empreinte, rangee);
+                int decalage = (position & 15) << 2;
+                if (((compteurs[position >>> 4] >>> decalage) & 0xF) < 15) {
+                    compteurs[position >>> 4] += 1L << decalage;
+                    incremente = true;
+                }
+            }
+            if (incremente && ++increments >= tailleEchantillon) {
+                vieillir();
+            }
+        }
+
+        /**
+         * Divise tous les compteurs par deux.
+         */
+        private void vieillir() {
+            for (int i = 0; i < compteurs.length; i++) {
+                compteurs[i] = (compteurs[i] >>> 1) & 0x7777777777777777L;
+            }
+            increments /= 2;
+        }
+
+        private int position(long empreinte, int rangee) {
+            int dansRangee = (int) melanger(empreinte + GRAINES[rangee]) & masque;
+            return rangee * (masque + 1) + dansRangee;
+        }
+    }
+}
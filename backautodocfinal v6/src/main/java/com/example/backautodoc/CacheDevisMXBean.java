@@ -0,0 +1,22 @@
+package com.example.backautodoc;
+
+/**
+ * Vue JMX des compteurs de {@link CacheDevis}.
+ */
+public interface CacheDevisMXBean {
+
+    long getSucces();
+
+    long getEchecs();
+
+    /**
+     * Retourne la part des consultations qui ont trouvé un devis (entre 0 et 1).
+     */
+    double getTauxSucces();
+
+    long getEvictions();
+
+    int getTaille();
+
+    int getCapacite();
+}
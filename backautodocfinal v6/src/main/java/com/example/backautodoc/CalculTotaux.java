@@ -0,0 +1,106 @@
+package com.example.backautodoc;
+
+/**
+ * Cette classe calcule des produits scalaires quantités × prix sur de grands tableaux,
+ * par exemple pour les paniers professionnels très larges ou le recalcul de prix en masse.
+ *
+ * Rôles principaux :
+ * 1. Calculer `somme(quantites[i] * prix[i])` avec un accumulateur `long` : le résultat est exact
+ *    même quand le total dépasse {@link Integer#MAX_VALUE}.
+ * 2. Utiliser les instructions SIMD du processeur (API Vector, module `jdk.incubator.vector`)
+ *    quand elles sont disponibles, et une boucle scalaire sinon.
+ *
+ * Fonctionnement :
+ * - Le module `jdk.incubator.vector` est une dépendance optionnelle (`requires static`) : il n'est chargé
+ *   que si l'application est lancée avec `--add-modules jdk.incubator.vector`.
+ * - Le choix est fait une fois, au chargement de la classe. La propriété système
+ *   `backautodoc.vector=false` force la boucle scalaire.
+ *
+ * Liens avec d'autres classes :
+ * - {@link Facture#recalculerPrixTotal()} : Utilise ce calcul quand le panier est dense, par blocs de prix
+ *   lus dans le catalogue ({@link PrixArticles#produitScalaire(int[], int)}).
+ * - `ProduitScalaireVectoriel` : Implémentation SIMD, isolée pour ne jamais être chargée sans le module.
+ */
+public final class CalculTotaux {
+
+    private static final boolean VECTORISE = detecterVector();
+
+    private CalculTotaux() {
+    }
+
+    /**
+     * Calcule le produit scalaire des `longueur` premières cases de deux tableaux.
+     *
+     * @param quantites Les quantités.
+     * @param prix Les prix unitaires.
+     * @param longueur Le nombre de cases à prendre en compte.
+     * @return La somme des `quantites[i] * prix[i]`, sans dépassement de capacité.
+     */
+    public static long produitScalaire(int[] quantites, int[] prix, int longueur) {
+        return produitScalaire(quantites, 0, prix, longueur);
+    }
+
+    /**
+     * Calcule le produit scalaire de `longueur` quantités, lues à partir de la case `decalage`,
+     * par les `longueur` premiers prix. Sert aux calculs par blocs ({@link PrixArticles#produitScalaire(int[], int)}) :
+     * les prix d'un bloc de pièces sont copiés au début d'un petit tableau.
+     *
+     * @param quantites Les quantités.
+     * @param decalage La case de `quantites` qui correspond à `prix[0]`.
+     * @param prix Les prix unitaires.
+     * @param longueur Le nombre de cases à prendre en compte.
+     * @return La somme des `quantites[decalage + i] * prix[i]`, sans dépassement de capacité.
+     */
+    public static long produitScalaire(int[] quantites, int decalage, int[] prix, int longueur) {
+        verifierLongueur(quantites, decalage, prix, longueur);
+        return VECTORISE
+                ? ProduitScalaireVectoriel.calculer(quantites, decalage, prix, longueur)
+                : produitScalaireScalaire(quantites, decalage, prix, longueur);
+    }
+
+    /**
+     * Calcule le même produit scalaire avec une simple boucle (référence et solution de repli).
+     */
+    public static long produitScalaireScalaire(int[] quantites, int[] prix, int longueur) {
+        return produitScalaireScalaire(quantites, 0, prix, longueur);
+    }
+
+    /**
+     * Calcule le même produit scalaire décalé avec une simple boucle.
+     */
+    public static long produitScalaireScalaire(int[] quantites, int decalage, int[] prix, int longueur) {
+        verifierLongueur(quantites, decalage, prix, longueur);
+        long total = 0;
+        for (int i = 0; i < longueur; i++) {
+            total += (long) quantites[decalage + i] * prix[i];
+        }
+        return total;
+    }
+
+    /**
+     * Indique si les calculs utilisent l'API Vector.
+     */
+    public static boolean isVectorise() {
+        return VECTORISE;
+    }
+
+    private static void verifierLongueur(int[] quantites, int decalage, int[] prix, int longueur) {
+        if (longueur < 0 || decalage < 0 || (long) decalage + longueur > quantites.length || longueur > prix.length) {
+            throw new IllegalArgumentException("Longueur invalide : " + longueur + " (décalage " + decalage + ")");
+        }
+    }
+
+    private static boolean detecterVector() {
+        if (!Boolean.parseBoolean(System.getProperty("backautodoc.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            // Vérifie que l'implémentation SIMD se charge et donne le bon résultat
+            int[] essai = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17};
+            return ProduitScalaireVectoriel.calculer(essai, 0, essai, essai.length) == 1785;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cette classe lit et écrit le catalogue fournisseur complet dans un format binaire par colonnes.
+ *
+ * Rôles principaux :
+ * 1. Stocker, pour chaque pièce, sa référence fournisseur, son prix, les marques compatibles et son libellé.
+ * 2. Ne lire que les colonnes utilisées : une facture ne touche que les prix, la table du catalogue
+ *    les prix et les libellés ; les autres colonnes ne sont jamais chargées par le système.
+ *
+ * Format du fichier (ordre des octets little-endian) :
+ * - En-tête de 16 octets : signature "ADCC", version du format, nombre de pièces, réservé (0).
+ * - Les colonnes, chacune alignée sur 8 octets, indexées par identifiant de pièce :
+ *   références (long), prix (int), marques compatibles (int : un bit par marque du dictionnaire
+ *   des marques), libellés (int : un code du dictionnaire des libellés).
+ * - Les dictionnaires : nombre de chaînes, débuts des chaînes (nombre + 1 entiers), puis les chaînes en UTF-8.
+ *   Un libellé partagé par des milliers de pièces n'est stocké qu'une fois.
+ * - L'index des colonnes (numéro, réservé, position, longueur), puis 16 octets de fin : position de l'index,
+ *   nombre de colonnes et signature. Le lecteur part de la fin du fichier pour trouver les colonnes.
+ *
+ * Versions :
+ * - Un lecteur refuse un fichier d'une version plus récente que {@link #VERSION}.
+ * - Une colonne de numéro inconnu est ignorée, et seules les colonnes de prix sont obligatoires :
+ *   on peut ajouter une colonne sans changer de version, les anciens lecteurs l'ignoreront.
+ *
+ * Fonctionnement :
+ * - Le fichier est projeté en mémoire ; chaque colonne est une vue ({@link IntBuffer}, {@link LongBuffer})
+ *   sur la projection : aucune donnée n'est copiée dans le tas Java à l'ouverture.
+ * - Les libellés décodés sont gardés par code de dictionnaire : chaque libellé n'est décodé qu'une fois.
+ *
+ * Liens avec d'autres classes :
+ * - {@link CataloguePrix} : Reconnaît ce format et l'ouvre.
+ * - {@link PrixArticles} : Lit les prix et les libellés des pièces.
+ * - {@link MarqueSelection} : Les marques compatibles utilisent les mêmes noms.
+ */
+public class CatalogueColonnaire implements CataloguePrix {
+
+    static final int SIGNATURE = 0x43434441; // "ADCC" en little-endian
+    static final int VERSION = 1;
+    static final int TAILLE_EN_TETE = 16;
+    static final int TAILLE_FIN = 16;
+    static final int TAILLE_ENTREE_INDEX = 24;
+    static final int MARQUES_MAX = Integer.SIZE;
+
+    // Numéros des colonnes dans l'index
+    static final int COLONNE_REFERENCES = 1;
+    static final int COLONNE_PRIX = 2;
+    static final int COLONNE_MARQUES = 3;
+    static final int COLONNE_NOMS_MARQUES = 4;
+    static final int COLONNE_LIBELLES = 5;
+    static final int COLONNE_DICTIONNAIRE_LIBELLES = 6;
+
+    private final int nombrePieces;
+    private final int version;
+    private final IntBuffer prix;
+    private final LongBuffer references;       // null si la colonne est absente
+    private final IntBuffer marques;           // null si la colonne est absente
+    private final List<String> nomsMarques;
+    private final IntBuffer codesLibelles;     // null si la colonne est absente
+    private final Dictionnaire libelles;       // null si la colonne est absente
+
+    private CatalogueColonnaire(int nombrePieces, int version, IntBuffer prix, LongBuffer references,
+                                IntBuffer marques, List<String> nomsMarques,
+                                IntBuffer codesLibelles, Dictionnaire libelles) {
+        this.nombrePieces = nombrePieces;
+        this.version = version;
+        this.prix = prix;
+        this.references = references;
+        this.marques = marques;
+        this.nomsMarques = nomsMarques;
+        this.codesLibelles = codesLibelles;
+        this.libelles = libelles;
+    }
+
+    /**
+     * Ouvre un catalogue en lecture seule.
+     *
+     * Fonctionnement :
+     * - Projette le fichier en mémoire, lit l'en-tête puis l'index en fin de fichier.
+     * - Vérifie que chaque colonne est dans le fichier et a la bonne taille, sans lire ses valeurs.
+     * - Vérifie les dictionnaires (débuts croissants, dans le fichier) et que chaque code de libellé désigne
+     *   une chaîne du dictionnaire : la colonne des libellés est parcourue une fois. Un fichier corrompu est
+     *   ainsi refusé à l'ouverture plutôt qu'au premier libellé lu (sur le chemin des factures).
+     *
+     * @param fichier Le chemin du fichier catalogue.
+     * @return Le catalogue ouvert.
+     * @throws IOException Si le fichier est illisible, trop grand pour être projeté, ou invalide.
+     */
+    public static CatalogueColonnaire ouvrir(Path fichier) throws IOException {
+        MappedByteBuffer projection;
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long taille = canal.size();
+            if (taille < TAILLE_EN_TETE + TAILLE_FIN) {
+                throw new IOException("Catalogue trop court : " + fichier);
+            }
+            if (taille > Integer.MAX_VALUE) {
+                throw new IOException("Catalogue trop grand pour être projeté (" + taille + " octets) : " + fichier);
+            }
+            projection = canal.map(FileChannel.MapMode.READ_ONLY, 0, taille);
+        }
+        projection.order(ByteOrder.LITTLE_ENDIAN);
+        int taille = projection.limit();
+        if (projection.getInt(0) != SIGNATURE || projection.getInt(taille - Integer.BYTES) != SIGNATURE) {
+            throw new IOException("Signature de catalogue invalide : " + fichier);
+        }
+        int version = projection.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Version de catalogue non supportée (" + version + ") : " + fichier);
+        }
+        int nombrePieces = projection.getInt(8);
+        if (nombrePieces < 0) {
+            throw new IOException("Nombre de pièces invalide : " + fichier);
+        }
+
+        // Index des colonnes, trouvé à partir de la fin du fichier
+        long positionIndex = projection.getLong(taille - TAILLE_FIN);
+        int nombreColonnes = projection.getInt(taille - TAILLE_FIN + Long.BYTES);
+        if (nombreColonnes < 0 || positionIndex < TAILLE_EN_TETE
+                || positionIndex + (long) nombreColonnes * TAILLE_ENTREE_INDEX > taille - TAILLE_FIN) {
+            throw new IOException("Index des colonnes invalide : " + fichier);
+        }
+        Map<Integer, ByteBuffer> colonnes = new HashMap<>();
+        for (int i = 0; i < nombreColonnes; i++) {
+            int entree = (int) positionIndex + i * TAILLE_ENTREE_INDEX;
+            long position = projection.getLong(entree + 8);
+            long longueur = projection.getLong(entree + 16);
+            if (position < TAILLE_EN_TETE || longueur < 0 || position + longueur > positionIndex) {
+                throw new IOException("Colonne " + projection.getInt(entree) + " hors du fichier : " + fichier);
+            }
+            colonnes.put(projection.getInt(entree),
+                    projection.slice((int) position, (int) longueur).order(ByteOrder.LITTLE_ENDIAN));
+        }
+
+        ByteBuffer colonnePrix = colonne(colonnes, COLONNE_PRIX, (long) nombrePieces * Integer.BYTES, fichier);
+        if (colonnePrix == null) {
+            throw new IOException("Colonne des prix absente : " + fichier);
+        }
+        ByteBuffer colonneReferences = colonne(colonnes, COLONNE_REFERENCES, (long) nombrePieces * Long.BYTES, fichier);
+        ByteBuffer colonneMarques = colonne(colonnes, COLONNE_MARQUES, (long) nombrePieces * Integer.BYTES, fichier);
+        ByteBuffer colonneLibelles = colonne(colonnes, COLONNE_LIBELLES, (long) nombrePieces * Integer.BYTES, fichier);
+        ByteBuffer dictionnaireLibelles = colonnes.get(COLONNE_DICTIONNAIRE_LIBELLES);
+        if (colonneLibelles != null && dictionnaireLibelles == null) {
+            throw new IOException("Dictionnaire des libellés absent : " + fichier);
+        }
+
+        List<String> nomsMarques = List.of();
+        ByteBuffer dictionnaireMarques = colonnes.get(COLONNE_NOMS_MARQUES);
+        if (colonneMarques != null && dictionnaireMarques != null) {
+            Dictionnaire noms = Dictionnaire.lire(dictionnaireMarques, fichier);
+            if (noms.getTaille() > MARQUES_MAX) {
+                throw new IOException("Plus de " + MARQUES_MAX + " marques dans le dictionnaire : " + fichier);
+            }
+            String[] tous = new String[noms.getTaille()];
+            for (int i = 0; i < tous.length; i++) {
+                tous[i] = noms.get(i);
+            }
+            nomsMarques = List.of(tous);
+        }
+
+        IntBuffer codesLibelles = null;
+        Dictionnaire libelles = null;
+        if (colonneLibelles != null) {
+            codesLibelles = colonneLibelles.asIntBuffer();
+            libelles = Dictionnaire.lire(dictionnaireLibelles, fichier);
+            for (int pieceId = 0; pieceId < nombrePieces; pieceId++) {
+                int code = codesLibelles.get(pieceId);
+                if (code < 0 || code >= libelles.getTaille()) {
+                    throw new IOException("Code de libellé " + code + " hors du dictionnaire (pièce " + pieceId
+                            + ") : " + fichier);
+                }
+            }
+        }
+
+        return new CatalogueColonnaire(nombrePieces, version, colonnePrix.asIntBuffer(),
+                colonneReferences == null ? null : colonneReferences.asLongBuffer(),
+                colonneMarques == null ? null : colonneMarques.asIntBuffer(), nomsMarques,
+                codesLibelles, libelles);
+    }
+
+    private static ByteBuffer colonne(Map<Integer, ByteBuffer> colonnes, int numero, long longueur, Path fichier)
+            throws IOException {
+        ByteBuffer colonne = colonnes.get(numero);
+        if (colonne != null && colonne.remaining() != longueur) {
+            throw new IOException("Colonne " + numero + " de taille inattendue : " + fichier);
+        }
+        return colonne;
+    }
+
+    /**
+     * Écrit un catalogue complet.
+     *
+     * @param fichier Le chemin du fichier à créer (remplacé s'il existe).
+     * @param references Les références fournisseur, indexées par identifiant de pièce (ou null).
+     * @param prix Les prix unitaires en euros, indexés par identifiant de pièce.
+     * @param marques Les marques compatibles de chaque pièce, un bit par marque de `nomsMarques` (ou null).
+     * @param nomsMarques Les noms des marques (au plus {@value #MARQUES_MAX}), ou null sans `marques`.
+     * @param libelles Les libellés des pièces (ou null).
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    public static void ecrire(Path fichier, long[] references, int[] prix, int[] marques, List<String> nomsMarques,
+                              String[] libelles) throws IOException {
+        int n = prix.length;
+        if ((references != null && references.length != n) || (marques != null && marques.length != n)
+                || (libelles != null && libelles.length != n)) {
+            throw new IllegalArgumentException("Toutes les colonnes doivent avoir " + n + " valeurs");
+        }
+        if (marques != null && (nomsMarques == null || nomsMarques.size() > MARQUES_MAX)) {
+            throw new IllegalArgumentException("Entre 0 et " + MARQUES_MAX + " noms de marques attendus");
+        }
+
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Ecriture ecriture = new Ecriture(canal);
+            ecriture.tampon.putInt(SIGNATURE).putInt(VERSION).putInt(n).putInt(0);
+
+            if (references != null) {
+                ecriture.debutColonne(COLONNE_REFERENCES);
+                for (long reference : references) {
+                    ecriture.place(Long.BYTES).putLong(reference);
+                }
+                ecriture.finColonne();
+            }
+            ecriture.debutColonne(COLONNE_PRIX);
+            ecriture.entiers(prix);
+            ecriture.finColonne();
+            if (marques != null) {
+                ecriture.debutColonne(COLONNE_MARQUES);
+                ecriture.entiers(marques);
+                ecriture.finColonne();
+                ecriture.debutColonne(COLONNE_NOMS_MARQUES);
+                ecriture.dictionnaire(nomsMarques);
+                ecriture.finColonne();
+            }
+            if (libelles != null) {
+                // Encodage par dictionnaire : chaque libellé distinct reçoit un code, dans l'ordre d'apparition
+                Map<String, Integer> codes = new HashMap<>();
+                List<String> distincts = new ArrayList<>();
+                int[] codesLibelles = new int[n];
+                for (int i = 0; i < n; i++) {
+                    codesLibelles[i] = codes.computeIfAbsent(libelles[i], libelle -> {
+                        distincts.add(libelle);
+                        return distincts.size() - 1;
+                    });
+                }
+                ecriture.debutColonne(COLONNE_LIBELLES);
+                ecriture.entiers(codesLibelles);
+                ecriture.finColonne();
+                ecriture.debutColonne(COLONNE_DICTIONNAIRE_LIBELLES);
+                ecriture.dictionnaire(distincts);
+                ecriture.finColonne();
+            }
+            ecriture.terminer();
+        }
+    }
+
+    @Override
+    public int getPrix(int pieceId) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return 0;
+        }
+        return prix.get(pieceId);
+    }
+
+    @Override
+    public void copierPrix(int[] destination) {
+        prix.get(0, destination, 0, Math.min(destination.length, nombrePieces));
+    }
+
+    @Override
+    public void copierPrix(int premier, int[] destination, int nombre) {
+        prix.get(premier, destination, 0, nombre);
+    }
+
+    @Override
+    public int getNombrePieces() {
+        return nombrePieces;
+    }
+
+    /**
+     * Retourne le libellé d'une pièce.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le libellé, ou null si le catalogue n'a pas de libellés ou si la pièce n'en fait pas partie.
+     */
+    @Override
+    public String getLibelle(int pieceId) {
+        if (libelles == null || pieceId < 0 || pieceId >= nombrePieces) {
+            return null;
+        }
+        return libelles.get(codesLibelles.get(pieceId));
+    }
+
+    /**
+     * Retourne la référence fournisseur d'une pièce.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return La référence, ou 0 si le catalogue n'a pas de références ou si la pièce n'en fait pas partie.
+     */
+    public long getReference(int pieceId) {
+        if (references == null || pieceId < 0 || pieceId >= nombrePieces) {
+            return 0;
+        }
+        return references.get(pieceId);
+    }
+
+    /**
+     * Indique si une pièce est compatible avec une marque.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param marque Le nom de la marque.
+     * @return true si la pièce est compatible ; true aussi si le catalogue n'indique pas de compatibilité.
+     */
+    public boolean estCompatible(int pieceId, String marque) {
+        if (marques == null) {
+            return true;
+        }
+        int bit = nomsMarques.indexOf(marque);
+        return bit >= 0 && pieceId >= 0 && pieceId < nombrePieces && (marques.get(pieceId) & (1 << bit)) != 0;
+    }
+
+    /**
+     * Retourne les marques avec lesquelles une pièce est compatible.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Les noms des marques (vide si le catalogue n'indique pas de compatibilité).
+     */
+    public List<String> getMarquesCompatibles(int pieceId) {
+        if (marques == null || pieceId < 0 || pieceId >= nombrePieces) {
+            return List.of();
+        }
+        int bits = marques.get(pieceId);
+        List<String> compatibles = new ArrayList<>(Integer.bitCount(bits));
+        for (int bit = 0; bit < nomsMarques.size(); bit++) {
+            if ((bits & (1 << bit)) != 0) {
+                compatibles.add(nomsMarques.get(bit));
+            }
+        }
+        return compatibles;
+    }
+
+    /**
+     * Retourne les noms des marques du catalogue (dans l'ordre des bits de compatibilité).
+     */
+    public List<String> getNomsMarques() {
+        return nomsMarques;
+    }
+
+    /**
+     * Retourne la version du format dans laquelle le fichier a été écrit.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Dictionnaire de chaînes lu dans une projection : les chaînes sont décodées à la première lecture.
+     */
+    private static final class Dictionnaire {
+        private final IntBuffer debuts;
+        private final ByteBuffer octets;
+        private final String[] decodees; // Rempli au fil des lectures (une chaîne décodée deux fois reste correcte)
+
+        private Dictionnaire(IntBuffer debuts, ByteBuffer octets) {
+            this.debuts = debuts;
+            this.octets = octets;
+            this.decodees = new String[debuts.limit() - 1];
+        }
+
+        static Dictionnaire lire(ByteBuffer colonne, Path fichier) throws IOException {
+            if (colonne.remaining() < Integer.BYTES) {
+                throw new IOException("Dictionnaire tronqué : " + fichier);
+            }
+            int taille = colonne.getInt(0);
+            long finDebuts = Integer.BYTES + (taille + 1L) * Integer.BYTES;
+            if (taille < 0 || finDebuts > colonne.remaining()) {
+                throw new IOException("Dictionnaire tronqué : " + fichier);
+            }
+            IntBuffer debuts = colonne.slice(Integer.BYTES, (taille + 1) * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ByteBuffer octets = colonne.slice((int) finDebuts, colonne.remaining() - (int) finDebuts);
+            if (debuts.get(taille) > octets.remaining()) {
+                throw new IOException("Dictionnaire tronqué : " + fichier);
+            }
+            // Chaque chaîne est lue entre deux débuts consécutifs : ils doivent croître à partir de 0
+            int precedent = 0;
+            for (int i = 0; i <= taille; i++) {
+                int debut = debuts.get(i);
+                if (debut < precedent) {
+                    throw new IOException("Débuts du dictionnaire non croissants (chaîne " + i + ") : " + fichier);
+                }
+                precedent = debut;
+            }
+            return new Dictionnaire(debuts, octets);
+        }
+
+        int getTaille() {
+            return decodees.length;
+        }
+
+        String get(int code) {
+            String chaine = decodees[code];
+            if (chaine == null) {
+                int debut = debuts.get(code);
+                byte[] utf8 = new byte[debuts.get(code + 1) - debut];
+                octets.get(debut, utf8);
+                chaine = new String(utf8, StandardCharsets.UTF_8);
+                decodees[code] = chaine;
+            }
+            return chaine;
+        }
+    }
+
+    /**
+     * Écriture séquentielle du fichier, avec le suivi des positions pour l'index des colonnes.
+     */
+    private static final class Ecriture {
+        private final FileChannel canal;
+        private final ByteBuffer tampon = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final List<long[]> index = new ArrayList<>(); // {numéro, position, longueur}
+        private long ecrits;       // Octets déjà envoyés au canal
+        private long debutColonne;
+
+        Ecriture(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        long position() {
+            return ecrits + tampon.position();
+        }
+
+        /**
+         * Garantit `octets` octets libres dans le tampon et le retourne.
+         */
+        ByteBuffer place(int octets) throws IOException {
+            if (tampon.remaining() < octets) {
+                vider();
+            }
+            return tampon;
+        }
+
+        void debutColonne(int numero) throws IOException {
+            while (position() % Long.BYTES != 0) {
+                place(1).put((byte) 0);
+            }
+            debutColonne = position();
+            index.add(new long[]{numero, debutColonne, 0});
+        }
+
+        void finColonne() {
+            index.get(index.size() - 1)[2] = position() - debutColonne;
+        }
+
+        void entiers(int[] valeurs) throws IOException {
+            for (int valeur : valeurs) {
+                place(Integer.BYTES).putInt(valeur);
+            }
+        }
+
+        void dictionnaire(List<String> chaines) throws IOException {
+            List<byte[]> utf8 = new ArrayList<>(chaines.size());
+            for (String chaine : chaines) {
+                utf8.add(chaine.getBytes(StandardCharsets.UTF_8));
+            }
+            place(Integer.BYTES).putInt(chaines.size());
+            int debut = 0;
+            place(Integer.BYTES).putInt(debut);
+            for (byte[] octets : utf8) {
+                debut += octets.length;
+                place(Integer.BYTES).putInt(debut);
+            }
+            for (byte[] octets : utf8) {
+                for (byte b : octets) {
+                    place(1).put(b);
+                }
+            }
+        }
+
+        void terminer() throws IOException {
+            while (position() % Long.BYTES != 0) {
+                place(1).put((byte) 0);
+            }
+            long positionIndex = position();
+            for (long[] entree : index) {
+                place(TAILLE_ENTREE_INDEX).putInt((int) entree[0]).putInt(0).putLong(entree[1]).putLong(entree[2]);
+            }
+            place(TAILLE_FIN).putLong(positionIndex).putInt(index.size()).putInt(SIGNATURE);
+            vider();
+        }
+
+        private void vider() throws IOException {
+            tampon.flip();
+            while (tampon.hasRemaining()) {
+                ecrits += canal.write(tampon);
+            }
+            tampon.clear();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cette classe donne accès au catalogue de prix du fournisseur, stocké dans un fichier projeté en mémoire.
+ *
+ * Rôles principaux :
+ * 1. Ouvrir un catalogue de plusieurs millions de références sans le lire ni le convertir :
+ *    le système charge les pages du fichier à la demande.
+ * 2. Retourner le prix d'une pièce en O(1) à partir de son identifiant ({@link Pieces}).
+ *
+ * Format du fichier (ordre des octets little-endian) :
+ * - En-tête de 16 octets : signature "ADOC", version, nombre d'enregistrements, largeur d'un enregistrement.
+ * - Puis un enregistrement de largeur fixe par pièce : le prix unitaire en euros (int).
+ *   L'enregistrement de la pièce `id` se trouve à l'octet `16 + id * 4`.
+ *
+ * Liens avec d'autres classes :
+ * - {@link PrixArticles} : Délègue ses lectures de prix à ce catalogue quand il est fourni.
+ * - {@link CatalogueColonnaire} : Format plus complet (libellés, marques), quand les prix ne suffisent pas.
+ * - {@link ImportTarifs} : Remplit un nouveau catalogue à partir du tarif CSV d'un fournisseur.
+ *
+ * Les données restent dans le cache de pages du système, hors du tas Java : un gros catalogue
+ * n'ajoute aucun travail au ramasse-miettes.
+ */
+public class CatalogueMappe implements CataloguePrix {
+
+    static final int SIGNATURE = 0x434F4441; // "ADOC" en little-endian
+    static final int VERSION = 1;
+    static final int TAILLE_EN_TETE = 16;
+    static final int LARGEUR_ENREGISTREMENT = Integer.BYTES;
+
+    private final ByteBuffer donnees;  // Vue sur le fichier projeté, positionnée sur les enregistrements
+    private final int nombrePieces;
+
+    private CatalogueMappe(ByteBuffer donnees, int nombrePieces) {
+        this.donnees = donnees;
+        this.nombrePieces = nombrePieces;
+    }
+
+    /**
+     * Ouvre un catalogue existant en lecture seule.
+     *
+     * Fonctionnement :
+     * - Projette le fichier en mémoire avec {@link FileChannel#map}.
+     * - Vérifie uniquement l'en-tête : les prix ne sont lus qu'au moment où on les demande.
+     *
+     * @param fichier Le chemin du fichier catalogue.
+     * @return Le catalogue ouvert.
+     * @throws IOException Si le fichier est illisible ou si son en-tête est invalide.
+     */
+    public static CatalogueMappe ouvrir(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long taille = canal.size();
+            if (taille < TAILLE_EN_TETE) {
+                throw new IOException("Catalogue trop court : " + fichier);
+            }
+            MappedByteBuffer projection = canal.map(FileChannel.MapMode.READ_ONLY, 0, taille);
+            projection.order(ByteOrder.LITTLE_ENDIAN);
+
+            int nombrePieces = lireEnTete(projection, fichier);
+            if (TAILLE_EN_TETE + (long) nombrePieces * LARGEUR_ENREGISTREMENT > taille) {
+                throw new IOException("Catalogue tronqué : " + fichier);
+            }
+            return new CatalogueMappe(projection, nombrePieces);
+        }
+    }
+
+    /**
+     * Écrit un catalogue complet à partir d'un tableau de prix.
+     *
+     * @param fichier Le chemin du fichier à créer (remplacé s'il existe).
+     * @param prix Les prix unitaires en euros, indexés par identifiant de pièce.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    public static void ecrire(Path fichier, int[] prix) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer tampon = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            ecrireEnTete(tampon, prix.length);
+            for (int p : prix) {
+                if (tampon.remaining() < LARGEUR_ENREGISTREMENT) {
+                    viderTampon(canal, tampon);
+                }
+                tampon.putInt(p);
+            }
+            viderTampon(canal, tampon);
+        }
+    }
+
+    /**
+     * Crée un catalogue vide (tous les prix à 0), ouvert en écriture.
+     *
+     * Les prix sont écrits directement dans le fichier projeté par {@link #setPrix(int, int)} ;
+     * {@link #forcer()} les rend durables. Un catalogue en service ne doit pas être recréé sur place
+     * (les postes qui l'ont projeté le verraient tronqué) : créer un nouveau fichier puis le renommer.
+     *
+     * @param fichier Le chemin du fichier à créer (remplacé s'il existe).
+     * @param nombrePieces Le nombre de références du catalogue.
+     * @return Le catalogue, ouvert en lecture et en écriture.
+     * @throws IOException En cas d'erreur de création.
+     */
+    public static CatalogueMappe creer(Path fichier, int nombrePieces) throws IOException {
+        if (nombrePieces < 0) {
+            throw new IllegalArgumentException("Nombre de pièces négatif : " + nombrePieces);
+        }
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // La projection en écriture agrandit le fichier à sa taille finale (zéros)
+            MappedByteBuffer projection = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                    TAILLE_EN_TETE + (long) nombrePieces * LARGEUR_ENREGISTREMENT);
+            projection.order(ByteOrder.LITTLE_ENDIAN);
+            ecrireEnTete(projection, nombrePieces);
+            return new CatalogueMappe(projection, nombrePieces);
+        }
+    }
+
+    /**
+     * Retourne le prix unitaire d'une pièce.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le prix unitaire en euros, ou 0 si la pièce n'est pas dans le catalogue.
+     */
+    @Override
+    public int getPrix(int pieceId) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return 0;
+        }
+        return donnees.getInt(TAILLE_EN_TETE + pieceId * LARGEUR_ENREGISTREMENT);
+    }
+
+    /**
+     * Modifie le prix unitaire d'une pièce dans un catalogue ouvert par {@link #creer(Path, int)}.
+     *
+     * Plusieurs threads peuvent écrire en même temps les prix de pièces différentes.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param prix Le nouveau prix unitaire en euros.
+     * @return true si le prix a été écrit, false si la pièce n'est pas dans le catalogue.
+     * @throws java.nio.ReadOnlyBufferException Si le catalogue a été ouvert en lecture seule.
+     */
+    public boolean setPrix(int pieceId, int prix) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return false;
+        }
+        donnees.putInt(TAILLE_EN_TETE + pieceId * LARGEUR_ENREGISTREMENT, prix);
+        return true;
+    }
+
+    /**
+     * Écrit sur le disque les prix modifiés par {@link #setPrix(int, int)}.
+     */
+    public void forcer() {
+        if (donnees instanceof MappedByteBuffer projection && !projection.isReadOnly()) {
+            projection.force();
+        }
+    }
+
+    /**
+     * Copie les prix des premières pièces dans un tableau, en une seule lecture groupée.
+     *
+     * @param destination Le tableau à remplir (au plus {@link #getNombrePieces()} prix sont copiés).
+     */
+    @Override
+    public void copierPrix(int[] destination) {
+        copierPrix(0, destination, Math.min(destination.length, nombrePieces));
+    }
+
+    /**
+     * Copie les prix d'une plage de pièces en une seule lecture groupée du fichier projeté.
+     */
+    @Override
+    public void copierPrix(int premier, int[] destination, int nombre) {
+        donnees.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(TAILLE_EN_TETE).asIntBuffer()
+                .get(premier, destination, 0, nombre);
+    }
+
+    /**
+     * Recopie dans un catalogue ouvert par {@link #creer(Path, int)} les prix d'un autre catalogue,
+     * de fichier projeté à fichier projeté, sans passer par le tas.
+     *
+     * @param source Le catalogue dont les prix sont repris (les pièces communes aux deux catalogues).
+     * @return Le nombre de prix recopiés.
+     */
+    public int reprendrePrix(CatalogueMappe source) {
+        int n = Math.min(nombrePieces, source.nombrePieces);
+        donnees.put(TAILLE_EN_TETE, source.donnees, TAILLE_EN_TETE, n * LARGEUR_ENREGISTREMENT);
+        return n;
+    }
+
+    /**
+     * Retourne le nombre de références du catalogue.
+     *
+     * @return Le nombre d'enregistrements.
+     */
+    @Override
+    public int getNombrePieces() {
+        return nombrePieces;
+    }
+
+    static void ecrireEnTete(ByteBuffer tampon, int nombrePieces) {
+        tampon.putInt(SIGNATURE);
+        tampon.putInt(VERSION);
+        tampon.putInt(nombrePieces);
+        tampon.putInt(LARGEUR_ENREGISTREMENT);
+    }
+
+    static int lireEnTete(ByteBuffer tampon, Path fichier) throws IOException {
+        if (tampon.getInt(0) != SIGNATURE) {
+            throw new IOException("Signature de catalogue invalide : " + fichier);
+        }
+        if (tampon.getInt(4) != VERSION) {
+            throw new IOException("Version de catalogue non supportée (" + tampon.getInt(4) + ") : " + fichier);
+        }
+        if (tampon.getInt(12) != LARGEUR_ENREGISTREMENT) {
+            throw new IOException("Largeur d'enregistrement inattendue : " + fichier);
+        }
+        int nombrePieces = tampon.getInt(8);
+        if (nombrePieces < 0) {
+            throw new IOException("Nombre de pièces invalide : " + fichier);
+        }
+        return nombrePieces;
+    }
+
+    private static void viderTampon(FileChannel canal, ByteBuffer tampon) throws IOException {
+        tampon.flip();
+        while (tampon.hasRemaining()) {
+            canal.write(tampon);
+        }
+        tampon.clear();
+    }
+}
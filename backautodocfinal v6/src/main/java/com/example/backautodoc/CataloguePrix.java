@@ -0,0 +1,88 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Catalogue fournisseur stocké sur disque, quel que soit son format.
+ *
+ * Rôles principaux :
+ * 1. Donner à {@link PrixArticles} le prix (et, si le format le permet, le libellé) de chaque pièce.
+ * 2. Ouvrir un fichier catalogue en reconnaissant son format d'après sa signature.
+ *
+ * Formats :
+ * - {@link CatalogueMappe} : Les prix seuls, un enregistrement par pièce.
+ * - {@link CatalogueColonnaire} : Références, prix, compatibilité des marques et libellés, colonne par colonne.
+ */
+public interface CataloguePrix {
+
+    /**
+     * Retourne le prix unitaire d'une pièce.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le prix unitaire en euros, ou 0 si la pièce n'est pas dans le catalogue.
+     */
+    int getPrix(int pieceId);
+
+    /**
+     * Copie les prix des premières pièces dans un tableau, en une seule lecture groupée.
+     *
+     * @param destination Le tableau à remplir (au plus {@link #getNombrePieces()} prix sont copiés).
+     */
+    void copierPrix(int[] destination);
+
+    /**
+     * Copie les prix d'une plage de pièces dans un tableau.
+     *
+     * @param premier L'identifiant de la première pièce copiée.
+     * @param destination Le tableau à remplir, à partir de sa première case.
+     * @param nombre Le nombre de prix copiés (`premier + nombre` au plus {@link #getNombrePieces()}).
+     */
+    default void copierPrix(int premier, int[] destination, int nombre) {
+        for (int i = 0; i < nombre; i++) {
+            destination[i] = getPrix(premier + i);
+        }
+    }
+
+    /**
+     * Retourne le nombre de références du catalogue.
+     */
+    int getNombrePieces();
+
+    /**
+     * Retourne le libellé d'une pièce tel qu'il est enregistré dans le catalogue.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le libellé, ou null si le catalogue ne contient pas de libellés (voir {@link Pieces#libelle(int)}).
+     */
+    default String getLibelle(int pieceId) {
+        return null;
+    }
+
+    /**
+     * Ouvre un catalogue en lecture seule, dans le format indiqué par sa signature.
+     *
+     * @param fichier Le chemin du fichier catalogue.
+     * @return Le catalogue ouvert.
+     * @throws IOException Si le fichier est illisible ou d'un format inconnu.
+     */
+    static CataloguePrix ouvrir(Path fichier) throws IOException {
+        ByteBuffer signature = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            while (signature.hasRemaining()) {
+                if (canal.read(signature) < 0) {
+                    throw new IOException("Catalogue trop court : " + fichier);
+                }
+            }
+        }
+        return switch (signature.getInt(0)) {
+            case CatalogueMappe.SIGNATURE -> CatalogueMappe.ouvrir(fichier);
+            case CatalogueColonnaire.SIGNATURE -> CatalogueColonnaire.ouvrir(fichier);
+            default -> throw new IOException("Format de catalogue inconnu : " + fichier);
+        };
+    }
+}
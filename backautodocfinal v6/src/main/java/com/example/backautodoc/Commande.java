@@ -0,0 +1,74 @@
+package com.example.backautodoc;
+
+/**
+ * Cette classe représente une commande confirmée : une marque et une liste de lignes (pièce, quantité).
+ *
+ * Rôles principaux :
+ * 1. Transporter le contenu d'un panier hors de l'interface (facturation par lots, journal...).
+ * 2. Stocker les lignes dans deux tableaux primitifs parallèles, sans objet par ligne.
+ *
+ * Liens avec d'autres classes :
+ * - {@link FacturationLot} : Facture un grand nombre de commandes en parallèle.
+ */
+public class Commande {
+
+    private final String marque;     // Marque du véhicule
+    private final int[] pieces;      // Identifiant de la pièce de chaque ligne ({@link Pieces})
+    private final int[] quantites;   // Quantité de chaque ligne
+
+    /**
+     * Crée une commande. Les tableaux sont conservés tels quels (pas de copie).
+     *
+     * @param marque La marque du véhicule.
+     * @param pieces Les identifiants des pièces, une case par ligne.
+     * @param quantites Les quantités, une case par ligne (même longueur que `pieces`, toutes ≥ 0).
+     */
+    public Commande(String marque, int[] pieces, int[] quantites) {
+        if (pieces.length != quantites.length) {
+            throw new IllegalArgumentException("Pièces et quantités de longueurs différentes : "
+                    + pieces.length + " / " + quantites.length);
+        }
+        for (int i = 0; i < quantites.length; i++) {
+            if (quantites[i] < 0) {
+                throw new IllegalArgumentException("Quantité négative à la ligne " + i + " : " + quantites[i]);
+            }
+        }
+        this.marque = marque;
+        this.pieces = pieces;
+        this.quantites = quantites;
+    }
+
+    /**
+     * Crée une commande à partir du contenu actuel d'un panier.
+     *
+     * @param marque La marque sélectionnée.
+     * @param gestionQuantites Le panier à copier.
+     * @return Une commande contenant une ligne par pièce du panier.
+     */
+    public static Commande depuisPanier(String marque, GestionQuantites gestionQuantites) {
+        int n = gestionQuantites.getNombreLignes();
+        int[] pieces = new int[n];
+        int[] quantites = new int[n];
+        for (int i = 0; i < n; i++) {
+            pieces[i] = gestionQuantites.getPieceLigne(i);
+            quantites[i] = gestionQuantites.getQuantite(pieces[i]);
+        }
+        return new Commande(marque, pieces, quantites);
+    }
+
+    public String getMarque() {
+        return marque;
+    }
+
+    public int getNombreLignes() {
+        return pieces.length;
+    }
+
+    public int getPiece(int ligne) {
+        return pieces[ligne];
+    }
+
+    public int getQuantite(int ligne) {
+        return quantites[ligne];
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.backautodoc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cette classe regroupe les événements JDK Flight Recorder (JFR) du panier et de la commande.
+ *
+ * Rôles principaux :
+ * 1. Décrire les événements émis par {@link GestionQuantites}, {@link Facture} et {@link HelloController},
+ *    avec la pièce, la marque, la taille du panier et la durée de l'opération.
+ * 2. Démarrer un enregistrement continu qui combine ces événements et les réglages JFR par défaut
+ *    (GC, compilation JIT, verrous...), pour relier un ralentissement de l'application à l'activité de la JVM.
+ *
+ * Fonctionnement :
+ * - Chaque opération crée son événement, appelle {@link Event#begin()}, puis `terminer(...)` : les champs ne sont
+ *   remplis et l'événement n'est écrit que si {@link Event#shouldCommit()} (événement activé et seuil dépassé).
+ *   Quand JFR est arrêté, le JIT supprime l'allocation et les appels : le coût est quasi nul.
+ * - Le profil `backautodoc.jfc` (ressource de ce paquetage) active les événements avec des seuils adaptés
+ *   à un enregistrement permanent. Il peut aussi être passé à la JVM, avec le profil par défaut :
+ *   `-XX:StartFlightRecording:settings=default,settings=backautodoc.jfc,maxage=6h`.
+ *
+ * Liens avec d'autres classes :
+ * - {@link ServeurHttp} et {@link HelloApplication} : Démarrent l'enregistrement si la propriété système
+ *   `backautodoc.jfr` désigne un fichier de destination.
+ */
+public final class EvenementsJfr {
+
+    private static final String PROFIL = "backautodoc.jfc";
+    private static final Duration DUREE_CONSERVEE = Duration.ofHours(6);
+
+    private EvenementsJfr() {
+    }
+
+    @Name("com.example.backautodoc.ModificationQuantite")
+    @Label("Modification de quantité")
+    @Description("Appel à GestionQuantites.modifierQuantite")
+    @Category({"AutoDoc", "Panier"})
+    static final class ModificationQuantite extends Event {
+        @Label("Pièce")
+        int piece;
+        @Label("Variation")
+        int delta;
+        @Label("Nouvelle quantité")
+        int quantite;
+        @Label("Lignes du panier")
+        int lignesPanier;
+
+        void terminer(int piece, int delta, int quantite, int lignesPanier) {
+            if (shouldCommit()) {
+                this.piece = piece;
+                this.delta = delta;
+                this.quantite = quantite;
+                this.lignesPanier = lignesPanier;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.example.backautodoc.CalculTotal")
+    @Label("Calcul du total")
+    @Description("Appel à Facture.calculerPrixTotal")
+    @Category({"AutoDoc", "Facture"})
+    static final class CalculTotal extends Event {
+        @Label("Marque")
+        String marque;
+        @Label("Lignes du panier")
+        int lignesPanier;
+        @Label("Total brut")
+        long totalBrut;
+        @Label("Total remisé")
+        long total;
+
+        void terminer(String marque, int lignesPanier, long totalBrut, long total) {
+            if (shouldCommit()) {
+                this.marque = marque;
+                this.lignesPanier = lignesPanier;
+                this.totalBrut = totalBrut;
+                this.total = total;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.example.backautodoc.GenerationFacture")
+    @Label("Génération de facture")
+    @Description("Appel à Facture.genererFacture")
+    @Category({"AutoDoc", "Facture"})
+    static final class GenerationFacture extends Event {
+        @Label("Marque")
+        String marque;
+        @Label("Lignes du panier")
+        int lignesPanier;
+        @Label("Caractères")
+        int longueur;
+
+        void terminer(String marque, int lignesPanier, int longueur) {
+            if (shouldCommit()) {
+                this.marque = marque;
+                this.lignesPanier = lignesPanier;
+                this.longueur = longueur;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.example.backautodoc.PassageCommande")
+    @Label("Commande")
+    @Description("Commande passée depuis l'interface (HelloController.commander)")
+    @Category({"AutoDoc", "Commande"})
+    static final class PassageCommande extends Event {
+        @Label("Marque")
+        String marque;
+        @Label("Lignes du panier")
+        int lignesPanier;
+        @Label("Acceptée")
+        boolean succes;
+
+        void terminer(String marque, int lignesPanier, boolean succes) {
+            if (shouldCommit()) {
+                this.marque = marque;
+                this.lignesPanier = lignesPanier;
+                this.succes = succes;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Démarre un enregistrement continu : réglages JFR par défaut, plus le profil `backautodoc.jfc`.
+     * Les six dernières heures sont conservées sur disque et écrites dans `destination` à l'arrêt de la JVM.
+     *
+     * @param destination Le fichier .jfr à écrire.
+     * @return L'enregistrement démarré.
+     * @throws IOException Si un profil est illisible ou si l'enregistrement ne peut pas démarrer.
+     */
+    public static Recording demarrerEnregistrement(Path destination) throws IOException {
+        Map<String, String> reglages = new HashMap<>();
+        try (Reader lecteur = new InputStreamReader(EvenementsJfr.class.getResourceAsStream(PROFIL), StandardCharsets.UTF_8)) {
+            reglages.putAll(Configuration.getConfiguration("default").getSettings());
+            reglages.putAll(Configuration.create(lecteur).getSettings());
+        } catch (ParseException e) {
+            throw new IOException("Profil JFR invalide : " + e.getMessage(), e);
+        }
+        Recording enregistrement = new Recording(reglages);
+        enregistrement.setName("AutoDoc");
+        enregistrement.setToDisk(true);
+        enregistrement.setMaxAge(DUREE_CONSERVEE);
+        enregistrement.setDestination(destination);
+        enregistrement.setDumpOnExit(true);
+        enregistrement.start();
+        return enregistrement;
+    }
+
+    /**
+     * Démarre l'enregistrement si la propriété système `backautodoc.jfr` est définie.
+     */
+    static void demarrerSiDemande() throws IOException {
+        String destination = System.getProperty("backautodoc.jfr");
+        if (destination != null) {
+            demarrerEnregistrement(Path.of(destination));
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Cette classe génère les factures d'un grand nombre de commandes (par exemple en fin de mois).
+ *
+ * Rôles principaux :
+ * 1. Lire un flux de {@link Commande}, sans jamais le charger entièrement en mémoire.
+ * 2. Calculer et rédiger les factures en parallèle, une {@link Facture} réutilisée par travailleur.
+ * 3. Écrire les factures par lots dans des fichiers d'archive qui changent quand ils atteignent une taille maximale.
+ *
+ * Fonctionnement (pipeline borné) :
+ * - Le thread appelant lit les commandes et les dépose dans une file bornée.
+ * - Les travailleurs (threads virtuels) prennent les commandes, remplissent leur panier, écrivent
+ *   la facture dans un tampon, puis vident le panier. Un tampon plein est confié à l'écrivain.
+ * - L'écrivain regroupe plusieurs tampons dans un seul {@link FileChannel#write(ByteBuffer[])},
+ *   puis rend les tampons aux travailleurs.
+ * - Le nombre de tampons est fixe : la mémoire utilisée ne dépend pas du nombre de commandes.
+ * - Un tampon ne contient que des factures complètes : une facture n'est jamais coupée entre deux fichiers.
+ *
+ * Liens avec d'autres classes :
+ * - {@link RenduFacture} (via {@link Facture#ecrireFacture(String, WritableByteChannel)}) : Rédige chaque facture.
+ * - {@link RapportLot} : Résultat de l'exécution (nombre de commandes, débit...).
+ */
+public class FacturationLot {
+
+    private static final int TAILLE_TAMPON = 256 * 1024;   // Seuil à partir duquel un tampon est envoyé à l'écrivain
+    private static final int TAMPONS_PAR_ECRITURE = 16;    // Nombre maximum de tampons par écriture groupée
+    private static final Commande FIN_COMMANDES = new Commande(null, new int[0], new int[0]);
+    private static final Tampon FIN_TAMPONS = new Tampon(0);
+
+    private final PrixArticles prixArticles;
+    private final int nombrePieces;
+    private final Path dossier;
+    private final long tailleMaxFichier;
+    private final int nombreTravailleurs;
+    private GrilleTarifaire grilleTarifaire = GrilleTarifaire.VIDE;
+    private NumerotationFactures numerotation; // Null : factures non numérotées
+
+    /**
+     * Prépare une facturation par lots.
+     *
+     * @param prixArticles Les prix utilisés pour toutes les factures.
+     * @param nombrePieces Le nombre de références du catalogue.
+     * @param dossier Le dossier où sont créés les fichiers d'archive.
+     * @param tailleMaxFichier La taille (en octets) au-delà de laquelle un nouveau fichier est ouvert.
+     * @param nombreTravailleurs Le nombre de factures rédigées en parallèle.
+     */
+    public FacturationLot(PrixArticles prixArticles, int nombrePieces, Path dossier,
+                          long tailleMaxFichier, int nombreTravailleurs) {
+        if (nombreTravailleurs < 1) {
+            throw new IllegalArgumentException("Il faut au moins un travailleur : " + nombreTravailleurs);
+        }
+        this.prixArticles = prixArticles;
+        this.nombrePieces = nombrePieces;
+        this.dossier = dossier;
+        this.tailleMaxFichier = tailleMaxFichier;
+        this.nombreTravailleurs = nombreTravailleurs;
+    }
+
+    /**
+     * Applique des règles de prix à toutes les factures du lot.
+     *
+     * @param grilleTarifaire La grille compilée.
+     */
+    public void setGrilleTarifaire(GrilleTarifaire grilleTarifaire) {
+        this.grilleTarifaire = grilleTarifaire;
+    }
+
+    /**
+     * Numérote les factures du lot. Chaque travailleur tire ses numéros dans la voie de son thread
+     * ({@link NumerotationFactures#numeroSuivant()}), presque sans attendre les autres :
+     * les numéros d'un fichier ne sont donc pas triés.
+     *
+     * @param numerotation La numérotation partagée.
+     */
+    public void setNumerotation(NumerotationFactures numerotation) {
+        this.numerotation = numerotation;
+    }
+
+    /**
+     * Facture toutes les commandes d'un flux.
+     *
+     * @param commandes Le flux de commandes (lu une seule fois, au fur et à mesure).
+     * @return Le rapport d'exécution.
+     * @throws IOException Si l'écriture d'un fichier d'archive échoue.
+     * @throws InterruptedException Si le thread appelant est interrompu.
+     */
+    public RapportLot executer(Stream<Commande> commandes) throws IOException, InterruptedException {
+        return executer(commandes.iterator());
+    }
+
+    /**
+     * Facture toutes les commandes fournies par un itérateur.
+     *
+     * @param commandes Les commandes à facturer.
+     * @return Le rapport d'exécution.
+     * @throws IOException Si l'écriture d'un fichier d'archive échoue.
+     * @throws InterruptedException Si le thread appelant est interrompu.
+     */
+    public RapportLot executer(Iterator<Commande> commandes) throws IOException, InterruptedException {
+        Files.createDirectories(dossier);
+        long debut = System.nanoTime();
+
+        Execution execution = new Execution();
+        // Démon : un écrivain bloqué ne doit jamais empêcher la JVM de s'arrêter
+        Thread ecrivain = Thread.ofPlatform().name("facturation-ecrivain").daemon(true).start(execution::ecrire);
+        CountDownLatch travailleursTermines = new CountDownLatch(nombreTravailleurs);
+        Thread[] travailleurs = new Thread[nombreTravailleurs];
+        for (int i = 0; i < nombreTravailleurs; i++) {
+            travailleurs[i] = Thread.ofVirtual().name("facturation-", i).start(() -> {
+                try {
+                    execution.travailler();
+                } finally {
+                    travailleursTermines.countDown();
+                }
+            });
+        }
+
+        long nombreCommandes = 0;
+        try {
+            while (commandes.hasNext()) {
+                execution.aFacturer.put(commandes.next());
+                nombreCommandes++;
+            }
+            for (int i = 0; i < nombreTravailleurs; i++) {
+                execution.aFacturer.put(FIN_COMMANDES);
+            }
+            travailleursTermines.await();
+            execution.aEcrire.put(FIN_TAMPONS);
+            ecrivain.join();
+        } catch (Throwable e) {
+            // Lecture des commandes en échec (exception du flux, interruption) : les marqueurs de fin
+            // ne seront pas envoyés, les travailleurs et l'écrivain sont donc arrêtés par interruption
+            execution.erreur = e;
+            for (Thread travailleur : travailleurs) {
+                travailleur.interrupt();
+            }
+            ecrivain.interrupt();
+            throw e;
+        }
+
+        if (execution.erreur != null) {
+            throw new IOException("Échec de la facturation par lots", execution.erreur);
+        }
+        return new RapportLot(nombreCommandes, execution.octetsEcrits, execution.numeroFichier + 1,
+                System.nanoTime() - debut);
+    }
+
+    /**
+     * État partagé d'une exécution : files, tampons et compteurs de l'écrivain.
+     */
+    private final class Execution {
+        final BlockingQueue<Commande> aFacturer = new ArrayBlockingQueue<>(1024);
+        final BlockingQueue<Tampon> aEcrire;
+        final BlockingQueue<Tampon> libres;
+        volatile Throwable erreur;
+
+        // Utilisés uniquement par l'écrivain
+        long octetsEcrits;
+        int numeroFichier = -1;
+
+        Execution() {
+            int nombreTampons = 2 * nombreTravailleurs + TAMPONS_PAR_ECRITURE;
+            aEcrire = new ArrayBlockingQueue<>(nombreTampons + 1);
+            libres = new ArrayBlockingQueue<>(nombreTampons);
+            for (int i = 0; i < nombreTampons; i++) {
+                libres.add(new Tampon(TAILLE_TAMPON + TAILLE_TAMPON / 4));
+            }
+        }
+
+        void travailler() {
+            GestionQuantites panier = new GestionQuantites(nombrePieces, prixArticles);
+            Facture facture = new Facture(panier, prixArticles);
+            facture.setGrilleTarifaire(grilleTarifaire);
+            facture.setNumerotation(numerotation);
+            Tampon tampon = null;
+            try {
+                while (true) {
+                    Commande commande = aFacturer.take();
+                    if (commande == FIN_COMMANDES) {
+                        break;
+                    }
+                    if (erreur != null) {
+                        continue; // Continue à vider la file pour ne pas bloquer le lecteur
+                    }
+                    try {
+                        if (tampon == null) {
+                            tampon = libres.take();
+                        }
+                        facturer(commande, panier, facture, tampon);
+                    } catch (IOException | RuntimeException e) {
+                        erreur = e;
+                        continue;
+                    }
+                    if (tampon.donnees.position() >= TAILLE_TAMPON) {
+                        aEcrire.put(tampon);
+                        tampon = null;
+                    }
+                }
+                if (tampon != null && tampon.donnees.position() > 0 && erreur == null) {
+                    aEcrire.put(tampon);
+                    tampon = null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                erreur = e;
+            } finally {
+                if (tampon != null) {
+                    tampon.donnees.clear();
+                    libres.add(tampon);
+                }
+            }
+        }
+
+        private void facturer(Commande commande, GestionQuantites panier, Facture facture, Tampon tampon)
+                throws IOException {
+            for (int i = 0; i < commande.getNombreLignes(); i++) {
+                panier.modifierQuantite(commande.getPiece(i), commande.getQuantite(i));
+            }
+            facture.ecrireFacture(commande.getMarque(), tampon);
+            tampon.separer();
+            // Vide le panier pour la commande suivante : remise à 0, et non retrait des quantités,
+            // pour ne rien laisser si un ajout a été refusé (quantité cumulée trop grande)
+            for (int i = 0; i < commande.getNombreLignes(); i++) {
+                panier.definirQuantite(commande.getPiece(i), 0);
+            }
+        }
+
+        void ecrire() {
+            ByteBuffer[] lot = new ByteBuffer[TAMPONS_PAR_ECRITURE];
+            Tampon[] tampons = new Tampon[TAMPONS_PAR_ECRITURE];
+            FileChannel fichier = null;
+            long tailleFichier = 0;
+            try {
+                boolean fin = false;
+                while (!fin) {
+                    // Attend un tampon, puis prend tous ceux déjà prêts (écriture groupée)
+                    int n = 0;
+                    Tampon suivant = aEcrire.take();
+                    while (suivant != null && n < TAMPONS_PAR_ECRITURE) {
+                        if (suivant == FIN_TAMPONS) {
+                            fin = true;
+                            break;
+                        }
+                        tampons[n++] = suivant;
+                        suivant = n < TAMPONS_PAR_ECRITURE ? aEcrire.poll() : null;
+                    }
+                    if (n == 0) {
+                        continue;
+                    }
+
+                    long taille = 0;
+                    for (int i = 0; i < n; i++) {
+                        lot[i] = tampons[i].donnees.flip();
+                        taille += lot[i].remaining();
+                    }
+                    if (erreur == null) {
+                        try {
+                            if (fichier == null || (tailleFichier > 0 && tailleFichier + taille > tailleMaxFichier)) {
+                                if (fichier != null) {
+                                    fichier.close();
+                                }
+                                numeroFichier++;
+                                fichier = FileChannel.open(dossier.resolve(String.format("factures-%05d.txt", numeroFichier)),
+                                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                                tailleFichier = 0;
+                            }
+                            long restant = taille;
+                            while (restant > 0) {
+                                restant -= fichier.write(lot, 0, n);
+                            }
+                            tailleFichier += taille;
+                            octetsEcrits += taille;
+                        } catch (IOException e) {
+                            erreur = e;
+                        }
+                    }
+                    for (int i = 0; i < n; i++) {
+                        tampons[i].donnees.clear();
+                        libres.add(tampons[i]);
+                        lot[i] = null;
+                        tampons[i] = null;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                erreur = e;
+            } finally {
+                if (fichier != null) {
+                    try {
+                        fichier.close();
+                    } catch (IOException e) {
+                        if (erreur == null) {
+                            erreur = e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tampon d'écriture d'un travailleur. Il se présente comme un canal à {@link Facture}
+     * et s'agrandit si une facture ne tient pas dedans (cas rare des très grosses commandes).
+     */
+    private static final class Tampon implements WritableByteChannel {
+        private static final byte[] SEPARATEUR = {'\n', '\n'};
+
+        ByteBuffer donnees;
+
+        Tampon(int capacite) {
+            donnees = ByteBuffer.allocateDirect(capacite);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int n = source.remaining();
+            reserver(n);
+            donnees.put(source);
+            return n;
+        }
+
+        void separer() {
+            reserver(SEPARATEUR.length);
+            donnees.put(SEPARATEUR);
+        }
+
+        private void reserver(int n) {
+            if (donnees.remaining() < n) {
+                ByteBuffer agrandi = ByteBuffer.allocateDirect(Math.max(2 * donnees.capacity(), donnees.position() + n));
+                donnees.flip();
+                agrandi.put(donnees);
+                donnees = agrandi;
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,48 +1,323 @@
 package com.example.backautodoc;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
 public class Facture {
+    private static final int TAILLE_TAMPON_CANAL = 64 * 1024;
+    // Un panier est parcouru en entier (calcul vectorisé) dès qu'il contient plus d'une pièce sur DENSITE_MIN
+    private static final int DENSITE_MIN = 8;
+    private static final int PIECES_MIN_CALCUL_DENSE = 1024;
+
     private final GestionQuantites gestionQuantites;
     private final PrixArticles prixArticles;
+    private int intervalleVerification = 0; // 0 = pas de vérification du total incrémental
+    private int appelsDepuisVerification = 0;
+    private int nombreEcarts = 0;
+    private final RenduFacture rendu;
+    private StringBuilder texte;                                 // Alloué au premier genererFacture, puis réutilisé
+    private ByteBuffer tamponCanal;                              // Alloué au premier ecrireFacture(canal)
+    private GrilleTarifaire grilleTarifaire = GrilleTarifaire.VIDE; // Remises appliquées au total brut
+    private CacheDevis cacheDevis;                               // Devis partagés entre paniers, ou null
+    private NumerotationFactures numerotation;                   // Numéros de facture, ou null (non numérotées)
+    private long dernierTotal;                                   // Total après remises de la dernière facture générée
 
     public Facture(GestionQuantites gestionQuantites, PrixArticles prixArticles) {
         this.gestionQuantites = gestionQuantites;
         this.prixArticles = prixArticles;
+        this.rendu = new RenduFacture(gestionQuantites, prixArticles);
     }
 
-    public int calculerPrixTotal() {
-        int[] quantites = gestionQuantites.getAllQuantities();
-        int[] prix = {prixArticles.getPrixFrein(), prixArticles.getPrixHuile(), prixArticles.getPrixFiltre()};
+    /**
+     * Retourne le prix total des pièces commandées.
+     *
+     * Si le panier suit son total au fil des modifications (voir {@link GestionQuantites#suitLeTotal()}),
+     * ce total est retourné en O(1). Sinon, ou si les prix ont changé depuis son dernier calcul
+     * ({@link PrixArticles#signalerChangementPrix()}), le total est recalculé ligne par ligne.
+     * En mode vérification (voir {@link #setIntervalleVerification(int)}), un appel sur N
+     * compare le total incrémental à un recalcul complet.
+     * Émet un événement JFR {@link EvenementsJfr.CalculTotal} (seulement si JFR l'a activé).
+     */
+    public long calculerPrixTotal() {
+        EvenementsJfr.CalculTotal evenement = new EvenementsJfr.CalculTotal();
+        evenement.begin();
+        long total = totalBrut();
+        evenement.terminer(null, gestionQuantites.getNombreLignes(), total, total);
+        return total;
+    }
 
-        int total = 0;
-        for (int i = 0; i < quantites.length; i++) {
-            total += quantites[i] * prix[i];
+    private long totalBrut() {
+        if (!gestionQuantites.suitLeTotal()) {
+            return recalculerPrixTotal();
         }
+        if (!gestionQuantites.totalAJour()) {
+            // Total calculé avec d'anciens prix : jamais retourné, ni mis en cache
+            appelsDepuisVerification = 0;
+            return verifierPrixTotal();
+        }
+        if (intervalleVerification > 0 && ++appelsDepuisVerification >= intervalleVerification) {
+            appelsDepuisVerification = 0;
+            return verifierPrixTotal();
+        }
+        return gestionQuantites.getTotal();
+    }
+
+    /**
+     * Retourne le prix total après application de la grille tarifaire (paliers, lots, remise de la marque).
+     *
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @return Le total remisé ; égal à {@link #calculerPrixTotal()} si la grille est vide.
+     */
+    public long calculerPrixTotal(String marque) {
+        EvenementsJfr.CalculTotal evenement = new EvenementsJfr.CalculTotal();
+        evenement.begin();
+        CacheDevis.Cle cle = cacheDevis == null ? null : cacheDevis.cle(gestionQuantites, prixArticles, grilleTarifaire, marque);
+        CacheDevis.Devis devis = cle == null ? null : cacheDevis.get(cle);
+        long brut;
+        long total;
+        if (devis != null) {
+            brut = devis.totalBrut();
+            total = devis.total();
+        } else {
+            brut = totalBrut();
+            total = grilleTarifaire.appliquer(gestionQuantites, prixArticles, marque, brut);
+            if (cle != null) {
+                cacheDevis.put(cle, new CacheDevis.Devis(brut, total, null));
+            }
+        }
+        evenement.terminer(marque, gestionQuantites.getNombreLignes(), brut, total);
         return total;
     }
 
-    public String genererFacture(String marque) {
-        // Début de la facture
-        String facture = "Facture pour la marque " + marque + ":\n";
+    /**
+     * Définit les règles de prix appliquées par {@link #calculerPrixTotal(String)} et sur les factures.
+     *
+     * @param grilleTarifaire La grille compilée ({@link GrilleTarifaire#VIDE} pour aucune remise).
+     */
+    public void setGrilleTarifaire(GrilleTarifaire grilleTarifaire) {
+        this.grilleTarifaire = grilleTarifaire;
+    }
+
+    public GrilleTarifaire getGrilleTarifaire() {
+        return grilleTarifaire;
+    }
 
-        // Calcul des totaux pour chaque pièce
-        if (gestionQuantites.getFreinsQty() > 0) {
-            facture += "- Freins: " + gestionQuantites.getFreinsQty() +
-                    " x " + prixArticles.getPrixFrein() + "€\n";
+    /**
+     * Réutilise les totaux et les factures des paniers identiques déjà calculés (voir {@link CacheDevis}).
+     *
+     * @param cacheDevis Le cache, partagé entre les paniers (null pour tout recalculer).
+     */
+    public void setCacheDevis(CacheDevis cacheDevis) {
+        this.cacheDevis = cacheDevis;
+    }
+
+    /**
+     * Numérote les factures produites par cette instance.
+     *
+     * Les numéros sont tirés des blocs partagés de la numérotation ({@link NumerotationFactures#numeroSuivant()}) :
+     * une facture ne réserve aucun bloc pour elle seule, et fermer son panier ne perd aucun numéro.
+     *
+     * @param numerotation La numérotation partagée (null pour ne plus numéroter).
+     */
+    public void setNumerotation(NumerotationFactures numerotation) {
+        this.numerotation = numerotation;
+    }
+
+    /**
+     * Retourne le numéro de la prochaine facture, ou 0 si les factures ne sont pas numérotées.
+     */
+    private long numeroSuivant() {
+        if (numerotation == null) {
+            return 0;
+        }
+        try {
+            return numerotation.numeroSuivant();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Recalcule le prix total en parcourant le panier.
+     *
+     * Fonctionnement :
+     * - Panier creux : seules les lignes du panier sont parcourues.
+     * - Panier dense (plus d'une pièce sur {@value #DENSITE_MIN} du catalogue) : produit scalaire du
+     *   tableau complet des quantités par les prix du catalogue, lus par blocs et vectorisé par {@link CalculTotaux}.
+     * Dans les deux cas, la somme est faite en `long` : le total ne peut pas déborder.
+     */
+    public long recalculerPrixTotal() {
+        int nombrePieces = gestionQuantites.getNombrePieces();
+        if (gestionQuantites.estDense() && nombrePieces >= PIECES_MIN_CALCUL_DENSE
+                && (long) gestionQuantites.getNombreLignes() * DENSITE_MIN >= nombrePieces) {
+            // Les pièces au-delà du catalogue de prix ont un prix nul : elles sont ignorées
+            return prixArticles.produitScalaire(gestionQuantites.tableauQuantites(),
+                    Math.min(nombrePieces, prixArticles.getNombrePieces()));
+        }
+        // Parcourt uniquement les lignes du panier, sans copier les quantités
+        long total = 0;
+        for (int i = 0; i < gestionQuantites.getNombreLignes(); i++) {
+            int pieceId = gestionQuantites.getPieceLigne(i);
+            total += (long) gestionQuantites.getQuantite(pieceId) * prixArticles.getPrix(pieceId);
         }
-        if (gestionQuantites.getHuileQty() > 0) {
-            facture += "- Huile: " + gestionQuantites.getHuileQty() +
-                    " x " + prixArticles.getPrixHuile() + "€\n";
+        return total;
+    }
+
+    /**
+     * Compare le total incrémental à un recalcul complet.
+     * En cas d'écart (par exemple après un changement de prix), le panier est resynchronisé
+     * et l'écart est compté dans {@link #getNombreEcarts()}.
+     *
+     * @return Le total recalculé.
+     */
+    public long verifierPrixTotal() {
+        long version = prixArticles.getVersion(); // Lue avant : un changement pendant le calcul sera rattrapé
+        long total = recalculerPrixTotal();
+        if (gestionQuantites.suitLeTotal()) {
+            if (gestionQuantites.getTotal() != total) {
+                nombreEcarts++;
+            }
+            gestionQuantites.resynchroniserTotal(total, version);
         }
-        if (gestionQuantites.getFiltresQty() > 0) {
-            facture += "- Filtres: " + gestionQuantites.getFiltresQty() +
-                    " x " + prixArticles.getPrixFiltre() + "€\n";
+        return total;
+    }
+
+    /**
+     * Active la vérification périodique du total incrémental.
+     *
+     * @param intervalle Nombre d'appels à {@link #calculerPrixTotal()} entre deux vérifications (0 pour désactiver).
+     */
+    public void setIntervalleVerification(int intervalle) {
+        if (intervalle < 0) {
+            throw new IllegalArgumentException("Intervalle de vérification négatif : " + intervalle);
         }
+        this.intervalleVerification = intervalle;
+        this.appelsDepuisVerification = 0;
+    }
 
-        // Ajout du prix total
-        facture += "Prix total: " + calculerPrixTotal() + " €";
+    /**
+     * Retourne le nombre d'écarts détectés entre le total incrémental et le recalcul complet.
+     */
+    public int getNombreEcarts() {
+        return nombreEcarts;
+    }
+
+    /**
+     * Génère le texte de la facture pour une commande.
+     *
+     * Le texte est écrit par {@link RenduFacture} dans un {@link StringBuilder} réutilisé d'un appel à l'autre.
+     * Avec un {@link CacheDevis}, la facture d'un panier identique déjà facturée est réutilisée ;
+     * le cache ne contient que le corps de la facture, le numéro (voir {@link #setNumerotation}) est ajouté à chaque appel.
+     * Émet un événement JFR {@link EvenementsJfr.GenerationFacture} (seulement si JFR l'a activé).
+     *
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @return Une chaîne de caractères représentant la facture.
+     */
+    public String genererFacture(String marque) {
+        return genererFacture(marque, true);
+    }
+
+    /**
+     * Génère le texte de la facture pour une commande, numérotée ou non.
+     *
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @param numerotee false pour une commande qui n'est pas encore une vente (pièces seulement réservées) :
+     *                  aucun numéro n'est consommé, il est ajouté à la confirmation par {@link #numeroter(String)}.
+     * @return Une chaîne de caractères représentant la facture.
+     */
+    public String genererFacture(String marque, boolean numerotee) {
+        EvenementsJfr.GenerationFacture evenement = new EvenementsJfr.GenerationFacture();
+        evenement.begin();
+        CacheDevis.Cle cle = cacheDevis == null ? null : cacheDevis.cle(gestionQuantites, prixArticles, grilleTarifaire, marque);
+        CacheDevis.Devis devis = cle == null ? null : cacheDevis.get(cle);
+        long numero = numerotee ? numeroSuivant() : 0;
+        if (texte == null) {
+            texte = new StringBuilder(256);
+        }
+        if (devis != null && devis.facture() != null) {
+            dernierTotal = devis.total();
+            evenement.terminer(marque, gestionQuantites.getNombreLignes(), devis.facture().length());
+            return numeroter(numero, devis.facture());
+        }
+        texte.setLength(0);
+        long brut = devis != null ? devis.totalBrut() : totalBrut();
+        long total = devis != null ? devis.total() : grilleTarifaire.appliquer(gestionQuantites, prixArticles, marque, brut);
+        dernierTotal = total;
+        try {
+            rendu.setNumero(cle == null ? numero : 0); // Le corps mis en cache n'est pas numéroté
+            rendu.ecrire(texte, marque, brut, total);
+        } catch (IOException e) {
+            // Un StringBuilder ne lève jamais d'IOException
+            throw new UncheckedIOException(e);
+        }
+        evenement.terminer(marque, gestionQuantites.getNombreLignes(), texte.length());
+        String facture = texte.toString();
+        if (cle != null) {
+            cacheDevis.put(cle, new CacheDevis.Devis(brut, total, facture));
+            return numeroter(numero, facture);
+        }
         return facture;
     }
-}
 
+    /**
+     * Retourne le total facturé par le dernier appel à {@link #genererFacture(String, boolean)}, remises déduites.
+     *
+     * @return Le total de la dernière facture générée, ou 0 si aucune ne l'a été.
+     */
+    public long getDernierTotal() {
+        return dernierTotal;
+    }
+
+    /**
+     * Attribue un numéro à une facture générée sans numéro ({@link #genererFacture(String, boolean)}).
+     *
+     * @param facture Le texte de la facture, sans numéro.
+     * @return La facture précédée de son numéro, ou inchangée si les factures ne sont pas numérotées.
+     */
+    public String numeroter(String facture) {
+        if (texte == null) {
+            texte = new StringBuilder(256);
+        }
+        return numeroter(numeroSuivant(), facture);
+    }
+
+    private String numeroter(long numero, String facture) {
+        if (numero == 0) {
+            return facture;
+        }
+        texte.setLength(0);
+        texte.append(RenduFacture.EN_TETE_NUMERO).append(numero).append('\n').append(facture);
+        return texte.toString();
+    }
 
+    /**
+     * Écrit la facture dans une sortie texte, sans construire de chaîne intermédiaire.
+     *
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @param sortie La destination du texte.
+     * @throws IOException Si la destination signale une erreur d'écriture.
+     */
+    public void ecrireFacture(String marque, Appendable sortie) throws IOException {
+        long brut = totalBrut();
+        rendu.setNumero(numeroSuivant());
+        rendu.ecrire(sortie, marque, brut, grilleTarifaire.appliquer(gestionQuantites, prixArticles, marque, brut));
+    }
 
+    /**
+     * Écrit la facture en UTF-8 dans un canal (fichier, socket...), via un tampon direct réutilisé.
+     *
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @param canal Le canal de destination.
+     * @throws IOException En cas d'erreur d'écriture dans le canal.
+     */
+    public void ecrireFacture(String marque, WritableByteChannel canal) throws IOException {
+        if (tamponCanal == null) {
+            tamponCanal = ByteBuffer.allocateDirect(TAILLE_TAMPON_CANAL);
+        }
+        long brut = totalBrut();
+        rendu.setNumero(numeroSuivant());
+        rendu.ecrire(canal, tamponCanal, marque, brut, grilleTarifaire.appliquer(gestionQuantites, prixArticles, marque, brut));
+    }
+}
@@ -1,16 +1,41 @@
 package com.example.backautodoc;
 
+import java.util.Arrays;
+
 /*** Cette classe gère les quantités des différentes pièces dans l'application AutoDoc.
  *
  * Rôles principaux :
- * 1. Stocker les quantités actuelles pour les freins, huiles et filtres.
+ * 1. Stocker les quantités actuelles de chaque pièce, indexées par leur identifiant ({@link Pieces}).
  * 2. Permettre de modifier ces quantités via une méthode générique.
- * 3. Assurer que les quantités ne deviennent jamais négatives grâce à {@link Math#max(int, int)}.
+ * 3. Assurer que les quantités ne deviennent jamais négatives grâce à {@link Math#max(int, int)},
+ *    et refuser les modifications qui dépasseraient {@link Integer#MAX_VALUE}.
  *
  * Liens avec d'autres classes :
  * - {@link Facture} : Utilise cette classe pour calculer le prix total des pièces commandées.
  * - {@link HelloController} : Appelle les méthodes de modification pour mettre à jour les quantités selon les actions de l'utilisateur.
  *
+ * Organisation mémoire :
+ * - `lignes` : identifiants des pièces dont la quantité est > 0, rangés de manière compacte,
+ *   pour parcourir le panier sans parcourir tout le catalogue.
+ * - Panier dense (catalogue d'au plus {@value #PIECES_MAX_DENSE} pièces) :
+ *   `quantites` a une case par pièce du catalogue (l'identifiant sert d'indice), et `positions`
+ *   la position (+1) de chaque pièce dans `lignes`, 0 si la pièce n'est pas dans le panier.
+ * - Panier creux (catalogue plus grand) : les quantités sont rangées ligne par ligne dans `quantitesLignes`,
+ *   et la table de hachage `table` (adressage ouvert, sondage linéaire) donne la ligne de chaque pièce.
+ *   La mémoire dépend du nombre de lignes du panier, et non de la taille du catalogue :
+ *   des milliers de paniers de quelques lignes tiennent en mémoire même avec un million de références.
+ * - Un panier creux qui finit par contenir plus d'une pièce sur {@value #DENSITE_PASSAGE_DENSE}
+ *   du catalogue passe en dense (une seule fois) : les tableaux complets deviennent alors moins coûteux,
+ *   et permettent le calcul vectorisé du total ({@link Facture#recalculerPrixTotal()}).
+ * Lectures et modifications sont en O(1), sans allocation (hors agrandissement des tableaux du panier creux).
+ *
+ * Total incrémental :
+ * - Si le panier est créé avec un {@link PrixArticles}, chaque modification met à jour le total
+ *   du panier avec `quantité réellement ajoutée × prix unitaire`, en O(1).
+ * - {@link Facture#calculerPrixTotal()} retourne alors ce total sans reparcourir le panier.
+ * - Le total retient la version des prix ({@link PrixArticles#getVersion()}) sur laquelle il a été calculé :
+ *   après un changement de prix, il est recalculé au calcul suivant ({@link #totalAJour()}).
+ *
  * Concepts utilisés :
  * - **Validation des valeurs** : Grâce à {@link Math#max(int, int)}, les quantités sont toujours ≥ 0.
  * - **Centralisation** : Toute la logique liée aux quantités est regroupée ici, simplifiant le contrôleur.
@@ -19,9 +44,62 @@ package com.example.backautodoc;
  */
 public class GestionQuantites {
 
-    private int freinsQty = 0;  // Quantité actuelle des freins
-    private int huileQty = 0;   // Quantité actuelle des huiles
-    private int filtresQty = 0; // Quantité actuelle des filtres
+    // Au-delà, les paniers sont creux : leur mémoire ne dépend plus de la taille du catalogue
+    static final int PIECES_MAX_DENSE = 4096;
+    // Un panier creux passe en dense dès qu'il contient une pièce sur DENSITE_PASSAGE_DENSE du catalogue
+    private static final int DENSITE_PASSAGE_DENSE = 8;
+    private static final int LIGNES_INITIALES_CREUX = 8;
+
+    private final int nombrePieces;
+    private int[] quantites;       // Panier dense : quantité de chaque pièce, indexée par identifiant (null si creux)
+    private int[] positions;       // Panier dense : position + 1 de chaque pièce dans `lignes` (0 = absente)
+    private int[] lignes;          // Identifiants des pièces présentes dans le panier
+    private int[] quantitesLignes; // Panier creux : quantité de chaque ligne
+    private int[] table;           // Panier creux : position + 1 dans `lignes` de chaque pièce, rangée par hachage (0 = case vide)
+    private int nombreLignes;      // Nombre de cases utilisées dans `lignes`
+    private final PrixArticles prixArticles; // Prix utilisés pour le total incrémental, ou null
+    private long total;            // Prix total du panier, tenu à jour à chaque modification
+    private long versionPrix;      // Version des prix sur laquelle `total` a été calculé
+
+    /**
+     * Crée un panier pour les pièces de base (freins, huile, filtres).
+     */
+    public GestionQuantites() {
+        this(Pieces.NOMBRE_PIECES_BASE);
+    }
+
+    /**
+     * Crée un panier capable de contenir toutes les pièces d'un catalogue.
+     *
+     * @param nombrePieces Le nombre de références du catalogue (identifiants de 0 à nombrePieces - 1).
+     */
+    public GestionQuantites(int nombrePieces) {
+        this(nombrePieces, null);
+    }
+
+    /**
+     * Crée un panier qui tient son prix total à jour à chaque modification.
+     *
+     * @param nombrePieces Le nombre de références du catalogue (identifiants de 0 à nombrePieces - 1).
+     * @param prixArticles Les prix utilisés pour le total, ou null pour ne pas suivre le total.
+     */
+    public GestionQuantites(int nombrePieces, PrixArticles prixArticles) {
+        if (nombrePieces < Pieces.NOMBRE_PIECES_BASE) {
+            throw new IllegalArgumentException("Le catalogue doit contenir au moins " + Pieces.NOMBRE_PIECES_BASE + " pièces : " + nombrePieces);
+        }
+        this.nombrePieces = nombrePieces;
+        this.prixArticles = prixArticles;
+        this.versionPrix = prixArticles == null ? 0 : prixArticles.getVersion();
+        if (nombrePieces <= PIECES_MAX_DENSE) {
+            this.quantites = new int[nombrePieces];
+            this.lignes = new int[nombrePieces];
+            this.positions = new int[nombrePieces];
+        } else {
+            this.lignes = new int[LIGNES_INITIALES_CREUX];
+            this.quantitesLignes = new int[LIGNES_INITIALES_CREUX];
+            this.table = new int[LIGNES_INITIALES_CREUX * 2];
+        }
+    }
 
     /**
      * Retourne la quantité actuelle des freins.
@@ -29,14 +107,32 @@ public class GestionQuantites {
      * @return La quantité actuelle des freins.
      */
     public int getFreinsQty() {
-        return freinsQty;
+        return getQuantite(Pieces.FREINS);
     }
     public int getHuileQty() {
-        return huileQty;
+        return getQuantite(Pieces.HUILE);
     }
     public int getFiltresQty() {
-        return filtresQty;
+        return getQuantite(Pieces.FILTRES);
+    }
+
+    /**
+     * Retourne la quantité actuelle d'une pièce.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return La quantité de la pièce, ou 0 si l'identifiant n'existe pas.
+     */
+    public int getQuantite(int pieceId) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return 0;
+        }
+        if (quantites != null) {
+            return quantites[pieceId];
+        }
+        int ligne = table[chercher(pieceId)] - 1;
+        return ligne < 0 ? 0 : quantitesLignes[ligne];
     }
+
     /**
      * Modifie la quantité d'une pièce spécifique.
      *
@@ -44,11 +140,7 @@ public class GestionQuantites {
      * - Ajoute ou retire une quantité pour la pièce spécifiée par son nom.
      * - Vérifie que la quantité ne devient jamais négative grâce à {@link Math#max(int, int)}.
      *
-     * Fonctionnement de {@link Math#max(int, int)} :
-     * - Compare deux valeurs :
-     *   1. `0` : La quantité minimale autorisée.
-     *   2. `freinsQty + delta`, `huileQty + delta`, ou `filtresQty + delta` : La nouvelle quantité calculée.
-     * - Retourne la valeur maximale entre ces deux nombres.
+     * Cette variante convertit le nom en identifiant puis délègue à {@link #modifierQuantite(int, int)}.
      *
      * Utilisation dans d'autres classes :
      * - Appelée par {@link HelloController} pour modifier les quantités en fonction des actions utilisateur.
@@ -58,21 +150,164 @@ public class GestionQuantites {
      *              Exemple :
      *              - `delta = 1` : Ajoute 1 à la quantité.
      *              - `delta = -1` : Retire 1 à la quantité.
-     * @return true si l'opération a été effectuée, sinon false (par exemple, si la pièce n'existe pas).
+     * @return true si l'opération a été effectuée, sinon false (par exemple, si la pièce n'existe pas
+     *         ou si la quantité dépasserait {@link Integer#MAX_VALUE}).
 
      */
     public boolean modifierQuantite(String piece, int delta) {
-        if ("freins".equals(piece)) {
-            freinsQty = Math.max(0, freinsQty + delta);
-            return true;
-        } else if ("huile".equals(piece)) {
-            huileQty = Math.max(0, huileQty + delta);
-            return true;
-        } else if ("filtres".equals(piece)) {
-            filtresQty = Math.max(0, filtresQty + delta);
-            return true;
+        return modifierQuantite(Pieces.idDe(piece), delta);
+    }
+
+    /**
+     * Modifie la quantité d'une pièce à partir de son identifiant.
+     *
+     * Fonctionnement :
+     * - Calcule la nouvelle quantité, bornée à 0 grâce à {@link Math#max(int, int)}.
+     *   Une quantité qui dépasserait {@link Integer#MAX_VALUE} est refusée, et le panier reste inchangé.
+     * - Ajoute la pièce à `lignes` quand sa quantité devient > 0, et l'en retire quand elle revient à 0.
+     * - Émet un événement JFR {@link EvenementsJfr.ModificationQuantite} (seulement si JFR l'a activé).
+     *
+     * @param pieceId L'identifiant de la pièce ({@link Pieces#FREINS}, {@link Pieces#HUILE}, ...).
+     * @param delta La quantité à ajouter ou retirer (peut être négative).
+     * @return true si l'opération a été effectuée, sinon false (identifiant hors du catalogue ou quantité trop grande).
+     */
+    public boolean modifierQuantite(int pieceId, int delta) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return false;
+        }
+        int ancienne = getQuantite(pieceId);
+        long somme = (long) ancienne + delta;
+        if (somme > Integer.MAX_VALUE) {
+            return false;
+        }
+        EvenementsJfr.ModificationQuantite evenement = new EvenementsJfr.ModificationQuantite();
+        evenement.begin();
+        int nouvelle = (int) Math.max(0, somme);
+        if (prixArticles != null) {
+            total += (long) (nouvelle - ancienne) * prixArticles.getPrix(pieceId);
+        }
+        if (quantites != null) {
+            quantites[pieceId] = nouvelle;
+            if (ancienne == 0 && nouvelle > 0) {
+                ajouterLigne(pieceId);
+            } else if (ancienne > 0 && nouvelle == 0) {
+                retirerLigne(pieceId);
+            }
+        } else if (ancienne == 0 && nouvelle > 0) {
+            ajouterLigneCreuse(pieceId, nouvelle);
+        } else if (ancienne > 0 && nouvelle == 0) {
+            retirerLigneCreuse(pieceId);
+        } else if (nouvelle > 0) {
+            quantitesLignes[table[chercher(pieceId)] - 1] = nouvelle;
         }
-        return false;
+        evenement.terminer(pieceId, delta, nouvelle, nombreLignes);
+        return true;
+    }
+
+    /**
+     * Remplace la quantité d'une pièce (saisie directe d'un nombre, restauration d'un panier).
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param quantite La nouvelle quantité (positive ou nulle).
+     * @return true si l'opération a été effectuée, sinon false (identifiant hors du catalogue ou quantité négative).
+     */
+    public boolean definirQuantite(int pieceId, int quantite) {
+        if (pieceId < 0 || pieceId >= nombrePieces || quantite < 0) {
+            return false;
+        }
+        return modifierQuantite(pieceId, quantite - getQuantite(pieceId));
+    }
+
+    /**
+     * Indique si ce panier tient son prix total à jour.
+     *
+     * @return true si le panier a été créé avec un {@link PrixArticles}.
+     */
+    public boolean suitLeTotal() {
+        return prixArticles != null;
+    }
+
+    /**
+     * Retourne le prix total du panier, tenu à jour à chaque modification.
+     *
+     * @return Le prix total en euros (toujours 0 si {@link #suitLeTotal()} est false).
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Indique si le total suivi a été calculé avec les prix actuels (aucun {@link PrixArticles#signalerChangementPrix()}
+     * depuis sa dernière resynchronisation).
+     *
+     * @return false si le panier ne suit pas son total, ou si les prix ont changé depuis.
+     */
+    public boolean totalAJour() {
+        return prixArticles != null && versionPrix == prixArticles.getVersion();
+    }
+
+    /**
+     * Remplace le total incrémental par une valeur recalculée (utilisé par {@link Facture#verifierPrixTotal()}).
+     *
+     * @param totalRecalcule Le total obtenu par un parcours complet du panier.
+     * @param versionPrix La version des prix lue avant le recalcul.
+     */
+    void resynchroniserTotal(long totalRecalcule, long versionPrix) {
+        this.total = totalRecalcule;
+        this.versionPrix = versionPrix;
+    }
+
+    /**
+     * Indique si le panier range ses quantités dans un tableau dense (voir « Organisation mémoire »).
+     */
+    boolean estDense() {
+        return quantites != null;
+    }
+
+    /**
+     * Donne accès au tableau dense des quantités, sans copie, pour les calculs vectorisés ({@link CalculTotaux}).
+     * Le tableau ne doit pas être modifié.
+     *
+     * @return Le tableau des quantités, ou null si le panier est creux ({@link #estDense()}).
+     */
+    int[] tableauQuantites() {
+        return quantites;
+    }
+
+    /**
+     * Retourne le nombre de références du catalogue gérées par ce panier.
+     *
+     * @return Le nombre de pièces (identifiants de 0 à getNombrePieces() - 1).
+     */
+    public int getNombrePieces() {
+        return nombrePieces;
+    }
+
+    /**
+     * Retourne le nombre de lignes du panier (pièces dont la quantité est > 0).
+     *
+     * @return Le nombre de lignes.
+     */
+    public int getNombreLignes() {
+        return nombreLignes;
+    }
+
+    /**
+     * Retourne l'identifiant de la pièce située à une position donnée du panier.
+     *
+     * Utilisation :
+     * - Parcourir uniquement les pièces commandées :
+     *   `for (int i = 0; i < getNombreLignes(); i++) { int id = getPieceLigne(i); ... }`
+     * - L'ordre des lignes n'est pas garanti : il change quand une pièce est retirée.
+     *
+     * @param index La position de la ligne, entre 0 et {@link #getNombreLignes()} - 1.
+     * @return L'identifiant de la pièce.
+     */
+    public int getPieceLigne(int index) {
+        if (index < 0 || index >= nombreLignes) {
+            throw new IndexOutOfBoundsException("Ligne " + index + " hors du panier (" + nombreLignes + " lignes)");
+        }
+        return lignes[index];
     }
 
     /**
@@ -82,15 +317,154 @@ public class GestionQuantites {
      * - Index 0 : Quantité des freins.
      * - Index 1 : Quantité des huiles.
      * - Index 2 : Quantité des filtres.
+     * - Index suivants : pièces du catalogue étendu.
      *
-     * Utilisation :
-     * - Cette méthode est utilisée par {@link Facture} pour calculer le prix total
-     *   basé sur les quantités actuelles.
+     * Attention : chaque appel alloue une copie. Pour un parcours sans allocation, utiliser
+     * {@link #getNombreLignes()} / {@link #getPieceLigne(int)} ou {@link #copierQuantites(int[])}.
      *
-     * @return Un tableau contenant les quantités dans l'ordre [freins, huiles, filtres].
+     * @return Un tableau contenant les quantités dans l'ordre [freins, huiles, filtres, ...].
      */
     public int[] getAllQuantities() {
-        return new int[]{freinsQty, huileQty, filtresQty};
+        if (quantites != null) {
+            return quantites.clone();
+        }
+        int[] copie = new int[nombrePieces];
+        copierQuantites(copie);
+        return copie;
     }
-}
 
+    /**
+     * Copie les quantités de toutes les pièces dans un tableau fourni par l'appelant.
+     *
+     * @param destination Le tableau à remplir (réutilisable d'un appel à l'autre).
+     * @return Le nombre de quantités copiées (le minimum entre les deux tailles).
+     */
+    public int copierQuantites(int[] destination) {
+        int n = Math.min(destination.length, nombrePieces);
+        if (quantites != null) {
+            System.arraycopy(quantites, 0, destination, 0, n);
+            return n;
+        }
+        Arrays.fill(destination, 0, n, 0);
+        for (int i = 0; i < nombreLignes; i++) {
+            if (lignes[i] < n) {
+                destination[lignes[i]] = quantitesLignes[i];
+            }
+        }
+        return n;
+    }
+
+    private void ajouterLigne(int pieceId) {
+        lignes[nombreLignes] = pieceId;
+        nombreLignes++;
+        positions[pieceId] = nombreLignes;
+    }
+
+    private void retirerLigne(int pieceId) {
+        // Remplace la ligne retirée par la dernière ligne pour garder `lignes` compact
+        int index = positions[pieceId] - 1;
+        int derniere = lignes[nombreLignes - 1];
+        lignes[index] = derniere;
+        positions[derniere] = index + 1;
+        positions[pieceId] = 0;
+        nombreLignes--;
+    }
+
+    /**
+     * Retourne la case de `table` qui contient la pièce, ou la case vide où elle serait rangée.
+     * La table est toujours à moitié vide au plus : la recherche s'arrête après quelques cases.
+     */
+    private int chercher(int pieceId) {
+        int masque = table.length - 1;
+        int i = caseIdeale(pieceId, masque);
+        while (table[i] != 0 && lignes[table[i] - 1] != pieceId) {
+            i = (i + 1) & masque;
+        }
+        return i;
+    }
+
+    private static int caseIdeale(int pieceId, int masque) {
+        // Mélange les bits : des identifiants consécutifs ne doivent pas remplir des cases consécutives
+        int h = pieceId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & masque;
+    }
+
+    private void ajouterLigneCreuse(int pieceId, int quantite) {
+        if ((long) (nombreLignes + 1) * DENSITE_PASSAGE_DENSE >= nombrePieces) {
+            passerEnDense();
+            quantites[pieceId] = quantite;
+            ajouterLigne(pieceId);
+            return;
+        }
+        if (nombreLignes == lignes.length) {
+            lignes = Arrays.copyOf(lignes, nombreLignes * 2);
+            quantitesLignes = Arrays.copyOf(quantitesLignes, nombreLignes * 2);
+        }
+        if ((nombreLignes + 1) * 2 > table.length) {
+            reconstruireTable(table.length * 2);
+        }
+        lignes[nombreLignes] = pieceId;
+        quantitesLignes[nombreLignes] = quantite;
+        nombreLignes++;
+        table[chercher(pieceId)] = nombreLignes;
+    }
+
+    private void retirerLigneCreuse(int pieceId) {
+        int casePiece = chercher(pieceId);
+        int index = table[casePiece] - 1;
+        int derniere = lignes[nombreLignes - 1];
+        if (derniere != pieceId) {
+            // Remplace la ligne retirée par la dernière ligne pour garder `lignes` compact
+            int caseDerniere = chercher(derniere);
+            lignes[index] = derniere;
+            quantitesLignes[index] = quantitesLignes[nombreLignes - 1];
+            table[caseDerniere] = index + 1;
+        }
+        nombreLignes--;
+        liberer(casePiece);
+    }
+
+    /**
+     * Vide une case de `table` en ramenant les pièces suivantes qui ne seraient plus trouvées
+     * (suppression sans marqueur, propre au sondage linéaire).
+     */
+    private void liberer(int caseVide) {
+        int masque = table.length - 1;
+        int i = caseVide;
+        while (true) {
+            i = (i + 1) & masque;
+            if (table[i] == 0) {
+                break;
+            }
+            int ideale = caseIdeale(lignes[table[i] - 1], masque);
+            // La pièce de la case i reste en place si sa case idéale est entre la case vide (exclue) et i (inclus)
+            boolean enPlace = caseVide <= i ? caseVide < ideale && ideale <= i : caseVide < ideale || ideale <= i;
+            if (!enPlace) {
+                table[caseVide] = table[i];
+                caseVide = i;
+            }
+        }
+        table[caseVide] = 0;
+    }
+
+    private void reconstruireTable(int taille) {
+        table = new int[taille];
+        for (int i = 0; i < nombreLignes; i++) {
+            table[chercher(lignes[i])] = i + 1;
+        }
+    }
+
+    private void passerEnDense() {
+        int[] lignesDenses = new int[nombrePieces];
+        quantites = new int[nombrePieces];
+        positions = new int[nombrePieces];
+        for (int i = 0; i < nombreLignes; i++) {
+            lignesDenses[i] = lignes[i];
+            quantites[lignes[i]] = quantitesLignes[i];
+            positions[lignes[i]] = i + 1;
+        }
+        lignes = lignesDenses;
+        quantitesLignes = null;
+        table = null;
+    }
+}
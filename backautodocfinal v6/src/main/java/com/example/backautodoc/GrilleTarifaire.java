@@ -0,0 +1,211 @@
+package com.example.backautodoc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cette classe applique des règles de prix compilées à un panier.
+ *
+ * Rôles principaux :
+ * 1. Transformer une fois pour toutes les {@link ReglesTarifaires} en tableaux plats, indexés par
+ *    identifiant de pièce ({@link Pieces}) : aucune règle n'est interprétée pendant le calcul.
+ * 2. Calculer le total remisé d'un panier à partir de son total brut.
+ *
+ * Fonctionnement :
+ * - Paliers : pour chaque pièce, ses paliers sont rangés par quantité croissante dans `seuils` / `remisesPaliers`,
+ *   entre `debutPaliers[id]` et `debutPaliers[id + 1]`. Une ligne sans palier coûte une comparaison.
+ * - Lots : chaque lot est rattaché à sa plus petite pièce (son « ancre »). Seuls les lots ancrés sur
+ *   une pièce du panier sont examinés : le coût dépend des lignes du panier, pas du nombre de lots.
+ * - Marques : une seule recherche dans une table par calcul.
+ * - Les étapes sans règle ne sont pas compilées : une grille vide retourne directement le total brut.
+ *
+ * Liens avec d'autres classes :
+ * - {@link ReglesTarifaires} : Déclare les règles et appelle la compilation.
+ * - {@link Facture} : Applique la grille au total brut et affiche la remise sur la facture.
+ *
+ * Une grille est immuable : elle peut être partagée par tous les paniers et tous les threads.
+ */
+public final class GrilleTarifaire {
+
+    /** Grille sans aucune règle : le total remisé est le total brut. */
+    public static final GrilleTarifaire VIDE = compiler(List.of(), List.of(), Map.of());
+
+    /**
+     * Une étape du calcul : reçoit le total courant et retourne le total après ses remises.
+     */
+    @FunctionalInterface
+    private interface Etape {
+        long appliquer(GestionQuantites panier, PrixArticles prix, String marque, long total);
+    }
+
+    // Paliers (format CSR indexé par pièce)
+    private final int[] debutPaliers;
+    private final int[] seuils;
+    private final int[] remisesPaliers;
+
+    // Lots (format CSR indexé par pièce ancre, puis pièces de chaque lot)
+    private final int[] debutLots;
+    private final int[] debutPiecesLot;
+    private final int[] piecesLots;
+    private final int[] remisesLots;
+
+    private final Map<String, Integer> remisesMarques;
+    private final Etape[] etapes;
+    private final int nombreRegles;
+
+    private GrilleTarifaire(int[] debutPaliers, int[] seuils, int[] remisesPaliers,
+                            int[] debutLots, int[] debutPiecesLot, int[] piecesLots, int[] remisesLots,
+                            Map<String, Integer> remisesMarques, int nombreRegles) {
+        this.debutPaliers = debutPaliers;
+        this.seuils = seuils;
+        this.remisesPaliers = remisesPaliers;
+        this.debutLots = debutLots;
+        this.debutPiecesLot = debutPiecesLot;
+        this.piecesLots = piecesLots;
+        this.remisesLots = remisesLots;
+        this.remisesMarques = remisesMarques;
+        this.nombreRegles = nombreRegles;
+
+        List<Etape> choisies = new ArrayList<>(3);
+        if (seuils.length > 0) {
+            choisies.add(this::appliquerPaliers);
+        }
+        if (remisesLots.length > 0) {
+            choisies.add(this::appliquerLots);
+        }
+        if (!remisesMarques.isEmpty()) {
+            choisies.add(this::appliquerMarque);
+        }
+        this.etapes = choisies.toArray(new Etape[0]);
+    }
+
+    static GrilleTarifaire compiler(List<ReglesTarifaires.Palier> paliers, List<ReglesTarifaires.Lot> lots,
+                                    Map<String, Integer> remisesMarques) {
+        // Paliers triés par pièce puis par seuil (tri stable : à seuil égal, la dernière règle déclarée l'emporte)
+        List<ReglesTarifaires.Palier> tries = new ArrayList<>(paliers);
+        tries.sort(Comparator.comparingInt(ReglesTarifaires.Palier::pieceId)
+                .thenComparingInt(ReglesTarifaires.Palier::quantiteMin));
+        int limitePaliers = tries.isEmpty() ? 0 : tries.get(tries.size() - 1).pieceId() + 1;
+        int[] debutPaliers = new int[limitePaliers + 1];
+        int[] seuils = new int[tries.size()];
+        int[] remisesPaliers = new int[tries.size()];
+        for (int i = 0; i < tries.size(); i++) {
+            ReglesTarifaires.Palier palier = tries.get(i);
+            debutPaliers[palier.pieceId() + 1]++;
+            seuils[i] = palier.quantiteMin();
+            remisesPaliers[i] = palier.remise();
+        }
+        cumuler(debutPaliers);
+
+        // Lots triés par pièce ancre (la plus petite pièce du lot)
+        List<ReglesTarifaires.Lot> lotsTries = new ArrayList<>(lots);
+        lotsTries.sort(Comparator.comparingInt(lot -> Arrays.stream(lot.pieces()).min().orElseThrow()));
+        int limiteLots = 0;
+        int totalPieces = 0;
+        for (ReglesTarifaires.Lot lot : lotsTries) {
+            limiteLots = Math.max(limiteLots, Arrays.stream(lot.pieces()).min().orElseThrow() + 1);
+            totalPieces += lot.pieces().length;
+        }
+        int[] debutLots = new int[limiteLots + 1];
+        int[] debutPiecesLot = new int[lotsTries.size() + 1];
+        int[] piecesLots = new int[totalPieces];
+        int[] remisesLots = new int[lotsTries.size()];
+        int position = 0;
+        for (int i = 0; i < lotsTries.size(); i++) {
+            ReglesTarifaires.Lot lot = lotsTries.get(i);
+            debutLots[Arrays.stream(lot.pieces()).min().orElseThrow() + 1]++;
+            debutPiecesLot[i] = position;
+            for (int pieceId : lot.pieces()) {
+                piecesLots[position++] = pieceId;
+            }
+            remisesLots[i] = lot.remiseEuros();
+        }
+        debutPiecesLot[lotsTries.size()] = position;
+        cumuler(debutLots);
+
+        return new GrilleTarifaire(debutPaliers, seuils, remisesPaliers, debutLots, debutPiecesLot, piecesLots,
+                remisesLots, new HashMap<>(remisesMarques), paliers.size() + lots.size() + remisesMarques.size());
+    }
+
+    /**
+     * Calcule le total remisé d'un panier.
+     *
+     * @param panier Le panier.
+     * @param prix Les prix unitaires utilisés pour le total brut.
+     * @param marque La marque du véhicule (ou null).
+     * @param totalBrut Le total sans remise ({@link Facture#calculerPrixTotal()}).
+     * @return Le total après application de toutes les règles (jamais négatif).
+     */
+    public long appliquer(GestionQuantites panier, PrixArticles prix, String marque, long totalBrut) {
+        long total = totalBrut;
+        for (Etape etape : etapes) {
+            total = etape.appliquer(panier, prix, marque, total);
+        }
+        return Math.max(0, total);
+    }
+
+    public int getNombreRegles() {
+        return nombreRegles;
+    }
+
+    private long appliquerPaliers(GestionQuantites panier, PrixArticles prix, String marque, long total) {
+        int limite = debutPaliers.length - 1;
+        for (int i = 0; i < panier.getNombreLignes(); i++) {
+            int pieceId = panier.getPieceLigne(i);
+            if (pieceId >= limite) {
+                continue;
+            }
+            int debut = debutPaliers[pieceId];
+            int fin = debutPaliers[pieceId + 1];
+            if (debut == fin) {
+                continue;
+            }
+            int quantite = panier.getQuantite(pieceId);
+            // Le palier le plus élevé atteint (les seuils sont croissants)
+            for (int p = fin - 1; p >= debut; p--) {
+                if (quantite >= seuils[p]) {
+                    total -= (long) quantite * prix.getPrix(pieceId) * remisesPaliers[p] / ReglesTarifaires.REMISE_MAX;
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    private long appliquerLots(GestionQuantites panier, PrixArticles prix, String marque, long total) {
+        int limite = debutLots.length - 1;
+        for (int i = 0; i < panier.getNombreLignes(); i++) {
+            int ancre = panier.getPieceLigne(i);
+            if (ancre >= limite) {
+                continue;
+            }
+            for (int lot = debutLots[ancre]; lot < debutLots[ancre + 1]; lot++) {
+                // Nombre de lots complets : la plus petite quantité parmi les pièces du lot
+                int complets = Integer.MAX_VALUE;
+                for (int p = debutPiecesLot[lot]; p < debutPiecesLot[lot + 1] && complets > 0; p++) {
+                    complets = Math.min(complets, panier.getQuantite(piecesLots[p]));
+                }
+                total -= (long) complets * remisesLots[lot];
+            }
+        }
+        return total;
+    }
+
+    private long appliquerMarque(GestionQuantites panier, PrixArticles prix, String marque, long total) {
+        Integer remise = marque == null ? null : remisesMarques.get(marque);
+        if (remise == null || total <= 0) {
+            return total;
+        }
+        return total - total * remise / ReglesTarifaires.REMISE_MAX;
+    }
+
+    private static void cumuler(int[] debuts) {
+        for (int i = 1; i < debuts.length; i++) {
+            debuts[i] += debuts[i - 1];
+        }
+    }
+}
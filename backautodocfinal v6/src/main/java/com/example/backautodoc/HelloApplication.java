@@ -2,22 +2,46 @@ package com.example.backautodoc;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 
+/**
+ * Point d'entrée de l'application de comptoir.
+ *
+ * La vue est construite par {@link HelloViewGeneree}, générée au build à partir de `hello-view.fxml`
+ * (voir `outils/GenerateurVues.java`) : le démarrage ne lit pas de XML et n'utilise pas la réflexion.
+ * La propriété système `backautodoc.fxml=true` revient au chargement par {@link FXMLLoader},
+ * par exemple pour essayer une modification du FXML sans reconstruire l'application.
+ */
 public class HelloApplication extends Application {
     @Override
     public void start(Stage stage) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(HelloApplication.class.getResource("hello-view.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 600, 500);
+        Scene scene = new Scene(creerVue(Boolean.getBoolean("backautodoc.fxml")), 600, 750);
         stage.setTitle("Hello!");
         stage.setScene(scene);
         stage.show();
     }
 
-    public static void main(String[] args) {
+    /**
+     * Construit la vue principale et son contrôleur.
+     *
+     * @param avecFxml true pour charger `hello-view.fxml` avec {@link FXMLLoader}, false pour la vue générée.
+     * @return La racine de la vue.
+     * @throws IOException Si le fichier FXML ne peut pas être lu.
+     */
+    public static Parent creerVue(boolean avecFxml) throws IOException {
+        if (avecFxml) {
+            FXMLLoader fxmlLoader = new FXMLLoader(HelloApplication.class.getResource("hello-view.fxml"));
+            return fxmlLoader.load();
+        }
+        return HelloViewGeneree.creer(new HelloController());
+    }
+
+    public static void main(String[] args) throws IOException {
+        EvenementsJfr.demarrerSiDemande();
         launch();
     }
-}
\ No newline at end of file
+}
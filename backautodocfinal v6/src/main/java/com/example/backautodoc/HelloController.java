@@ -1,7 +1,19 @@
 package com.example.backautodoc;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
@@ -12,49 +24,106 @@ import javafx.scene.control.*;
  * 2. Mettre à jour les données des modèles comme {@link GestionQuantites} et {@link PieceSelection}.
  * 3. Afficher les informations pertinentes dans l'interface utilisateur.
  *
+ * Rafraîchissement de l'affichage :
+ * - Les boutons + et - se répètent quand on les maintient enfoncés ({@link RepetitionBouton}), et les quantités
+ *   peuvent être saisies directement (validées par Entrée ou en quittant le champ).
+ * - Une modification ne touche pas l'affichage : elle marque la quantité et le total « à afficher ».
+ *   Un {@link AnimationTimer} les affiche à l'image suivante, puis s'arrête : quel que soit le nombre
+ *   de clics ou de répétitions, chaque image met à jour au plus une fois chaque quantité et le total.
+ *
+ * Catalogue :
+ * - Toutes les pièces du catalogue sont listées dans une table virtualisée ({@link NavigateurPieces}).
+ *   Un double-clic (ou la touche +) ajoute une unité de la pièce, la touche - en retire une.
+ * - Avec `-Dbackautodoc.catalogue=<fichier>`, le poste utilise un catalogue fournisseur ({@link CataloguePrix}).
+ *
+ * Commande :
+ * - La commande est passée sur un thread virtuel ({@link TacheCommande}) : l'enregistrement et la facture
+ *   ne bloquent pas l'affichage. Pendant ce temps, le panier est désactivé et la commande peut être annulée.
+ * - Les résultats et les erreurs sont affichés par des alertes qui ne bloquent pas le thread JavaFX.
+ *
  * Liens avec d'autres classes :
+ * - {@link MoteurCommandes} : Applique les règles métier ; le contrôleur se contente d'afficher ses résultats.
  * - {@link GestionQuantites} : Modifie les quantités des pièces sélectionnées.
  * - {@link Facture} : Utilisée pour générer et calculer les données des commandes.
  * - {@link AlertHelper} : Utilisée pour afficher des alertes à l'utilisateur.
  * - {@link PrixArticles} et {@link GestionQuantites} : Gèrent les données des articles.
  */
 public class HelloController {
+    // Composants de la vue, renseignés par HelloViewGeneree (ou par FXMLLoader) : accessibles depuis le paquetage
     // Boutons pour commander et ajuster les quantités
     @FXML
-    private Button commanderButton;
+    Button commanderButton;
     // Cases à cocher pour sélectionner les pièces
     @FXML
-    private CheckBox filtresCheckBox, freinsCheckBox, huileCheckBox;
+    CheckBox filtresCheckBox, freinsCheckBox, huileCheckBox;
 
     @FXML
-    private Button filtresMinusButton, filtresPlusButton;
+    Button filtresMinusButton, filtresPlusButton;
     // Étiquettes affichant les prix et quantités
     @FXML
-    private Label filtresPriceLabel, filtresQtyLabel;
+    Label filtresPriceLabel;
+
+    @FXML
+    TextField filtresQtyField;
+
+    @FXML
+    Button freinsMinusButton, freinsPlusButton;
+
+    @FXML
+    Label freinsPriceLabel;
 
     @FXML
-    private Button freinsMinusButton, freinsPlusButton;
+    TextField freinsQtyField;
 
     @FXML
-    private Label freinsPriceLabel, freinsQtyLabel;
+    Button huileMinusButton, huilePlusButton;
 
     @FXML
-    private Button huileMinusButton, huilePlusButton;
+    Label huilePriceLabel;
 
     @FXML
-    private Label huilePriceLabel, huileQtyLabel;
+    TextField huileQtyField;
     // Menu déroulant pour choisir une marque
     @FXML
-    private ComboBox<String> marqueComboBox;
+    ComboBox<String> marqueComboBox;
 
     @FXML
-    private Label prixFinalLabel;
-    // Objets représentant les données principales
-    private final MarqueSelection marqueSelection = new MarqueSelection();
-    private final PieceSelection pieceSelection = new PieceSelection();
-    private final GestionQuantites gestionQuantites = new GestionQuantites();
-    private final PrixArticles prixArticles = new PrixArticles();
-    private final Facture facture = new Facture(gestionQuantites, prixArticles);
+    Label prixFinalLabel;
+
+    // Avancement de la commande en cours
+    @FXML
+    ProgressIndicator commandeProgress;
+
+    @FXML
+    Label commandeStatutLabel;
+
+    @FXML
+    Button interrompreButton;
+
+    // Catalogue complet
+    @FXML
+    TableView<PagesCatalogue.Ligne> piecesTable;
+    private static final long TAILLE_SEGMENT_JOURNAL = 16L * 1024 * 1024;
+    private static final String SESSION_LOCALE = "poste-local";
+    private static final int CHIFFRES_QUANTITE_MAX = 6;
+    // Moteur regroupant les données principales (marque, sélections, quantités, facture)
+    private MoteurCommandes moteur = new MoteurCommandes();
+    private NavigateurPieces navigateur;
+    // Champs de saisie des quantités, indexés par identifiant de pièce
+    private final TextField[] champsQuantite = new TextField[Pieces.NOMBRE_PIECES_BASE];
+    // Ce qui a changé depuis la dernière image, et doit être réaffiché
+    private final boolean[] quantitesAAfficher = new boolean[Pieces.NOMBRE_PIECES_BASE];
+    private boolean totalAAfficher;
+    private boolean catalogueAAfficher;
+    // Vrai du lancement de la commande jusqu'à ce que son thread ait fini d'utiliser le moteur
+    private final BooleanProperty commandeEnCours = new SimpleBooleanProperty(false);
+    private TacheCommande tacheEnCours;
+    private final AnimationTimer rafraichissement = new AnimationTimer() {
+        @Override
+        public void handle(long maintenant) {
+            rafraichirAffichage();
+        }
+    };
 
     /**
      * Méthode appelée automatiquement au chargement de l'interface.
@@ -65,15 +134,144 @@ public class HelloController {
      */
     @FXML
     public void initialize() {
+        // Catalogue fournisseur, si le poste est lancé avec -Dbackautodoc.catalogue=<fichier>
+        ouvrirCatalogue();
+
         // Initialiser la liste des marques dans le menu déroulant
-        marqueComboBox.getItems().addAll(marqueSelection.getMarques());
-        marqueComboBox.setOnAction(e -> marqueSelection.setMarque(marqueComboBox.getValue()));
+        marqueComboBox.getItems().addAll(moteur.getMarques());
+        // La remise de la marque change le total
+        marqueComboBox.setOnAction(e -> {
+            moteur.selectionnerMarque(marqueComboBox.getValue());
+            marquerTotal();
+        });
 
         // Connecter les cases à cocher à PieceSelection
         configureCheckBoxes();
 
+        // Saisie directe et répétition des boutons + et -
+        configurerQuantite(Pieces.FREINS, freinsQtyField, freinsMinusButton, freinsPlusButton);
+        configurerQuantite(Pieces.HUILE, huileQtyField, huileMinusButton, huilePlusButton);
+        configurerQuantite(Pieces.FILTRES, filtresQtyField, filtresMinusButton, filtresPlusButton);
+
+        // Table du catalogue complet
+        configurerCatalogue();
+
+        // Panier désactivé pendant qu'une commande est en cours
+        configurerCommande();
+
         // Initialiser les étiquettes de prix
         updatePrices();
+
+        // Règles de prix, si le poste est lancé avec -Dbackautodoc.regles=<fichier>
+        chargerRegles();
+
+        // Journal des commandes, si le poste est lancé avec -Dbackautodoc.journal=<dossier>
+        ouvrirJournal();
+    }
+
+    /**
+     * Ouvre le catalogue fournisseur indiqué par la propriété système `backautodoc.catalogue`.
+     * Sans cette propriété (ou si le fichier est invalide), seules les pièces de base sont proposées.
+     */
+    private void ouvrirCatalogue() {
+        String fichier = System.getProperty("backautodoc.catalogue");
+        if (fichier == null) {
+            return;
+        }
+        try {
+            PrixArticles prixArticles = new PrixArticles(CataloguePrix.ouvrir(Path.of(fichier)));
+            moteur = new MoteurCommandes(prixArticles, prixArticles.getNombrePieces());
+        } catch (IOException e) {
+            AlertHelper.showError("Erreur", "Catalogue fournisseur invalide", e.getMessage());
+        }
+    }
+
+    /**
+     * Remplit la table du catalogue et y connecte le double-clic et les touches + et -.
+     */
+    private void configurerCatalogue() {
+        navigateur = new NavigateurPieces(piecesTable, moteur);
+        piecesTable.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                modifierQuantiteCatalogue(1);
+            }
+        });
+        piecesTable.addEventHandler(KeyEvent.KEY_TYPED, e -> {
+            switch (e.getCharacter()) {
+                case "+" -> modifierQuantiteCatalogue(1);
+                case "-" -> modifierQuantiteCatalogue(-1);
+                default -> {
+                    return;
+                }
+            }
+            e.consume();
+        });
+    }
+
+    private void modifierQuantiteCatalogue(int delta) {
+        int pieceId = navigateur.getPieceSelectionnee();
+        if (pieceId != Pieces.INCONNUE) {
+            modifierQuantite(pieceId, delta);
+        }
+    }
+
+    /**
+     * Charge et compile les règles de prix indiquées par la propriété système `backautodoc.regles`.
+     * Sans cette propriété, aucune remise n'est appliquée.
+     */
+    private void chargerRegles() {
+        String fichier = System.getProperty("backautodoc.regles");
+        if (fichier == null) {
+            return;
+        }
+        try {
+            moteur.setGrilleTarifaire(ReglesTarifaires.lire(Path.of(fichier), moteur.getPrixArticles().getNombrePieces()).compiler());
+        } catch (IOException e) {
+            AlertHelper.showError("Erreur", "Règles de prix invalides", e.getMessage());
+        }
+    }
+
+    /**
+     * Ouvre le journal des commandes indiqué par la propriété système `backautodoc.journal`.
+     * Sans cette propriété, les commandes ne sont pas enregistrées.
+     *
+     * Avec un journal, le panier en cours avant l'arrêt du poste est restauré (dernier instantané
+     * puis fin du journal), et un nouvel instantané est écrit pour que le prochain démarrage
+     * n'ait à rejouer que les modifications faites après celui-ci.
+     */
+    private void ouvrirJournal() {
+        String dossier = System.getProperty("backautodoc.journal");
+        if (dossier == null) {
+            return;
+        }
+        Path dossierJournal = Path.of(dossier);
+        Path dossierInstantanes = dossierJournal.resolve("instantanes");
+        try {
+            Map<String, MoteurCommandes> sessions = new HashMap<>();
+            sessions.put(SESSION_LOCALE, moteur);
+            InstantanesPaniers.restaurer(dossierInstantanes, dossierJournal, sessions, sessionId -> new MoteurCommandes(moteur.getPrixArticles(), moteur.getPrixArticles().getNombrePieces()));
+            afficherPanier();
+
+            JournalCommandes journal = new JournalCommandes(dossierJournal, TAILLE_SEGMENT_JOURNAL);
+            InstantanesPaniers.ecrire(dossierInstantanes, journal.getDernierLsn(), Map.of(SESSION_LOCALE, moteur));
+            moteur.setJournal(journal, SESSION_LOCALE);
+            journal.supprimerSegmentsAvant(InstantanesPaniers.lsnPlusAncien(dossierInstantanes));
+        } catch (IOException e) {
+            AlertHelper.showError("Erreur", "Journal des commandes indisponible", e.getMessage());
+        }
+    }
+
+    /**
+     * Affiche l'état du moteur (marque, cases cochées, quantités et total) après une restauration.
+     */
+    private void afficherPanier() {
+        marqueComboBox.setValue(moteur.getMarque());
+        freinsCheckBox.setSelected(moteur.isPieceSelectionnee(Pieces.FREINS));
+        huileCheckBox.setSelected(moteur.isPieceSelectionnee(Pieces.HUILE));
+        filtresCheckBox.setSelected(moteur.isPieceSelectionnee(Pieces.FILTRES));
+        for (int pieceId = 0; pieceId < champsQuantite.length; pieceId++) {
+            marquerQuantite(pieceId);
+        }
     }
     /**
      * Associe les cases à cocher (interface utilisateur) à l'objet {@link PieceSelection}.
@@ -81,10 +279,47 @@ public class HelloController {
      */
     private void configureCheckBoxes() {
         // Synchroniser les cases à cocher avec pieceSelection
-        freinsCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> pieceSelection.setFreins(newValue));
-        huileCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> pieceSelection.setHuile(newValue));
-        filtresCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> pieceSelection.setFiltres(newValue));
+        freinsCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> moteur.selectionnerPiece(Pieces.FREINS, newValue));
+        huileCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> moteur.selectionnerPiece(Pieces.HUILE, newValue));
+        filtresCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> moteur.selectionnerPiece(Pieces.FILTRES, newValue));
+    }
+
+    /**
+     * Désactive tout ce qui modifie le panier pendant une commande, et n'affiche l'avancement
+     * et le bouton d'annulation que pendant celle-ci.
+     */
+    private void configurerCommande() {
+        Control[] controlesPanier = {marqueComboBox, freinsCheckBox, huileCheckBox, filtresCheckBox,
+                freinsQtyField, huileQtyField, filtresQtyField, freinsMinusButton, freinsPlusButton,
+                huileMinusButton, huilePlusButton, filtresMinusButton, filtresPlusButton, piecesTable, commanderButton};
+        for (Control controle : controlesPanier) {
+            controle.disableProperty().bind(commandeEnCours);
+        }
+        commandeProgress.visibleProperty().bind(commandeEnCours);
+        interrompreButton.visibleProperty().bind(commandeEnCours);
     }
+
+    /**
+     * Prépare le champ et les boutons d'une pièce.
+     *
+     * - Le champ n'accepte que des chiffres ; la quantité saisie est appliquée par Entrée ou en quittant le champ.
+     * - Maintenir un bouton enfoncé répète l'ajout ou le retrait. Si le moteur refuse (marque ou pièce
+     *   non sélectionnée), la répétition s'arrête et l'erreur est affichée une seule fois.
+     */
+    private void configurerQuantite(int pieceId, TextField champ, Button moins, Button plus) {
+        champsQuantite[pieceId] = champ;
+        champ.setTextFormatter(new TextFormatter<String>(modification ->
+                modification.getControlNewText().matches("\\d{0," + CHIFFRES_QUANTITE_MAX + "}") ? modification : null));
+        champ.setOnAction(e -> validerSaisie(pieceId));
+        champ.focusedProperty().addListener((observable, avant, focus) -> {
+            if (!focus) {
+                validerSaisie(pieceId);
+            }
+        });
+        new RepetitionBouton(moins, pas -> repeterModification(pieceId, -pas));
+        new RepetitionBouton(plus, pas -> repeterModification(pieceId, pas));
+    }
+
     /**
      * Ajoute une unité de freins si les conditions sont remplies.
      *
@@ -112,172 +347,193 @@ public class HelloController {
 
     @FXML
     public void ajouterFreins() {
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant d'ajouter des freins.");
-            return;
-        }
-
-        if (!pieceSelection.isFreins()) {
-            AlertHelper.showError("Erreur", "Freins non sélectionnés", "Veuillez sélectionner les freins avant d'ajouter des quantités.");
-            return;
-        }
-
-        // Appel direct à GestionQuantites
-        gestionQuantites.modifierQuantite("freins", 1);
-
-        // Met à jour l'étiquette et le prix total
-        freinsQtyLabel.setText("Quantité: " + gestionQuantites.getFreinsQty());
-        updateFinalPrice();
+        modifierQuantite(Pieces.FREINS, 1);
     }
 
 
 
     @FXML
     public void retirerFreins() {
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant de retirer de l'huile.");
-            return;
-        }
-
-        if (!pieceSelection.isFreins()) {
-            AlertHelper.showError("Erreur", "freins non sélectionnée", "Veuillez sélectionner l'huile avant de retirer des quantités.");
-            return;
-        }
-
-        // Appel direct à GestionQuantites
-        gestionQuantites.modifierQuantite("freins", -1);
-
-        // Met à jour l'étiquette et le prix total
-        freinsQtyLabel.setText("Quantité: " + gestionQuantites.getFreinsQty());
-        updateFinalPrice();
+        modifierQuantite(Pieces.FREINS, -1);
     }
 
     @FXML
     public void ajouterHuile() {
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant d'ajouter des freins.");
-            return;
-        }
-
-        if (!pieceSelection.isHuile()) {
-            AlertHelper.showError("Erreur", "huile non sélectionnés", "Veuillez sélectionner les freins avant d'ajouter des quantités.");
-            return;
-        }
-
-        // Appel direct à GestionQuantites
-        gestionQuantites.modifierQuantite("huile", 1);
-
-        // Met à jour l'étiquette et le prix total
-        huileQtyLabel.setText("Quantité: " + gestionQuantites.getHuileQty());
-        updateFinalPrice();
+        modifierQuantite(Pieces.HUILE, 1);
     }
 
     @FXML
     public void retirerHuile() {
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant de retirer de l'huile.");
-            return;
-        }
-
-        if (!pieceSelection.isHuile()) {
-            AlertHelper.showError("Erreur", "Huile non sélectionnée", "Veuillez sélectionner l'huile avant de retirer des quantités.");
-            return;
-        }
+        modifierQuantite(Pieces.HUILE, -1);
+    }
 
-        // Appel direct à GestionQuantites
-        gestionQuantites.modifierQuantite("huile", -1);
 
-        // Met à jour l'étiquette et le prix total
-        huileQtyLabel.setText("Quantité: " + gestionQuantites.getHuileQty());
-        updateFinalPrice();
+    @FXML
+    public void ajouterFiltres() {
+        modifierQuantite(Pieces.FILTRES, 1);
     }
 
+    @FXML
+    public void retirerFiltres() {
+        modifierQuantite(Pieces.FILTRES, -1);
+    }
 
+    /**
+     * Lance la commande en arrière-plan ; un récapitulatif est affiché quand elle est enregistrée.
+     *
+     * Conditions (vérifiées par le moteur) :
+     * - Une marque est sélectionnée.
+     * - Au moins une pièce est sélectionnée.
+     */
     @FXML
-    public void ajouterFiltres() {
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant d'ajouter des freins.");
+    public void commander() {
+        if (tacheEnCours != null) {
             return;
         }
+        TacheCommande tache = new TacheCommande(moteur);
+        tacheEnCours = tache;
+        commandeEnCours.set(true);
+        commandeStatutLabel.textProperty().bind(tache.messageProperty());
+        commandeProgress.progressProperty().bind(tache.progressProperty());
+        Thread.ofVirtual().name("commande").start(() -> {
+            tache.run();
+            // Le thread n'utilise plus le moteur : l'interface peut de nouveau le modifier
+            Platform.runLater(() -> terminerCommande(tache));
+        });
+    }
 
-        if (!pieceSelection.isFiltres()) {
-            AlertHelper.showError("Erreur", "Filtres non sélectionnés", "Veuillez sélectionner les freins avant d'ajouter des quantités.");
-            return;
+    /**
+     * Demande l'annulation de la commande en cours (voir {@link TacheCommande}).
+     */
+    @FXML
+    public void interrompreCommande() {
+        if (tacheEnCours != null) {
+            tacheEnCours.cancel(false);
         }
-
-        // Appel direct à GestionQuantites
-        gestionQuantites.modifierQuantite("filtres", 1);
-
-        // Met à jour l'étiquette et le prix total
-        filtresQtyLabel.setText("Quantité: " + gestionQuantites.getFiltresQty());
-        updateFinalPrice();
     }
 
-    @FXML
-    public void retirerFiltres() {
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant de retirer de l'huile.");
-            return;
+    /**
+     * Réactive le panier et affiche le résultat de la commande.
+     */
+    private void terminerCommande(TacheCommande tache) {
+        tacheEnCours = null;
+        commandeStatutLabel.textProperty().unbind();
+        commandeProgress.progressProperty().unbind();
+        commandeEnCours.set(false);
+        if (tache.getState() == Worker.State.SUCCEEDED) {
+            ResultatOperation resultat = tache.getValue();
+            if (!resultat.isSucces()) {
+                afficherErreur(resultat);
+                return;
+            }
+            AlertHelper.notifyInfo("Commande", "Résumé de la Commande", resultat.getFacture());
+        } else if (tache.getState() == Worker.State.FAILED) {
+            AlertHelper.notifyError("Erreur", "La commande a échoué", String.valueOf(tache.getException().getMessage()));
+        } else if (tache.getCommandeMaintenue() != null) {
+            // Annulation demandée trop tard : la commande est enregistrée
+            commandeStatutLabel.setText("Commande enregistrée (trop tard pour l'annuler)");
+            AlertHelper.notifyInfo("Commande", "Résumé de la Commande", tache.getCommandeMaintenue().getFacture());
+        } else {
+            commandeStatutLabel.setText("Commande annulée");
         }
+    }
 
-        if (!pieceSelection.isFiltres()) {
-            AlertHelper.showError("Erreur", "filtres non sélectionnée", "Veuillez sélectionner l'huile avant de retirer des quantités.");
+    /**
+     * Demande au moteur de modifier une quantité ; la quantité et le total seront réaffichés à l'image suivante.
+     * En cas de refus (marque ou pièce non sélectionnée), l'erreur est affichée à l'utilisateur.
+     */
+    private void modifierQuantite(int pieceId, int delta) {
+        ResultatOperation resultat = moteur.modifierQuantite(pieceId, delta);
+        if (!resultat.isSucces()) {
+            afficherErreur(resultat);
             return;
         }
-
-        // Appel direct à GestionQuantites
-        gestionQuantites.modifierQuantite("filtres", -1);
-
-        // Met à jour l'étiquette et le prix total
-        filtresQtyLabel.setText("Quantité: " + gestionQuantites.getFiltresQty());
-        updateFinalPrice();
+        marquerQuantite(pieceId);
     }
 
     /**
-     * Passe une commande en affichant un récapitulatif si toutes les conditions sont respectées.
+     * Variante de {@link #modifierQuantite(int, int)} appelée par la répétition d'un bouton.
      *
-     * Conditions :
-     * - Une marque est sélectionnée.
-     * - Au moins une pièce est sélectionnée.
+     * @return false si le moteur a refusé, pour arrêter la répétition.
      */
-    @FXML
-    public void commander() {
-        boolean peuxfaire = true;
-        if (!isMarqueSelected()) {
-            AlertHelper.showError("Erreur", "Aucune marque sélectionnée", "Veuillez sélectionner une marque avant de passer commande.");
-            peuxfaire = false;
+    private boolean repeterModification(int pieceId, int delta) {
+        ResultatOperation resultat = moteur.modifierQuantite(pieceId, delta);
+        if (!resultat.isSucces()) {
+            afficherErreur(resultat);
+            return false;
         }
+        marquerQuantite(pieceId);
+        return true;
+    }
 
-        if (!pieceSelection.hasSelection()) {
-            AlertHelper.showError("Erreur", "Aucune pièce sélectionnée", "Veuillez sélectionner au moins une pièce avant de passer commande.");
-            peuxfaire = false;
+    /**
+     * Applique la quantité saisie dans le champ d'une pièce. Un champ vide, ou une saisie refusée,
+     * remet la quantité actuelle dans le champ.
+     */
+    private void validerSaisie(int pieceId) {
+        String texte = champsQuantite[pieceId].getText();
+        if (!texte.isEmpty() && Integer.parseInt(texte) != moteur.getQuantite(pieceId)) {
+            ResultatOperation resultat = moteur.definirQuantite(pieceId, Integer.parseInt(texte));
+            if (!resultat.isSucces()) {
+                afficherErreur(resultat);
+            }
         }
+        marquerQuantite(pieceId);
+    }
 
-        if (peuxfaire) {
-            AlertHelper.showInfo("Commande", "Résumé de la Commande", facture.genererFacture(marqueSelection.getMarque()));
+    /**
+     * Demande le réaffichage d'une quantité et du total à la prochaine image.
+     */
+    private void marquerQuantite(int pieceId) {
+        if (pieceId < quantitesAAfficher.length) {
+            quantitesAAfficher[pieceId] = true;
         }
+        catalogueAAfficher = true;
+        marquerTotal();
+    }
+
+    private void marquerTotal() {
+        totalAAfficher = true;
+        rafraichissement.start();
     }
+
     /**
-     * Vérifie si une marque est sélectionnée.
-     *
-     * @return true si une marque est sélectionnée, sinon false.
+     * Affiche ce qui a changé depuis l'image précédente, puis arrête le minuteur jusqu'à la prochaine modification.
      */
+    private void rafraichirAffichage() {
+        rafraichissement.stop();
+        for (int pieceId = 0; pieceId < champsQuantite.length; pieceId++) {
+            if (quantitesAAfficher[pieceId]) {
+                quantitesAAfficher[pieceId] = false;
+                champsQuantite[pieceId].setText(Integer.toString(moteur.getQuantite(pieceId)));
+            }
+        }
+        if (catalogueAAfficher) {
+            catalogueAAfficher = false;
+            navigateur.rafraichir();
+        }
+        if (totalAAfficher) {
+            totalAAfficher = false;
+            updateFinalPrice();
+        }
+    }
 
-    private boolean isMarqueSelected() {
-        return marqueSelection.getMarque() != null;
+    private void afficherErreur(ResultatOperation resultat) {
+        // Sans attendre la fermeture : appelée aussi pendant une animation ou un changement de focus
+        AlertHelper.notifyError(resultat.getTitre(), resultat.getEntete(), resultat.getMessage());
     }
     /**
      * Met à jour les étiquettes des prix des pièces.
      */
     private void updatePrices() {
-        freinsPriceLabel.setText(prixArticles.getPrixFrein() + " €");
-        huilePriceLabel.setText(prixArticles.getPrixHuile() + " €");
-        filtresPriceLabel.setText(prixArticles.getPrixFiltre() + " €");
+        freinsPriceLabel.setText(moteur.getPrix(Pieces.FREINS) + " €");
+        huilePriceLabel.setText(moteur.getPrix(Pieces.HUILE) + " €");
+        filtresPriceLabel.setText(moteur.getPrix(Pieces.FILTRES) + " €");
     }
     /**
      * Met à jour l'étiquette du prix total.
      */
     private void updateFinalPrice() {
-        prixFinalLabel.setText("Total: " + facture.calculerPrixTotal() + " €");
+        prixFinalLabel.setText("Total: " + moteur.getPrixTotal() + " €");
     }
 }
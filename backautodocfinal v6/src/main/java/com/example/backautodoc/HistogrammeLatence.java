@@ -0,0 +1,171 @@
+package com.example.backautodoc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cette classe compte les durées d'une opération dans des intervalles log-linéaires, à la manière d'un
+ * histogramme HDR, pour en extraire les percentiles (p50, p99, p99,9).
+ *
+ * Rôles principaux :
+ * 1. Enregistrer une durée en quelques nanosecondes, sans allocation et sans verrou.
+ * 2. Calculer à la demande le nombre de mesures, la moyenne, les percentiles et le maximum.
+ *
+ * Fonctionnement :
+ * - Chaque puissance de deux est découpée en {@value #SOUS_INTERVALLES} intervalles égaux : l'erreur
+ *   relative sur un percentile est au plus 1/{@value #SOUS_INTERVALLES} (environ 3 %), de la nanoseconde
+ *   jusqu'à plus d'une heure (les durées plus longues sont comptées dans le dernier intervalle).
+ * - L'intervalle d'une durée se calcule avec un décalage et {@link Long#numberOfLeadingZeros(long)}.
+ * - Les compteurs sont répartis en plusieurs bandes, choisies selon le thread : deux threads qui mesurent
+ *   la même opération n'incrémentent en général pas la même case. La lecture additionne les bandes.
+ * - La lecture n'est pas atomique par rapport aux écritures : une mesure en cours peut être comptée ou non.
+ *
+ * Liens avec d'autres classes :
+ * - {@link Metriques} : Crée un histogramme par opération et par marque, et l'enregistre dans JMX.
+ */
+public final class HistogrammeLatence implements HistogrammeLatenceMXBean {
+
+    private static final int BITS_SOUS_INTERVALLES = 5;
+    private static final int SOUS_INTERVALLES = 1 << BITS_SOUS_INTERVALLES;
+    private static final int BITS_DUREE_MAX = 42; // 2^42 ns, environ 73 minutes
+    private static final long DUREE_MAX = (1L << BITS_DUREE_MAX) - 1;
+    private static final int NOMBRE_CASES = indice(DUREE_MAX) + 1;
+    private static final int NOMBRE_BANDES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final String operation;
+    private final String marque;
+    private final AtomicLongArray[] bandes = new AtomicLongArray[NOMBRE_BANDES];
+    private final LongAdder somme = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Crée un histogramme vide.
+     *
+     * @param operation Le nom de l'opération mesurée.
+     * @param marque La marque concernée, ou {@link Metriques#TOUTES_MARQUES}.
+     */
+    public HistogrammeLatence(String operation, String marque) {
+        this.operation = operation;
+        this.marque = marque;
+        for (int i = 0; i < NOMBRE_BANDES; i++) {
+            bandes[i] = new AtomicLongArray(NOMBRE_CASES);
+        }
+    }
+
+    /**
+     * Enregistre une durée.
+     *
+     * @param nanos La durée en nanosecondes (une valeur négative compte pour 0).
+     */
+    public void enregistrer(long nanos) {
+        long duree = Math.min(Math.max(nanos, 0), DUREE_MAX);
+        int bande = (int) Thread.currentThread().threadId() & (NOMBRE_BANDES - 1);
+        bandes[bande].getAndIncrement(indice(duree));
+        somme.add(duree);
+        max.accumulate(duree);
+    }
+
+    /**
+     * Calcule un résumé des durées enregistrées jusqu'ici.
+     *
+     * @return Le nombre de mesures, la moyenne, les percentiles et le maximum (en nanosecondes).
+     */
+    public Resume resumer() {
+        long[] cases = new long[NOMBRE_CASES];
+        long nombre = 0;
+        for (AtomicLongArray bande : bandes) {
+            for (int i = 0; i < NOMBRE_CASES; i++) {
+                long n = bande.get(i);
+                cases[i] += n;
+                nombre += n;
+            }
+        }
+        if (nombre == 0) {
+            return new Resume(0, 0, 0, 0, 0, 0);
+        }
+        long valeurMax = max.get();
+        return new Resume(nombre, (double) somme.sum() / nombre,
+                Math.min(quantile(cases, nombre, 0.5), valeurMax),
+                Math.min(quantile(cases, nombre, 0.99), valeurMax),
+                Math.min(quantile(cases, nombre, 0.999), valeurMax),
+                valeurMax);
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String getMarque() {
+        return marque;
+    }
+
+    @Override
+    public long getNombre() {
+        return resumer().nombre();
+    }
+
+    @Override
+    public double getMoyenneMicros() {
+        return resumer().moyenne() / 1_000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return resumer().p50() / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return resumer().p99() / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return resumer().p999() / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return resumer().max() / 1_000.0;
+    }
+
+    /**
+     * Résumé d'un histogramme. Les durées sont en nanosecondes ; chaque percentile est la borne supérieure
+     * de son intervalle.
+     */
+    public record Resume(long nombre, double moyenne, long p50, long p99, long p999, long max) {
+    }
+
+    // Les 2 * SOUS_INTERVALLES premières durées ont chacune leur case ; au-delà, une case couvre 2^decalage ns
+    private static int indice(long duree) {
+        if (duree < 2 * SOUS_INTERVALLES) {
+            return (int) duree;
+        }
+        int decalage = 63 - Long.numberOfLeadingZeros(duree) - BITS_SOUS_INTERVALLES;
+        return decalage * SOUS_INTERVALLES + (int) (duree >>> decalage);
+    }
+
+    private static long borneSuperieure(int indice) {
+        if (indice < 2 * SOUS_INTERVALLES) {
+            return indice;
+        }
+        int decalage = indice / SOUS_INTERVALLES - 1;
+        long mantisse = indice % SOUS_INTERVALLES + SOUS_INTERVALLES;
+        return ((mantisse + 1) << decalage) - 1;
+    }
+
+    private static long quantile(long[] cases, long nombre, double q) {
+        long rang = Math.max(1, (long) Math.ceil(q * nombre));
+        long cumul = 0;
+        for (int i = 0; i < cases.length; i++) {
+            cumul += cases[i];
+            if (cumul >= rang) {
+                return borneSuperieure(i);
+            }
+        }
+        return DUREE_MAX;
+    }
+}
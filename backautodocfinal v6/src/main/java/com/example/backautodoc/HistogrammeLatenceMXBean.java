@@ -0,0 +1,24 @@
+package com.example.backautodoc;
+
+/**
+ * Vue JMX d'un {@link HistogrammeLatence} : une opération, pour une marque (ou toutes).
+ * Les durées sont en microsecondes.
+ */
+public interface HistogrammeLatenceMXBean {
+
+    String getOperation();
+
+    String getMarque();
+
+    long getNombre();
+
+    double getMoyenneMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
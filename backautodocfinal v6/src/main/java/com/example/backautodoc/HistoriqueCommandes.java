@@ -0,0 +1,557 @@
+package com.example.backautodoc;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cette classe conserve en mémoire les lignes de toutes les commandes passées, rangées par colonnes,
+ * et calcule le chiffre d'affaires par marque, par pièce ou par jour.
+ *
+ * Rôles principaux :
+ * 1. Enregistrer chaque commande passée ({@link MoteurCommandes#commander()}), ou confirmée
+ *    ({@link MoteurCommandes#confirmerCommande()}) quand le stock est contrôlé.
+ * 2. Agréger des centaines de millions de lignes en moins d'une seconde : sommes par groupe, filtrées
+ *    par période et par marque, puis les N groupes au plus fort chiffre d'affaires.
+ *
+ * Stockage (par colonnes, une case par ligne de commande) :
+ * - jour (char : jours depuis le 1er janvier 2000), marque (byte : indice dans un dictionnaire des marques),
+ *   pièce (int), quantité (int), montant net facturé (long) : 19 octets par ligne, sans aucun objet par ligne.
+ * - Les colonnes sont découpées en segments de 2^20 lignes : l'historique grandit sans jamais recopier
+ *   les lignes déjà enregistrées. Chaque segment retient son premier et son dernier jour, ce qui permet
+ *   d'ignorer les segments hors de la période demandée (les commandes arrivent à peu près dans l'ordre des jours).
+ *
+ * Fonctionnement des requêtes :
+ * - Les lignes visibles sont celles enregistrées avant le début de la requête (nombre de lignes lu une fois) :
+ *   une requête ne bloque jamais l'enregistrement des commandes, et inversement.
+ * - Les lignes sont partagées entre les threads du {@link ForkJoinPool} commun. Chaque tâche accumule ses sommes
+ *   dans ses propres tableaux (indexés par groupe), fusionnés ensuite deux à deux en remontant l'arbre des tâches.
+ * - Pour une agrégation par pièce (beaucoup de groupes), le nombre de tâches est limité au nombre de threads
+ *   pour ne pas multiplier les tableaux de sommes ; pour les marques et les jours, les tâches sont plus
+ *   nombreuses pour mieux répartir la charge.
+ * - Le classement des N premiers groupes est lui aussi calculé par tâches, sur des plages de groupes.
+ *
+ * Le chiffre d'affaires d'une ligne est son montant net, tel que facturé : quantité x prix unitaire au moment
+ * de la facture, moins sa part des remises de la {@link GrilleTarifaire}. Les remises portent sur la commande
+ * entière ; elles sont réparties entre les lignes au prorata de leur montant ({@link #montantsNets}).
+ * L'historique n'est pas sauvegardé : il repart vide au redémarrage.
+ *
+ * Liens avec d'autres classes :
+ * - {@link MoteurCommandes} : Ajoute chaque commande passée (voir {@link MoteurCommandes#setHistorique}).
+ * - {@link ServeurHttp} : Expose les agrégations sur la route `/historique`.
+ */
+public class HistoriqueCommandes {
+
+    static final int DECALAGE_SEGMENT = 20;
+    static final int TAILLE_SEGMENT = 1 << DECALAGE_SEGMENT;
+    private static final int MASQUE_SEGMENT = TAILLE_SEGMENT - 1;
+    private static final int SEGMENTS_MAX = 4096;                // Soit 2^32 lignes
+    private static final long JOUR_ORIGINE = LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final int MARQUES_MAX = 256;
+    private static final int LIGNES_MIN_PAR_TACHE = 1 << 16;
+    private static final int GROUPES_MIN_PAR_TACHE = 1 << 14;
+
+    /**
+     * Clé de regroupement d'une agrégation.
+     */
+    public enum Axe { MARQUE, PIECE, JOUR }
+
+    /**
+     * Un groupe d'une agrégation (une marque, une pièce ou un jour).
+     *
+     * @param cle L'indice de la marque, l'identifiant de la pièce, ou le jour (en jours depuis le 1er janvier 1970).
+     * @param libelle Le nom de la marque, le nom de la pièce, ou la date au format AAAA-MM-JJ.
+     * @param chiffreAffaires La somme des montants nets facturés, en euros.
+     * @param quantite Le nombre de pièces vendues.
+     */
+    public record Groupe(int cle, String libelle, long chiffreAffaires, long quantite) {
+    }
+
+    private final ReentrantLock verrou = new ReentrantLock(); // Sérialise les ajouts
+    private final char[][] jours = new char[SEGMENTS_MAX][];
+    private final byte[][] marques = new byte[SEGMENTS_MAX][];
+    private final int[][] pieces = new int[SEGMENTS_MAX][];
+    private final int[][] quantites = new int[SEGMENTS_MAX][];
+    private final long[][] montants = new long[SEGMENTS_MAX][];
+    private final char[] premierJour = new char[SEGMENTS_MAX];   // Plus petit jour de chaque segment
+    private final char[] dernierJour = new char[SEGMENTS_MAX];   // Plus grand jour de chaque segment
+    private final List<String> nomsMarques = new ArrayList<>();  // Modifiée sous verrou, lue via une copie
+    private volatile List<String> dictionnaireMarques = List.of();
+    private volatile int pieceMax = -1;
+    private volatile long nombreLignes;                          // Publié après l'écriture des lignes
+
+    /**
+     * Enregistre les lignes d'une commande sans remise, au prix unitaire du moment.
+     *
+     * @param jour Le jour de la commande (du 1er janvier 2000 à 2179).
+     * @param commande La commande passée.
+     * @param prixArticles Les prix au moment de la commande.
+     */
+    public void ajouter(LocalDate jour, Commande commande, PrixArticles prixArticles) {
+        ajouter(jour, commande, montantsNets(commande, prixArticles, -1));
+    }
+
+    /**
+     * Enregistre les lignes d'une commande, aux montants facturés.
+     *
+     * @param jour Le jour de la vente (du 1er janvier 2000 à 2179).
+     * @param commande La commande vendue.
+     * @param montantsLignes Le montant net facturé de chaque ligne (voir {@link #montantsNets}).
+     */
+    public void ajouter(LocalDate jour, Commande commande, long[] montantsLignes) {
+        if (montantsLignes.length != commande.getNombreLignes()) {
+            throw new IllegalArgumentException("Montants et lignes de longueurs différentes : "
+                    + montantsLignes.length + " / " + commande.getNombreLignes());
+        }
+        long decalage = jour.toEpochDay() - JOUR_ORIGINE;
+        if (decalage < 0 || decalage > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("Jour hors de la période de l'historique : " + jour);
+        }
+        char j = (char) decalage;
+        verrou.lock();
+        try {
+            byte marque = indiceMarque(commande.getMarque());
+            long n = nombreLignes;
+            if (n + commande.getNombreLignes() > (long) SEGMENTS_MAX * TAILLE_SEGMENT) {
+                throw new IllegalStateException("Historique plein : " + n + " lignes");
+            }
+            int maxPiece = pieceMax;
+            for (int i = 0; i < commande.getNombreLignes(); i++, n++) {
+                int s = (int) (n >>> DECALAGE_SEGMENT);
+                int k = (int) (n & MASQUE_SEGMENT);
+                if (k == 0 && jours[s] == null) {
+                    allouerSegment(s, j);
+                }
+                int pieceId = commande.getPiece(i);
+                jours[s][k] = j;
+                marques[s][k] = marque;
+                pieces[s][k] = pieceId;
+                quantites[s][k] = commande.getQuantite(i);
+                montants[s][k] = montantsLignes[i];
+                premierJour[s] = (char) Math.min(premierJour[s], j);
+                dernierJour[s] = (char) Math.max(dernierJour[s], j);
+                maxPiece = Math.max(maxPiece, pieceId);
+            }
+            pieceMax = maxPiece;
+            nombreLignes = n; // Rend les nouvelles lignes visibles aux requêtes
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void allouerSegment(int s, char jour) {
+        jours[s] = new char[TAILLE_SEGMENT];
+        marques[s] = new byte[TAILLE_SEGMENT];
+        pieces[s] = new int[TAILLE_SEGMENT];
+        quantites[s] = new int[TAILLE_SEGMENT];
+        montants[s] = new long[TAILLE_SEGMENT];
+        premierJour[s] = jour;
+        dernierJour[s] = jour;
+    }
+
+    /**
+     * Calcule le montant net facturé de chaque ligne d'une commande : quantité x prix unitaire, moins une part
+     * de la remise de la facture proportionnelle à ce montant. Les parts sont tronquées, puis l'écart d'arrondi
+     * est retiré des premières lignes : la somme des montants est exactement le total facturé.
+     *
+     * @param commande La commande facturée.
+     * @param prixArticles Les prix au moment de la facture.
+     * @param totalFacture Le total après remises de la facture, ou -1 pour une facture sans remise.
+     * @return Le montant net de chaque ligne, dans l'ordre des lignes.
+     */
+    public static long[] montantsNets(Commande commande, PrixArticles prixArticles, long totalFacture) {
+        long[] montantsLignes = new long[commande.getNombreLignes()];
+        long brut = 0;
+        for (int i = 0; i < montantsLignes.length; i++) {
+            montantsLignes[i] = (long) commande.getQuantite(i) * prixArticles.getPrix(commande.getPiece(i));
+            brut += montantsLignes[i];
+        }
+        if (totalFacture == -1 || totalFacture == brut) {
+            return montantsLignes;
+        }
+        if (totalFacture < 0 || totalFacture > brut) {
+            throw new IllegalArgumentException("Total facturé hors de [0, " + brut + "] : " + totalFacture);
+        }
+        long remise = brut - totalFacture;
+        long reste = remise; // Part de la remise pas encore retirée des lignes
+        for (int i = 0; i < montantsLignes.length; i++) {
+            long part = partRemise(montantsLignes[i], remise, brut);
+            montantsLignes[i] -= part;
+            reste -= part;
+        }
+        // Les parts tronquées laissent moins d'une unité par ligne à retirer
+        for (int i = 0; i < montantsLignes.length && reste > 0; i++) {
+            long retrait = Math.min(reste, montantsLignes[i]);
+            montantsLignes[i] -= retrait;
+            reste -= retrait;
+        }
+        return montantsLignes;
+    }
+
+    /**
+     * Retourne montant x remise / brut, tronqué (calcul exact même si le produit dépasse un long).
+     */
+    private static long partRemise(long montant, long remise, long brut) {
+        long haut = Math.multiplyHigh(montant, remise);
+        long bas = montant * remise;
+        if (haut == 0 && bas >= 0) {
+            return bas / brut;
+        }
+        return BigInteger.valueOf(montant).multiply(BigInteger.valueOf(remise))
+                .divide(BigInteger.valueOf(brut)).longValueExact();
+    }
+
+    private byte indiceMarque(String marque) {
+        int indice = nomsMarques.indexOf(marque);
+        if (indice < 0) {
+            if (nomsMarques.size() == MARQUES_MAX) {
+                throw new IllegalStateException("Trop de marques dans l'historique : " + MARQUES_MAX);
+            }
+            indice = nomsMarques.size();
+            nomsMarques.add(marque);
+            dictionnaireMarques = List.copyOf(nomsMarques);
+        }
+        return (byte) indice;
+    }
+
+    /**
+     * @return Le nombre de lignes de commande enregistrées.
+     */
+    public long getNombreLignes() {
+        return nombreLignes;
+    }
+
+    /**
+     * @return Les marques déjà rencontrées, dans l'ordre de leur indice.
+     */
+    public List<String> getMarques() {
+        return dictionnaireMarques;
+    }
+
+    /**
+     * Calcule le chiffre d'affaires et les quantités vendues par groupe.
+     *
+     * @param axe La clé de regroupement.
+     * @param debut Le premier jour pris en compte (inclus), ou null pour le début de l'historique.
+     * @param fin Le dernier jour pris en compte (inclus), ou null pour la fin de l'historique.
+     * @param marque Ne compter que les commandes de cette marque, ou null pour toutes les marques.
+     * @return Les sommes de chaque groupe.
+     */
+    public Agregat agreger(Axe axe, LocalDate debut, LocalDate fin, String marque) {
+        long n = nombreLignes; // Lu en premier : les colonnes et le dictionnaire couvrent au moins ces lignes
+        List<String> dictionnaire = dictionnaireMarques;
+        int jourMin = debut == null ? 0 : (int) Math.max(0, debut.toEpochDay() - JOUR_ORIGINE);
+        int jourMax = fin == null ? Character.MAX_VALUE : (int) Math.min(Character.MAX_VALUE, fin.toEpochDay() - JOUR_ORIGINE);
+        int filtreMarque = marque == null ? -1 : dictionnaire.indexOf(marque);
+        if (jourMax < jourMin || (marque != null && filtreMarque < 0) || n == 0) {
+            return new Agregat(axe, 0, new long[0], new long[0], dictionnaire);
+        }
+        if (axe == Axe.JOUR) {
+            // Restreint la période aux jours réellement présents, pour ne pas créer un groupe par jour possible
+            int derniereSegment = (int) ((n - 1) >>> DECALAGE_SEGMENT);
+            int premier = Character.MAX_VALUE;
+            int dernier = 0;
+            for (int s = 0; s <= derniereSegment; s++) {
+                premier = Math.min(premier, premierJour[s]);
+                dernier = Math.max(dernier, dernierJour[s]);
+            }
+            jourMin = Math.max(jourMin, premier);
+            jourMax = Math.min(jourMax, dernier);
+            if (jourMax < jourMin) {
+                return new Agregat(axe, 0, new long[0], new long[0], dictionnaire);
+            }
+        }
+        int nombreGroupes = switch (axe) {
+            case MARQUE -> dictionnaire.size();
+            case PIECE -> pieceMax + 1;
+            case JOUR -> jourMax - jourMin + 1;
+        };
+        int parallelisme = ForkJoinPool.getCommonPoolParallelism();
+        int taches = nombreGroupes > 1 << 16 ? parallelisme : 8 * parallelisme;
+        long lignesParTache = Math.max(LIGNES_MIN_PAR_TACHE, (n + taches - 1) / taches);
+
+        Sommes sommes = new Agregation(new Requete(axe, jourMin, jourMax, filtreMarque, nombreGroupes, lignesParTache),
+                0, n).invoke();
+        int premiereCle = axe == Axe.JOUR ? (int) (jourMin + JOUR_ORIGINE) : 0;
+        return new Agregat(axe, premiereCle, sommes.chiffresAffaires, sommes.quantites, dictionnaire);
+    }
+
+    /**
+     * Paramètres d'une agrégation, communs à toutes ses tâches.
+     */
+    private record Requete(Axe axe, int jourMin, int jourMax, int filtreMarque, int nombreGroupes, long lignesParTache) {
+    }
+
+    /**
+     * Sommes partielles d'une tâche, indexées par groupe.
+     */
+    private static final class Sommes {
+        final long[] chiffresAffaires;
+        final long[] quantites;
+
+        Sommes(int nombreGroupes) {
+            chiffresAffaires = new long[nombreGroupes];
+            quantites = new long[nombreGroupes];
+        }
+
+        Sommes fusionner(Sommes autres) {
+            for (int g = 0; g < chiffresAffaires.length; g++) {
+                chiffresAffaires[g] += autres.chiffresAffaires[g];
+                quantites[g] += autres.quantites[g];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Agrège les lignes [debut, fin) : découpe la plage en deux tant qu'elle dépasse `lignesParTache`.
+     */
+    private final class Agregation extends RecursiveTask<Sommes> {
+        private final Requete requete;
+        private final long debut;
+        private final long fin;
+
+        Agregation(Requete requete, long debut, long fin) {
+            this.requete = requete;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected Sommes compute() {
+            if (fin - debut > requete.lignesParTache()) {
+                long milieu = (debut + fin) >>> 1;
+                Agregation droite = new Agregation(requete, milieu, fin);
+                droite.fork();
+                Sommes gauche = new Agregation(requete, debut, milieu).compute();
+                return gauche.fusionner(droite.join());
+            }
+            Sommes sommes = new Sommes(requete.nombreGroupes());
+            long i = debut;
+            while (i < fin) {
+                int s = (int) (i >>> DECALAGE_SEGMENT);
+                int k = (int) (i & MASQUE_SEGMENT);
+                int kFin = (int) Math.min(TAILLE_SEGMENT, k + (fin - i));
+                if (premierJour[s] <= requete.jourMax() && dernierJour[s] >= requete.jourMin()) {
+                    agregerSegment(s, k, kFin, sommes);
+                }
+                i += kFin - k;
+            }
+            return sommes;
+        }
+
+        /**
+         * Boucle principale : les colonnes d'un segment sont lues en séquence, sans aucun objet par ligne.
+         */
+        private void agregerSegment(int s, int debutSegment, int finSegment, Sommes sommes) {
+            char[] j = jours[s];
+            byte[] m = marques[s];
+            int[] p = pieces[s];
+            int[] q = quantites[s];
+            long[] mt = montants[s];
+            long[] chiffresAffaires = sommes.chiffresAffaires;
+            long[] quantitesVendues = sommes.quantites;
+            int jourMin = requete.jourMin();
+            int jourMax = requete.jourMax();
+            int filtreMarque = requete.filtreMarque();
+            Axe axe = requete.axe();
+            for (int k = debutSegment; k < finSegment; k++) {
+                int jour = j[k];
+                int marque = m[k] & 0xFF;
+                if (jour < jourMin || jour > jourMax || (filtreMarque >= 0 && marque != filtreMarque)) {
+                    continue;
+                }
+                int groupe = axe == Axe.MARQUE ? marque : axe == Axe.PIECE ? p[k] : jour - jourMin;
+                chiffresAffaires[groupe] += mt[k];
+                quantitesVendues[groupe] += q[k];
+            }
+        }
+    }
+
+    /**
+     * Résultat d'une agrégation : le chiffre d'affaires et la quantité vendue de chaque groupe.
+     */
+    public static final class Agregat {
+        private final Axe axe;
+        private final int premiereCle;          // Clé du groupe d'indice 0 (premier jour de la période pour Axe.JOUR)
+        private final long[] chiffresAffaires;
+        private final long[] quantites;
+        private final List<String> marques;
+
+        Agregat(Axe axe, int premiereCle, long[] chiffresAffaires, long[] quantites, List<String> marques) {
+            this.axe = axe;
+            this.premiereCle = premiereCle;
+            this.chiffresAffaires = chiffresAffaires;
+            this.quantites = quantites;
+            this.marques = marques;
+        }
+
+        public Axe getAxe() {
+            return axe;
+        }
+
+        /**
+         * @return Le nombre de groupes (y compris ceux sans vente).
+         */
+        public int getNombreGroupes() {
+            return chiffresAffaires.length;
+        }
+
+        /**
+         * @return Le chiffre d'affaires de toutes les lignes retenues.
+         */
+        public long getChiffreAffairesTotal() {
+            return Arrays.stream(chiffresAffaires).sum();
+        }
+
+        /**
+         * @return Tous les groupes ayant des ventes, dans l'ordre des clés (marques, pièces ou jours).
+         */
+        public List<Groupe> getGroupes() {
+            List<Groupe> groupes = new ArrayList<>();
+            for (int g = 0; g < chiffresAffaires.length; g++) {
+                if (quantites[g] != 0) {
+                    groupes.add(groupe(g));
+                }
+            }
+            return groupes;
+        }
+
+        /**
+         * Retourne les groupes au plus fort chiffre d'affaires.
+         *
+         * @param n Le nombre de groupes voulus.
+         * @return Au plus `n` groupes ayant des ventes, du plus fort au plus faible chiffre d'affaires
+         *         (à égalité, par clé croissante).
+         */
+        public List<Groupe> top(int n) {
+            if (n < 1) {
+                throw new IllegalArgumentException("Nombre de groupes invalide : " + n);
+            }
+            n = Math.min(n, chiffresAffaires.length); // Jamais plus de groupes que l'agrégat n'en contient
+            int groupesParTache = Math.max(GROUPES_MIN_PAR_TACHE,
+                    chiffresAffaires.length / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+            int[] meilleurs = new Classement(n, groupesParTache, 0, chiffresAffaires.length).invoke();
+            List<Groupe> groupes = new ArrayList<>(meilleurs.length);
+            for (int g : meilleurs) {
+                groupes.add(groupe(g));
+            }
+            return groupes;
+        }
+
+        private Groupe groupe(int g) {
+            int cle = premiereCle + g;
+            String libelle = switch (axe) {
+                case MARQUE -> marques.get(g);
+                case PIECE -> Pieces.nomDe(g);
+                case JOUR -> LocalDate.ofEpochDay(cle).toString();
+            };
+            return new Groupe(cle, libelle, chiffresAffaires[g], quantites[g]);
+        }
+
+        /**
+         * Vrai si le groupe `a` a rapporté plus que le groupe `b` (à égalité, la plus petite clé passe devant).
+         */
+        private boolean devant(int a, int b) {
+            return chiffresAffaires[a] != chiffresAffaires[b] ? chiffresAffaires[a] > chiffresAffaires[b] : a < b;
+        }
+
+        /**
+         * Les `n` meilleurs groupes de [debut, fin), triés : chaque tâche garde les siens dans un tas,
+         * puis les listes triées sont fusionnées deux à deux.
+         */
+        private final class Classement extends RecursiveTask<int[]> {
+            private final int n;
+            private final int groupesParTache;
+            private final int debut;
+            private final int fin;
+
+            Classement(int n, int groupesParTache, int debut, int fin) {
+                this.n = n;
+                this.groupesParTache = groupesParTache;
+                this.debut = debut;
+                this.fin = fin;
+            }
+
+            @Override
+            protected int[] compute() {
+                if (fin - debut > groupesParTache) {
+                    int milieu = (debut + fin) >>> 1;
+                    Classement droite = new Classement(n, groupesParTache, milieu, fin);
+                    droite.fork();
+                    return fusionner(new Classement(n, groupesParTache, debut, milieu).compute(), droite.join());
+                }
+                // Tas binaire dont la racine est le moins bon des groupes retenus
+                int[] tas = new int[Math.min(n, fin - debut)];
+                int taille = 0;
+                for (int g = debut; g < fin; g++) {
+                    if (quantites[g] == 0) {
+                        continue;
+                    }
+                    if (taille < tas.length) {
+                        tas[taille] = g;
+                        monter(tas, taille++);
+                    } else if (devant(g, tas[0])) {
+                        tas[0] = g;
+                        descendre(tas, taille);
+                    }
+                }
+                // Vide le tas du moins bon au meilleur, en remplissant le résultat par la fin
+                int[] tries = new int[taille];
+                for (int i = taille - 1; i >= 0; i--) {
+                    tries[i] = tas[0];
+                    tas[0] = tas[i];
+                    descendre(tas, i);
+                }
+                return tries;
+            }
+
+            private int[] fusionner(int[] a, int[] b) {
+                int[] resultat = new int[Math.min(n, a.length + b.length)];
+                int i = 0;
+                int j = 0;
+                for (int k = 0; k < resultat.length; k++) {
+                    resultat[k] = j >= b.length || (i < a.length && devant(a[i], b[j])) ? a[i++] : b[j++];
+                }
+                return resultat;
+            }
+
+            private void monter(int[] tas, int i) {
+                while (i > 0 && devant(tas[(i - 1) / 2], tas[i])) {
+                    echanger(tas, i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+            }
+
+            private void descendre(int[] tas, int taille) {
+                int i = 0;
+                while (true) {
+                    int gauche = 2 * i + 1;
+                    int moinsBon = i;
+                    if (gauche < taille && devant(tas[moinsBon], tas[gauche])) {
+                        moinsBon = gauche;
+                    }
+                    if (gauche + 1 < taille && devant(tas[moinsBon], tas[gauche + 1])) {
+                        moinsBon = gauche + 1;
+                    }
+                    if (moinsBon == i) {
+                        return;
+                    }
+                    echanger(tas, i, moinsBon);
+                    i = moinsBon;
+                }
+            }
+
+            private void echanger(int[] tas, int i, int j) {
+                int t = tas[i];
+                tas[i] = tas[j];
+                tas[j] = t;
+            }
+        }
+    }
+}
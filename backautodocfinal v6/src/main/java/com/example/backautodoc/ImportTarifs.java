@@ -0,0 +1,352 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cette classe importe le tarif CSV d'un fournisseur (plusieurs millions de lignes) dans un {@link CatalogueMappe}.
+ *
+ * Rôles principaux :
+ * 1. Lire un fichier de plusieurs gigaoctets sans le charger dans le tas Java.
+ * 2. Analyser les lignes en parallèle, sur tous les cœurs, et écrire les prix directement dans le catalogue.
+ * 3. Compter les lignes importées et rejetées, et mesurer le débit (lignes par seconde).
+ *
+ * Format du fichier (une pièce par ligne, en ASCII ou UTF-8) :
+ * <pre>
+ * piece;prix           # ligne d'en-tête facultative (première ligne seulement)
+ * 0;200
+ * 1048576;12.50        # le prix est arrondi à l'euro le plus proche
+ * </pre>
+ * Le séparateur est `;` ou `,`. Les lignes vides et les commentaires (`#`) sont ignorés.
+ *
+ * Fonctionnement :
+ * - Le fichier est découpé en morceaux d'environ {@value #TAILLE_MORCEAU} octets. Chaque limite est
+ *   reculée jusqu'au début de la ligne suivante : aucune ligne n'est partagée entre deux morceaux.
+ * - Chaque morceau est projeté en mémoire ({@link FileChannel#map}) et analysé octet par octet :
+ *   l'identifiant et le prix sont calculés chiffre par chiffre, sans créer de {@link String} par ligne.
+ * - Les morceaux sont répartis sur un thread par cœur ; chacun écrit ses prix dans le catalogue
+ *   ({@link CatalogueMappe#setPrix(int, int)}), sans verrou.
+ * - Une ligne invalide (pièce hors du catalogue, prix manquant, nombre trop grand) est comptée comme rejetée ;
+ *   la première erreur du fichier est conservée, avec sa position en octets.
+ * - Si une pièce apparaît plusieurs fois dans le fichier, l'une de ses valeurs est conservée (la dernière
+ *   si les lignes sont dans le même morceau).
+ *
+ * Liens avec d'autres classes :
+ * - {@link CatalogueMappe} : Le catalogue rempli par l'import, prérempli avec les prix du catalogue en service.
+ */
+public final class ImportTarifs {
+
+    static final long TAILLE_MORCEAU = 64L * 1024 * 1024;
+    private static final int TAILLE_LECTURE_LIMITE = 4096;
+    // Résultats de l'analyse d'une ligne qui ne sont pas des rejets (comparés par identité)
+    private static final String LIGNE_IMPORTEE = "importée";
+    private static final String LIGNE_IGNOREE = "ignorée";
+
+    private ImportTarifs() {
+    }
+
+    /**
+     * Résultat d'un import.
+     *
+     * @param lignes Le nombre de lignes importées.
+     * @param rejetees Le nombre de lignes rejetées.
+     * @param octets La taille du fichier lu.
+     * @param dureeNanos La durée de l'import.
+     * @param premiereErreur La première ligne rejetée du fichier (position et motif), ou null.
+     */
+    public record Bilan(long lignes, long rejetees, long octets, long dureeNanos, String premiereErreur) {
+
+        public double getLignesParSeconde() {
+            return dureeNanos == 0 ? 0 : lignes * 1e9 / dureeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.FRANCE, "%,d lignes importées en %.2f s (%,.0f lignes/s, %.0f Mo/s), %,d rejetée(s)%s",
+                    lignes, dureeNanos / 1e9, getLignesParSeconde(), octets / 1e6 / Math.max(dureeNanos / 1e9, 1e-9),
+                    rejetees, premiereErreur == null ? "" : " ; première : " + premiereErreur);
+        }
+    }
+
+    /**
+     * Importe un tarif avec un thread par cœur.
+     *
+     * @see #importer(Path, CatalogueMappe, int)
+     */
+    public static Bilan importer(Path csv, CatalogueMappe catalogue) throws IOException {
+        return importer(csv, catalogue, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Importe un tarif dans un catalogue ouvert en écriture ({@link CatalogueMappe#creer(Path, int)}).
+     *
+     * @param csv Le fichier CSV du fournisseur.
+     * @param catalogue Le catalogue à remplir.
+     * @param threads Le nombre de threads d'analyse (au moins 1).
+     * @return Le bilan de l'import.
+     * @throws IOException Si le fichier est illisible.
+     */
+    public static Bilan importer(Path csv, CatalogueMappe catalogue, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Nombre de threads invalide : " + threads);
+        }
+        long debut = System.nanoTime();
+        try (FileChannel canal = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long taille = canal.size();
+            List<Callable<Morceau>> morceaux = new ArrayList<>();
+            long limite = 0;
+            while (limite < taille) {
+                long debutMorceau = limite;
+                limite = debutLigneSuivante(canal, Math.min(taille, debutMorceau + TAILLE_MORCEAU), taille);
+                long finMorceau = limite;
+                morceaux.add(() -> analyser(canal, debutMorceau, finMorceau, catalogue));
+            }
+
+            long lignes = 0;
+            long rejetees = 0;
+            Morceau premierEnErreur = null;
+            ExecutorService executeur = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, morceaux.size())));
+            try {
+                // Les résultats arrivent dans l'ordre du fichier : la première erreur trouvée est la première du fichier
+                for (Future<Morceau> resultat : executeur.invokeAll(morceaux)) {
+                    Morceau morceau = resultat.get();
+                    lignes += morceau.lignes;
+                    rejetees += morceau.rejetees;
+                    if (premierEnErreur == null && morceau.erreur != null) {
+                        premierEnErreur = morceau;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrompu : " + csv, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Import impossible : " + csv, e.getCause());
+            } finally {
+                executeur.shutdownNow();
+            }
+            String erreur = premierEnErreur == null ? null
+                    : "octet " + premierEnErreur.positionErreur + " : " + premierEnErreur.erreur;
+            return new Bilan(lignes, rejetees, taille, System.nanoTime() - debut, erreur);
+        }
+    }
+
+    /**
+     * Retourne la position du début de la ligne qui suit (ou contient) `position`.
+     */
+    private static long debutLigneSuivante(FileChannel canal, long position, long taille) throws IOException {
+        if (position >= taille) {
+            return taille;
+        }
+        ByteBuffer tampon = ByteBuffer.allocate(TAILLE_LECTURE_LIMITE);
+        long lecture = position - 1; // Si l'octet précédent est une fin de ligne, `position` est déjà un début de ligne
+        while (lecture < taille) {
+            tampon.clear();
+            int lus = canal.read(tampon, lecture);
+            if (lus <= 0) {
+                break;
+            }
+            for (int i = 0; i < lus; i++) {
+                if (tampon.get(i) == '\n') {
+                    return lecture + i + 1;
+                }
+            }
+            lecture += lus;
+        }
+        return taille;
+    }
+
+    /**
+     * Résultat de l'analyse d'un morceau.
+     */
+    private static final class Morceau {
+        long lignes;
+        long rejetees;
+        String erreur;         // Motif de la première ligne rejetée du morceau
+        long positionErreur;   // Position de cette ligne dans le fichier
+    }
+
+    private static Morceau analyser(FileChannel canal, long debut, long fin, CatalogueMappe catalogue) throws IOException {
+        MappedByteBuffer octets = canal.map(FileChannel.MapMode.READ_ONLY, debut, fin - debut);
+        Morceau morceau = new Morceau();
+        int n = octets.limit();
+        int i = 0;
+        while (i < n) {
+            int debutLigne = i;
+            int finLigne = debutLigne;
+            while (finLigne < n && octets.get(finLigne) != '\n') {
+                finLigne++;
+            }
+            i = finLigne + 1;
+            String motif = analyserLigne(octets, debutLigne, finLigne, catalogue, debut == 0 && debutLigne == 0);
+            if (motif == LIGNE_IMPORTEE) {
+                morceau.lignes++;
+            } else if (motif != LIGNE_IGNOREE) {
+                if (morceau.erreur == null) {
+                    morceau.erreur = motif;
+                    morceau.positionErreur = debut + debutLigne;
+                }
+                morceau.rejetees++;
+            }
+        }
+        return morceau;
+    }
+
+    /**
+     * Analyse une ligne `piece;prix` et écrit le prix dans le catalogue.
+     *
+     * @return {@link #LIGNE_IMPORTEE}, {@link #LIGNE_IGNOREE}, ou le motif du rejet.
+     */
+    private static String analyserLigne(ByteBuffer octets, int debut, int fin, CatalogueMappe catalogue,
+                                        boolean premiereLigne) {
+        int i = sauterEspaces(octets, debut, fin);
+        if (i == fin || octets.get(i) == '#') {
+            return LIGNE_IGNOREE;
+        }
+        if (!estChiffre(octets.get(i))) {
+            return premiereLigne ? LIGNE_IGNOREE : "identifiant de pièce attendu"; // En-tête
+        }
+        long pieceId = 0;
+        while (i < fin && estChiffre(octets.get(i))) {
+            pieceId = pieceId * 10 + (octets.get(i++) - '0');
+            if (pieceId > Integer.MAX_VALUE) {
+                return "identifiant de pièce trop grand";
+            }
+        }
+        i = sauterEspaces(octets, i, fin);
+        if (i == fin || (octets.get(i) != ';' && octets.get(i) != ',')) {
+            return "séparateur attendu après la pièce " + pieceId;
+        }
+        i = sauterEspaces(octets, i + 1, fin);
+        if (i == fin || !estChiffre(octets.get(i))) {
+            return "prix attendu pour la pièce " + pieceId;
+        }
+        long prix = 0;
+        while (i < fin && estChiffre(octets.get(i))) {
+            prix = prix * 10 + (octets.get(i++) - '0');
+            if (prix > Integer.MAX_VALUE) {
+                return "prix trop grand pour la pièce " + pieceId;
+            }
+        }
+        if (i < fin && octets.get(i) == '.') {
+            // Centimes : seul le premier chiffre décide de l'arrondi
+            i++;
+            if (i < fin && estChiffre(octets.get(i)) && octets.get(i) >= '5') {
+                prix++;
+            }
+            while (i < fin && estChiffre(octets.get(i))) {
+                i++;
+            }
+        }
+        i = sauterEspaces(octets, i, fin);
+        if (i < fin && octets.get(i) != '#') {
+            return "caractère inattendu après le prix de la pièce " + pieceId;
+        }
+        if (prix > Integer.MAX_VALUE) {
+            return "prix trop grand pour la pièce " + pieceId;
+        }
+        if (!catalogue.setPrix((int) pieceId, (int) prix)) {
+            return "pièce " + pieceId + " hors du catalogue (" + catalogue.getNombrePieces() + " pièces)";
+        }
+        return LIGNE_IMPORTEE;
+    }
+
+    private static int sauterEspaces(ByteBuffer octets, int i, int fin) {
+        while (i < fin) {
+            byte b = octets.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean estChiffre(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Importe un tarif dans un nouveau catalogue, puis remplace le catalogue en service.
+     *
+     * Le nouveau catalogue est écrit dans un fichier voisin, prérempli avec les prix du catalogue en service :
+     * une pièce absente du tarif garde son prix actuel au lieu de devenir gratuite. Il est ensuite renommé :
+     * les postes qui ont ouvert l'ancien catalogue continuent à le lire jusqu'à leur redémarrage.
+     *
+     * Le catalogue en service est conservé si des lignes ont été rejetées, si aucune ligne n'a été importée,
+     * ou si des pièces n'ont toujours aucun prix (pièces absentes de l'ancien catalogue et du tarif) ;
+     * `forcer` le remplace quand même.
+     *
+     * @param csv Le fichier CSV du fournisseur.
+     * @param destination Le catalogue en service (il peut ne pas encore exister si `nombrePieces` est donné).
+     * @param nombrePieces Le nombre de pièces du nouveau catalogue, ou -1 pour garder celui du catalogue en service.
+     * @param forcer true pour remplacer le catalogue même si le tarif est incomplet ou contient des erreurs.
+     * @return Le bilan de l'import.
+     * @throws IOException Si un fichier est illisible, ou si le tarif est refusé (le message en donne la raison).
+     */
+    public static Bilan remplacerCatalogue(Path csv, Path destination, int nombrePieces, boolean forcer)
+            throws IOException {
+        CatalogueMappe actuel = nombrePieces < 0 || Files.exists(destination) ? CatalogueMappe.ouvrir(destination) : null;
+        if (nombrePieces < 0) {
+            nombrePieces = actuel.getNombrePieces();
+        }
+        Path temporaire = destination.resolveSibling(destination.getFileName() + ".import");
+
+        CatalogueMappe catalogue = CatalogueMappe.creer(temporaire, nombrePieces);
+        int repris = actuel == null ? 0 : catalogue.reprendrePrix(actuel);
+        Bilan bilan = importer(csv, catalogue);
+        int sansPrix = 0;
+        for (int pieceId = repris; pieceId < nombrePieces; pieceId++) {
+            if (catalogue.getPrix(pieceId) == 0) {
+                sansPrix++;
+            }
+        }
+        String refus = bilan.lignes() == 0 ? "aucune ligne importée"
+                : bilan.rejetees() > 0 ? "lignes rejetées"
+                : sansPrix > 0 ? sansPrix + " pièce(s) sans prix"
+                : null;
+        if (refus != null && !forcer) {
+            Files.deleteIfExists(temporaire);
+            throw new IOException("Catalogue conservé (" + refus + ") : relancer avec --forcer pour le remplacer quand même. "
+                    + bilan);
+        }
+        catalogue.forcer();
+        Files.move(temporaire, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bilan;
+    }
+
+    /**
+     * Utilisation : `ImportTarifs [--forcer] <tarif.csv> <catalogue> [nombre de pièces]`. Sans nombre de pièces,
+     * le nouveau catalogue a la taille de l'ancien.
+     *
+     * @see #remplacerCatalogue(Path, Path, int, boolean)
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        boolean forcer = arguments.remove("--forcer");
+        if (arguments.size() < 2) {
+            System.err.println("Utilisation : ImportTarifs [--forcer] <tarif.csv> <catalogue> [nombre de pièces]");
+            System.exit(2);
+        }
+        int nombrePieces = arguments.size() > 2 ? Integer.parseInt(arguments.get(2)) : -1;
+        try {
+            System.out.println(remplacerCatalogue(Path.of(arguments.get(0)), Path.of(arguments.get(1)), nombrePieces, forcer));
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
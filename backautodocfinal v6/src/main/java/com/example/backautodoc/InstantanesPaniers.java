@@ -0,0 +1,429 @@
+package com.example.backautodoc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Cette classe sauvegarde l'état de tous les paniers dans un instantané binaire compact,
+ * et reconstruit les paniers au démarrage.
+ *
+ * Rôles principaux :
+ * 1. Écrire périodiquement un instantané de toutes les sessions (marque, cases cochées, lignes du panier),
+ *    avec le LSN du journal auquel il correspond.
+ * 2. Au démarrage, charger le dernier instantané valide, puis rejouer uniquement la fin du journal
+ *    (les enregistrements de LSN supérieur) : le temps de reprise ne dépend pas de l'ancienneté du journal.
+ * 3. Transférer des paniers d'un serveur à l'autre dans le même format, en mémoire ({@link Export},
+ *    {@link #importer(ByteBuffer, Map, Function)}), quand {@link RouteurPaniers} rééquilibre les paniers.
+ *
+ * Format du fichier `instantane-NNNN.bin` (ordre des octets little-endian) :
+ * - En-tête de 24 octets : signature, version, LSN (long), nombre de sessions, CRC32C du reste du fichier.
+ * - Puis, pour chaque session : identifiant (longueur sur 2 octets + UTF-8, donc 65 535 octets au plus),
+ *   marque (idem, longueur 0 si aucune), cases cochées (1 bit par pièce de base), nombre de lignes (int),
+ *   puis (pièce, quantité) pour chaque ligne.
+ *
+ * Fonctionnement :
+ * - Le LSN d'un instantané est lu avant de parcourir les sessions ({@link JournalCommandes#getDernierLsn()}) :
+ *   tout enregistrement de LSN inférieur est déjà pris en compte dans l'instantané.
+ * - Un enregistrement de LSN supérieur peut aussi l'être (modification faite pendant l'écriture) :
+ *   ce n'est pas un problème, car les événements du journal sont des valeurs absolues et peuvent être rejoués.
+ * - L'instantané est écrit dans un fichier temporaire puis renommé : un arrêt brutal pendant l'écriture
+ *   laisse l'instantané précédent intact. Les deux derniers instantanés sont conservés, ainsi que le journal
+ *   qui suit le plus ancien des deux ({@link #lsnPlusAncien(Path)}).
+ *
+ * Liens avec d'autres classes :
+ * - {@link JournalCommandes} : Fournit le LSN des instantanés et la fin du journal à rejouer.
+ * - {@link MoteurCommandes} : L'état sauvegardé et restauré pour chaque session.
+ * - {@link ServeurHttp} et {@link HelloController} : Restaurent les paniers au démarrage.
+ */
+public final class InstantanesPaniers {
+
+    static final int SIGNATURE = 0x504E5341; // "ASNP" en little-endian
+    static final int VERSION = 1;
+    static final int TAILLE_EN_TETE = 24;
+    private static final int INSTANTANES_CONSERVES = 2;
+    private static final int TAILLE_TAMPON = 1024 * 1024;
+
+    private InstantanesPaniers() {
+    }
+
+    /**
+     * Commence l'écriture d'un instantané. Les sessions sont ensuite ajoutées une par une, ce qui permet
+     * à l'appelant de verrouiller chaque session uniquement le temps de la copier.
+     *
+     * @param dossier Le dossier des instantanés (créé si besoin).
+     * @param lsn Le LSN du journal jusqu'auquel toutes les modifications sont prises en compte.
+     * @return La rédaction en cours, à terminer avec {@link Redaction#terminer()}.
+     * @throws IOException Si le fichier temporaire ne peut pas être créé.
+     */
+    public static Redaction commencer(Path dossier, long lsn) throws IOException {
+        Files.createDirectories(dossier);
+        return new Redaction(dossier, lsn);
+    }
+
+    /**
+     * Écrit en une fois l'instantané de sessions qui ne sont pas modifiées pendant l'écriture.
+     *
+     * @param dossier Le dossier des instantanés.
+     * @param lsn Le LSN du journal correspondant.
+     * @param sessions Les moteurs à sauvegarder, par identifiant de session.
+     * @return Le fichier de l'instantané.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    public static Path ecrire(Path dossier, long lsn, Map<String, MoteurCommandes> sessions) throws IOException {
+        try (Redaction redaction = commencer(dossier, lsn)) {
+            for (Map.Entry<String, MoteurCommandes> session : sessions.entrySet()) {
+                redaction.ajouter(session.getKey(), session.getValue());
+            }
+            return redaction.terminer();
+        }
+    }
+
+    /**
+     * Reconstruit les paniers : charge le dernier instantané valide, puis rejoue la fin du journal.
+     *
+     * @param dossierInstantanes Le dossier des instantanés (peut ne pas exister).
+     * @param dossierJournal Le dossier des segments du journal (peut ne pas exister).
+     * @param sessions Reçoit les moteurs restaurés ; un moteur déjà présent est restauré tel quel.
+     * @param fabrique Crée le moteur d'une session absente de `sessions`.
+     * @return Le LSN du dernier enregistrement rejoué.
+     * @throws IOException Si un segment du journal est illisible.
+     */
+    public static long restaurer(Path dossierInstantanes, Path dossierJournal, Map<String, MoteurCommandes> sessions,
+                                 Function<String, MoteurCommandes> fabrique) throws IOException {
+        long lsn = charger(dossierInstantanes, sessions, fabrique);
+        return JournalCommandes.relire(dossierJournal, lsn, (type, lsnEnregistrement, contenu) ->
+                appliquer(type, contenu, sessions, fabrique));
+    }
+
+    /**
+     * Charge le plus récent instantané valide (un instantané au CRC invalide est ignoré au profit du précédent).
+     *
+     * @param dossier Le dossier des instantanés.
+     * @param sessions Reçoit les moteurs restaurés.
+     * @param fabrique Crée le moteur d'une session absente de `sessions`.
+     * @return Le LSN de l'instantané chargé, ou 0 s'il n'y en a aucun.
+     * @throws IOException Si le dossier ne peut pas être listé.
+     */
+    public static long charger(Path dossier, Map<String, MoteurCommandes> sessions,
+                               Function<String, MoteurCommandes> fabrique) throws IOException {
+        List<Path> instantanes = lister(dossier);
+        for (int i = instantanes.size() - 1; i >= 0; i--) {
+            ByteBuffer donnees = projeterSiValide(instantanes.get(i));
+            if (donnees != null) {
+                lireSessions(donnees, sessions, fabrique);
+                return donnees.getLong(8);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Retourne le LSN du plus ancien instantané conservé : {@link #charger} peut revenir jusqu'à lui
+     * si les plus récents sont invalides, les enregistrements du journal qui le suivent doivent donc être gardés.
+     *
+     * @param dossier Le dossier des instantanés.
+     * @return Le LSN du plus ancien instantané, ou 0 s'il n'y en a aucun.
+     * @throws IOException Si le dossier ne peut pas être listé.
+     */
+    public static long lsnPlusAncien(Path dossier) throws IOException {
+        List<Path> instantanes = lister(dossier);
+        if (instantanes.isEmpty()) {
+            return 0;
+        }
+        String nom = instantanes.get(0).getFileName().toString();
+        return Long.parseLong(nom.substring("instantane-".length(), nom.length() - ".bin".length()));
+    }
+
+    /**
+     * Applique un enregistrement du journal aux paniers. Les commandes confirmées ne modifient pas le panier.
+     */
+    static void appliquer(byte type, ByteBuffer contenu, Map<String, MoteurCommandes> sessions,
+                          Function<String, MoteurCommandes> fabrique) {
+        switch (type) {
+            case JournalCommandes.TYPE_MARQUE:
+                sessions.computeIfAbsent(JournalCommandes.lireSession(contenu), fabrique)
+                        .restaurerMarque(JournalCommandes.lireChaine(contenu));
+                break;
+            case JournalCommandes.TYPE_SELECTION: {
+                MoteurCommandes moteur = sessions.computeIfAbsent(JournalCommandes.lireSession(contenu), fabrique);
+                moteur.restaurerSelection(contenu.getInt(), contenu.get() != 0);
+                break;
+            }
+            case JournalCommandes.TYPE_QUANTITE: {
+                MoteurCommandes moteur = sessions.computeIfAbsent(JournalCommandes.lireSession(contenu), fabrique);
+                moteur.restaurerQuantite(contenu.getInt(), contenu.getInt());
+                break;
+            }
+            case JournalCommandes.TYPE_FIN_SESSION:
+                sessions.remove(JournalCommandes.lireSession(contenu));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void lireSessions(ByteBuffer donnees, Map<String, MoteurCommandes> sessions,
+                                     Function<String, MoteurCommandes> fabrique) {
+        int nombreSessions = donnees.getInt(16);
+        donnees.position(TAILLE_EN_TETE);
+        String derniereMarque = null;
+        for (int s = 0; s < nombreSessions; s++) {
+            MoteurCommandes moteur = sessions.computeIfAbsent(JournalCommandes.lireChaine(donnees), fabrique);
+            int longueurMarque = donnees.getShort() & 0xFFFF;
+            if (longueurMarque > 0) {
+                // Les paniers partagent quelques marques : la chaîne précédente est réutilisée si elle est identique
+                if (!memesOctets(donnees, longueurMarque, derniereMarque)) {
+                    byte[] octets = new byte[longueurMarque];
+                    donnees.get(donnees.position(), octets);
+                    derniereMarque = new String(octets, StandardCharsets.UTF_8);
+                }
+                donnees.position(donnees.position() + longueurMarque);
+                moteur.restaurerMarque(derniereMarque);
+            }
+            int selection = donnees.get();
+            for (int pieceId = 0; pieceId < Pieces.NOMBRE_PIECES_BASE; pieceId++) {
+                moteur.restaurerSelection(pieceId, (selection & (1 << pieceId)) != 0);
+            }
+            int nombreLignes = donnees.getInt();
+            for (int i = 0; i < nombreLignes; i++) {
+                moteur.restaurerQuantite(donnees.getInt(), donnees.getInt());
+            }
+        }
+    }
+
+    private static boolean memesOctets(ByteBuffer donnees, int longueur, String chaine) {
+        if (chaine == null || chaine.length() != longueur) {
+            return false; // Les marques connues sont en ASCII : un caractère par octet
+        }
+        int debut = donnees.position();
+        for (int i = 0; i < longueur; i++) {
+            if (donnees.get(debut + i) != chaine.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recrée les sessions d'un export produit par un autre serveur ({@link Export}).
+     *
+     * @param donnees Les octets de l'export (ordre des octets quelconque).
+     * @param sessions Reçoit les moteurs importés.
+     * @param fabrique Crée le moteur d'une session absente de `sessions`.
+     * @return Le nombre de sessions importées.
+     * @throws IOException Si l'export est tronqué ou corrompu.
+     */
+    static int importer(ByteBuffer donnees, Map<String, MoteurCommandes> sessions,
+                        Function<String, MoteurCommandes> fabrique) throws IOException {
+        donnees.order(ByteOrder.LITTLE_ENDIAN);
+        if (!estValide(donnees)) {
+            throw new IOException("Export de paniers invalide (" + donnees.limit() + " octets)");
+        }
+        lireSessions(donnees, sessions, fabrique);
+        return donnees.getInt(16);
+    }
+
+    private static ByteBuffer projeterSiValide(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            ByteBuffer donnees = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()).order(ByteOrder.LITTLE_ENDIAN);
+            return estValide(donnees) ? donnees : null;
+        }
+    }
+
+    private static boolean estValide(ByteBuffer donnees) {
+        int taille = donnees.limit();
+        if (taille < TAILLE_EN_TETE || donnees.getInt(0) != SIGNATURE || donnees.getInt(4) != VERSION) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(donnees.slice(TAILLE_EN_TETE, taille - TAILLE_EN_TETE));
+        return (int) crc.getValue() == donnees.getInt(20);
+    }
+
+    private static List<Path> lister(Path dossier) throws IOException {
+        if (!Files.isDirectory(dossier)) {
+            return List.of();
+        }
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            return fichiers.filter(f -> f.getFileName().toString().matches("instantane-\\d{20}\\.bin"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Instantané en cours d'écriture dans un fichier temporaire.
+     * Sans appel à {@link #terminer()}, {@link #close()} supprime le fichier temporaire.
+     */
+    public static final class Redaction extends Ecriture implements Closeable {
+        private final Path dossier;
+        private final long lsn;
+        private final Path temporaire;
+        private final FileChannel canal;
+        private final CRC32C crc = new CRC32C();
+        private boolean terminee;
+
+        private Redaction(Path dossier, long lsn) throws IOException {
+            super(ByteBuffer.allocateDirect(TAILLE_TAMPON).order(ByteOrder.LITTLE_ENDIAN));
+            this.dossier = dossier;
+            this.lsn = lsn;
+            this.temporaire = dossier.resolve(String.format("instantane-%020d.tmp", lsn));
+            this.canal = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            canal.position(TAILLE_EN_TETE);
+        }
+
+        /**
+         * Écrit l'en-tête, synchronise le fichier sur disque puis le rend visible sous son nom définitif.
+         *
+         * @return Le fichier de l'instantané.
+         * @throws IOException En cas d'erreur d'écriture.
+         */
+        public Path terminer() throws IOException {
+            vider();
+            ByteBuffer enTete = ByteBuffer.allocate(TAILLE_EN_TETE).order(ByteOrder.LITTLE_ENDIAN);
+            enTete.putInt(SIGNATURE).putInt(VERSION).putLong(lsn).putInt(nombreSessions).putInt((int) crc.getValue());
+            enTete.flip();
+            long position = 0;
+            while (enTete.hasRemaining()) {
+                position += canal.write(enTete, position);
+            }
+            canal.force(true);
+            canal.close();
+
+            Path fichier = dossier.resolve(String.format("instantane-%020d.bin", lsn));
+            Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            terminee = true;
+
+            List<Path> instantanes = lister(dossier);
+            for (int i = 0; i < instantanes.size() - INSTANTANES_CONSERVES; i++) {
+                try {
+                    Files.deleteIfExists(instantanes.get(i));
+                } catch (IOException e) {
+                    // Fichier encore projeté (Windows) : il sera supprimé lors d'un prochain instantané
+                }
+            }
+            return fichier;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!terminee) {
+                canal.close();
+                Files.deleteIfExists(temporaire);
+            }
+        }
+
+        @Override
+        void reserver(int n) throws IOException {
+            if (tampon.remaining() < n) {
+                vider();
+            }
+        }
+
+        private void vider() throws IOException {
+            tampon.flip();
+            crc.update(tampon.duplicate());
+            while (tampon.hasRemaining()) {
+                canal.write(tampon);
+            }
+            tampon.clear();
+        }
+    }
+
+    /**
+     * Encodage des sessions, commun aux instantanés sur disque et aux exports en mémoire.
+     */
+    abstract static class Ecriture {
+        ByteBuffer tampon;
+        int nombreSessions;
+
+        Ecriture(ByteBuffer tampon) {
+            this.tampon = tampon;
+        }
+
+        /**
+         * Ajoute l'état d'une session. Le moteur ne doit pas être modifié pendant cet appel.
+         *
+         * @param sessionId L'identifiant de la session.
+         * @param moteur Le moteur de la session.
+         * @throws IOException En cas d'erreur d'écriture.
+         * @throws IllegalArgumentException Si l'identifiant ou la marque dépassent 65 535 octets en UTF-8
+         *         (même limite que {@link JournalCommandes}) : rien n'est alors écrit pour cette session.
+         */
+        public void ajouter(String sessionId, MoteurCommandes moteur) throws IOException {
+            byte[] session = JournalCommandes.encoderChaine(sessionId);
+            byte[] marque = moteur.isMarqueSelected() ? JournalCommandes.encoderChaine(moteur.getMarque()) : new byte[0];
+            GestionQuantites panier = moteur.getGestionQuantites();
+            int nombreLignes = panier.getNombreLignes();
+            reserver(2 + session.length + 2 + marque.length + 1 + 4);
+            tampon.putShort((short) session.length).put(session);
+            tampon.putShort((short) marque.length).put(marque);
+            int selection = 0;
+            for (int pieceId = 0; pieceId < Pieces.NOMBRE_PIECES_BASE; pieceId++) {
+                if (moteur.isPieceSelectionnee(pieceId)) {
+                    selection |= 1 << pieceId;
+                }
+            }
+            tampon.put((byte) selection);
+            tampon.putInt(nombreLignes);
+            for (int i = 0; i < nombreLignes; i++) {
+                reserver(8);
+                int pieceId = panier.getPieceLigne(i);
+                tampon.putInt(pieceId).putInt(panier.getQuantite(pieceId));
+            }
+            nombreSessions++;
+        }
+
+        /**
+         * Garantit que `n` octets peuvent être ajoutés au tampon.
+         */
+        abstract void reserver(int n) throws IOException;
+    }
+
+    /**
+     * Sessions exportées en mémoire, au format d'un instantané (LSN 0), pour être importées sur un autre
+     * serveur avec {@link InstantanesPaniers#importer(ByteBuffer, Map, Function)} (voir {@link RouteurPaniers}).
+     */
+    static final class Export extends Ecriture {
+
+        Export() {
+            super(ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN).position(TAILLE_EN_TETE));
+        }
+
+        @Override
+        void reserver(int n) {
+            if (tampon.remaining() < n) {
+                ByteBuffer agrandi = ByteBuffer.allocate(Math.max(2 * tampon.capacity(), tampon.position() + n))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                tampon.flip();
+                tampon = agrandi.put(tampon);
+            }
+        }
+
+        /**
+         * @return Les octets de l'export, en-tête et CRC compris.
+         */
+        byte[] terminer() {
+            CRC32C crc = new CRC32C();
+            crc.update(tampon.array(), TAILLE_EN_TETE, tampon.position() - TAILLE_EN_TETE);
+            tampon.putInt(0, SIGNATURE).putInt(4, VERSION).putLong(8, 0).putInt(16, nombreSessions)
+                    .putInt(20, (int) crc.getValue());
+            return Arrays.copyOf(tampon.array(), tampon.position());
+        }
+    }
+}
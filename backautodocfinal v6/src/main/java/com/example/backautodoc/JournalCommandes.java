@@ -0,0 +1,655 @@
+package com.example.backautodoc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Cette classe enregistre chaque commande confirmée dans un journal binaire sur disque (write-ahead log).
+ *
+ * Rôles principaux :
+ * 1. Ajouter des enregistrements à la fin du journal, sans jamais réécrire le passé.
+ * 2. Garantir la durabilité : un ajout n'est confirmé qu'après {@link FileChannel#force(boolean)}.
+ * 3. Regrouper les ajouts concurrents (group commit) : toutes les commandes arrivées pendant
+ *    un fsync sont écrites ensemble et validées par le fsync suivant.
+ * 4. Relire le journal au démarrage, en vérifiant le CRC de chaque enregistrement.
+ *
+ * Format :
+ * - Le journal est découpé en segments `journal-NNNNNNNN.log` ; un nouveau segment est ouvert
+ *   quand le segment courant dépasse la taille maximale.
+ * - En-tête de segment (16 octets) : signature, version, numéro de séquence (LSN) du premier enregistrement.
+ * - Enregistrement : longueur du corps (int), CRC32C du corps (int), puis le corps :
+ *   type (byte), LSN (long), contenu.
+ * - Dans le contenu, une chaîne (session, marque) est précédée de sa longueur en octets UTF-8, sur 2 octets :
+ *   les encodeurs refusent une chaîne de plus de {@value #LONGUEUR_MAX_CHAINE} octets plutôt que de la tronquer.
+ * - Un enregistrement incomplet ou au CRC invalide en fin de dernier segment (arrêt brutal pendant
+ *   une écriture) est ignoré à la relecture et tronqué à la réouverture. Ailleurs, c'est une corruption :
+ *   la relecture échoue plutôt que de perdre en silence les segments suivants.
+ * - Un dernier segment à l'en-tête incomplet (arrêt brutal juste après sa création) ne contient aucun
+ *   enregistrement : il est ignoré à la relecture, et supprimé à la réouverture (ou réécrit s'il est le seul).
+ * - Les segments entièrement couverts par un instantané sont supprimés ({@link #supprimerSegmentsAvant(long)}) :
+ *   la taille du journal sur disque ne dépend pas de l'ancienneté du serveur.
+ *
+ * Liens avec d'autres classes :
+ * - {@link MoteurCommandes} : Journalise la commande dans {@link MoteurCommandes#commander()} (ou, avec un stock,
+ *   dans {@link MoteurCommandes#confirmerCommande()}), ainsi que chaque modification du panier (marque, sélection, quantité).
+ * - {@link InstantanesPaniers} : Relit la fin du journal après le dernier instantané pour reconstruire les paniers.
+ */
+public class JournalCommandes implements Closeable {
+
+    /** Type d'enregistrement : commande confirmée (session, marque, lignes). */
+    public static final byte TYPE_COMMANDE = 1;
+    /** Type d'enregistrement : marque sélectionnée (session, marque). */
+    public static final byte TYPE_MARQUE = 2;
+    /** Type d'enregistrement : pièce cochée ou décochée (session, pièce, état). */
+    public static final byte TYPE_SELECTION = 3;
+    /** Type d'enregistrement : nouvelle quantité d'une pièce (session, pièce, quantité après modification). */
+    public static final byte TYPE_QUANTITE = 4;
+    /** Type d'enregistrement : session fermée, son panier est abandonné (session). */
+    public static final byte TYPE_FIN_SESSION = 5;
+
+    static final int SIGNATURE_SEGMENT = 0x4C415741; // "AWAL" en little-endian
+    static final int VERSION = 1;
+    static final int TAILLE_EN_TETE_SEGMENT = 16;
+    static final int TAILLE_EN_TETE_ENREGISTREMENT = 8;      // longueur + CRC
+    static final int TAILLE_FIXE_CORPS = 1 + Long.BYTES;      // type + LSN
+    private static final int ENREGISTREMENTS_MAX_PAR_LOT = 4096;
+    private static final int CAPACITE_FILE = 16 * ENREGISTREMENTS_MAX_PAR_LOT;
+    static final int LONGUEUR_MAX_CHAINE = 0xFFFF;
+
+    /**
+     * Reçoit les enregistrements lors d'une relecture du journal.
+     */
+    @FunctionalInterface
+    public interface Lecteur {
+        /**
+         * @param type Le type de l'enregistrement.
+         * @param lsn Le numéro de séquence de l'enregistrement.
+         * @param contenu Le contenu, positionné au début (valide uniquement pendant l'appel).
+         */
+        void lire(byte type, long lsn, ByteBuffer contenu);
+    }
+
+    private final Path dossier;
+    private final long tailleMaxSegment;
+    private final LinkedBlockingQueue<Entree> enAttente = new LinkedBlockingQueue<>(CAPACITE_FILE);
+    private final Thread ecrivain;
+    private volatile boolean ouvert = true;
+    private volatile IOException defaillance; // Non null : le dernier segment est dans un état inconnu
+
+    // Utilisés uniquement par l'écrivain (et par le constructeur avant son démarrage)
+    private FileChannel segment;
+    private volatile int numeroSegment; // Lu aussi par supprimerSegmentsAvant
+    private long tailleSegment;
+    private long dernierLsn;
+    private volatile long dernierLsnDurable;
+    private ByteBuffer tampon = ByteBuffer.allocateDirect(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Ouvre (ou crée) un journal, et se place après le dernier enregistrement valide.
+     *
+     * @param dossier Le dossier des segments.
+     * @param tailleMaxSegment La taille (en octets) au-delà de laquelle un nouveau segment est ouvert.
+     * @throws IOException Si le dossier ou le dernier segment ne peuvent pas être ouverts.
+     */
+    public JournalCommandes(Path dossier, long tailleMaxSegment) throws IOException {
+        this.dossier = dossier;
+        this.tailleMaxSegment = tailleMaxSegment;
+        Files.createDirectories(dossier);
+
+        List<Path> segments = listerSegments(dossier);
+        if (segments.size() > 1 && enTeteDechire(segments.get(segments.size() - 1))) {
+            // Segment créé mais jamais écrit : l'écriture reprend à la fin du segment précédent
+            Files.delete(segments.get(segments.size() - 1));
+            segments = segments.subList(0, segments.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            ouvrirSegment(0, 1);
+        } else if (segments.size() == 1 && enTeteDechire(segments.get(0))) {
+            ouvrirSegment(numeroDe(segments.get(0)), 1);
+        } else {
+            Path dernier = segments.get(segments.size() - 1);
+            numeroSegment = numeroDe(dernier);
+            segment = FileChannel.open(dernier, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Se place après le dernier enregistrement complet, et supprime une éventuelle fin déchirée
+            long[] fin = parcourirSegment(segment, Long.MIN_VALUE, null);
+            dernierLsn = fin[1];
+            dernierLsnDurable = dernierLsn;
+            tailleSegment = fin[0];
+            segment.truncate(tailleSegment);
+            segment.position(tailleSegment);
+        }
+
+        ecrivain = new Thread(this::boucleEcriture, "journal-commandes");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    /**
+     * Ajoute un enregistrement et attend qu'il soit durable.
+     *
+     * @param type Le type de l'enregistrement.
+     * @param contenu Le contenu de l'enregistrement.
+     * @return Le numéro de séquence (LSN) attribué à l'enregistrement.
+     * @throws IOException Si l'écriture ou le fsync échoue.
+     */
+    public long ajouter(byte type, byte[] contenu) throws IOException {
+        try {
+            return ajouterAsync(type, contenu).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Ajoute un enregistrement sans attendre son écriture.
+     * Si la file d'attente est pleine (disque plus lent que les ajouts), attend qu'une place se libère :
+     * les producteurs sont freinés au rythme du disque au lieu d'accumuler des entrées en mémoire.
+     *
+     * @param type Le type de l'enregistrement.
+     * @param contenu Le contenu de l'enregistrement.
+     * @return Un futur complété avec le LSN quand l'enregistrement est durable.
+     */
+    public CompletableFuture<Long> ajouterAsync(byte type, byte[] contenu) {
+        Entree entree = new Entree(type, contenu);
+        if (!ouvert) {
+            entree.resultat.completeExceptionally(new IOException("Journal fermé"));
+            return entree.resultat;
+        }
+        if (defaillance != null) {
+            entree.resultat.completeExceptionally(new IOException("Journal inutilisable", defaillance));
+            return entree.resultat;
+        }
+        try {
+            enAttente.put(entree);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entree.resultat.completeExceptionally(new IOException("Ajout au journal interrompu", e));
+            return entree.resultat;
+        }
+        // close() a pu arrêter l'écrivain et vider la file entre le test et l'ajout : l'entrée serait
+        // alors oubliée. Si elle est encore dans la file, personne ne l'écrira : elle est retirée et refusée
+        if (!ouvert && enAttente.remove(entree)) {
+            entree.resultat.completeExceptionally(new IOException("Journal fermé"));
+        }
+        return entree.resultat;
+    }
+
+    /**
+     * Journalise une commande confirmée et attend qu'elle soit durable.
+     *
+     * @param sessionId L'identifiant du poste ou de la session qui a passé la commande.
+     * @param commande La commande.
+     * @return Le LSN de l'enregistrement.
+     * @throws IOException Si l'écriture échoue.
+     */
+    public long ajouterCommande(String sessionId, Commande commande) throws IOException {
+        return ajouter(TYPE_COMMANDE, encoderCommande(sessionId, commande));
+    }
+
+    /**
+     * Retourne le LSN du dernier enregistrement durable (écrit et synchronisé sur disque).
+     *
+     * Tous les enregistrements de LSN inférieur ou égal sont durables : un instantané qui
+     * mémorise ce LSN ne dépend d'aucun enregistrement qui pourrait disparaître en cas d'arrêt brutal.
+     */
+    public long getDernierLsn() {
+        return dernierLsnDurable;
+    }
+
+    /**
+     * Ferme le journal après avoir écrit les enregistrements en attente.
+     */
+    @Override
+    public void close() throws IOException {
+        ouvert = false;
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Un ajout concurrent à la fermeture a pu arriver après l'arrêt de l'écrivain
+        Entree restante;
+        while ((restante = enAttente.poll()) != null) {
+            restante.resultat.completeExceptionally(new IOException("Journal fermé"));
+        }
+        segment.close();
+    }
+
+    /**
+     * Relit tous les enregistrements valides d'un journal, dans l'ordre.
+     *
+     * @param dossier Le dossier des segments.
+     * @param apresLsn Seuls les enregistrements de LSN strictement supérieur sont transmis.
+     * @param lecteur Reçoit chaque enregistrement.
+     * @return Le LSN du dernier enregistrement valide (ou `apresLsn` si le journal est vide).
+     * @throws IOException Si un segment est illisible, si un segment autre que le dernier est corrompu,
+     *                     ou si les enregistrements qui suivent `apresLsn` ont déjà été supprimés.
+     */
+    public static long relire(Path dossier, long apresLsn, Lecteur lecteur) throws IOException {
+        long dernier = apresLsn;
+        if (!Files.isDirectory(dossier)) {
+            return dernier;
+        }
+        List<Path> segments = listerSegments(dossier);
+        if (!segments.isEmpty() && !enTeteDechire(segments.get(0)) && premierLsn(segments.get(0)) > apresLsn + 1) {
+            throw new IOException("Journal incomplet : les enregistrements qui suivent le LSN " + apresLsn
+                    + " ont été supprimés");
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            // Un segment entièrement antérieur au LSN demandé peut être sauté
+            if (i + 1 < segments.size() && premierLsn(segments.get(i + 1)) <= apresLsn + 1) {
+                continue;
+            }
+            boolean dernierSegment = i == segments.size() - 1;
+            if (dernierSegment && enTeteDechire(segments.get(i))) {
+                break; // Créé juste avant un arrêt brutal : aucun enregistrement
+            }
+            try (FileChannel canal = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                long[] fin = parcourirSegment(canal, apresLsn, lecteur);
+                // Seule la fin du dernier segment peut être déchirée : un segment suivant a été ouvert
+                // après la synchronisation complète de celui-ci
+                if (!dernierSegment && fin[0] != canal.size()) {
+                    throw new IOException("Journal corrompu : " + segments.get(i).getFileName()
+                            + ", enregistrement invalide à la position " + fin[0]);
+                }
+                dernier = Math.max(dernier, fin[1]);
+            }
+        }
+        return dernier;
+    }
+
+    /**
+     * Supprime les segments dont tous les enregistrements ont un LSN inférieur ou égal à `lsn`.
+     * Le segment en cours d'écriture n'est jamais supprimé.
+     *
+     * @param lsn Le LSN jusqu'auquel les enregistrements ne seront plus relus (celui du plus ancien
+     *            instantané conservé, pour que la relecture reste possible depuis chacun d'eux).
+     * @return Le nombre de segments supprimés.
+     * @throws IOException Si un segment ne peut pas être lu ou supprimé.
+     */
+    public int supprimerSegmentsAvant(long lsn) throws IOException {
+        List<Path> segments = listerSegments(dossier);
+        int supprimes = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            // Le segment de l'écrivain reste en place, même si le suivant est en cours de création :
+            // cette création peut encore échouer, et l'écriture continuerait alors dans ce segment
+            if (numeroDe(segments.get(i)) >= numeroSegment || premierLsn(segments.get(i + 1)) > lsn + 1) {
+                break;
+            }
+            Files.delete(segments.get(i));
+            supprimes++;
+        }
+        return supprimes;
+    }
+
+    /**
+     * Encode une commande : session, marque, nombre de lignes, puis (pièce, quantité) pour chaque ligne.
+     */
+    public static byte[] encoderCommande(String sessionId, Commande commande) {
+        byte[] session = encoderChaine(sessionId);
+        byte[] marque = encoderChaine(commande.getMarque());
+        ByteBuffer contenu = ByteBuffer.allocate(2 + session.length + 2 + marque.length + 4
+                + commande.getNombreLignes() * 8).order(ByteOrder.LITTLE_ENDIAN);
+        contenu.putShort((short) session.length).put(session);
+        contenu.putShort((short) marque.length).put(marque);
+        contenu.putInt(commande.getNombreLignes());
+        for (int i = 0; i < commande.getNombreLignes(); i++) {
+            contenu.putInt(commande.getPiece(i)).putInt(commande.getQuantite(i));
+        }
+        return contenu.array();
+    }
+
+    /**
+     * Encode une sélection de marque : session, marque.
+     */
+    public static byte[] encoderMarque(String sessionId, String marque) {
+        byte[] session = encoderChaine(sessionId);
+        byte[] octetsMarque = encoderChaine(marque);
+        return ByteBuffer.allocate(2 + session.length + 2 + octetsMarque.length).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) session.length).put(session)
+                .putShort((short) octetsMarque.length).put(octetsMarque)
+                .array();
+    }
+
+    /**
+     * Encode une sélection de pièce : session, pièce (int), état (byte 0 ou 1).
+     */
+    public static byte[] encoderSelection(String sessionId, int pieceId, boolean selectionnee) {
+        byte[] session = encoderChaine(sessionId);
+        return ByteBuffer.allocate(2 + session.length + 4 + 1).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) session.length).put(session)
+                .putInt(pieceId).put((byte) (selectionnee ? 1 : 0))
+                .array();
+    }
+
+    /**
+     * Encode une quantité : session, pièce (int), quantité après modification (int).
+     *
+     * La quantité est absolue (et non un écart) : rejouer deux fois le même enregistrement
+     * donne le même panier, ce qui permet de rejouer sans risque des événements déjà
+     * présents dans un instantané.
+     */
+    public static byte[] encoderQuantite(String sessionId, int pieceId, int quantite) {
+        byte[] session = encoderChaine(sessionId);
+        return ByteBuffer.allocate(2 + session.length + 8).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) session.length).put(session)
+                .putInt(pieceId).putInt(quantite)
+                .array();
+    }
+
+    /**
+     * Encode la fermeture d'une session : session.
+     */
+    public static byte[] encoderFinSession(String sessionId) {
+        byte[] session = encoderChaine(sessionId);
+        return ByteBuffer.allocate(2 + session.length).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) session.length).put(session)
+                .array();
+    }
+
+    /**
+     * Lit l'identifiant de session au début d'un contenu (commande ou événement de panier).
+     */
+    public static String lireSession(ByteBuffer contenu) {
+        return lireChaine(contenu);
+    }
+
+    /**
+     * Décode une commande encodée par {@link #encoderCommande(String, Commande)},
+     * à partir de la position qui suit l'identifiant de session.
+     */
+    public static Commande lireCommande(ByteBuffer contenu) {
+        String marque = lireChaine(contenu);
+        int n = contenu.getInt();
+        int[] pieces = new int[n];
+        int[] quantites = new int[n];
+        for (int i = 0; i < n; i++) {
+            pieces[i] = contenu.getInt();
+            quantites[i] = contenu.getInt();
+        }
+        return new Commande(marque, pieces, quantites);
+    }
+
+    /**
+     * Encode une chaîne en UTF-8, en vérifiant que sa longueur tient sur les 2 octets qui la précèdent.
+     *
+     * @throws IllegalArgumentException Si la chaîne dépasse {@value #LONGUEUR_MAX_CHAINE} octets.
+     */
+    static byte[] encoderChaine(String valeur) {
+        byte[] octets = valeur.getBytes(StandardCharsets.UTF_8);
+        if (octets.length > LONGUEUR_MAX_CHAINE) {
+            throw new IllegalArgumentException("Chaîne trop longue pour le journal : " + octets.length + " octets");
+        }
+        return octets;
+    }
+
+    static String lireChaine(ByteBuffer contenu) {
+        byte[] octets = new byte[contenu.getShort() & 0xFFFF];
+        contenu.get(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    private void boucleEcriture() {
+        List<Entree> lot = new ArrayList<>();
+        while (ouvert || !enAttente.isEmpty()) {
+            try {
+                Entree premiere = enAttente.poll(100, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+                // Tout ce qui est arrivé pendant le fsync précédent part dans le même lot
+                enAttente.drainTo(lot, ENREGISTREMENTS_MAX_PAR_LOT - 1);
+                ecrireLot(lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            lot.clear();
+        }
+    }
+
+    private void ecrireLot(List<Entree> lot) {
+        long premierLsnDuLot = dernierLsn + 1;
+        long tailleAvantLot = tailleSegment;
+        try {
+            if (defaillance != null) {
+                throw new IOException("Journal inutilisable", defaillance);
+            }
+            tampon.clear();
+            for (Entree entree : lot) {
+                int tailleCorps = TAILLE_FIXE_CORPS + entree.contenu.length;
+                reserver(TAILLE_EN_TETE_ENREGISTREMENT + tailleCorps);
+                int debut = tampon.position();
+                tampon.putInt(tailleCorps).putInt(0);
+                tampon.put(entree.type).putLong(++dernierLsn).put(entree.contenu);
+                crc.reset();
+                crc.update(tampon.duplicate().position(debut + TAILLE_EN_TETE_ENREGISTREMENT).limit(tampon.position()));
+                tampon.putInt(debut + 4, (int) crc.getValue());
+            }
+            tampon.flip();
+            if (tailleSegment > TAILLE_EN_TETE_SEGMENT && tailleSegment + tampon.remaining() > tailleMaxSegment) {
+                changerDeSegment(premierLsnDuLot);
+            }
+            tailleAvantLot = tailleSegment;
+            while (tampon.hasRemaining()) {
+                tailleSegment += segment.write(tampon);
+            }
+            segment.force(false);
+        } catch (IOException e) {
+            // Le lot n'est pas confirmé : ses LSN seront réattribués et ses octets éventuels sont effacés
+            dernierLsn = premierLsnDuLot - 1;
+            annulerEcriture(tailleAvantLot);
+            for (Entree entree : lot) {
+                entree.resultat.completeExceptionally(e);
+            }
+            return;
+        }
+        dernierLsnDurable = dernierLsn;
+        long lsn = premierLsnDuLot;
+        for (Entree entree : lot) {
+            entree.resultat.complete(lsn++);
+        }
+    }
+
+    private void annulerEcriture(long taille) {
+        try {
+            segment.truncate(taille);
+            segment.position(taille);
+            tailleSegment = taille;
+        } catch (IOException e) {
+            // Des octets non confirmés restent peut-être en fin de segment : un lot écrit après eux serait
+            // perdu à la relecture, qui s'arrête au premier enregistrement invalide. Plus aucun ajout n'est accepté
+            defaillance = e;
+        }
+    }
+
+    /**
+     * Passe au segment suivant. Le nouveau segment est créé et synchronisé avant de quitter le segment courant :
+     * en cas d'échec, seul le lot en cours est refusé, et le segment courant, intact, reste celui où l'on écrit.
+     */
+    private void changerDeSegment(long premierLsn) throws IOException {
+        FileChannel suivant = creerSegment(numeroSegment + 1, premierLsn);
+        FileChannel precedent = segment;
+        segment = suivant;
+        numeroSegment++;
+        tailleSegment = TAILLE_EN_TETE_SEGMENT;
+        try {
+            precedent.close(); // Déjà synchronisé à la fin du lot précédent
+        } catch (IOException e) {
+            // Rien à perdre : tout ce qui a été confirmé dans ce segment est sur disque
+        }
+    }
+
+    private void reserver(int n) {
+        if (tampon.remaining() < n) {
+            ByteBuffer agrandi = ByteBuffer.allocateDirect(Math.max(2 * tampon.capacity(), tampon.position() + n))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            tampon.flip();
+            agrandi.put(tampon);
+            tampon = agrandi;
+        }
+    }
+
+    private void ouvrirSegment(int numero, long premierLsn) throws IOException {
+        segment = creerSegment(numero, premierLsn);
+        numeroSegment = numero;
+        tailleSegment = TAILLE_EN_TETE_SEGMENT;
+    }
+
+    /**
+     * Crée un segment vide, écrit son en-tête et le synchronise sur disque.
+     * En cas d'échec, le fichier est supprimé : il ne reste pas de segment à l'en-tête invalide.
+     */
+    private FileChannel creerSegment(int numero, long premierLsn) throws IOException {
+        Path fichier = dossier.resolve(String.format("journal-%08d.log", numero));
+        FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer enTete = ByteBuffer.allocate(TAILLE_EN_TETE_SEGMENT).order(ByteOrder.LITTLE_ENDIAN);
+            enTete.putInt(SIGNATURE_SEGMENT).putInt(VERSION).putLong(premierLsn).flip();
+            while (enTete.hasRemaining()) {
+                canal.write(enTete);
+            }
+            canal.force(true);
+            return canal;
+        } catch (IOException e) {
+            try {
+                canal.close();
+                Files.deleteIfExists(fichier);
+            } catch (IOException suppression) {
+                // Un segment vide resterait après le segment courant, qui ne serait plus le dernier à la relecture
+                e.addSuppressed(suppression);
+                defaillance = e;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parcourt un segment et transmet au lecteur les enregistrements valides de LSN supérieur à `apresLsn`.
+     *
+     * Pour une relecture, le segment est projeté en mémoire : les enregistrements sont lus sans appel
+     * système ni copie. À l'ouverture du journal (lecteur absent), le segment est lu dans le tas, car
+     * un fichier encore projeté ne peut pas être tronqué sur certains systèmes.
+     *
+     * @return {position après le dernier enregistrement valide, LSN de ce dernier enregistrement}.
+     */
+    private static long[] parcourirSegment(FileChannel canal, long apresLsn, Lecteur lecteur) throws IOException {
+        long taille = canal.size();
+        if (taille < TAILLE_EN_TETE_SEGMENT) {
+            throw new IOException("En-tête de segment de journal invalide");
+        }
+        ByteBuffer donnees;
+        if (lecteur != null) {
+            donnees = canal.map(FileChannel.MapMode.READ_ONLY, 0, taille);
+        } else {
+            donnees = lireComplet(canal, 0, (int) taille);
+        }
+        donnees.order(ByteOrder.LITTLE_ENDIAN);
+        if (donnees.getInt(0) != SIGNATURE_SEGMENT || donnees.getInt(4) != VERSION) {
+            throw new IOException("En-tête de segment de journal invalide");
+        }
+        long dernierLsn = donnees.getLong(8) - 1;
+        int position = TAILLE_EN_TETE_SEGMENT;
+        CRC32C controle = new CRC32C();
+        while (position + TAILLE_EN_TETE_ENREGISTREMENT <= taille) {
+            int tailleCorps = donnees.getInt(position);
+            int debutCorps = position + TAILLE_EN_TETE_ENREGISTREMENT;
+            if (tailleCorps < TAILLE_FIXE_CORPS || debutCorps + (long) tailleCorps > taille) {
+                break; // Enregistrement tronqué
+            }
+            ByteBuffer corps = donnees.slice(debutCorps, tailleCorps).order(ByteOrder.LITTLE_ENDIAN);
+            controle.reset();
+            controle.update(corps.duplicate());
+            if ((int) controle.getValue() != donnees.getInt(position + 4)) {
+                break; // Enregistrement corrompu
+            }
+            byte type = corps.get(0);
+            long lsn = corps.getLong(1);
+            if (lecteur != null && lsn > apresLsn) {
+                lecteur.lire(type, lsn, corps.position(TAILLE_FIXE_CORPS).slice().order(ByteOrder.LITTLE_ENDIAN));
+            }
+            dernierLsn = lsn;
+            position = debutCorps + tailleCorps;
+        }
+        return new long[]{position, dernierLsn};
+    }
+
+    private static ByteBuffer lireComplet(FileChannel canal, long position, int taille) throws IOException {
+        ByteBuffer tampon = ByteBuffer.allocate(taille).order(ByteOrder.LITTLE_ENDIAN);
+        while (tampon.hasRemaining()) {
+            if (canal.read(tampon, position + tampon.position()) < 0) {
+                return null;
+            }
+        }
+        return tampon.flip();
+    }
+
+    /**
+     * Indique si un segment n'a pas d'en-tête complet : plus court que l'en-tête, ou de la taille exacte
+     * de l'en-tête sans signature (fichier agrandi mais jamais écrit sur disque).
+     */
+    private static boolean enTeteDechire(Path segment) throws IOException {
+        try (FileChannel canal = FileChannel.open(segment, StandardOpenOption.READ)) {
+            if (canal.size() > TAILLE_EN_TETE_SEGMENT) {
+                return false;
+            }
+            ByteBuffer enTete = lireComplet(canal, 0, TAILLE_EN_TETE_SEGMENT);
+            return enTete == null || enTete.getInt(0) != SIGNATURE_SEGMENT || enTete.getInt(4) != VERSION;
+        }
+    }
+
+    private static long premierLsn(Path segment) throws IOException {
+        try (FileChannel canal = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer enTete = lireComplet(canal, 0, TAILLE_EN_TETE_SEGMENT);
+            return enTete == null ? Long.MAX_VALUE : enTete.getLong(8);
+        }
+    }
+
+    private static List<Path> listerSegments(Path dossier) throws IOException {
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            return fichiers.filter(f -> f.getFileName().toString().matches("journal-\\d{8}\\.log"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static int numeroDe(Path segment) {
+        String nom = segment.getFileName().toString();
+        return Integer.parseInt(nom.substring("journal-".length(), nom.length() - ".log".length()));
+    }
+
+    /**
+     * Enregistrement en attente d'écriture.
+     */
+    private static final class Entree {
+        final byte type;
+        final byte[] contenu;
+        final CompletableFuture<Long> resultat = new CompletableFuture<>();
+
+        Entree(byte type, byte[] contenu) {
+            this.type = type;
+            this.contenu = contenu;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.backautodoc;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cette classe rassemble les mesures du parcours de commande : durée de chaque opération et nombre de refus.
+ *
+ * Rôles principaux :
+ * 1. Mesurer la durée de {@link Operation chaque opération}, pour toutes les marques et pour chaque marque.
+ * 2. Compter les opérations refusées (un {@link ResultatOperation} en erreur).
+ * 3. Publier ces mesures dans JMX (domaine `com.example.backautodoc`) et au format texte de Prometheus,
+ *    servi par {@link ServeurHttp} sur `/metrics`.
+ *
+ * Fonctionnement :
+ * - Une mesure coûte deux appels à {@link System#nanoTime()}, une lecture de table et quelques incréments
+ *   sans verrou ({@link HistogrammeLatence}, {@link LongAdder}) : aucune allocation, sauf la première fois
+ *   qu'une marque est rencontrée.
+ * - Les percentiles ne sont calculés qu'à la lecture (JMX ou `/metrics`).
+ * - La propriété système `backautodoc.metriques=false` désactive toutes les mesures.
+ *
+ * Liens avec d'autres classes :
+ * - {@link MoteurCommandes} : Mesure modifierQuantite, le calcul du total, la génération de la facture et commander.
+ * - {@link ServeurHttp} : Expose {@link #ecrireTexte(StringBuilder)}.
+ * - {@link CacheDevis} : Publié dans JMX sous le même domaine ({@link #publier(Object, String)}).
+ *
+ * Les mesures sont communes à tout le processus : voir {@link #global()}.
+ */
+public final class Metriques implements MetriquesMXBean {
+
+    /** Marque utilisée pour les histogrammes qui regroupent toutes les marques. */
+    public static final String TOUTES_MARQUES = "toutes";
+    /** Marque utilisée quand aucune marque n'est encore sélectionnée. */
+    public static final String SANS_MARQUE = "aucune";
+    private static final String DOMAINE_JMX = "com.example.backautodoc";
+    private static final boolean ACTIVES = !"false".equals(System.getProperty("backautodoc.metriques"));
+
+    /**
+     * Les opérations mesurées.
+     */
+    public enum Operation {
+        MODIFIER_QUANTITE("modifierQuantite"),
+        CALCULER_PRIX_TOTAL("calculerPrixTotal"),
+        GENERER_FACTURE("genererFacture"),
+        COMMANDER("commander");
+
+        private final String nom;
+
+        Operation(String nom) {
+            this.nom = nom;
+        }
+
+        public String getNom() {
+            return nom;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Metriques GLOBAL = new Metriques(); // Après OPERATIONS, utilisé par le constructeur
+
+    private final HistogrammeLatence[] toutes;
+    private final ConcurrentHashMap<String, HistogrammeLatence[]> parMarque = new ConcurrentHashMap<>();
+    private final LongAdder[] refus = new LongAdder[OPERATIONS.length];
+
+    private Metriques() {
+        for (int i = 0; i < refus.length; i++) {
+            refus[i] = new LongAdder();
+        }
+        toutes = creerHistogrammes(TOUTES_MARQUES);
+        publier(this, "type=Metriques");
+    }
+
+    /**
+     * Retourne les mesures du processus.
+     */
+    public static Metriques global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Retourne l'instant de début d'une mesure, à passer à {@link #enregistrer}.
+     */
+    public long debut() {
+        return ACTIVES ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Enregistre la durée d'une opération terminée.
+     *
+     * @param operation L'opération mesurée.
+     * @param marque La marque sélectionnée (ou null).
+     * @param debut La valeur retournée par {@link #debut()} avant l'opération.
+     * @param succes false si l'opération a été refusée.
+     */
+    public void enregistrer(Operation operation, String marque, long debut, boolean succes) {
+        if (!ACTIVES) {
+            return;
+        }
+        long duree = System.nanoTime() - debut;
+        toutes[operation.ordinal()].enregistrer(duree);
+        histogrammes(marque)[operation.ordinal()].enregistrer(duree);
+        if (!succes) {
+            refus[operation.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Retourne l'histogramme d'une opération.
+     *
+     * @param operation L'opération.
+     * @param marque La marque, ou {@link #TOUTES_MARQUES}.
+     * @return L'histogramme (vide si la marque n'a jamais été mesurée).
+     */
+    public HistogrammeLatence getHistogramme(Operation operation, String marque) {
+        return (TOUTES_MARQUES.equals(marque) ? toutes : histogrammes(marque))[operation.ordinal()];
+    }
+
+    /**
+     * Retourne le nombre d'appels refusés d'une opération.
+     */
+    public long getRefus(Operation operation) {
+        return refus[operation.ordinal()].sum();
+    }
+
+    @Override
+    public long getCommandesPassees() {
+        return toutes[Operation.COMMANDER.ordinal()].getNombre() - getCommandesRefusees();
+    }
+
+    @Override
+    public long getCommandesRefusees() {
+        return getRefus(Operation.COMMANDER);
+    }
+
+    @Override
+    public long getOperationsRefusees() {
+        long total = 0;
+        for (LongAdder compteur : refus) {
+            total += compteur.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String getTexte() {
+        StringBuilder texte = new StringBuilder(4096);
+        ecrireTexte(texte);
+        return texte.toString();
+    }
+
+    /**
+     * Écrit toutes les métriques au format texte de Prometheus (version 0.0.4) : une série `summary`
+     * par opération et par marque, en secondes, et le nombre de refus par opération.
+     *
+     * @param texte La destination.
+     */
+    public void ecrireTexte(StringBuilder texte) {
+        // Ordre stable d'un appel à l'autre : « toutes » d'abord, puis les marques par ordre alphabétique
+        Map<String, HistogrammeLatence[]> marques = new TreeMap<>(parMarque);
+        texte.append("# HELP backautodoc_latence_secondes Durée des opérations du parcours de commande.\n");
+        texte.append("# TYPE backautodoc_latence_secondes summary\n");
+        ecrireSeries(texte, toutes);
+        for (HistogrammeLatence[] histogrammes : marques.values()) {
+            ecrireSeries(texte, histogrammes);
+        }
+        texte.append("# HELP backautodoc_refus_total Opérations refusées (résultat en erreur).\n");
+        texte.append("# TYPE backautodoc_refus_total counter\n");
+        for (Operation operation : OPERATIONS) {
+            texte.append("backautodoc_refus_total{operation=\"").append(operation.getNom()).append("\"} ")
+                    .append(getRefus(operation)).append('\n');
+        }
+    }
+
+    private void ecrireSeries(StringBuilder texte, HistogrammeLatence[] histogrammes) {
+        for (HistogrammeLatence histogramme : histogrammes) {
+            HistogrammeLatence.Resume resume = histogramme.resumer();
+            String etiquettes = "operation=\"" + histogramme.getOperation() + "\",marque=\""
+                    + echapper(histogramme.getMarque()) + "\"";
+            ecrireQuantile(texte, etiquettes, "0.5", resume.p50());
+            ecrireQuantile(texte, etiquettes, "0.99", resume.p99());
+            ecrireQuantile(texte, etiquettes, "0.999", resume.p999());
+            texte.append("backautodoc_latence_secondes_sum{").append(etiquettes).append("} ")
+                    .append(secondes(resume.moyenne() * resume.nombre())).append('\n');
+            texte.append("backautodoc_latence_secondes_count{").append(etiquettes).append("} ")
+                    .append(resume.nombre()).append('\n');
+        }
+    }
+
+    private static void ecrireQuantile(StringBuilder texte, String etiquettes, String quantile, long nanos) {
+        texte.append("backautodoc_latence_secondes{").append(etiquettes).append(",quantile=\"").append(quantile)
+                .append("\"} ").append(secondes(nanos)).append('\n');
+    }
+
+    private static String secondes(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String echapper(String valeur) {
+        return valeur.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private HistogrammeLatence[] histogrammes(String marque) {
+        String cle = marque == null ? SANS_MARQUE : marque;
+        HistogrammeLatence[] histogrammes = parMarque.get(cle);
+        if (histogrammes == null) {
+            histogrammes = parMarque.computeIfAbsent(cle, Metriques::creerHistogrammes);
+        }
+        return histogrammes;
+    }
+
+    private static HistogrammeLatence[] creerHistogrammes(String marque) {
+        HistogrammeLatence[] histogrammes = new HistogrammeLatence[OPERATIONS.length];
+        for (Operation operation : OPERATIONS) {
+            HistogrammeLatence histogramme = new HistogrammeLatence(operation.getNom(), marque);
+            histogrammes[operation.ordinal()] = histogramme;
+            publier(histogramme, "type=Latence,operation=" + operation.getNom() + ",marque=" + ObjectName.quote(marque));
+        }
+        return histogrammes;
+    }
+
+    /**
+     * Publie un objet dans JMX, dans le domaine des métriques de l'application.
+     *
+     * @param mbean L'objet (qui implémente son interface MXBean).
+     * @param proprietes Les propriétés du nom JMX, par exemple `type=CacheDevis`.
+     */
+    static void publier(Object mbean, String proprietes) {
+        try {
+            MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nom = new ObjectName(DOMAINE_JMX + ":" + proprietes);
+            if (!serveur.isRegistered(nom)) {
+                serveur.registerMBean(mbean, nom);
+            }
+        } catch (JMException | SecurityException e) {
+            // JMX est facultatif : les mesures restent disponibles via ecrireTexte
+            System.err.println("Métriques non publiées dans JMX (" + proprietes + ") : " + e.getMessage());
+        }
+    }
+}
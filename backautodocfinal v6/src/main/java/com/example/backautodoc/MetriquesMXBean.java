@@ -0,0 +1,19 @@
+package com.example.backautodoc;
+
+/**
+ * Vue JMX des compteurs de {@link Metriques}. Les latences sont publiées à part, une
+ * {@link HistogrammeLatenceMXBean} par opération et par marque.
+ */
+public interface MetriquesMXBean {
+
+    long getCommandesPassees();
+
+    long getCommandesRefusees();
+
+    long getOperationsRefusees();
+
+    /**
+     * Retourne toutes les métriques au format texte de {@link Metriques#ecrireTexte(StringBuilder)}.
+     */
+    String getTexte();
+}
@@ -0,0 +1,457 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Cette classe contient toute la logique de commande, indépendamment de l'interface graphique.
+ *
+ * Rôles principaux :
+ * 1. Regrouper les modèles d'un client : {@link MarqueSelection}, {@link PieceSelection},
+ *    {@link GestionQuantites} et {@link Facture}.
+ * 2. Vérifier les règles métier avant chaque action (marque choisie, pièce sélectionnée...).
+ * 3. Retourner un {@link ResultatOperation} au lieu d'afficher directement une alerte.
+ *
+ * Liens avec d'autres classes :
+ * - {@link HelloController} : Utilise un moteur et affiche les erreurs avec {@link AlertHelper}.
+ * - {@link ServeurHttp} : Utilise un moteur par session et renvoie les résultats en JSON.
+ * - {@link JournalCommandes} : Si un journal est fourni, chaque vente y est enregistrée durablement
+ *   (à la commande, ou à la confirmation de la réservation si un stock est configuré), et chaque modification
+ *   du panier y est ajoutée sans attente (pour reconstruire le panier au redémarrage).
+ * - {@link InstantanesPaniers} : Sauvegarde et restaure l'état du moteur (marque, sélections, quantités).
+ * - {@link Metriques} : Chaque opération du parcours de commande est chronométrée (par marque).
+ * - {@link StockPieces} : Si un stock est fourni, la commande réserve ses pièces ; la réservation est ensuite
+ *   confirmée ({@link #confirmerCommande()}), annulée ({@link #annulerCommande()}) ou libérée après un délai.
+ * - {@link HistoriqueCommandes} : Si un historique est fourni, chaque vente y est ajoutée pour les analyses.
+ *
+ * Un moteur n'est pas thread-safe : il représente un seul client (une fenêtre ou une session HTTP).
+ */
+public class MoteurCommandes {
+
+    private final MarqueSelection marqueSelection = new MarqueSelection();
+    private final PieceSelection pieceSelection = new PieceSelection();
+    private final PrixArticles prixArticles;
+    private final GestionQuantites gestionQuantites;
+    private final Facture facture;
+    private JournalCommandes journal; // Journal des commandes, ou null
+    private String sessionId;         // Identifiant du poste ou de la session, écrit dans le journal
+    private final Metriques metriques = Metriques.global();
+    private StockPieces stock;        // Stock partagé entre les moteurs, ou null (pas de contrôle du stock)
+    private StockPieces.Reservation reservation; // Réservation de la dernière commande, ou null
+    private String factureReservee;   // Facture non numérotée de la commande réservée, ou null
+    private long[] montantsReserves;  // Montants nets facturés des lignes de la commande réservée, ou null
+    private HistoriqueCommandes historique; // Historique des ventes partagé, ou null
+
+    /**
+     * Crée un moteur pour les pièces de base, avec les prix par défaut.
+     */
+    public MoteurCommandes() {
+        this(new PrixArticles(), Pieces.NOMBRE_PIECES_BASE);
+    }
+
+    /**
+     * Crée un moteur avec une grille de prix donnée.
+     *
+     * @param prixArticles Les prix des pièces (éventuellement adossés à un {@link CataloguePrix}).
+     * @param nombrePieces Le nombre de références que le panier peut contenir.
+     */
+    public MoteurCommandes(PrixArticles prixArticles, int nombrePieces) {
+        this.prixArticles = prixArticles;
+        this.gestionQuantites = new GestionQuantites(nombrePieces, prixArticles);
+        this.facture = new Facture(gestionQuantites, prixArticles);
+    }
+
+    /**
+     * Active l'enregistrement des commandes dans un journal.
+     *
+     * @param journal Le journal partagé par tous les moteurs du processus.
+     * @param sessionId L'identifiant du poste ou de la session de ce moteur.
+     */
+    public void setJournal(JournalCommandes journal, String sessionId) {
+        this.journal = journal;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Active le contrôle du stock : chaque commande réserve ses pièces.
+     *
+     * @param stock Le stock partagé par tous les moteurs du processus.
+     */
+    public void setStock(StockPieces stock) {
+        this.stock = stock;
+    }
+
+    /**
+     * Applique des règles de prix (paliers, lots, remises par marque) au total et aux factures.
+     *
+     * @param grilleTarifaire La grille compilée, partagée entre tous les moteurs.
+     */
+    public void setGrilleTarifaire(GrilleTarifaire grilleTarifaire) {
+        facture.setGrilleTarifaire(grilleTarifaire);
+    }
+
+    /**
+     * Réutilise les devis des paniers identiques (totaux et factures).
+     *
+     * @param cacheDevis Le cache partagé par tous les moteurs du processus.
+     */
+    public void setCacheDevis(CacheDevis cacheDevis) {
+        facture.setCacheDevis(cacheDevis);
+    }
+
+    /**
+     * Enregistre les ventes dans un historique : chaque commande passée, ou, avec un contrôle du stock,
+     * chaque commande confirmée (une commande annulée n'est pas une vente).
+     *
+     * @param historique L'historique partagé par tous les moteurs du processus.
+     */
+    public void setHistorique(HistoriqueCommandes historique) {
+        this.historique = historique;
+    }
+
+    /**
+     * Numérote les factures des ventes (voir {@link NumerotationFactures}) : à la commande,
+     * ou à sa confirmation quand le stock est contrôlé.
+     *
+     * @param numerotation La numérotation partagée par tous les moteurs du processus.
+     */
+    public void setNumerotation(NumerotationFactures numerotation) {
+        facture.setNumerotation(numerotation);
+    }
+
+    /**
+     * Sélectionne la marque du véhicule.
+     *
+     * @param marque Le nom de la marque (doit faire partie de {@link #getMarques()}).
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation selectionnerMarque(String marque) {
+        if (marque == null || !marqueSelection.getMarques().contains(marque)) {
+            return ResultatOperation.erreur("Marque inconnue", "La marque \"" + marque + "\" n'est pas disponible.");
+        }
+        marqueSelection.setMarque(marque);
+        if (journal != null) {
+            journal.ajouterAsync(JournalCommandes.TYPE_MARQUE, JournalCommandes.encoderMarque(sessionId, marque));
+        }
+        return ResultatOperation.succes();
+    }
+
+    /**
+     * Coche ou décoche une pièce de base.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param selectionnee true pour sélectionner la pièce.
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation selectionnerPiece(int pieceId, boolean selectionnee) {
+        if (!pieceSelection.setSelectionnee(pieceId, selectionnee)) {
+            return ResultatOperation.erreur("Pièce inconnue", "La pièce " + pieceId + " ne peut pas être sélectionnée.");
+        }
+        if (journal != null) {
+            journal.ajouterAsync(JournalCommandes.TYPE_SELECTION,
+                    JournalCommandes.encoderSelection(sessionId, pieceId, selectionnee));
+        }
+        return ResultatOperation.succes();
+    }
+
+    /**
+     * Ajoute une unité d'une pièce au panier.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation ajouter(int pieceId) {
+        return modifierQuantite(pieceId, 1);
+    }
+
+    /**
+     * Retire une unité d'une pièce du panier.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation retirer(int pieceId) {
+        return modifierQuantite(pieceId, -1);
+    }
+
+    /**
+     * Modifie la quantité d'une pièce si les conditions sont remplies.
+     *
+     * Conditions :
+     * - Une marque doit être sélectionnée.
+     * - La pièce doit être sélectionnée (voir {@link PieceSelection#isSelectionnee(int)}).
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param delta La quantité à ajouter ou retirer.
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation modifierQuantite(int pieceId, int delta) {
+        long debut = metriques.debut();
+        ResultatOperation resultat = appliquerQuantite(pieceId, delta);
+        metriques.enregistrer(Metriques.Operation.MODIFIER_QUANTITE, marqueSelection.getMarque(), debut, resultat.isSucces());
+        return resultat;
+    }
+
+    private ResultatOperation appliquerQuantite(int pieceId, int delta) {
+        String action = delta >= 0 ? "d'ajouter" : "de retirer";
+        if (!isMarqueSelected()) {
+            return ResultatOperation.erreur("Aucune marque sélectionnée",
+                    "Veuillez sélectionner une marque avant " + action + " des pièces.");
+        }
+        if (!pieceSelection.isSelectionnee(pieceId)) {
+            return ResultatOperation.erreur("Pièce non sélectionnée",
+                    "Veuillez sélectionner la pièce « " + prixArticles.getLibelle(pieceId) + " » avant " + action + " des quantités.");
+        }
+        if ((long) gestionQuantites.getQuantite(pieceId) + delta > Integer.MAX_VALUE) {
+            return ResultatOperation.erreur("Quantité invalide", "La quantité ne peut pas dépasser " + Integer.MAX_VALUE + ".");
+        }
+        if (!gestionQuantites.modifierQuantite(pieceId, delta)) {
+            return ResultatOperation.erreur("Pièce inconnue", "La pièce " + pieceId + " n'existe pas dans le catalogue.");
+        }
+        if (journal != null) {
+            // Sans attendre le fsync : la commande suivante, elle, attendra que tout ce qui la précède soit durable
+            journal.ajouterAsync(JournalCommandes.TYPE_QUANTITE,
+                    JournalCommandes.encoderQuantite(sessionId, pieceId, gestionQuantites.getQuantite(pieceId)));
+        }
+        return ResultatOperation.succes();
+    }
+
+    /**
+     * Remplace la quantité d'une pièce (saisie directe), aux mêmes conditions que {@link #modifierQuantite(int, int)}.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param quantite La nouvelle quantité (positive ou nulle).
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation definirQuantite(int pieceId, int quantite) {
+        if (quantite < 0) {
+            return ResultatOperation.erreur("Quantité invalide", "La quantité ne peut pas être négative : " + quantite + ".");
+        }
+        return modifierQuantite(pieceId, quantite - gestionQuantites.getQuantite(pieceId));
+    }
+
+    /**
+     * Passe la commande et génère la facture si toutes les conditions sont respectées.
+     *
+     * Conditions :
+     * - Une marque est sélectionnée.
+     * - Au moins une pièce est sélectionnée.
+     * - Si un stock est configuré, toutes les pièces doivent être disponibles ; elles sont alors réservées
+     *   (une commande précédente encore en attente est annulée et remplacée).
+     * - Si un journal est configuré sans stock, la commande doit y être écrite durablement. Avec un stock,
+     *   elle n'y est écrite qu'à la confirmation : une réservation annulée ou expirée n'est pas une vente.
+     *   Pour la même raison, la facture d'une commande réservée ne reçoit son numéro qu'à la confirmation.
+     *
+     * @return Le résultat, contenant le texte de la facture en cas de succès.
+     */
+    public ResultatOperation commander() {
+        long debut = metriques.debut();
+        ResultatOperation resultat = passerCommande();
+        metriques.enregistrer(Metriques.Operation.COMMANDER, marqueSelection.getMarque(), debut, resultat.isSucces());
+        return resultat;
+    }
+
+    private ResultatOperation passerCommande() {
+        if (!isMarqueSelected()) {
+            return ResultatOperation.erreur("Aucune marque sélectionnée",
+                    "Veuillez sélectionner une marque avant de passer commande.");
+        }
+        if (!pieceSelection.hasSelection()) {
+            return ResultatOperation.erreur("Aucune pièce sélectionnée",
+                    "Veuillez sélectionner au moins une pièce avant de passer commande.");
+        }
+        Commande commande = Commande.depuisPanier(marqueSelection.getMarque(), gestionQuantites);
+        if (stock != null) {
+            if (reservation != null) {
+                reservation.annuler();
+            }
+            reservation = stock.reserver(commande);
+            if (!reservation.isAcceptee()) {
+                int pieceId = reservation.getPieceManquante();
+                reservation = null;
+                return ResultatOperation.erreur("Stock insuffisant", "Il ne reste que " + stock.getDisponible(pieceId)
+                        + " « " + prixArticles.getLibelle(pieceId) + " » en stock.");
+            }
+        }
+        if (journal != null && stock == null) {
+            try {
+                // Attend que la commande soit durable (fsync groupé avec les autres sessions)
+                journal.ajouterCommande(sessionId, commande);
+            } catch (IOException e) {
+                return ResultatOperation.erreur("Commande non enregistrée",
+                        "La commande n'a pas pu être enregistrée : " + e.getMessage());
+            }
+        }
+        long debut = metriques.debut();
+        String texte = facture.genererFacture(marqueSelection.getMarque(), stock == null);
+        factureReservee = stock != null ? texte : null;
+        metriques.enregistrer(Metriques.Operation.GENERER_FACTURE, marqueSelection.getMarque(), debut, true);
+        // Montants de la facture, remises réparties : une vente confirmée plus tard garde les prix facturés
+        long[] montants = historique == null ? null
+                : HistoriqueCommandes.montantsNets(commande, prixArticles, facture.getDernierTotal());
+        montantsReserves = stock != null ? montants : null;
+        if (historique != null && stock == null) {
+            historique.ajouter(LocalDate.now(), commande, montants);
+        }
+        return ResultatOperation.commande(texte);
+    }
+
+    /**
+     * Confirme la vente des pièces réservées par la dernière commande.
+     *
+     * Si un journal est configuré, la vente y est écrite durablement après la confirmation ; si l'écriture échoue,
+     * les pièces sont rendues au stock et la vente n'a pas lieu. La facture de la commande reçoit alors son numéro.
+     *
+     * @return Le résultat de l'opération, contenant la facture numérotée (erreur si aucune réservation
+     *         n'est en attente ou si elle a expiré).
+     */
+    public ResultatOperation confirmerCommande() {
+        if (reservation == null) {
+            return ResultatOperation.erreur("Aucune commande en attente", "Aucune réservation de stock à confirmer.");
+        }
+        boolean expiree = reservation.isExpiree();
+        boolean confirmee = reservation.confirmer();
+        Commande commande = reservation.getCommande();
+        String texte = factureReservee;
+        long[] montants = montantsReserves;
+        reservation = null;
+        factureReservee = null;
+        montantsReserves = null;
+        if (!confirmee) {
+            return ResultatOperation.erreur(expiree ? "Réservation expirée" : "Réservation terminée",
+                    "Les pièces ne sont plus réservées : veuillez passer la commande à nouveau.");
+        }
+        if (journal != null) {
+            try {
+                journal.ajouterCommande(sessionId, commande);
+            } catch (IOException e) {
+                // La réservation confirmée ne peut plus expirer : on rend ses pièces nous-mêmes
+                for (int ligne = 0; ligne < commande.getNombreLignes(); ligne++) {
+                    stock.ajouterStock(commande.getPiece(ligne), commande.getQuantite(ligne));
+                }
+                return ResultatOperation.erreur("Commande non enregistrée",
+                        "La commande n'a pas pu être enregistrée : " + e.getMessage());
+            }
+        }
+        if (historique != null && montants != null) {
+            historique.ajouter(LocalDate.now(), commande, montants);
+        }
+        return ResultatOperation.commande(facture.numeroter(texte));
+    }
+
+    /**
+     * Annule la dernière commande et rend ses pièces au stock.
+     *
+     * @return Le résultat de l'opération.
+     */
+    public ResultatOperation annulerCommande() {
+        if (reservation == null) {
+            return ResultatOperation.erreur("Aucune commande en attente", "Aucune réservation de stock à annuler.");
+        }
+        reservation.annuler();
+        reservation = null;
+        factureReservee = null;
+        montantsReserves = null;
+        return ResultatOperation.succes();
+    }
+
+    /**
+     * Retourne la réservation de stock de la dernière commande, ou null.
+     */
+    public StockPieces.Reservation getReservation() {
+        return reservation;
+    }
+
+    /**
+     * Écrit l'état complet du panier dans le journal, en valeurs absolues (panier reçu d'un autre serveur) :
+     * après un redémarrage, le panier est restauré même si l'instantané suivant n'a pas encore été écrit.
+     */
+    void journaliserEtat() {
+        if (journal == null) {
+            return;
+        }
+        if (isMarqueSelected()) {
+            journal.ajouterAsync(JournalCommandes.TYPE_MARQUE, JournalCommandes.encoderMarque(sessionId, getMarque()));
+        }
+        for (int pieceId = 0; pieceId < Pieces.NOMBRE_PIECES_BASE; pieceId++) {
+            journal.ajouterAsync(JournalCommandes.TYPE_SELECTION,
+                    JournalCommandes.encoderSelection(sessionId, pieceId, pieceSelection.isSelectionnee(pieceId)));
+        }
+        for (int i = 0; i < gestionQuantites.getNombreLignes(); i++) {
+            int pieceId = gestionQuantites.getPieceLigne(i);
+            journal.ajouterAsync(JournalCommandes.TYPE_QUANTITE,
+                    JournalCommandes.encoderQuantite(sessionId, pieceId, gestionQuantites.getQuantite(pieceId)));
+        }
+    }
+
+    /**
+     * Restaure la marque lue dans un instantané ou dans le journal, sans vérification ni journalisation.
+     */
+    void restaurerMarque(String marque) {
+        marqueSelection.setMarque(marque);
+    }
+
+    /**
+     * Restaure l'état d'une case à cocher, sans journalisation.
+     */
+    void restaurerSelection(int pieceId, boolean selectionnee) {
+        pieceSelection.setSelectionnee(pieceId, selectionnee);
+    }
+
+    /**
+     * Restaure la quantité d'une pièce (valeur absolue), sans vérification ni journalisation.
+     */
+    void restaurerQuantite(int pieceId, int quantite) {
+        gestionQuantites.definirQuantite(pieceId, quantite);
+    }
+
+    public boolean isMarqueSelected() {
+        return marqueSelection.getMarque() != null;
+    }
+
+    public String getMarque() {
+        return marqueSelection.getMarque();
+    }
+
+    public List<String> getMarques() {
+        return marqueSelection.getMarques();
+    }
+
+    public boolean isPieceSelectionnee(int pieceId) {
+        return pieceSelection.isSelectionnee(pieceId);
+    }
+
+    public int getQuantite(int pieceId) {
+        return gestionQuantites.getQuantite(pieceId);
+    }
+
+    public int getPrix(int pieceId) {
+        return prixArticles.getPrix(pieceId);
+    }
+
+    /**
+     * Retourne le total à payer, après les remises de la grille tarifaire.
+     */
+    public long getPrixTotal() {
+        long debut = metriques.debut();
+        long total = facture.calculerPrixTotal(marqueSelection.getMarque());
+        metriques.enregistrer(Metriques.Operation.CALCULER_PRIX_TOTAL, marqueSelection.getMarque(), debut, true);
+        return total;
+    }
+
+    /**
+     * Retourne le total des lignes du panier, avant remises.
+     */
+    public long getPrixTotalBrut() {
+        return facture.calculerPrixTotal();
+    }
+
+    public GestionQuantites getGestionQuantites() {
+        return gestionQuantites;
+    }
+
+    public PrixArticles getPrixArticles() {
+        return prixArticles;
+    }
+}
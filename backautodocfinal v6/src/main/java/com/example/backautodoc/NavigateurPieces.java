@@ -0,0 +1,115 @@
+package com.example.backautodoc;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cette classe affiche tout le catalogue fournisseur dans une table virtualisée.
+ *
+ * Rôles principaux :
+ * 1. Parcourir le catalogue complet (jusqu'à plusieurs millions de pièces) avec un défilement fluide.
+ * 2. Afficher, pour chaque pièce, son identifiant, son libellé, son prix et sa quantité dans le panier.
+ *
+ * Fonctionnement :
+ * - La table ne reçoit pas de liste de lignes : sa liste ({@link ListeCatalogue}) annonce la taille
+ *   du catalogue et lit chaque ligne dans {@link PagesCatalogue} au moment où la table l'affiche.
+ *   La mémoire occupée ne dépend donc pas de la taille du catalogue.
+ * - La table ne crée que les cellules visibles et les réutilise en défilant. Avec une hauteur de ligne fixe,
+ *   elle n'a pas à mesurer les lignes pour placer la barre de défilement.
+ * - Le tri par colonne est désactivé : il obligerait à lire tout le catalogue.
+ * - La quantité est lue dans le moteur à chaque affichage de la cellule : {@link #rafraichir()} ne met à jour
+ *   que les lignes visibles.
+ *
+ * Liens avec d'autres classes :
+ * - {@link PagesCatalogue} : Fournit les lignes, page par page.
+ * - {@link MoteurCommandes} : Fournit les quantités du panier.
+ * - {@link HelloController} : Installe le navigateur et demande son rafraîchissement.
+ */
+public class NavigateurPieces {
+
+    private static final double HAUTEUR_LIGNE = 24;
+    private static final int PAGES_EN_MEMOIRE = 64; // 64 × 256 lignes, bien plus que ce qu'un écran affiche
+
+    private final TableView<PagesCatalogue.Ligne> table;
+
+    /**
+     * Installe le navigateur dans une table existante (celle de la vue).
+     *
+     * @param table La table à remplir.
+     * @param moteur Le moteur dont le catalogue et le panier sont affichés.
+     */
+    public NavigateurPieces(TableView<PagesCatalogue.Ligne> table, MoteurCommandes moteur) {
+        this.table = table;
+        PrixArticles prix = moteur.getPrixArticles();
+        PagesCatalogue pages = new PagesCatalogue(prix, prix.getNombrePieces(), PAGES_EN_MEMOIRE);
+
+        table.setFixedCellSize(HAUTEUR_LIGNE);
+        table.getColumns().setAll(List.of(
+                colonne("Réf.", 80, ligne -> Integer.toString(ligne.id())),
+                colonne("Pièce", 220, PagesCatalogue.Ligne::libelle),
+                colonne("Prix", 80, ligne -> ligne.prix() + " €"),
+                colonne("Quantité", 80, ligne -> Integer.toString(moteur.getQuantite(ligne.id())))));
+        table.setItems(new ListeCatalogue(pages));
+    }
+
+    /**
+     * Réaffiche les lignes visibles (après une modification du panier).
+     */
+    public void rafraichir() {
+        table.refresh();
+    }
+
+    /**
+     * Retourne la pièce sélectionnée dans la table.
+     *
+     * @return L'identifiant de la pièce, ou {@link Pieces#INCONNUE} si aucune ligne n'est sélectionnée.
+     */
+    public int getPieceSelectionnee() {
+        PagesCatalogue.Ligne ligne = table.getSelectionModel().getSelectedItem();
+        return ligne != null ? ligne.id() : Pieces.INCONNUE;
+    }
+
+    private static TableColumn<PagesCatalogue.Ligne, PagesCatalogue.Ligne> colonne(
+            String titre, double largeur, Function<PagesCatalogue.Ligne, String> texte) {
+        TableColumn<PagesCatalogue.Ligne, PagesCatalogue.Ligne> colonne = new TableColumn<>(titre);
+        colonne.setPrefWidth(largeur);
+        colonne.setSortable(false);
+        colonne.setCellValueFactory(cellule -> new ReadOnlyObjectWrapper<>(cellule.getValue()));
+        colonne.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(PagesCatalogue.Ligne ligne, boolean vide) {
+                super.updateItem(ligne, vide);
+                setText(vide || ligne == null ? null : texte.apply(ligne));
+            }
+        });
+        return colonne;
+    }
+
+    /**
+     * Liste en lecture seule dont les éléments sont lus à la demande dans le catalogue.
+     * Elle ne change jamais : aucune notification n'est émise.
+     */
+    private static final class ListeCatalogue extends ObservableListBase<PagesCatalogue.Ligne> {
+        private final PagesCatalogue pages;
+
+        ListeCatalogue(PagesCatalogue pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public PagesCatalogue.Ligne get(int index) {
+            return pages.getLigne(index);
+        }
+
+        @Override
+        public int size() {
+            return pages.getNombrePieces();
+        }
+    }
+}
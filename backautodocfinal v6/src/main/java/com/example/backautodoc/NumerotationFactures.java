@@ -0,0 +1,367 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cette classe attribue les numéros de facture, sans compteur commun consulté à chaque facture.
+ *
+ * Rôles principaux :
+ * 1. Garantir qu'un numéro n'est jamais attribué deux fois, entre threads comme entre processus (postes, nœuds).
+ * 2. Conserver sur disque le plus haut numéro réservé, pour ne jamais revenir en arrière après un redémarrage.
+ * 3. Ne coûter presque rien par facture, même quand des milliers de factures sont rédigées en parallèle.
+ *
+ * Fonctionnement (réservation à deux niveaux) :
+ * - Le fichier de numérotation contient le prochain numéro jamais réservé (la « marque haute »).
+ *   Un processus y réserve un bail de `tailleBloc * blocsParBail` numéros : il verrouille le fichier
+ *   ({@link FileLock}, partagé entre processus), lit la marque, écrit la marque avancée, la rend durable,
+ *   puis libère le verrou. C'est le seul moment où un accès disque a lieu.
+ * - Dans le processus, le bail en cours est découpé en blocs de `tailleBloc` numéros par un simple
+ *   {@link AtomicLong#getAndAdd} : aucun verrou tant que le bail n'est pas épuisé.
+ * - Les blocs en cours sont rangés dans des voies, une par processeur ({@link #numeroSuivant()}) : un thread
+ *   tire ses numéros dans la voie de son identifiant, chacune protégée par son propre verrou. Les blocs
+ *   appartiennent au processus et non aux paniers : fermer une session ne perd aucun numéro, et des milliers
+ *   de sessions se partagent quelques blocs au lieu d'en réserver un chacune.
+ * - Un {@link Bloc} obtenu directement par {@link #reserverBloc()} appartient à un seul utilisateur,
+ *   qui en tire les numéros un par un, sans aucune synchronisation.
+ * - Les numéros d'un bloc se suivent sans trou. Entre deux blocs, il peut y avoir des trous :
+ *   un bloc abandonné (processus arrêté) n'est jamais redistribué, et les numéros des voies et
+ *   des processus s'entrelacent. L'ordre des numéros ne suit donc pas exactement l'ordre des factures.
+ * - À la fermeture, la fin non distribuée du bail est rendue au fichier si aucun autre processus
+ *   n'a réservé après lui.
+ *
+ * Une seule instance doit être ouverte par fichier et par processus (le verrou de fichier appartient
+ * à la JVM entière) : elle est partagée par tous les threads.
+ *
+ * Format du fichier (ordre des octets little-endian) : signature "ADNF", version, puis la marque haute (long).
+ *
+ * Liens avec d'autres classes :
+ * - {@link Facture} : Numérote ses factures avec {@link #numeroSuivant()}.
+ * - {@link ServeurHttp} : Partage une instance entre toutes les sessions.
+ */
+public final class NumerotationFactures implements AutoCloseable {
+
+    static final int SIGNATURE = 0x464E4441; // "ADNF" en little-endian
+    static final int VERSION = 1;
+    static final int TAILLE_FICHIER = 16;
+    public static final int TAILLE_BLOC_DEFAUT = 256;
+    public static final int BLOCS_PAR_BAIL_DEFAUT = 64;
+
+    private final Path chemin;
+    private final FileChannel fichier;
+    private final int tailleBloc;
+    private final long tailleBail;
+    private final ReentrantLock verrouBail = new ReentrantLock(); // Un seul renouvellement de bail à la fois
+    private final ByteBuffer tampon = ByteBuffer.allocate(TAILLE_FICHIER).order(ByteOrder.LITTLE_ENDIAN);
+    private volatile Bail bail;                                   // Null tant qu'aucun bail n'a été réservé
+    private final LongAdder blocsDistribues = new LongAdder();
+    private long bauxReserves;                                    // Protégé par verrouBail
+    private final Voie[] voies;                                   // Blocs partagés par numeroSuivant()
+
+    /**
+     * Bloc en cours d'une voie de {@link #numeroSuivant()}.
+     */
+    private static final class Voie {
+        final ReentrantLock verrou = new ReentrantLock();
+        Bloc bloc; // Protégé par verrou ; null tant qu'aucun numéro n'a été tiré dans cette voie
+    }
+
+    /**
+     * Bail réservé dans le fichier : les numéros de `debut` (inclus) à `fin` (exclu).
+     */
+    private static final class Bail {
+        final long fin;
+        final AtomicLong prochain;
+
+        Bail(long debut, long fin) {
+            this.fin = fin;
+            this.prochain = new AtomicLong(debut);
+        }
+    }
+
+    /**
+     * Suite de numéros consécutifs réservée à un seul utilisateur. Une instance n'est pas thread-safe.
+     */
+    public static final class Bloc {
+        private final long fin;
+        private long prochain;
+
+        Bloc(long debut, long fin) {
+            this.prochain = debut;
+            this.fin = fin;
+        }
+
+        /**
+         * @return true s'il reste au moins un numéro dans ce bloc.
+         */
+        public boolean restant() {
+            return prochain < fin;
+        }
+
+        /**
+         * Retourne le numéro suivant du bloc.
+         *
+         * @return Le numéro, supérieur d'une unité au précédent.
+         * @throws IllegalStateException Si le bloc est épuisé.
+         */
+        public long suivant() {
+            if (prochain >= fin) {
+                throw new IllegalStateException("Bloc de numéros épuisé");
+            }
+            return prochain++;
+        }
+    }
+
+    private NumerotationFactures(Path chemin, FileChannel fichier, int tailleBloc, int blocsParBail) {
+        this.chemin = chemin;
+        this.fichier = fichier;
+        this.tailleBloc = tailleBloc;
+        this.tailleBail = (long) tailleBloc * blocsParBail;
+        this.voies = new Voie[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < voies.length; i++) {
+            voies[i] = new Voie();
+        }
+    }
+
+    /**
+     * Ouvre un fichier de numérotation avec les tailles par défaut.
+     *
+     * @param fichier Le fichier de numérotation (créé, avec le numéro 1 comme premier numéro, s'il n'existe pas).
+     * @return La numérotation ouverte.
+     * @throws IOException Si le fichier ne peut pas être ouvert ou n'est pas un fichier de numérotation.
+     */
+    public static NumerotationFactures ouvrir(Path fichier) throws IOException {
+        return ouvrir(fichier, TAILLE_BLOC_DEFAUT, BLOCS_PAR_BAIL_DEFAUT);
+    }
+
+    /**
+     * Ouvre un fichier de numérotation.
+     *
+     * Des blocs plus grands réduisent encore le coût par facture mais laissent des trous plus grands
+     * quand un bloc est abandonné ; des baux plus grands espacent les accès au fichier.
+     *
+     * @param fichier Le fichier de numérotation (créé, avec le numéro 1 comme premier numéro, s'il n'existe pas).
+     * @param tailleBloc Le nombre de numéros remis à chaque utilisateur.
+     * @param blocsParBail Le nombre de blocs réservés dans le fichier en une fois.
+     * @return La numérotation ouverte.
+     * @throws IOException Si le fichier ne peut pas être ouvert ou n'est pas un fichier de numérotation.
+     */
+    public static NumerotationFactures ouvrir(Path fichier, int tailleBloc, int blocsParBail) throws IOException {
+        if (tailleBloc < 1 || blocsParBail < 1) {
+            throw new IllegalArgumentException("Tailles de réservation invalides : " + tailleBloc + " x " + blocsParBail);
+        }
+        FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        NumerotationFactures numerotation = new NumerotationFactures(fichier, canal, tailleBloc, blocsParBail);
+        try (FileLock verrou = canal.lock()) {
+            // Vérifie l'en-tête (ou initialise un fichier vide) dès l'ouverture
+            numerotation.lireMarque();
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        return numerotation;
+    }
+
+    /**
+     * Réserve un bloc de numéros consécutifs.
+     *
+     * Sans verrou dans le cas courant ; un accès au fichier une fois tous les `blocsParBail` blocs.
+     *
+     * @return Le bloc, à utiliser par un seul thread à la fois.
+     * @throws IOException Si la réservation d'un nouveau bail dans le fichier échoue.
+     */
+    public Bloc reserverBloc() throws IOException {
+        while (true) {
+            Bail courant = bail;
+            if (courant != null) {
+                long debut = courant.prochain.getAndAdd(tailleBloc);
+                if (debut < courant.fin) {
+                    blocsDistribues.increment();
+                    return new Bloc(debut, Math.min(debut + tailleBloc, courant.fin));
+                }
+            }
+            verrouBail.lock();
+            try {
+                // Un autre thread a pu renouveler le bail pendant l'attente du verrou
+                if (bail == courant) {
+                    bail = reserverBail();
+                }
+            } finally {
+                verrouBail.unlock();
+            }
+        }
+    }
+
+    /**
+     * Attribue un numéro de facture, depuis n'importe quel thread.
+     *
+     * Le numéro est tiré du bloc de la voie associée au thread appelant (une voie par processeur) :
+     * les threads virtuels d'un serveur se répartissent sur quelques blocs, quel que soit le nombre de sessions.
+     * Si cette voie est occupée, la première voie libre est utilisée plutôt que d'attendre.
+     *
+     * @return Le numéro.
+     * @throws IOException Si la réservation d'un nouveau bail dans le fichier échoue.
+     */
+    public long numeroSuivant() throws IOException {
+        int depart = (int) (Thread.currentThread().threadId() % voies.length);
+        for (int i = 0; i < voies.length; i++) {
+            Voie voie = voies[(depart + i) % voies.length];
+            if (voie.verrou.tryLock()) {
+                try {
+                    return tirer(voie);
+                } finally {
+                    voie.verrou.unlock();
+                }
+            }
+        }
+        Voie voie = voies[depart];
+        voie.verrou.lock();
+        try {
+            return tirer(voie);
+        } finally {
+            voie.verrou.unlock();
+        }
+    }
+
+    private long tirer(Voie voie) throws IOException {
+        if (voie.bloc == null || !voie.bloc.restant()) {
+            voie.bloc = reserverBloc();
+        }
+        return voie.bloc.suivant();
+    }
+
+    private Bail reserverBail() throws IOException {
+        if (!fichier.isOpen()) {
+            throw new IOException("Numérotation fermée : " + chemin);
+        }
+        try (FileLock verrou = fichier.lock()) {
+            long debut = lireMarque();
+            long fin = Math.addExact(debut, tailleBail);
+            ecrireMarque(fin);
+            fichier.force(false); // La marque doit être durable avant qu'un numéro du bail ne soit utilisé
+            bauxReserves++;
+            return new Bail(debut, fin);
+        }
+    }
+
+    private long lireMarque() throws IOException {
+        tampon.clear();
+        int lus;
+        do {
+            lus = fichier.read(tampon, tampon.position()); // Le tampon commence à l'octet 0 du fichier
+        } while (lus > 0 && tampon.hasRemaining());
+        if (tampon.position() == 0) {
+            ecrireMarque(1); // Fichier neuf : la numérotation commence à 1
+            fichier.force(false);
+            return 1;
+        }
+        if (tampon.position() < TAILLE_FICHIER) {
+            throw new IOException("Fichier de numérotation tronqué : " + chemin);
+        }
+        tampon.flip();
+        if (tampon.getInt() != SIGNATURE) {
+            throw new IOException("Ce fichier n'est pas un fichier de numérotation : " + chemin);
+        }
+        int version = tampon.getInt();
+        if (version != VERSION) {
+            throw new IOException("Version de numérotation non prise en charge (" + version + ") : " + chemin);
+        }
+        long marque = tampon.getLong();
+        if (marque < 1) {
+            throw new IOException("Marque haute invalide (" + marque + ") : " + chemin);
+        }
+        return marque;
+    }
+
+    private void ecrireMarque(long marque) throws IOException {
+        tampon.clear();
+        tampon.putInt(SIGNATURE).putInt(VERSION).putLong(marque).flip();
+        while (tampon.hasRemaining()) {
+            fichier.write(tampon, tampon.position());
+        }
+    }
+
+    /**
+     * @return La marque haute enregistrée dans le fichier (prochain numéro jamais réservé par aucun processus).
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    public long getMarqueHaute() throws IOException {
+        verrouBail.lock();
+        try (FileLock verrou = fichier.lock(0, Long.MAX_VALUE, true)) {
+            return lireMarque();
+        } finally {
+            verrouBail.unlock();
+        }
+    }
+
+    /**
+     * @return Le nombre de blocs remis depuis l'ouverture.
+     */
+    public long getBlocsDistribues() {
+        return blocsDistribues.sum();
+    }
+
+    /**
+     * @return Le nombre de baux réservés dans le fichier depuis l'ouverture.
+     */
+    public long getBauxReserves() {
+        verrouBail.lock();
+        try {
+            return bauxReserves;
+        } finally {
+            verrouBail.unlock();
+        }
+    }
+
+    /**
+     * @return Le nombre de numéros remis à chaque utilisateur.
+     */
+    public int getTailleBloc() {
+        return tailleBloc;
+    }
+
+    /**
+     * Ferme le fichier de numérotation.
+     *
+     * Si aucun autre processus n'a réservé de bail depuis le dernier bail de celui-ci, la fin non distribuée
+     * du bail est rendue : le prochain processus reprendra juste après le dernier bloc remis.
+     * Les blocs déjà remis restent utilisables, mais plus aucun bloc ne peut être réservé.
+     *
+     * @throws IOException En cas d'erreur d'écriture ou de fermeture.
+     */
+    @Override
+    public void close() throws IOException {
+        verrouBail.lock();
+        try {
+            if (!fichier.isOpen()) {
+                return;
+            }
+            Bail courant = bail;
+            if (courant != null) {
+                // Bloque toute nouvelle distribution dans ce bail avant de mesurer ce qui reste
+                long distribue = Math.min(courant.prochain.getAndSet(courant.fin), courant.fin);
+                try (FileLock verrou = fichier.lock()) {
+                    if (distribue < courant.fin && lireMarque() == courant.fin) {
+                        ecrireMarque(distribue);
+                        fichier.force(false);
+                    }
+                }
+            }
+        } finally {
+            try {
+                fichier.close();
+            } finally {
+                verrouBail.unlock();
+            }
+        }
+    }
+}
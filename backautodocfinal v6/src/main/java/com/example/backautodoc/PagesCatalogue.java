@@ -0,0 +1,110 @@
+package com.example.backautodoc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cette classe lit le catalogue par pages, à la demande, pour l'afficher dans une liste virtualisée.
+ *
+ * Rôles principaux :
+ * 1. Fournir la ligne d'affichage (identifiant, libellé, prix) de n'importe quelle pièce du catalogue.
+ * 2. Ne garder en mémoire qu'un nombre borné de pages, quelle que soit la taille du catalogue.
+ *
+ * Fonctionnement :
+ * - Les pièces sont regroupées en pages de {@value #TAILLE_PAGE} identifiants consécutifs. La première
+ *   lecture d'une pièce charge toute sa page (prix et libellés lus dans {@link PrixArticles}).
+ * - Les pages sont conservées dans un cache LRU ({@link LinkedHashMap} en ordre d'accès) : au-delà de
+ *   `pagesMax`, la page la moins récemment lue est libérée. Le défilement d'un million de pièces
+ *   n'occupe donc jamais plus de `pagesMax * TAILLE_PAGE` lignes.
+ * - Une ligne déjà chargée est retournée telle quelle : relire une pièce visible n'alloue rien.
+ *
+ * Liens avec d'autres classes :
+ * - {@link NavigateurPieces} : La table du catalogue lit ses lignes ici.
+ *
+ * Cette classe n'est pas thread-safe : elle est utilisée depuis le thread JavaFX.
+ */
+public class PagesCatalogue {
+
+    public static final int TAILLE_PAGE = 256;
+
+    /**
+     * Une pièce telle qu'elle est affichée dans la table du catalogue.
+     */
+    public record Ligne(int id, String libelle, int prix) {
+    }
+
+    private final PrixArticles prixArticles;
+    private final int nombrePieces;
+    private final Map<Integer, Ligne[]> pages;
+    private long chargements;
+
+    /**
+     * Crée un lecteur de catalogue par pages.
+     *
+     * @param prixArticles Les prix du catalogue.
+     * @param nombrePieces Le nombre de pièces à parcourir.
+     * @param pagesMax Le nombre maximal de pages gardées en mémoire (au moins 1).
+     */
+    public PagesCatalogue(PrixArticles prixArticles, int nombrePieces, int pagesMax) {
+        if (nombrePieces < 0 || pagesMax < 1) {
+            throw new IllegalArgumentException("Catalogue invalide : " + nombrePieces + " pièces, " + pagesMax + " pages");
+        }
+        this.prixArticles = prixArticles;
+        this.nombrePieces = nombrePieces;
+        this.pages = new LinkedHashMap<>(2 * pagesMax, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Ligne[]> plusAncienne) {
+                return size() > pagesMax;
+            }
+        };
+    }
+
+    /**
+     * Retourne la ligne d'une pièce, en chargeant sa page si besoin.
+     *
+     * @param pieceId L'identifiant de la pièce, entre 0 et {@link #getNombrePieces()} - 1.
+     * @return La ligne de la pièce.
+     */
+    public Ligne getLigne(int pieceId) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            throw new IndexOutOfBoundsException("Pièce " + pieceId + " hors du catalogue (" + nombrePieces + " pièces)");
+        }
+        int numeroPage = pieceId / TAILLE_PAGE;
+        Ligne[] page = pages.get(numeroPage);
+        if (page == null) {
+            page = chargerPage(numeroPage);
+            pages.put(numeroPage, page);
+        }
+        return page[pieceId % TAILLE_PAGE];
+    }
+
+    public int getNombrePieces() {
+        return nombrePieces;
+    }
+
+    /**
+     * Retourne le nombre de pages actuellement en mémoire.
+     */
+    public int getNombrePagesChargees() {
+        return pages.size();
+    }
+
+    /**
+     * Retourne le nombre de pages lues dans le catalogue depuis la création (y compris les relectures
+     * de pages libérées).
+     */
+    public long getNombreChargements() {
+        return chargements;
+    }
+
+    private Ligne[] chargerPage(int numeroPage) {
+        chargements++;
+        int debut = numeroPage * TAILLE_PAGE;
+        Ligne[] page = new Ligne[Math.min(TAILLE_PAGE, nombrePieces - debut)];
+        for (int i = 0; i < page.length; i++) {
+            int pieceId = debut + i;
+            page[i] = new Ligne(pieceId, prixArticles.getLibelle(pieceId), prixArticles.getPrix(pieceId));
+        }
+        return page;
+    }
+}
@@ -70,6 +70,51 @@ public class PieceSelection {
         this.filtres = filtres;
     }
 
+    /**
+     * Vérifie si une pièce est sélectionnée, à partir de son identifiant ({@link Pieces}).
+     *
+     * Les pièces du catalogue étendu n'ont pas de case à cocher : elles sont toujours considérées
+     * comme sélectionnées.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return true si la pièce est sélectionnée, sinon false.
+     */
+    public boolean isSelectionnee(int pieceId) {
+        switch (pieceId) {
+            case Pieces.FREINS:
+                return freins;
+            case Pieces.HUILE:
+                return huile;
+            case Pieces.FILTRES:
+                return filtres;
+            default:
+                return pieceId >= Pieces.NOMBRE_PIECES_BASE;
+        }
+    }
+
+    /**
+     * Met à jour l'état de sélection d'une pièce de base, à partir de son identifiant.
+     *
+     * @param pieceId L'identifiant de la pièce ({@link Pieces#FREINS}, {@link Pieces#HUILE} ou {@link Pieces#FILTRES}).
+     * @param selectionnee true si la pièce est sélectionnée, sinon false.
+     * @return true si la pièce a une case à cocher, sinon false.
+     */
+    public boolean setSelectionnee(int pieceId, boolean selectionnee) {
+        switch (pieceId) {
+            case Pieces.FREINS:
+                freins = selectionnee;
+                return true;
+            case Pieces.HUILE:
+                huile = selectionnee;
+                return true;
+            case Pieces.FILTRES:
+                filtres = selectionnee;
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Vérifie si au moins une pièce est sélectionnée grace || et si c'est return  faux le controller affiche une erreur
      *
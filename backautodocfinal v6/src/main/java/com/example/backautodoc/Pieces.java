@@ -0,0 +1,82 @@
+package com.example.backautodoc;
+
+/**
+ * Cette classe attribue un identifiant entier compact à chaque pièce du catalogue.
+ *
+ * Rôles principaux :
+ * 1. Définir les identifiants des pièces de base (freins, huile, filtres).
+ * 2. Convertir un nom de pièce ("freins", "huile", "filtres") en identifiant, et inversement.
+ *
+ * Liens avec d'autres classes :
+ * - {@link GestionQuantites} : Indexe ses tableaux de quantités par ces identifiants.
+ * - {@link Facture} : Utilise {@link #libelle(int)} pour écrire les lignes de la facture.
+ *
+ * Les identifiants sont denses (0, 1, 2, ...) : ils servent directement d'indice dans
+ * les tableaux primitifs, sans comparaison de chaînes sur le chemin critique.
+ */
+public final class Pieces {
+
+    public static final int FREINS = 0;   // Identifiant des freins
+    public static final int HUILE = 1;    // Identifiant de l'huile
+    public static final int FILTRES = 2;  // Identifiant des filtres
+
+    /** Nombre de pièces connues de l'interface graphique. */
+    public static final int NOMBRE_PIECES_BASE = 3;
+
+    /** Valeur retournée par {@link #idDe(String)} pour un nom inconnu. */
+    public static final int INCONNUE = -1;
+
+    private static final String[] NOMS = {"freins", "huile", "filtres"};
+    private static final String[] LIBELLES = {"Freins", "Huile", "Filtres"};
+
+    private Pieces() {
+    }
+
+    /**
+     * Retourne l'identifiant d'une pièce à partir de son nom.
+     *
+     * @param nom Le nom de la pièce ("freins", "huile" ou "filtres").
+     * @return L'identifiant de la pièce, ou {@link #INCONNUE} si le nom n'existe pas.
+     */
+    public static int idDe(String nom) {
+        if (nom == null) {
+            return INCONNUE;
+        }
+        switch (nom) {
+            case "freins":
+                return FREINS;
+            case "huile":
+                return HUILE;
+            case "filtres":
+                return FILTRES;
+            default:
+                return INCONNUE;
+        }
+    }
+
+    /**
+     * Retourne le nom technique d'une pièce (utilisé dans les requêtes et les journaux).
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le nom de la pièce, ou "piece-{id}" pour une référence du catalogue étendu.
+     */
+    public static String nomDe(int pieceId) {
+        if (pieceId >= 0 && pieceId < NOMS.length) {
+            return NOMS[pieceId];
+        }
+        return "piece-" + pieceId;
+    }
+
+    /**
+     * Retourne le libellé affiché d'une pièce (utilisé dans les factures).
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le libellé de la pièce, ou "Pièce #{id}" pour une référence du catalogue étendu.
+     */
+    public static String libelle(int pieceId) {
+        if (pieceId >= 0 && pieceId < LIBELLES.length) {
+            return LIBELLES[pieceId];
+        }
+        return "Pièce #" + pieceId;
+    }
+}
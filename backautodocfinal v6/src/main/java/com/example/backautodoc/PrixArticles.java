@@ -1,5 +1,7 @@
 package com.example.backautodoc;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Cette classe fournit les prix unitaires des pièces disponibles dans l'application.
  *
@@ -11,11 +13,40 @@ package com.example.backautodoc;
  * - La classe {@link Facture} utilise ces prix pour calculer le total de la commande.
  * - Le contrôleur {@link HelloController} utilise ces prix pour afficher les prix unitaires
  *   dans l'interface utilisateur.
+ *
+ * Catalogue fournisseur :
+ * - Sans catalogue, les prix par défaut ci-dessous sont utilisés.
+ * - Avec un {@link CataloguePrix} ({@link CatalogueMappe} ou {@link CatalogueColonnaire}), tous les prix
+ *   (y compris freins, huile et filtres) sont lus dans le fichier projeté en mémoire.
+ * - Si le catalogue contient des libellés, ils remplacent ceux de {@link Pieces#libelle(int)}.
+ *
+ * Version des prix :
+ * - {@link #getVersion()} change à chaque {@link #signalerChangementPrix()} : les devis mis en cache
+ *   ({@link CacheDevis}) pour une version précédente ne sont plus utilisés.
  */
 public class PrixArticles {
     private final int prixFrein = 200;  // Prix unitaire des freins en euros
     private final int prixHuile = 6;   // Prix unitaire de l'huile en euros
     private final int prixFiltre = 10; // Prix unitaire des filtres en euros
+    private static final int TAILLE_BLOC = 4096; // Prix copiés à la fois par produitScalaire (16 Ko, tient dans le cache L1)
+    private final CataloguePrix catalogue;  // Catalogue fournisseur, ou null pour les prix par défaut
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Crée une grille de prix avec les prix par défaut.
+     */
+    public PrixArticles() {
+        this(null);
+    }
+
+    /**
+     * Crée une grille de prix adossée au catalogue du fournisseur.
+     *
+     * @param catalogue Le catalogue projeté en mémoire, ou null pour les prix par défaut.
+     */
+    public PrixArticles(CataloguePrix catalogue) {
+        this.catalogue = catalogue;
+    }
 
     /**
      * Retourne le prix unitaire des freins.
@@ -23,7 +54,7 @@ public class PrixArticles {
      * @return Le prix unitaire des freins en euros.
      */
     public int getPrixFrein() {
-        return prixFrein;
+        return getPrix(Pieces.FREINS);
     }
 
     /**
@@ -32,7 +63,7 @@ public class PrixArticles {
      * @return Le prix unitaire de l'huile en euros.
      */
     public int getPrixHuile() {
-        return prixHuile;
+        return getPrix(Pieces.HUILE);
     }
 
     /**
@@ -41,7 +72,103 @@ public class PrixArticles {
      * @return Le prix unitaire des filtres en euros.
      */
     public int getPrixFiltre() {
-        return prixFiltre;
+        return getPrix(Pieces.FILTRES);
+    }
+
+    /**
+     * Retourne le prix unitaire d'une pièce à partir de son identifiant ({@link Pieces}).
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le prix unitaire en euros, ou 0 si la pièce n'a pas de prix connu.
+     */
+    public int getPrix(int pieceId) {
+        if (catalogue != null) {
+            return catalogue.getPrix(pieceId);
+        }
+        switch (pieceId) {
+            case Pieces.FREINS:
+                return prixFrein;
+            case Pieces.HUILE:
+                return prixHuile;
+            case Pieces.FILTRES:
+                return prixFiltre;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Retourne la version des prix, qui change à chaque {@link #signalerChangementPrix()}.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Signale que des prix du catalogue ont été modifiés sur place (par exemple par {@link CatalogueMappe#setPrix}).
+     * Les devis en cache ne sont plus utilisés.
+     * Les totaux suivis par les paniers existants sont recalculés à leur calcul suivant ({@link Facture#calculerPrixTotal()}).
+     */
+    public void signalerChangementPrix() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Retourne le libellé affiché d'une pièce.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le libellé du catalogue fournisseur s'il en contient, sinon {@link Pieces#libelle(int)}.
+     */
+    public String getLibelle(int pieceId) {
+        String libelle = libelleCatalogue(pieceId);
+        return libelle != null ? libelle : Pieces.libelle(pieceId);
+    }
+
+    /**
+     * Retourne le libellé enregistré dans le catalogue fournisseur, ou null s'il n'y en a pas.
+     */
+    String libelleCatalogue(int pieceId) {
+        return catalogue != null ? catalogue.getLibelle(pieceId) : null;
+    }
+
+    /**
+     * Calcule `somme(quantites[i] * prix[i])` sur les premières pièces, vectorisé par {@link CalculTotaux}.
+     *
+     * Les prix sont lus dans le catalogue projeté par blocs de {@value #TAILLE_BLOC}, copiés dans un petit
+     * tableau le temps du calcul : aucune copie du catalogue n'est gardée dans le tas, et un prix modifié
+     * sur place est pris en compte dès le calcul suivant.
+     *
+     * @param quantites Les quantités, indexées par identifiant de pièce.
+     * @param nombre Le nombre de pièces prises en compte (au plus {@link #getNombrePieces()}).
+     * @return Le total en euros, sans dépassement de capacité.
+     */
+    long produitScalaire(int[] quantites, int nombre) {
+        if (nombre < 0 || nombre > getNombrePieces() || nombre > quantites.length) {
+            throw new IllegalArgumentException("Nombre de pièces invalide : " + nombre);
+        }
+        int[] bloc = new int[Math.min(TAILLE_BLOC, nombre)];
+        long total = 0;
+        for (int premier = 0; premier < nombre; premier += bloc.length) {
+            int taille = Math.min(bloc.length, nombre - premier);
+            if (catalogue != null) {
+                catalogue.copierPrix(premier, bloc, taille);
+            } else {
+                for (int i = 0; i < taille; i++) {
+                    bloc[i] = getPrix(premier + i);
+                }
+            }
+            total += CalculTotaux.produitScalaire(quantites, premier, bloc, taille);
+        }
+        return total;
+    }
+
+    /**
+     * Retourne le nombre de références qui ont un prix.
+     *
+     * @return La taille du catalogue fournisseur, ou {@link Pieces#NOMBRE_PIECES_BASE} sans catalogue.
+     */
+    public int getNombrePieces() {
+        return catalogue != null ? catalogue.getNombrePieces() : Pieces.NOMBRE_PIECES_BASE;
     }
 }
 
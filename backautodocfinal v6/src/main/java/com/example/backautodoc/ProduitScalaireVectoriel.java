@@ -0,0 +1,54 @@
+package com.example.backautodoc;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Produit scalaire SIMD utilisé par {@link CalculTotaux} quand le module `jdk.incubator.vector` est présent.
+ *
+ * Fonctionnement :
+ * - Les entiers sont chargés par blocs de N cases (N = nombre de `long` d'un registre vectoriel),
+ *   convertis en `long`, multipliés puis additionnés dans des accumulateurs vectoriels `long` :
+ *   aucun produit ni aucune somme partielle ne peut déborder.
+ * - Quatre accumulateurs indépendants sont utilisés, pour que chaque addition n'attende pas la précédente.
+ * - Les dernières cases (moins de 4 × N) sont traitées par une boucle scalaire.
+ *
+ * Cette classe n'est chargée que par {@link CalculTotaux}, après avoir vérifié que le module est présent.
+ */
+final class ProduitScalaireVectoriel {
+
+    private static final VectorSpecies<Long> ESPECE_LONG = LongVector.SPECIES_PREFERRED;
+    // Même nombre de cases que ESPECE_LONG, sur un registre deux fois plus petit
+    private static final VectorSpecies<Integer> ESPECE_INT =
+            IntVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(ESPECE_LONG.vectorBitSize() / 2));
+
+    private ProduitScalaireVectoriel() {
+    }
+
+    static long calculer(int[] quantites, int decalage, int[] prix, int longueur) {
+        LongVector somme0 = LongVector.zero(ESPECE_LONG);
+        LongVector somme1 = somme0;
+        LongVector somme2 = somme0;
+        LongVector somme3 = somme0;
+        int n = ESPECE_INT.length();
+        int i = 0;
+        for (; i <= longueur - 4 * n; i += 4 * n) {
+            somme0 = somme0.add(charger(quantites, decalage + i).mul(charger(prix, i)));
+            somme1 = somme1.add(charger(quantites, decalage + i + n).mul(charger(prix, i + n)));
+            somme2 = somme2.add(charger(quantites, decalage + i + 2 * n).mul(charger(prix, i + 2 * n)));
+            somme3 = somme3.add(charger(quantites, decalage + i + 3 * n).mul(charger(prix, i + 3 * n)));
+        }
+        long total = somme0.add(somme1).add(somme2.add(somme3)).reduceLanes(VectorOperators.ADD);
+        for (; i < longueur; i++) {
+            total += (long) quantites[decalage + i] * prix[i];
+        }
+        return total;
+    }
+
+    private static LongVector charger(int[] tableau, int debut) {
+        return (LongVector) IntVector.fromArray(ESPECE_INT, tableau, debut).convertShape(VectorOperators.I2L, ESPECE_LONG, 0);
+    }
+}
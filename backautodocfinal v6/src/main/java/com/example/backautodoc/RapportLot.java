@@ -0,0 +1,50 @@
+package com.example.backautodoc;
+
+/**
+ * Cette classe résume l'exécution d'une facturation par lots ({@link FacturationLot}).
+ */
+public class RapportLot {
+
+    private final long nombreCommandes;
+    private final long octetsEcrits;
+    private final int nombreFichiers;
+    private final long dureeNanos;
+
+    public RapportLot(long nombreCommandes, long octetsEcrits, int nombreFichiers, long dureeNanos) {
+        this.nombreCommandes = nombreCommandes;
+        this.octetsEcrits = octetsEcrits;
+        this.nombreFichiers = nombreFichiers;
+        this.dureeNanos = dureeNanos;
+    }
+
+    public long getNombreCommandes() {
+        return nombreCommandes;
+    }
+
+    public long getOctetsEcrits() {
+        return octetsEcrits;
+    }
+
+    public int getNombreFichiers() {
+        return nombreFichiers;
+    }
+
+    public long getDureeNanos() {
+        return dureeNanos;
+    }
+
+    /**
+     * Retourne le débit de la facturation.
+     *
+     * @return Le nombre de commandes facturées par seconde.
+     */
+    public double getCommandesParSeconde() {
+        return dureeNanos == 0 ? 0 : nombreCommandes * 1_000_000_000.0 / dureeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d commandes, %d octets dans %d fichier(s) en %.1f ms (%.0f commandes/s)",
+                nombreCommandes, octetsEcrits, nombreFichiers, dureeNanos / 1_000_000.0, getCommandesParSeconde());
+    }
+}
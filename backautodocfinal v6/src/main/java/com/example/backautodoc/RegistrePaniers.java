@@ -0,0 +1,209 @@
+package com.example.backautodoc;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cette classe regroupe les paniers de tous les clients servis par la même JVM.
+ *
+ * Rôles principaux :
+ * 1. Associer un panier à chaque identifiant de session ou de client, et le créer à la première utilisation.
+ * 2. Permettre à des milliers de threads de modifier des paniers différents en parallèle, sans verrou global.
+ *
+ * Fonctionnement :
+ * - Les paniers sont rangés dans une {@link ConcurrentHashMap} : retrouver un panier existant ne prend aucun verrou.
+ * - Chaque panier a son propre verrou ({@link ReentrantLock}) : deux clients ne se bloquent jamais,
+ *   seules les requêtes d'un même client attendent les unes après les autres. Le verrou couvre l'opération
+ *   entière (quantités, lignes, total de la facture) : le panier reste cohérent sans que ses classes
+ *   soient elles-mêmes thread-safe.
+ * - Aucun verrou de panier n'est pris pendant une opération de la table (un verrou pris dans
+ *   `computeIfPresent` bloquerait toute une case de la table, et épinglerait le thread virtuel qui attend).
+ *   Un panier retiré est d'abord marqué fermé, verrou tenu, puis retiré de la table : un thread qui l'avait
+ *   trouvé juste avant le voit fermé en obtenant le verrou et recommence sa recherche.
+ *
+ * Liens avec d'autres classes :
+ * - {@link GestionQuantites}, {@link Facture} : Le contenu d'un panier, qui n'est jamais partagé entre deux clients.
+ * - {@link ServeurHttp} : Range ses sessions (moteur de commande et date de dernière requête) dans un registre.
+ *
+ * @param <P> Le contenu d'un panier.
+ */
+public class RegistrePaniers<P> {
+
+    private final ConcurrentHashMap<String, Panier<P>> paniers = new ConcurrentHashMap<>();
+    private final Function<String, P> fabrique; // Crée le contenu d'un nouveau panier à partir de son identifiant
+
+    /**
+     * Crée un registre vide.
+     *
+     * @param fabrique Crée le contenu du panier d'un nouvel identifiant.
+     */
+    public RegistrePaniers(Function<String, P> fabrique) {
+        this.fabrique = fabrique;
+    }
+
+    /**
+     * Retourne le panier d'une session, verrouillé, en le créant s'il n'existe pas encore.
+     * L'appelant doit appeler {@link Panier#deverrouiller()} une fois son opération terminée.
+     *
+     * @param sessionId L'identifiant de la session ou du client.
+     * @return Le panier, verrouillé par le thread appelant.
+     */
+    public Panier<P> verrouiller(String sessionId) {
+        return verrouiller(sessionId, true);
+    }
+
+    /**
+     * Retourne le panier d'une session s'il existe, verrouillé ; ne crée rien.
+     *
+     * @param sessionId L'identifiant de la session ou du client.
+     * @return Le panier, verrouillé par le thread appelant, ou null si la session n'a pas de panier.
+     */
+    public Panier<P> verrouillerExistant(String sessionId) {
+        return verrouiller(sessionId, false);
+    }
+
+    private Panier<P> verrouiller(String sessionId, boolean creer) {
+        while (true) {
+            Panier<P> panier = paniers.get(sessionId);
+            if (panier == null) {
+                if (!creer) {
+                    return null;
+                }
+                panier = paniers.computeIfAbsent(sessionId, id -> new Panier<>(fabrique.apply(id)));
+            }
+            panier.verrou.lock();
+            if (!panier.ferme) {
+                return panier;
+            }
+            // Retiré entre la recherche et le verrou : le panier courant est cherché (ou créé) à nouveau
+            panier.verrou.unlock();
+        }
+    }
+
+    /**
+     * Exécute une opération sur le panier d'une session, verrou tenu, en le créant s'il n'existe pas encore.
+     *
+     * @param sessionId L'identifiant de la session ou du client.
+     * @param operation L'opération.
+     * @return Le résultat de l'opération.
+     */
+    public <R> R executer(String sessionId, Function<? super P, R> operation) {
+        Panier<P> panier = verrouiller(sessionId);
+        try {
+            return operation.apply(panier.contenu);
+        } finally {
+            panier.deverrouiller();
+        }
+    }
+
+    /**
+     * Ajoute un panier déjà rempli (restauration, transfert depuis un autre serveur).
+     * Un panier du même identifiant est remplacé.
+     *
+     * @param sessionId L'identifiant de la session ou du client.
+     * @param contenu Le contenu du panier.
+     */
+    public void placer(String sessionId, P contenu) {
+        Panier<P> ancien = paniers.put(sessionId, new Panier<>(contenu));
+        if (ancien != null) {
+            ancien.verrou.lock();
+            ancien.ferme = true;
+            ancien.verrou.unlock();
+        }
+    }
+
+    /**
+     * Retire le panier d'une session (fin de session ou commande terminée).
+     *
+     * @param sessionId L'identifiant de la session.
+     * @param condition Appelée panier verrouillé, juste avant le retrait : le panier n'est retiré que
+     *                  si elle retourne true. Tant qu'elle s'exécute, aucune requête ne peut utiliser le panier.
+     * @return true si le panier a été retiré.
+     */
+    public boolean supprimer(String sessionId, Predicate<? super P> condition) {
+        Panier<P> panier = verrouillerExistant(sessionId);
+        if (panier == null) {
+            return false;
+        }
+        try {
+            if (!condition.test(panier.contenu)) {
+                return false;
+            }
+            panier.ferme = true;
+            // Retiré verrou tenu : qui attend ce verrou trouvera ensuite la table sans ce panier
+            paniers.remove(sessionId, panier);
+            return true;
+        } finally {
+            panier.verrou.unlock();
+        }
+    }
+
+    /**
+     * Parcourt tous les paniers ouverts, chacun verrouillé le temps de l'action.
+     *
+     * @param action Reçoit l'identifiant et le contenu de chaque panier.
+     */
+    public void pourChaque(BiConsumer<String, ? super P> action) {
+        for (Map.Entry<String, Panier<P>> entree : paniers.entrySet()) {
+            Panier<P> panier = entree.getValue();
+            panier.verrou.lock();
+            try {
+                if (!panier.ferme) {
+                    action.accept(entree.getKey(), panier.contenu);
+                }
+            } finally {
+                panier.verrou.unlock();
+            }
+        }
+    }
+
+    /**
+     * Retourne les identifiants des paniers ouverts (vue de la table, sans verrou).
+     */
+    public Set<String> getIdentifiants() {
+        return paniers.keySet();
+    }
+
+    /**
+     * Retourne le nombre de paniers actuellement ouverts.
+     *
+     * @return Le nombre de sessions ayant un panier.
+     */
+    public int getNombrePaniers() {
+        return paniers.size();
+    }
+
+    /**
+     * Le panier d'une session et son verrou.
+     *
+     * @param <P> Le contenu du panier.
+     */
+    public static final class Panier<P> {
+        private final ReentrantLock verrou = new ReentrantLock();
+        private final P contenu;
+        private boolean ferme; // Protégé par le verrou : true une fois le panier retiré ou remplacé
+
+        private Panier(P contenu) {
+            this.contenu = contenu;
+        }
+
+        /**
+         * Retourne le contenu du panier (à n'utiliser que verrou tenu).
+         */
+        public P get() {
+            return contenu;
+        }
+
+        /**
+         * Libère le panier obtenu par {@link RegistrePaniers#verrouiller(String)}.
+         */
+        public void deverrouiller() {
+            verrou.unlock();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.backautodoc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cette classe décrit les règles de prix (paliers de quantité, remises par marque, lots),
+ * sous une forme lisible, avant leur compilation en {@link GrilleTarifaire}.
+ *
+ * Rôles principaux :
+ * 1. Collecter les règles, déclarées dans le code ou lues dans un fichier texte.
+ * 2. Vérifier chaque règle au moment où elle est déclarée.
+ * 3. Compiler l'ensemble en une {@link GrilleTarifaire}, seule utilisée pour calculer les prix.
+ *
+ * Types de règles (les remises sont en centièmes de pourcent : 250 = 2,5 %) :
+ * - Palier : à partir d'une quantité minimale, le prix de la ligne d'une pièce est réduit.
+ *   Pour une même pièce, c'est le palier le plus élevé atteint qui s'applique.
+ * - Lot : chaque lot complet (une unité de chacune des pièces du lot) donne une remise fixe en euros.
+ *   Les lots sont cumulables.
+ * - Marque : une remise sur le total du panier, selon la marque du véhicule.
+ *
+ * Format du fichier (une règle par ligne, `#` pour les commentaires) :
+ * <pre>
+ * palier freins 10 500        # 5 % sur les freins à partir de 10 unités
+ * lot 15 freins filtres       # 15 € de remise par lot freins + filtres
+ * marque BMW 300              # 3 % sur tout le panier des BMW
+ * </pre>
+ * Les pièces sont désignées par leur nom ({@link Pieces#idDe(String)}) ou leur identifiant numérique,
+ * qui doit appartenir au catalogue : la grille compilée a une case par pièce jusqu'à la plus grande citée.
+ */
+public class ReglesTarifaires {
+
+    /** Remise maximale : 100 % (la ligne ou le panier devient gratuit). */
+    public static final int REMISE_MAX = 10_000;
+
+    // Une règle déclarée, conservée telle quelle jusqu'à la compilation
+    record Palier(int pieceId, int quantiteMin, int remise) {
+    }
+
+    record Lot(int remiseEuros, int[] pieces) {
+    }
+
+    private final int nombrePieces; // Taille du catalogue : les identifiants de pièce vont de 0 à nombrePieces - 1
+    private final List<Palier> paliers = new ArrayList<>();
+    private final List<Lot> lots = new ArrayList<>();
+    private final Map<String, Integer> remisesMarques = new LinkedHashMap<>();
+
+    /**
+     * Crée des règles vides pour les seules pièces de base ({@link Pieces}).
+     */
+    public ReglesTarifaires() {
+        this(Pieces.NOMBRE_PIECES_BASE);
+    }
+
+    /**
+     * Crée des règles vides pour un catalogue.
+     *
+     * @param nombrePieces Le nombre de pièces du catalogue.
+     */
+    public ReglesTarifaires(int nombrePieces) {
+        if (nombrePieces < 0) {
+            throw new IllegalArgumentException("Nombre de pièces invalide : " + nombrePieces);
+        }
+        this.nombrePieces = nombrePieces;
+    }
+
+    /**
+     * Ajoute un palier de quantité.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param quantiteMin La quantité à partir de laquelle la remise s'applique (au moins 1).
+     * @param remise La remise sur la ligne, en centièmes de pourcent.
+     * @return Ces règles, pour enchaîner les déclarations.
+     */
+    public ReglesTarifaires palier(int pieceId, int quantiteMin, int remise) {
+        verifierPiece(pieceId);
+        if (quantiteMin < 1) {
+            throw new IllegalArgumentException("Quantité minimale invalide : " + quantiteMin);
+        }
+        verifierRemise(remise);
+        paliers.add(new Palier(pieceId, quantiteMin, remise));
+        return this;
+    }
+
+    /**
+     * Ajoute un lot de pièces.
+     *
+     * @param remiseEuros La remise en euros accordée pour chaque lot complet.
+     * @param pieces Les pièces du lot (au moins deux, toutes différentes).
+     * @return Ces règles, pour enchaîner les déclarations.
+     */
+    public ReglesTarifaires lot(int remiseEuros, int... pieces) {
+        if (remiseEuros < 0) {
+            throw new IllegalArgumentException("Remise de lot négative : " + remiseEuros);
+        }
+        if (pieces.length < 2) {
+            throw new IllegalArgumentException("Un lot contient au moins deux pièces");
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            verifierPiece(pieces[i]);
+            for (int j = 0; j < i; j++) {
+                if (pieces[i] == pieces[j]) {
+                    throw new IllegalArgumentException("Pièce en double dans un lot : " + pieces[i]);
+                }
+            }
+        }
+        lots.add(new Lot(remiseEuros, pieces.clone()));
+        return this;
+    }
+
+    /**
+     * Ajoute (ou remplace) la remise d'une marque.
+     *
+     * @param marque Le nom de la marque, tel qu'il apparaît dans {@link MarqueSelection}.
+     * @param remise La remise sur le total du panier, en centièmes de pourcent.
+     * @return Ces règles, pour enchaîner les déclarations.
+     */
+    public ReglesTarifaires remiseMarque(String marque, int remise) {
+        if (marque == null || marque.isEmpty()) {
+            throw new IllegalArgumentException("Marque manquante");
+        }
+        verifierRemise(remise);
+        remisesMarques.put(marque, remise);
+        return this;
+    }
+
+    /**
+     * Compile les règles. La grille obtenue ne dépend plus de cet objet.
+     *
+     * @return La grille tarifaire compilée.
+     */
+    public GrilleTarifaire compiler() {
+        return GrilleTarifaire.compiler(paliers, lots, remisesMarques);
+    }
+
+    public int getNombreRegles() {
+        return paliers.size() + lots.size() + remisesMarques.size();
+    }
+
+    /**
+     * Lit des règles portant sur les seules pièces de base dans un fichier texte.
+     *
+     * @param fichier Le fichier de règles, en UTF-8.
+     * @return Les règles lues.
+     * @throws IOException Si le fichier est illisible ou contient une règle invalide.
+     */
+    public static ReglesTarifaires lire(Path fichier) throws IOException {
+        return lire(fichier, Pieces.NOMBRE_PIECES_BASE);
+    }
+
+    /**
+     * Lit des règles dans un fichier texte (voir le format dans la description de la classe).
+     *
+     * @param fichier Le fichier de règles, en UTF-8.
+     * @param nombrePieces Le nombre de pièces du catalogue : une règle citant une pièce hors du catalogue est refusée.
+     * @return Les règles lues.
+     * @throws IOException Si le fichier est illisible ou contient une règle invalide.
+     */
+    public static ReglesTarifaires lire(Path fichier, int nombrePieces) throws IOException {
+        ReglesTarifaires regles = new ReglesTarifaires(nombrePieces);
+        try (BufferedReader lecteur = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            String ligne;
+            int numero = 0;
+            while ((ligne = lecteur.readLine()) != null) {
+                numero++;
+                int commentaire = ligne.indexOf('#');
+                if (commentaire >= 0) {
+                    ligne = ligne.substring(0, commentaire);
+                }
+                ligne = ligne.strip();
+                if (ligne.isEmpty()) {
+                    continue;
+                }
+                try {
+                    lireRegle(regles, ligne.split("\\s+"));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Règle invalide (" + fichier + ", ligne " + numero + ") : " + e.getMessage(), e);
+                }
+            }
+        }
+        return regles;
+    }
+
+    private static void lireRegle(ReglesTarifaires regles, String[] mots) {
+        switch (mots[0]) {
+            case "palier":
+                attendre(mots, 4, 4);
+                regles.palier(lirePiece(mots[1]), lireEntier(mots[2]), lireEntier(mots[3]));
+                break;
+            case "lot": {
+                attendre(mots, 4, Integer.MAX_VALUE);
+                int[] pieces = new int[mots.length - 2];
+                for (int i = 0; i < pieces.length; i++) {
+                    pieces[i] = lirePiece(mots[i + 2]);
+                }
+                regles.lot(lireEntier(mots[1]), pieces);
+                break;
+            }
+            case "marque":
+                attendre(mots, 3, 3);
+                regles.remiseMarque(mots[1], lireEntier(mots[2]));
+                break;
+            default:
+                throw new IllegalArgumentException("type de règle inconnu \"" + mots[0] + "\"");
+        }
+    }
+
+    private static void attendre(String[] mots, int minimum, int maximum) {
+        if (mots.length < minimum || mots.length > maximum) {
+            throw new IllegalArgumentException("nombre de valeurs incorrect pour \"" + mots[0] + "\"");
+        }
+    }
+
+    private static int lirePiece(String mot) {
+        int pieceId = Pieces.idDe(mot);
+        return pieceId != Pieces.INCONNUE ? pieceId : lireEntier(mot);
+    }
+
+    private static int lireEntier(String mot) {
+        try {
+            return Integer.parseInt(mot);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("valeur non numérique \"" + mot + "\"");
+        }
+    }
+
+    private void verifierPiece(int pieceId) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            throw new IllegalArgumentException("Pièce hors du catalogue (0 à " + (nombrePieces - 1) + ") : " + pieceId);
+        }
+    }
+
+    private static void verifierRemise(int remise) {
+        if (remise < 0 || remise > REMISE_MAX) {
+            throw new IllegalArgumentException("Remise hors limites (0 à " + REMISE_MAX + ") : " + remise);
+        }
+    }
+}
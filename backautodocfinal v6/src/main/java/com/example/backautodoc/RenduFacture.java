@@ -0,0 +1,216 @@
+package com.example.backautodoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Cette classe écrit le texte d'une facture directement dans une sortie, ligne par ligne.
+ *
+ * Rôles principaux :
+ * 1. Produire le même texte que {@link Facture#genererFacture(String)}, sans concaténation de chaînes.
+ * 2. Écrire soit dans un {@link Appendable} (par exemple un {@link StringBuilder} réutilisé),
+ *    soit en UTF-8 dans un {@link ByteBuffer} vidé au fur et à mesure dans un {@link WritableByteChannel}.
+ *
+ * Fonctionnement :
+ * - Les pièces de base (freins, huile, filtres) sont écrites en premier, dans cet ordre,
+ *   puis les autres lignes du panier dans l'ordre de {@link GestionQuantites#getPieceLigne(int)}.
+ * - Une facture numérotée commence par la ligne « Facture n° N ».
+ * - Si le total a été remisé ({@link GrilleTarifaire}), une ligne « Remises » précède le total.
+ * - Les libellés sont ceux du catalogue fournisseur s'il en contient ({@link PrixArticles#getLibelle(int)}).
+ * - Les nombres sont convertis en chiffres dans un tableau réutilisé : aucune allocation par ligne,
+ *   ce qui permet d'écrire une facture de 100 000 lignes à la vitesse du disque.
+ *
+ * Une instance n'est pas thread-safe : elle appartient à une seule {@link Facture}.
+ */
+public class RenduFacture {
+
+    static final String EN_TETE_NUMERO = "Facture n° ";
+
+    private final GestionQuantites gestionQuantites;
+    private final PrixArticles prixArticles;
+    private final char[] chiffres = new char[20]; // Assez pour n'importe quel long
+    private long numero;                          // 0 = facture non numérotée
+
+    // Sortie en cours d'écriture : soit `sortie`, soit le couple `canal` / `tampon`
+    private Appendable sortie;
+    private WritableByteChannel canal;
+    private ByteBuffer tampon;
+
+    public RenduFacture(GestionQuantites gestionQuantites, PrixArticles prixArticles) {
+        this.gestionQuantites = gestionQuantites;
+        this.prixArticles = prixArticles;
+    }
+
+    /**
+     * Fixe le numéro écrit en tête des factures suivantes (voir {@link NumerotationFactures}).
+     *
+     * @param numero Le numéro de facture, ou 0 pour ne pas écrire de numéro.
+     */
+    void setNumero(long numero) {
+        this.numero = numero;
+    }
+
+    /**
+     * Écrit la facture dans un {@link Appendable}.
+     *
+     * @param sortie La destination du texte (StringBuilder, Writer...).
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @param totalBrut Le total des lignes, avant remises.
+     * @param total Le prix total à afficher en bas de la facture.
+     * @throws IOException Si la destination signale une erreur d'écriture.
+     */
+    public void ecrire(Appendable sortie, String marque, long totalBrut, long total) throws IOException {
+        this.sortie = sortie;
+        try {
+            rendre(marque, totalBrut, total);
+        } finally {
+            this.sortie = null;
+        }
+    }
+
+    /**
+     * Écrit la facture en UTF-8 dans un canal, en passant par un tampon fourni par l'appelant.
+     *
+     * Le tampon est vidé dans le canal chaque fois qu'il est plein, puis une dernière fois à la fin.
+     *
+     * @param canal Le canal de destination (fichier, socket...).
+     * @param tampon Le tampon de travail, réutilisable d'une facture à l'autre (au moins 4 octets).
+     * @param marque La marque sélectionnée par l'utilisateur.
+     * @param totalBrut Le total des lignes, avant remises.
+     * @param total Le prix total à afficher en bas de la facture.
+     * @throws IOException En cas d'erreur d'écriture dans le canal.
+     */
+    public void ecrire(WritableByteChannel canal, ByteBuffer tampon, String marque, long totalBrut, long total)
+            throws IOException {
+        this.canal = canal;
+        this.tampon = tampon;
+        try {
+            tampon.clear();
+            rendre(marque, totalBrut, total);
+            vider();
+        } finally {
+            this.canal = null;
+            this.tampon = null;
+        }
+    }
+
+    private void rendre(String marque, long totalBrut, long total) throws IOException {
+        if (numero > 0) {
+            texte(EN_TETE_NUMERO);
+            entier(numero);
+            texte("\n");
+        }
+        texte("Facture pour la marque ");
+        texte(marque);
+        texte(":\n");
+
+        int nombreBase = Math.min(Pieces.NOMBRE_PIECES_BASE, gestionQuantites.getNombrePieces());
+        for (int pieceId = 0; pieceId < nombreBase; pieceId++) {
+            if (gestionQuantites.getQuantite(pieceId) > 0) {
+                ligne(pieceId);
+            }
+        }
+        for (int i = 0; i < gestionQuantites.getNombreLignes(); i++) {
+            int pieceId = gestionQuantites.getPieceLigne(i);
+            if (pieceId >= Pieces.NOMBRE_PIECES_BASE) {
+                ligne(pieceId);
+            }
+        }
+
+        if (total != totalBrut) {
+            texte("Remises: -");
+            entier(totalBrut - total);
+            texte(" €\n");
+        }
+        texte("Prix total: ");
+        entier(total);
+        texte(" €");
+    }
+
+    private void ligne(int pieceId) throws IOException {
+        texte("- ");
+        String libelleCatalogue = prixArticles.libelleCatalogue(pieceId);
+        if (libelleCatalogue != null) {
+            texte(libelleCatalogue); // Décodé une seule fois par le catalogue
+        } else if (pieceId < Pieces.NOMBRE_PIECES_BASE) {
+            texte(Pieces.libelle(pieceId)); // Chaîne constante
+        } else {
+            // Même libellé que Pieces.libelle(), sans créer de chaîne
+            texte("Pièce #");
+            entier(pieceId);
+        }
+        texte(": ");
+        entier(gestionQuantites.getQuantite(pieceId));
+        texte(" x ");
+        entier(prixArticles.getPrix(pieceId));
+        texte("€\n");
+    }
+
+    private void texte(String s) throws IOException {
+        if (sortie != null) {
+            sortie.append(s);
+            return;
+        }
+        for (int i = 0; i < s.length(); ) {
+            int pointDeCode = s.codePointAt(i);
+            caractere(pointDeCode);
+            i += Character.charCount(pointDeCode);
+        }
+    }
+
+    private void entier(long valeur) throws IOException {
+        int debut = chiffres.length;
+        long reste = Math.abs(valeur);
+        do {
+            chiffres[--debut] = (char) ('0' + reste % 10);
+            reste /= 10;
+        } while (reste > 0);
+        if (valeur < 0) {
+            chiffres[--debut] = '-';
+        }
+        for (int i = debut; i < chiffres.length; i++) {
+            caractere(chiffres[i]);
+        }
+    }
+
+    /**
+     * Écrit un caractère, donné par son point de code : un caractère hors du plan multilingue de base
+     * (deux `char` en UTF-16) est encodé en une seule séquence UTF-8 de 4 octets.
+     */
+    private void caractere(int c) throws IOException {
+        if (sortie != null) {
+            sortie.append((char) c); // Seulement des chiffres et le signe moins (voir entier)
+            return;
+        }
+        if (tampon.remaining() < 4) {
+            vider();
+        }
+        if (Character.isSurrogate((char) c) && c < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            c = '?'; // Demi-paire isolée : remplacée comme le fait String.getBytes(UTF_8)
+        }
+        if (c < 0x80) {
+            tampon.put((byte) c);
+        } else if (c < 0x800) {
+            tampon.put((byte) (0xC0 | (c >> 6)));
+            tampon.put((byte) (0x80 | (c & 0x3F)));
+        } else if (c < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            tampon.put((byte) (0xE0 | (c >> 12)));
+            tampon.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            tampon.put((byte) (0x80 | (c & 0x3F)));
+        } else {
+            tampon.put((byte) (0xF0 | (c >> 18)));
+            tampon.put((byte) (0x80 | ((c >> 12) & 0x3F)));
+            tampon.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            tampon.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void vider() throws IOException {
+        tampon.flip();
+        while (tampon.hasRemaining()) {
+            canal.write(tampon);
+        }
+        tampon.clear();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.backautodoc;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.event.ActionEvent;
+import javafx.scene.control.Button;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.util.Duration;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Cette classe répète l'action d'un bouton tant qu'il reste enfoncé (boutons + et - des quantités).
+ *
+ * Rôles principaux :
+ * 1. Après un court délai d'appui, déclencher l'action à intervalle régulier.
+ * 2. Accélérer quand l'appui se prolonge : chaque répétition compte alors pour {@value #PAS_RAPIDE} unités.
+ *
+ * Fonctionnement :
+ * - Un simple clic reste traité par le `onAction` du bouton (souris comme clavier).
+ * - Si l'appui a donné lieu à des répétitions, le clic émis au relâchement est ignoré :
+ *   l'action n'est pas appliquée une fois de trop.
+ * - Chaque répétition appelle l'action avec le nombre d'unités à appliquer ; l'action ne doit pas
+ *   rafraîchir l'affichage elle-même (voir {@link HelloController}, qui regroupe les rafraîchissements par image).
+ *
+ * Liens avec d'autres classes :
+ * - {@link HelloController} : Installe une répétition sur chaque bouton + et -.
+ */
+public class RepetitionBouton {
+
+    private static final Duration DELAI_AVANT_REPETITION = Duration.millis(400);
+    private static final Duration INTERVALLE = Duration.millis(50);
+    private static final int REPETITIONS_AVANT_ACCELERATION = 20; // Une seconde de répétitions
+    private static final int PAS_RAPIDE = 10;
+
+    private final IntPredicate action;
+    private final Timeline minuterie;
+    private int repetitions;
+
+    /**
+     * Installe la répétition sur un bouton.
+     *
+     * @param bouton Le bouton.
+     * @param action L'action répétée ; elle reçoit le nombre d'unités à appliquer (1, puis {@value #PAS_RAPIDE})
+     *               et retourne false pour arrêter la répétition (action refusée).
+     */
+    public RepetitionBouton(Button bouton, IntPredicate action) {
+        this.action = action;
+        this.minuterie = new Timeline(new KeyFrame(INTERVALLE, e -> repeter()));
+        minuterie.setCycleCount(Animation.INDEFINITE);
+        minuterie.setDelay(DELAI_AVANT_REPETITION);
+
+        bouton.addEventHandler(MouseEvent.MOUSE_PRESSED, e -> {
+            if (e.getButton() == MouseButton.PRIMARY) {
+                repetitions = 0;
+                minuterie.playFromStart();
+            }
+        });
+        bouton.addEventHandler(MouseEvent.MOUSE_RELEASED, e -> minuterie.stop());
+        bouton.addEventHandler(MouseEvent.MOUSE_EXITED, e -> minuterie.stop());
+        bouton.addEventFilter(KeyEvent.KEY_PRESSED, e -> repetitions = 0); // Un appui clavier est un nouveau clic
+        bouton.disabledProperty().addListener((observable, ancien, desactive) -> minuterie.stop());
+        // Le clic du relâchement suit un appui déjà répété : il ne doit pas compter une fois de plus
+        bouton.addEventFilter(ActionEvent.ACTION, e -> {
+            if (repetitions > 0) {
+                repetitions = 0;
+                e.consume();
+            }
+        });
+    }
+
+    private void repeter() {
+        repetitions++;
+        if (!action.test(repetitions > REPETITIONS_AVANT_ACCELERATION ? PAS_RAPIDE : 1)) {
+            minuterie.stop();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.backautodoc;
+
+/**
+ * Cette classe décrit le résultat d'une opération du {@link MoteurCommandes}.
+ *
+ * Rôles principaux :
+ * 1. Indiquer si l'opération a réussi.
+ * 2. En cas d'échec, fournir le titre, l'en-tête et le message à montrer à l'utilisateur
+ *    (le contrôleur les passe à {@link AlertHelper#showError(String, String, String)}, le serveur HTTP les renvoie en JSON).
+ * 3. Pour une commande réussie, transporter le texte de la facture.
+ */
+public class ResultatOperation {
+
+    private static final ResultatOperation SUCCES = new ResultatOperation(true, null, null, null, null);
+
+    private final boolean succes;
+    private final String titre;
+    private final String entete;
+    private final String message;
+    private final String facture;
+
+    private ResultatOperation(boolean succes, String titre, String entete, String message, String facture) {
+        this.succes = succes;
+        this.titre = titre;
+        this.entete = entete;
+        this.message = message;
+        this.facture = facture;
+    }
+
+    /**
+     * Retourne un résultat de succès sans contenu (partagé, aucune allocation).
+     */
+    public static ResultatOperation succes() {
+        return SUCCES;
+    }
+
+    /**
+     * Retourne le résultat d'une commande réussie.
+     *
+     * @param facture Le texte de la facture.
+     */
+    public static ResultatOperation commande(String facture) {
+        return new ResultatOperation(true, null, null, null, facture);
+    }
+
+    /**
+     * Retourne un résultat d'erreur.
+     *
+     * @param entete L'en-tête de l'erreur (par exemple "Aucune marque sélectionnée").
+     * @param message Le message détaillé.
+     */
+    public static ResultatOperation erreur(String entete, String message) {
+        return new ResultatOperation(false, "Erreur", entete, message, null);
+    }
+
+    public boolean isSucces() {
+        return succes;
+    }
+
+    public String getTitre() {
+        return titre;
+    }
+
+    public String getEntete() {
+        return entete;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getFacture() {
+        return facture;
+    }
+}
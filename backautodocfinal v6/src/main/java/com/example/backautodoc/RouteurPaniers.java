@@ -0,0 +1,369 @@
+package com.example.backautodoc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cette classe répartit les paniers entre plusieurs serveurs {@link ServeurHttp} et relaie les requêtes
+ * des clients vers le serveur de chaque panier.
+ *
+ * Rôles principaux :
+ * 1. Choisir le serveur d'une session par hachage cohérent de son identifiant ({@link AnneauCoherent}) :
+ *    un panier vit sur un seul serveur, ce qui garde son verrou et son journal locaux.
+ * 2. Relayer chaque requête telle quelle (méthode, chemin, paramètres, corps) et renvoyer la réponse du serveur.
+ * 3. Ajouter ou retirer un serveur en déplaçant uniquement les paniers qui changent de serveur.
+ *
+ * Routes du routeur (les autres sont celles de {@link ServeurHttp}) :
+ * - GET    /noeuds                       : liste des serveurs.
+ * - POST   /noeuds?adresse=http://hote:port : ajoute un serveur (démarré et vide) et lui transfère ses paniers.
+ * - DELETE /noeuds?adresse=http://hote:port : transfère les paniers d'un serveur aux autres, puis le retire.
+ * - /sessions/{id}...                   : relayé au serveur de la session.
+ * - /marques                            : relayé au premier serveur.
+ *
+ * Fonctionnement du rééquilibrage :
+ * - Les requêtes relayées tiennent le verrou de lecture ; un rééquilibrage prend le verrou d'écriture :
+ *   il attend la fin des requêtes en cours, et les nouvelles attendent la fin du transfert.
+ * - Pour chaque serveur concerné, le routeur lit la liste de ses sessions (GET /migration), puis exporte
+ *   celles qui changent de serveur et les importe chez leur nouveau serveur (format de {@link InstantanesPaniers}).
+ * - Le nouvel anneau n'est utilisé qu'une fois tous les imports réussis ; les paniers ne sont supprimés
+ *   de leur ancien serveur qu'ensuite. Un échec laisse donc l'ancien anneau et tous les paniers en place
+ *   (les copies déjà importées seront remplacées au prochain essai).
+ * - Les réservations de stock ne sont pas déplacées : le stock de chaque serveur reste le sien. Un panier
+ *   déplacé perd sa commande en attente, annulée par son ancien serveur à l'export (pièces rendues à son stock) :
+ *   le client la passe à nouveau auprès du nouveau serveur.
+ * - Les identifiants circulent un par ligne : seuls ceux au format de {@link ServeurHttp} (sans saut de ligne)
+ *   sont déplacés.
+ */
+public class RouteurPaniers {
+
+    private static final Duration DELAI_REQUETE = Duration.ofSeconds(30);
+
+    private final HttpServer serveur;
+    private final ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client;
+    private final ReentrantReadWriteLock verrouAnneau = new ReentrantReadWriteLock();
+    private volatile AnneauCoherent anneau; // Remplacé uniquement sous le verrou d'écriture
+
+    /**
+     * Crée le routeur (il ne répond aux requêtes qu'après {@link #demarrer()}).
+     *
+     * @param adresse L'adresse et le port d'écoute.
+     * @param noeuds Les adresses des serveurs (par exemple http://127.0.0.1:8081).
+     * @param noeudsVirtuels Le nombre de points de chaque serveur sur l'anneau.
+     * @throws IOException Si le port ne peut pas être ouvert.
+     */
+    public RouteurPaniers(InetSocketAddress adresse, List<String> noeuds, int noeudsVirtuels) throws IOException {
+        this.anneau = new AnneauCoherent(noeuds.stream().map(RouteurPaniers::normaliser).toList(), noeudsVirtuels);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executeur)
+                .build();
+        this.serveur = HttpServer.create(adresse, 1024);
+        serveur.setExecutor(executeur);
+        serveur.createContext("/noeuds", this::traiterNoeuds);
+        serveur.createContext("/sessions/", this::relayer);
+        serveur.createContext("/marques", this::relayer);
+    }
+
+    public void demarrer() {
+        serveur.start();
+    }
+
+    public void arreter() {
+        serveur.stop(1);
+        client.close();
+        executeur.close();
+    }
+
+    public int getPort() {
+        return serveur.getAddress().getPort();
+    }
+
+    /**
+     * @return Les serveurs actuellement utilisés.
+     */
+    public List<String> getNoeuds() {
+        return anneau.getNoeuds();
+    }
+
+    /**
+     * Ajoute un serveur et lui transfère les paniers qui lui reviennent.
+     *
+     * @param adresse L'adresse du serveur, déjà démarré.
+     * @return Le nombre de paniers déplacés.
+     * @throws IOException Si un transfert échoue (l'ancienne répartition reste alors en place).
+     * @throws InterruptedException Si le thread est interrompu pendant le transfert.
+     */
+    public int ajouterNoeud(String adresse) throws IOException, InterruptedException {
+        String noeud = normaliser(adresse);
+        verrouAnneau.writeLock().lock();
+        try {
+            if (anneau.getNoeuds().contains(noeud)) {
+                throw new IllegalArgumentException("Serveur déjà présent : " + noeud);
+            }
+            AnneauCoherent nouveau = anneau.avec(noeud);
+            return reequilibrer(nouveau, anneau.getNoeuds());
+        } finally {
+            verrouAnneau.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Transfère les paniers d'un serveur aux autres, puis cesse de l'utiliser.
+     *
+     * @param adresse L'adresse du serveur à retirer.
+     * @return Le nombre de paniers déplacés.
+     * @throws IOException Si un transfert échoue (le serveur reste alors utilisé).
+     * @throws InterruptedException Si le thread est interrompu pendant le transfert.
+     */
+    public int retirerNoeud(String adresse) throws IOException, InterruptedException {
+        String noeud = normaliser(adresse);
+        verrouAnneau.writeLock().lock();
+        try {
+            if (!anneau.getNoeuds().contains(noeud)) {
+                throw new IllegalArgumentException("Serveur inconnu : " + noeud);
+            }
+            if (anneau.getNoeuds().size() == 1) {
+                throw new IllegalArgumentException("Impossible de retirer le dernier serveur : " + noeud);
+            }
+            return reequilibrer(anneau.sans(noeud), List.of(noeud));
+        } finally {
+            verrouAnneau.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Déplace les paniers des serveurs `sources` qui n'appartiennent plus à ces serveurs dans `nouveau`,
+     * puis fait de `nouveau` l'anneau courant. Appelé avec le verrou d'écriture.
+     */
+    private int reequilibrer(AnneauCoherent nouveau, List<String> sources) throws IOException, InterruptedException {
+        // Transferts par (source, destination) : seuls les paniers qui changent de serveur sont lus
+        Map<String, Map<String, List<String>>> transferts = new LinkedHashMap<>();
+        for (String source : sources) {
+            Map<String, List<String>> parDestination = new LinkedHashMap<>();
+            String identifiants = new String(echanger(source, "GET", "/migration", null), StandardCharsets.UTF_8);
+            for (String sessionId : identifiants.lines().toList()) {
+                // Un identifiant hors format casserait les listes envoyées à /migration/export et /suppression
+                if (!ServeurHttp.identifiantSessionValide(sessionId)) {
+                    continue;
+                }
+                String destination = nouveau.noeudDe(sessionId);
+                if (!destination.equals(source)) {
+                    parDestination.computeIfAbsent(destination, d -> new ArrayList<>()).add(sessionId);
+                }
+            }
+            transferts.put(source, parDestination);
+        }
+
+        int deplacees = 0;
+        for (Map.Entry<String, Map<String, List<String>>> source : transferts.entrySet()) {
+            for (Map.Entry<String, List<String>> destination : source.getValue().entrySet()) {
+                byte[] identifiants = String.join("\n", destination.getValue()).getBytes(StandardCharsets.UTF_8);
+                byte[] export = envoyerOctets(source.getKey(), "/migration/export", identifiants);
+                envoyerOctets(destination.getKey(), "/migration/import", export);
+                deplacees += destination.getValue().size();
+            }
+        }
+        anneau = nouveau;
+
+        // Les paniers ne sont plus routés vers leur ancien serveur : leur suppression peut échouer sans perte
+        for (Map.Entry<String, Map<String, List<String>>> source : transferts.entrySet()) {
+            for (List<String> sessions : source.getValue().values()) {
+                try {
+                    envoyerOctets(source.getKey(), "/migration/suppression",
+                            String.join("\n", sessions).getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    System.err.println("Suppression des paniers déplacés impossible sur " + source.getKey()
+                            + " : " + e.getMessage());
+                }
+            }
+        }
+        return deplacees;
+    }
+
+    private void traiterNoeuds(HttpExchange echange) throws IOException {
+        String methode = echange.getRequestMethod();
+        try {
+            String adresse = lireParametres(echange.getRequestURI().getRawQuery()).get("adresse");
+            int deplacees;
+            if ("GET".equals(methode)) {
+                deplacees = -1;
+            } else if (adresse == null) {
+                repondre(echange, 400, ServeurHttp.erreurJson("Paramètre invalide", "Paramètre \"adresse\" manquant"));
+                return;
+            } else if ("POST".equals(methode)) {
+                deplacees = ajouterNoeud(adresse);
+            } else if ("DELETE".equals(methode)) {
+                deplacees = retirerNoeud(adresse);
+            } else {
+                repondre(echange, 405, ServeurHttp.erreurJson("Méthode non autorisée", methode));
+                return;
+            }
+            StringBuilder json = new StringBuilder("{\"noeuds\":[");
+            List<String> noeuds = anneau.getNoeuds();
+            for (int i = 0; i < noeuds.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                ServeurHttp.chaineJson(json, noeuds.get(i));
+            }
+            json.append(']');
+            if (deplacees >= 0) {
+                json.append(",\"deplacees\":").append(deplacees);
+            }
+            repondre(echange, 200, json.append('}').toString());
+        } catch (IllegalArgumentException e) {
+            repondre(echange, 400, ServeurHttp.erreurJson("Paramètre invalide", e.getMessage()));
+        } catch (IOException e) {
+            repondre(echange, 502, ServeurHttp.erreurJson("Rééquilibrage impossible", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            repondre(echange, 503, ServeurHttp.erreurJson("Rééquilibrage interrompu", e.getMessage()));
+        }
+    }
+
+    private void relayer(HttpExchange echange) throws IOException {
+        byte[] corps;
+        try (InputStream entree = echange.getRequestBody()) {
+            corps = entree.readAllBytes();
+        }
+        String chemin = echange.getRequestURI().getPath();
+        String cible = echange.getRequestURI().getRawPath()
+                + (echange.getRequestURI().getRawQuery() != null ? "?" + echange.getRequestURI().getRawQuery() : "");
+        HttpResponse<byte[]> reponse;
+        verrouAnneau.readLock().lock();
+        try {
+            String noeud = chemin.startsWith("/sessions/")
+                    ? anneau.noeudDe(chemin.substring("/sessions/".length()).split("/")[0])
+                    : anneau.getNoeuds().get(0);
+            HttpRequest.Builder requete = HttpRequest.newBuilder(URI.create(noeud + cible))
+                    .timeout(DELAI_REQUETE)
+                    .method(echange.getRequestMethod(), corps.length == 0
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofByteArray(corps));
+            String type = echange.getRequestHeaders().getFirst("Content-Type");
+            if (type != null) {
+                requete.header("Content-Type", type);
+            }
+            reponse = client.send(requete.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            repondre(echange, 502, ServeurHttp.erreurJson("Serveur indisponible", e.getMessage()));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            repondre(echange, 503, ServeurHttp.erreurJson("Requête interrompue", e.getMessage()));
+            return;
+        } finally {
+            verrouAnneau.readLock().unlock();
+        }
+
+        reponse.headers().firstValue("Content-Type").ifPresent(type -> echange.getResponseHeaders().set("Content-Type", type));
+        byte[] octets = reponse.body();
+        if (octets.length == 0) {
+            echange.sendResponseHeaders(reponse.statusCode(), -1);
+            echange.close();
+            return;
+        }
+        echange.sendResponseHeaders(reponse.statusCode(), octets.length);
+        try (OutputStream sortie = echange.getResponseBody()) {
+            sortie.write(octets);
+        }
+    }
+
+    private byte[] envoyerOctets(String noeud, String chemin, byte[] corps) throws IOException, InterruptedException {
+        return echanger(noeud, "POST", chemin, corps);
+    }
+
+    private byte[] echanger(String noeud, String methode, String chemin, byte[] corps)
+            throws IOException, InterruptedException {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create(noeud + chemin))
+                .timeout(DELAI_REQUETE)
+                .method(methode, corps == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(corps))
+                .build();
+        HttpResponse<byte[]> reponse = client.send(requete, HttpResponse.BodyHandlers.ofByteArray());
+        if (reponse.statusCode() >= 300) {
+            throw new IOException(methode + " " + noeud + chemin + " : code " + reponse.statusCode() + " "
+                    + new String(reponse.body(), StandardCharsets.UTF_8));
+        }
+        return reponse.body();
+    }
+
+    /**
+     * Adresse sans barre finale, pour que « http://h:1/ » et « http://h:1 » désignent le même serveur.
+     */
+    private static String normaliser(String adresse) {
+        URI uri = URI.create(adresse.trim());
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("Adresse de serveur invalide : " + adresse);
+        }
+        String texte = uri.toString();
+        return texte.endsWith("/") ? texte.substring(0, texte.length() - 1) : texte;
+    }
+
+    private static Map<String, String> lireParametres(String requete) {
+        Map<String, String> parametres = new LinkedHashMap<>();
+        if (requete == null || requete.isEmpty()) {
+            return parametres;
+        }
+        for (String paire : requete.split("&")) {
+            int egal = paire.indexOf('=');
+            String cle = egal < 0 ? paire : paire.substring(0, egal);
+            String valeur = egal < 0 ? "" : paire.substring(egal + 1);
+            parametres.put(URLDecoder.decode(cle, StandardCharsets.UTF_8), URLDecoder.decode(valeur, StandardCharsets.UTF_8));
+        }
+        return parametres;
+    }
+
+    private static void repondre(HttpExchange echange, int code, String json) throws IOException {
+        byte[] octets = json.getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        echange.sendResponseHeaders(code, octets.length);
+        try (OutputStream corps = echange.getResponseBody()) {
+            corps.write(octets);
+        }
+    }
+
+    /**
+     * Lance le routeur sur l'interface locale.
+     *
+     * Arguments : [port] puis les adresses des serveurs, par exemple
+     * `RouteurPaniers 8090 http://127.0.0.1:8081 http://127.0.0.1:8082`.
+     * La propriété système `backautodoc.noeudsVirtuels` fixe le nombre de points par serveur sur l'anneau.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Utilisation : RouteurPaniers <port> <serveur> [serveur...]");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(args[0]);
+        List<String> noeuds = List.of(args).subList(1, args.length);
+        int noeudsVirtuels = Integer.getInteger("backautodoc.noeudsVirtuels", AnneauCoherent.NOEUDS_VIRTUELS_DEFAUT);
+        RouteurPaniers routeur = new RouteurPaniers(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                noeuds, noeudsVirtuels);
+        routeur.demarrer();
+        System.out.println("Routeur AutoDoc à l'écoute sur http://localhost:" + routeur.getPort() + " devant " + noeuds);
+    }
+}
@@ -0,0 +1,889 @@
+package com.example.backautodoc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cette classe expose le {@link MoteurCommandes} sur une API HTTP/JSON locale, sans interface graphique.
+ *
+ * Rôles principaux :
+ * 1. Associer un moteur à chaque session (borne de comptoir, panier de la boutique en ligne...).
+ * 2. Traduire les requêtes HTTP en appels au moteur, et ses {@link ResultatOperation} en JSON.
+ *
+ * Routes :
+ * - GET    /marques                                  : liste des marques disponibles.
+ * - GET    /sessions/{id}                            : état du panier de la session.
+ * - POST   /sessions/{id}/marque?nom=Toyota          : sélection de la marque.
+ * - POST   /sessions/{id}/selection?piece=freins&actif=true : coche ou décoche une pièce.
+ * - POST   /sessions/{id}/quantite?piece=freins&delta=1     : ajoute ou retire des pièces.
+ * - POST   /sessions/{id}/commande                   : passe la commande et renvoie la facture.
+ * - POST   /sessions/{id}/confirmation               : confirme la vente des pièces réservées par la commande
+ *                                                     et renvoie la facture, numérotée à ce moment.
+ * - POST   /sessions/{id}/annulation                 : annule la commande et rend ses pièces au stock.
+ * - DELETE /sessions/{id}                            : ferme la session.
+ * - GET    /metrics                                  : durées et refus des opérations ({@link Metriques}) et compteurs
+ *                                                     du cache des devis ({@link CacheDevis}), format Prometheus.
+ * - GET    /migration                                : identifiants des sessions ouvertes, un par ligne.
+ * - POST   /migration/export                         : corps = identifiants, un par ligne ; renvoie ces paniers
+ *                                                     au format binaire des instantanés ({@link InstantanesPaniers}),
+ *                                                     après avoir annulé leur commande en attente (pièces rendues au stock).
+ * - POST   /migration/import                         : corps = un export ; crée (ou remplace) ces sessions.
+ * - POST   /migration/suppression                    : corps = identifiants, un par ligne ; ferme ces sessions.
+ * - GET    /historique?axe=marque&debut=2026-01-01&fin=2026-01-31&marque=Toyota&top=10
+ *                                                   : chiffre d'affaires par marque, pièce ou jour ({@link HistoriqueCommandes}) ;
+ *                                                     tous les paramètres sauf `axe` sont optionnels, `top` vaut au plus
+ *                                                     {@value #TOP_MAX}, `top=0` renvoie tous les groupes dans l'ordre des clés.
+ * Les routes /migration servent à {@link RouteurPaniers} pour déplacer des paniers d'un serveur à l'autre.
+ * Un identifiant de session contient de 1 à {@value #LONGUEUR_MAX_SESSION} caractères parmi `A-Z a-z 0-9 _ -`.
+ * Les routes /migration appliquent la même règle (un identifiant par ligne) : une liste ou un export
+ * contenant un autre identifiant est refusé (400), et GET /migration n'en liste aucun.
+ * Le paramètre `piece` accepte un nom ("freins", "huile", "filtres") ou un identifiant numérique.
+ *
+ * Fonctionnement :
+ * - Le serveur HTTP du JDK exécute chaque requête dans son propre thread virtuel.
+ * - Les sessions sont rangées dans un {@link RegistrePaniers} : chaque session a son propre verrou,
+ *   deux sessions différentes ne se bloquent jamais. Ce verrou est un `ReentrantLock` plutôt que
+ *   `synchronized`, pour ne pas épingler le thread virtuel.
+ * - Une session n'est créée que par une action POST valide : une lecture (GET) d'une session inconnue
+ *   répond 404 sans rien allouer. Le nombre de sessions est borné (503 au-delà), et une session
+ *   sans requête depuis {@link #setLimitesSessions(int, Duration) la durée d'inactivité} est fermée.
+ * - Avec un journal, les paniers survivent à un redémarrage : un instantané de toutes les sessions
+ *   est écrit périodiquement ({@link InstantanesPaniers}), et {@link #restaurer(Path, Path)} recharge
+ *   le dernier instantané puis rejoue la fin du journal.
+ */
+public class ServeurHttp {
+
+    private static final int PORT_PAR_DEFAUT = 8080;
+    private static final long TAILLE_SEGMENT_JOURNAL = 64L * 1024 * 1024;
+    private static final long PERIODE_INSTANTANES_SECONDES = 60;
+    private static final Duration DUREE_RESERVATION = Duration.ofMinutes(15);
+    private static final int TOP_MAX = 1000; // Groupes renvoyés au plus par /historique?top=...
+    private static final int SESSIONS_MAX_DEFAUT = 100_000;
+    // Plus long que la réservation du stock : une commande en attente expire avant sa session
+    private static final Duration INACTIVITE_MAX_DEFAUT = Duration.ofMinutes(30);
+    static final int LONGUEUR_MAX_SESSION = 255;
+    private static final Pattern IDENTIFIANT_SESSION = Pattern.compile("[A-Za-z0-9_-]{1," + LONGUEUR_MAX_SESSION + "}");
+    private static final List<String> ACTIONS = List.of("marque", "selection", "quantite", "commande",
+            "confirmation", "annulation");
+
+    private final HttpServer serveur;
+    private final ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor();
+    private final RegistrePaniers<Session> sessions = new RegistrePaniers<>(this::creerSession);
+    private final PrixArticles prixArticles;
+    private final int nombrePieces;
+    private final List<String> marques = new MarqueSelection().getMarques();
+    private JournalCommandes journal; // Journal partagé par toutes les sessions, ou null
+    private GrilleTarifaire grilleTarifaire = GrilleTarifaire.VIDE;
+    private StockPieces stock; // Stock partagé par toutes les sessions, ou null
+    private CacheDevis cacheDevis; // Devis partagés par toutes les sessions, ou null
+    private NumerotationFactures numerotation; // Numéros de facture partagés, ou null
+    private HistoriqueCommandes historique; // Ventes de toutes les sessions, ou null
+    private Path dossierInstantanes;  // Dossier des instantanés des paniers, ou null
+    private ScheduledExecutorService planificateur;
+    private ScheduledExecutorService expiration; // Ferme les sessions inactives
+    private long lsnDernierInstantane = -1;
+    private int sessionsMax = SESSIONS_MAX_DEFAUT;
+    private Duration inactiviteMax = INACTIVITE_MAX_DEFAUT;
+
+    /**
+     * Crée le serveur (il ne répond aux requêtes qu'après {@link #demarrer()}).
+     *
+     * @param adresse L'adresse et le port d'écoute.
+     * @param prixArticles Les prix partagés par toutes les sessions.
+     * @param nombrePieces Le nombre de références que chaque panier peut contenir.
+     * @throws IOException Si le port ne peut pas être ouvert.
+     */
+    public ServeurHttp(InetSocketAddress adresse, PrixArticles prixArticles, int nombrePieces) throws IOException {
+        this.prixArticles = prixArticles;
+        this.nombrePieces = nombrePieces;
+        this.serveur = HttpServer.create(adresse, 1024);
+        serveur.setExecutor(executeur);
+        serveur.createContext("/marques", this::traiterMarques);
+        serveur.createContext("/sessions/", this::traiterSession);
+        serveur.createContext("/metrics", this::traiterMetriques);
+        serveur.createContext("/migration", this::traiterMigration);
+        serveur.createContext("/historique", this::traiterHistorique);
+    }
+
+    /**
+     * Enregistre les commandes de toutes les sessions dans un journal (à appeler avant {@link #demarrer()}).
+     *
+     * @param journal Le journal des commandes.
+     */
+    public void setJournal(JournalCommandes journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applique des règles de prix à toutes les sessions créées ensuite (à appeler avant {@link #demarrer()}).
+     *
+     * @param grilleTarifaire La grille compilée.
+     */
+    public void setGrilleTarifaire(GrilleTarifaire grilleTarifaire) {
+        this.grilleTarifaire = grilleTarifaire;
+    }
+
+    /**
+     * Active la réservation du stock pour toutes les sessions créées ensuite (à appeler avant {@link #demarrer()}).
+     *
+     * @param stock Le stock partagé.
+     */
+    public void setStock(StockPieces stock) {
+        this.stock = stock;
+    }
+
+    /**
+     * Partage un cache de devis entre toutes les sessions créées ensuite (à appeler avant {@link #demarrer()}).
+     * Ses compteurs sont publiés dans JMX et sur `/metrics`.
+     *
+     * @param cacheDevis Le cache partagé.
+     */
+    public void setCacheDevis(CacheDevis cacheDevis) {
+        this.cacheDevis = cacheDevis;
+        Metriques.publier(cacheDevis, "type=CacheDevis");
+    }
+
+    /**
+     * Numérote les factures de toutes les sessions créées ensuite (à appeler avant {@link #demarrer()}).
+     * La numérotation est fermée par {@link #arreter()}.
+     *
+     * @param numerotation La numérotation partagée.
+     */
+    public void setNumerotation(NumerotationFactures numerotation) {
+        this.numerotation = numerotation;
+    }
+
+    /**
+     * Enregistre les ventes de toutes les sessions créées ensuite et les expose sur `/historique`
+     * (à appeler avant {@link #demarrer()}).
+     *
+     * @param historique L'historique partagé.
+     */
+    public void setHistorique(HistoriqueCommandes historique) {
+        this.historique = historique;
+    }
+
+    /**
+     * Borne le nombre de sessions ouvertes et ferme les sessions inactives (à appeler avant {@link #demarrer()}).
+     * Sans appel, au plus {@value #SESSIONS_MAX_DEFAUT} sessions, fermées après 30 minutes sans requête.
+     *
+     * @param sessionsMax Le nombre de sessions au-delà duquel la création d'une session est refusée (503).
+     * @param inactiviteMax La durée sans requête au bout de laquelle une session est fermée.
+     */
+    public void setLimitesSessions(int sessionsMax, Duration inactiviteMax) {
+        if (sessionsMax < 1 || inactiviteMax.isNegative() || inactiviteMax.isZero()) {
+            throw new IllegalArgumentException("Limites de sessions invalides : " + sessionsMax + ", " + inactiviteMax);
+        }
+        this.sessionsMax = sessionsMax;
+        this.inactiviteMax = inactiviteMax;
+    }
+
+    /**
+     * Recrée les sessions à partir du dernier instantané et de la fin du journal
+     * (à appeler avant {@link #demarrer()}, après {@link #setJournal(JournalCommandes)}).
+     *
+     * @param dossierInstantanes Le dossier des instantanés.
+     * @param dossierJournal Le dossier des segments du journal.
+     * @return Le nombre de sessions restaurées.
+     * @throws IOException Si le journal est illisible.
+     */
+    public int restaurer(Path dossierInstantanes, Path dossierJournal) throws IOException {
+        Map<String, MoteurCommandes> moteurs = new HashMap<>();
+        InstantanesPaniers.restaurer(dossierInstantanes, dossierJournal, moteurs,
+                sessionId -> new MoteurCommandes(prixArticles, nombrePieces));
+        for (Map.Entry<String, MoteurCommandes> entree : moteurs.entrySet()) {
+            sessions.placer(entree.getKey(), configurer(entree.getKey(), entree.getValue()));
+        }
+        return moteurs.size();
+    }
+
+    /**
+     * Écrit un instantané de toutes les sessions à intervalle régulier (nécessite un journal).
+     *
+     * @param dossier Le dossier des instantanés.
+     * @param periodeSecondes L'intervalle entre deux instantanés.
+     */
+    public void activerInstantanes(Path dossier, long periodeSecondes) {
+        if (journal == null) {
+            throw new IllegalStateException("Les instantanés nécessitent un journal");
+        }
+        this.dossierInstantanes = dossier;
+        planificateur = Executors.newSingleThreadScheduledExecutor(tache -> {
+            Thread thread = new Thread(tache, "instantanes-paniers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        planificateur.scheduleWithFixedDelay(() -> {
+            try {
+                ecrireInstantane();
+            } catch (IOException e) {
+                System.err.println("Instantané des paniers impossible : " + e.getMessage());
+            }
+        }, periodeSecondes, periodeSecondes, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Écrit immédiatement un instantané de toutes les sessions.
+     * Chaque session n'est verrouillée que le temps de copier son panier. Les segments du journal dont
+     * aucun instantané conservé n'a plus besoin sont ensuite supprimés.
+     *
+     * @return Le fichier écrit, ou null si rien n'a changé depuis le dernier instantané.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    public synchronized Path ecrireInstantane() throws IOException {
+        // LSN lu avant le parcours : tout ce qui le précède est forcément dans l'instantané
+        long lsn = journal.getDernierLsn();
+        if (lsn == lsnDernierInstantane) {
+            return null;
+        }
+        try (InstantanesPaniers.Redaction redaction = InstantanesPaniers.commencer(dossierInstantanes, lsn)) {
+            for (String sessionId : sessions.getIdentifiants()) {
+                RegistrePaniers.Panier<Session> panier = sessions.verrouillerExistant(sessionId);
+                if (panier == null) {
+                    continue; // Fermée pendant le parcours
+                }
+                try {
+                    redaction.ajouter(sessionId, panier.get().moteur);
+                } finally {
+                    panier.deverrouiller();
+                }
+            }
+            Path fichier = redaction.terminer();
+            lsnDernierInstantane = lsn;
+            journal.supprimerSegmentsAvant(InstantanesPaniers.lsnPlusAncien(dossierInstantanes));
+            return fichier;
+        }
+    }
+
+    public void demarrer() {
+        expiration = Executors.newSingleThreadScheduledExecutor(tache -> {
+            Thread thread = new Thread(tache, "expiration-sessions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periode = Math.max(1, Math.min(60, inactiviteMax.toSeconds() / 2));
+        expiration.scheduleWithFixedDelay(this::fermerSessionsInactives, periode, periode, TimeUnit.SECONDS);
+        serveur.start();
+    }
+
+    /**
+     * Ferme les sessions restées sans requête plus longtemps que la durée d'inactivité.
+     *
+     * @return Le nombre de sessions fermées.
+     */
+    int fermerSessionsInactives() {
+        long limite = System.nanoTime() - inactiviteMax.toNanos();
+        int fermees = 0;
+        for (String sessionId : sessions.getIdentifiants()) {
+            if (fermerSession(sessionId, limite)) {
+                fermees++;
+            }
+        }
+        return fermees;
+    }
+
+    /**
+     * Arrête le serveur, en laissant une seconde aux requêtes en cours pour se terminer,
+     * puis écrit un dernier instantané si les instantanés sont activés.
+     */
+    public void arreter() {
+        serveur.stop(1);
+        executeur.close();
+        if (expiration != null) {
+            expiration.shutdownNow();
+        }
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            try {
+                ecrireInstantane();
+            } catch (IOException e) {
+                System.err.println("Instantané des paniers impossible : " + e.getMessage());
+            }
+        }
+        if (numerotation != null) {
+            try {
+                numerotation.close(); // Rend les numéros réservés mais jamais distribués
+            } catch (IOException e) {
+                System.err.println("Fermeture de la numérotation impossible : " + e.getMessage());
+            }
+        }
+    }
+
+    public int getPort() {
+        return serveur.getAddress().getPort();
+    }
+
+    private void traiterMarques(HttpExchange echange) throws IOException {
+        if (!"GET".equals(echange.getRequestMethod())) {
+            repondre(echange, 405, erreurJson("Méthode non autorisée", echange.getRequestMethod()));
+            return;
+        }
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < marques.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            chaineJson(json, marques.get(i));
+        }
+        repondre(echange, 200, json.append(']').toString());
+    }
+
+    private void traiterMetriques(HttpExchange echange) throws IOException {
+        if (!"GET".equals(echange.getRequestMethod())) {
+            repondre(echange, 405, erreurJson("Méthode non autorisée", echange.getRequestMethod()));
+            return;
+        }
+        StringBuilder texte = new StringBuilder(8192);
+        Metriques.global().ecrireTexte(texte);
+        if (cacheDevis != null) {
+            cacheDevis.ecrireTexte(texte);
+        }
+        envoyer(echange, 200, texte.toString(), "text/plain; version=0.0.4; charset=utf-8");
+    }
+
+    private void traiterSession(HttpExchange echange) throws IOException {
+        // Chemin attendu : /sessions/{id} ou /sessions/{id}/{action}
+        String[] morceaux = echange.getRequestURI().getPath().substring("/sessions/".length()).split("/");
+        String sessionId = morceaux[0];
+        String action = morceaux.length > 1 ? morceaux[1] : "";
+        String methode = echange.getRequestMethod();
+        if (sessionId.isEmpty() || morceaux.length > 2) {
+            repondre(echange, 404, erreurJson("Route inconnue", echange.getRequestURI().getPath()));
+            return;
+        }
+        if (!identifiantSessionValide(sessionId)) {
+            repondre(echange, 400, erreurJson("Identifiant de session invalide",
+                    "1 à " + LONGUEUR_MAX_SESSION + " caractères parmi A-Z, a-z, 0-9, _ et - sont attendus."));
+            return;
+        }
+
+        if ("DELETE".equals(methode) && action.isEmpty()) {
+            fermerSession(sessionId, Long.MAX_VALUE);
+            repondre(echange, 204, null);
+            return;
+        }
+        boolean lecture = "GET".equals(methode) && action.isEmpty();
+        if (!lecture && !"POST".equals(methode)) {
+            repondre(echange, 405, erreurJson("Méthode non autorisée", methode));
+            return;
+        }
+        if (!lecture && !ACTIONS.contains(action)) {
+            repondre(echange, 404, erreurJson("Action inconnue", action));
+            return;
+        }
+
+        Map<String, String> parametres;
+        try {
+            parametres = lireParametres(echange.getRequestURI().getRawQuery());
+        } catch (IllegalArgumentException e) {
+            repondre(echange, 400, erreurJson("Paramètre invalide", e.getMessage())); // Échappement %XX invalide
+            return;
+        }
+        RegistrePaniers.Panier<Session> panier = sessions.verrouillerExistant(sessionId);
+        if (panier == null) {
+            if (lecture) {
+                repondre(echange, 404, erreurJson("Session inconnue", sessionId));
+                return;
+            }
+            // Borne approximative : deux créations simultanées peuvent la dépasser d'une session
+            if (sessions.getNombrePaniers() >= sessionsMax) {
+                repondre(echange, 503, erreurJson("Trop de sessions", "Le serveur a atteint " + sessionsMax + " sessions."));
+                return;
+            }
+            panier = sessions.verrouiller(sessionId);
+        }
+        int code;
+        String reponse;
+        try {
+            Session session = panier.get();
+            session.derniereActivite = System.nanoTime();
+            MoteurCommandes moteur = session.moteur;
+            ResultatOperation resultat;
+            if (lecture) {
+                resultat = ResultatOperation.succes();
+            } else {
+                switch (action) {
+                    case "marque":
+                        resultat = moteur.selectionnerMarque(parametres.get("nom"));
+                        break;
+                    case "selection":
+                        resultat = moteur.selectionnerPiece(lirePiece(parametres), Boolean.parseBoolean(parametres.get("actif")));
+                        break;
+                    case "quantite":
+                        resultat = moteur.modifierQuantite(lirePiece(parametres), lireEntier(parametres, "delta"));
+                        break;
+                    case "commande":
+                        resultat = moteur.commander();
+                        break;
+                    case "confirmation":
+                        resultat = moteur.confirmerCommande();
+                        break;
+                    case "annulation":
+                        resultat = moteur.annulerCommande();
+                        break;
+                    default:
+                        throw new IllegalStateException("Action non traitée : " + action);
+                }
+            }
+            code = resultat.isSucces() ? 200 : 400;
+            reponse = resultat.isSucces() ? etatJson(sessionId, moteur, resultat) : erreurJson(resultat.getEntete(), resultat.getMessage());
+        } catch (IllegalArgumentException e) {
+            code = 400;
+            reponse = erreurJson("Paramètre invalide", e.getMessage());
+        } finally {
+            panier.deverrouiller();
+        }
+        repondre(echange, code, reponse);
+    }
+
+    /**
+     * Ferme une session si sa dernière requête est antérieure à une limite.
+     *
+     * @param sessionId L'identifiant de la session.
+     * @param limite Valeur de {@link System#nanoTime()} : la session n'est fermée que si sa dernière requête
+     *               la précède ({@link Long#MAX_VALUE} pour fermer dans tous les cas).
+     * @return true si la session a été fermée.
+     */
+    private boolean fermerSession(String sessionId, long limite) {
+        // Le registre prend le verrou de la session hors de toute opération de sa table
+        return sessions.supprimer(sessionId, session -> {
+            if (limite != Long.MAX_VALUE && session.derniereActivite - limite >= 0) {
+                return false; // Requête arrivée entre-temps : la session reste ouverte
+            }
+            // Journalisé avant le retrait, verrou tenu : une session recréée ensuite sous le même identifiant
+            // ne peut pas voir ses premiers événements placés avant cette fermeture
+            if (journal != null) {
+                journal.ajouterAsync(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession(sessionId));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Indique si un identifiant de session respecte le format accepté par le serveur : il est alors
+     * écrit tel quel dans le journal et les instantanés, et tient sur une ligne dans les routes /migration.
+     */
+    static boolean identifiantSessionValide(String sessionId) {
+        return IDENTIFIANT_SESSION.matcher(sessionId).matches();
+    }
+
+    private Session creerSession(String sessionId) {
+        return configurer(sessionId, new MoteurCommandes(prixArticles, nombrePieces));
+    }
+
+    private void traiterHistorique(HttpExchange echange) throws IOException {
+        if (!"GET".equals(echange.getRequestMethod())) {
+            repondre(echange, 405, erreurJson("Méthode non autorisée", echange.getRequestMethod()));
+            return;
+        }
+        if (historique == null) {
+            repondre(echange, 404, erreurJson("Historique désactivé", "Le serveur n'enregistre pas les ventes."));
+            return;
+        }
+        HistoriqueCommandes.Agregat agregat;
+        List<HistoriqueCommandes.Groupe> groupes;
+        long debut = System.nanoTime();
+        try {
+            Map<String, String> parametres = lireParametres(echange.getRequestURI().getRawQuery());
+            String axe = parametres.get("axe");
+            if (axe == null) {
+                throw new IllegalArgumentException("Paramètre \"axe\" manquant (marque, piece ou jour)");
+            }
+            int top = parametres.containsKey("top") ? lireEntier(parametres, "top") : 10;
+            if (top < 0 || top > TOP_MAX) {
+                throw new IllegalArgumentException("Paramètre \"top\" invalide (0 à " + TOP_MAX + ") : " + top);
+            }
+            agregat = historique.agreger(HistoriqueCommandes.Axe.valueOf(axe.toUpperCase(Locale.ROOT)),
+                    lireDate(parametres, "debut"), lireDate(parametres, "fin"), parametres.get("marque"));
+            groupes = top == 0 ? agregat.getGroupes() : agregat.top(top);
+        } catch (IllegalArgumentException e) {
+            repondre(echange, 400, erreurJson("Paramètre invalide", e.getMessage()));
+            return;
+        }
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"lignes\":").append(historique.getNombreLignes())
+                .append(",\"dureeMs\":").append((System.nanoTime() - debut) / 1_000_000)
+                .append(",\"chiffreAffairesTotal\":").append(agregat.getChiffreAffairesTotal())
+                .append(",\"groupes\":[");
+        for (int i = 0; i < groupes.size(); i++) {
+            HistoriqueCommandes.Groupe groupe = groupes.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"cle\":").append(groupe.cle()).append(",\"libelle\":");
+            chaineJson(json, groupe.libelle());
+            json.append(",\"chiffreAffaires\":").append(groupe.chiffreAffaires())
+                    .append(",\"quantite\":").append(groupe.quantite()).append('}');
+        }
+        repondre(echange, 200, json.append("]}").toString());
+    }
+
+    private static LocalDate lireDate(Map<String, String> parametres, String nom) {
+        String valeur = parametres.get(nom);
+        try {
+            return valeur == null ? null : LocalDate.parse(valeur);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Paramètre \"" + nom + "\" invalide (AAAA-MM-JJ attendu) : " + valeur);
+        }
+    }
+
+    private void traiterMigration(HttpExchange echange) throws IOException {
+        String action = echange.getRequestURI().getPath().substring("/migration".length());
+        String methode = echange.getRequestMethod();
+        if ("GET".equals(methode) && (action.isEmpty() || action.equals("/"))) {
+            StringBuilder identifiants = new StringBuilder();
+            for (String sessionId : sessions.getIdentifiants()) {
+                // Un identifiant d'avant la règle (restauré d'un ancien journal) ne tient pas forcément sur une ligne
+                if (identifiantSessionValide(sessionId)) {
+                    identifiants.append(sessionId).append('\n');
+                }
+            }
+            envoyer(echange, 200, identifiants.toString(), "text/plain; charset=utf-8");
+            return;
+        }
+        if (!"POST".equals(methode)) {
+            repondre(echange, 405, erreurJson("Méthode non autorisée", methode));
+            return;
+        }
+        byte[] corps;
+        try (InputStream entree = echange.getRequestBody()) {
+            corps = entree.readAllBytes();
+        }
+        List<String> identifiants;
+        try {
+            identifiants = action.equals("/import") ? List.of() : lireIdentifiants(corps);
+        } catch (IllegalArgumentException e) {
+            repondre(echange, 400, erreurJson("Identifiant de session invalide", e.getMessage()));
+            return;
+        }
+        switch (action) {
+            case "/export": {
+                InstantanesPaniers.Export export = new InstantanesPaniers.Export();
+                for (String sessionId : identifiants) {
+                    RegistrePaniers.Panier<Session> panier = sessions.verrouillerExistant(sessionId);
+                    if (panier == null) {
+                        continue; // Fermée entre-temps : rien à déplacer
+                    }
+                    try {
+                        MoteurCommandes moteur = panier.get().moteur;
+                        if (moteur.getReservation() != null) {
+                            // La réservation appartient au stock de ce serveur : elle ne suit pas le panier
+                            moteur.annulerCommande();
+                        }
+                        export.ajouter(sessionId, moteur);
+                    } finally {
+                        panier.deverrouiller();
+                    }
+                }
+                envoyer(echange, 200, export.terminer(), "application/octet-stream");
+                break;
+            }
+            case "/import": {
+                Map<String, MoteurCommandes> moteurs = new HashMap<>();
+                try {
+                    InstantanesPaniers.importer(ByteBuffer.wrap(corps), moteurs,
+                            sessionId -> new MoteurCommandes(prixArticles, nombrePieces));
+                } catch (IOException e) {
+                    repondre(echange, 400, erreurJson("Export invalide", e.getMessage()));
+                    return;
+                }
+                for (String sessionId : moteurs.keySet()) {
+                    if (!identifiantSessionValide(sessionId)) {
+                        // Rien n'est importé : l'export est refusé en entier
+                        repondre(echange, 400, erreurJson("Identifiant de session invalide", sessionId));
+                        return;
+                    }
+                }
+                for (Map.Entry<String, MoteurCommandes> entree : moteurs.entrySet()) {
+                    // Une ancienne session du même identifiant est d'abord fermée, y compris dans le journal
+                    fermerSession(entree.getKey(), Long.MAX_VALUE);
+                    Session session = configurer(entree.getKey(), entree.getValue());
+                    session.moteur.journaliserEtat();
+                    sessions.placer(entree.getKey(), session);
+                }
+                repondre(echange, 200, "{\"importees\":" + moteurs.size() + "}");
+                break;
+            }
+            case "/suppression":
+                for (String sessionId : identifiants) {
+                    fermerSession(sessionId, Long.MAX_VALUE);
+                }
+                repondre(echange, 204, null);
+                break;
+            default:
+                repondre(echange, 404, erreurJson("Route inconnue", echange.getRequestURI().getPath()));
+        }
+    }
+
+    /**
+     * Lit une liste d'identifiants de session, un par ligne (les lignes vides sont ignorées).
+     *
+     * @throws IllegalArgumentException Si une ligne n'est pas un identifiant de session valide.
+     */
+    private static List<String> lireIdentifiants(byte[] corps) {
+        List<String> identifiants = new String(corps, StandardCharsets.UTF_8).lines().filter(ligne -> !ligne.isEmpty()).toList();
+        for (String sessionId : identifiants) {
+            if (!identifiantSessionValide(sessionId)) {
+                throw new IllegalArgumentException(sessionId);
+            }
+        }
+        return identifiants;
+    }
+
+    private Session configurer(String sessionId, MoteurCommandes moteur) {
+        moteur.setGrilleTarifaire(grilleTarifaire);
+        moteur.setStock(stock);
+        moteur.setCacheDevis(cacheDevis);
+        moteur.setNumerotation(numerotation);
+        moteur.setHistorique(historique);
+        if (journal != null) {
+            moteur.setJournal(journal, sessionId);
+        }
+        return new Session(moteur);
+    }
+
+    private static String etatJson(String sessionId, MoteurCommandes moteur, ResultatOperation resultat) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"session\":");
+        chaineJson(json, sessionId);
+        json.append(",\"marque\":");
+        chaineJson(json, moteur.getMarque());
+        json.append(",\"selection\":{");
+        for (int pieceId = 0; pieceId < Pieces.NOMBRE_PIECES_BASE; pieceId++) {
+            if (pieceId > 0) {
+                json.append(',');
+            }
+            chaineJson(json, Pieces.nomDe(pieceId));
+            json.append(':').append(moteur.isPieceSelectionnee(pieceId));
+        }
+        json.append("},\"lignes\":[");
+        GestionQuantites panier = moteur.getGestionQuantites();
+        for (int i = 0; i < panier.getNombreLignes(); i++) {
+            int pieceId = panier.getPieceLigne(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"piece\":").append(pieceId).append(",\"nom\":");
+            chaineJson(json, Pieces.nomDe(pieceId));
+            json.append(",\"quantite\":").append(panier.getQuantite(pieceId))
+                    .append(",\"prixUnitaire\":").append(moteur.getPrix(pieceId)).append('}');
+        }
+        json.append("],\"totalBrut\":").append(moteur.getPrixTotalBrut());
+        json.append(",\"total\":").append(moteur.getPrixTotal());
+        if (moteur.getReservation() != null) {
+            json.append(",\"reservation\":{\"id\":").append(moteur.getReservation().getId())
+                    .append(",\"enAttente\":").append(moteur.getReservation().isEnAttente()).append('}');
+        }
+        if (resultat.getFacture() != null) {
+            json.append(",\"facture\":");
+            chaineJson(json, resultat.getFacture());
+        }
+        return json.append('}').toString();
+    }
+
+    static String erreurJson(String entete, String message) {
+        StringBuilder json = new StringBuilder("{\"erreur\":");
+        chaineJson(json, entete);
+        json.append(",\"message\":");
+        chaineJson(json, message);
+        return json.append('}').toString();
+    }
+
+    static void chaineJson(StringBuilder json, String valeur) {
+        if (valeur == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < valeur.length(); i++) {
+            char c = valeur.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Décode les paramètres d'une requête.
+     *
+     * @throws IllegalArgumentException Si un échappement `%XX` est invalide.
+     */
+    private static Map<String, String> lireParametres(String requete) {
+        Map<String, String> parametres = new HashMap<>();
+        if (requete == null || requete.isEmpty()) {
+            return parametres;
+        }
+        for (String paire : requete.split("&")) {
+            int egal = paire.indexOf('=');
+            String cle = egal < 0 ? paire : paire.substring(0, egal);
+            String valeur = egal < 0 ? "" : paire.substring(egal + 1);
+            parametres.put(URLDecoder.decode(cle, StandardCharsets.UTF_8), URLDecoder.decode(valeur, StandardCharsets.UTF_8));
+        }
+        return parametres;
+    }
+
+    private static int lirePiece(Map<String, String> parametres) {
+        String piece = parametres.get("piece");
+        if (piece == null) {
+            throw new IllegalArgumentException("Paramètre \"piece\" manquant");
+        }
+        int pieceId = Pieces.idDe(piece);
+        return pieceId != Pieces.INCONNUE ? pieceId : lireEntier(parametres, "piece");
+    }
+
+    private static int lireEntier(Map<String, String> parametres, String nom) {
+        String valeur = parametres.get(nom);
+        if (valeur == null) {
+            throw new IllegalArgumentException("Paramètre \"" + nom + "\" manquant");
+        }
+        try {
+            return Integer.parseInt(valeur);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Paramètre \"" + nom + "\" non numérique : " + valeur);
+        }
+    }
+
+    private static void repondre(HttpExchange echange, int code, String json) throws IOException {
+        envoyer(echange, code, json, "application/json; charset=utf-8");
+    }
+
+    private static void envoyer(HttpExchange echange, int code, String corpsReponse, String type) throws IOException {
+        if (corpsReponse == null) {
+            echange.sendResponseHeaders(code, -1);
+            echange.close();
+            return;
+        }
+        envoyer(echange, code, corpsReponse.getBytes(StandardCharsets.UTF_8), type);
+    }
+
+    private static void envoyer(HttpExchange echange, int code, byte[] octets, String type) throws IOException {
+        echange.getResponseHeaders().set("Content-Type", type);
+        echange.sendResponseHeaders(code, octets.length);
+        try (OutputStream corps = echange.getResponseBody()) {
+            corps.write(octets);
+        }
+    }
+
+    /**
+     * Moteur d'une session et date de sa dernière requête (le verrou est celui de son panier dans `sessions`).
+     */
+    private static final class Session {
+        final MoteurCommandes moteur;
+        volatile long derniereActivite = System.nanoTime(); // Date (nanoTime) de la dernière requête
+
+        Session(MoteurCommandes moteur) {
+            this.moteur = moteur;
+        }
+    }
+
+    /**
+     * Lance le serveur sur l'interface locale.
+     *
+     * Arguments (tous optionnels) : [port] [fichier catalogue] [nombre de pièces par panier] [dossier du journal]
+     * Avec un journal, les paniers sont restaurés au démarrage et un instantané est écrit chaque minute
+     * dans le sous-dossier `instantanes`.
+     * La propriété système `backautodoc.regles` désigne un fichier de {@link ReglesTarifaires}.
+     * La propriété système `backautodoc.stock` active le contrôle du stock, avec ce nombre d'unités de chaque pièce
+     * (les réservations non confirmées sont libérées au bout de 15 minutes).
+     * La propriété système `backautodoc.devis` active un cache de devis partagé ({@link CacheDevis}) de cette capacité.
+     * La propriété système `backautodoc.numerotation` désigne le fichier de {@link NumerotationFactures}
+     * (il peut être partagé par plusieurs serveurs).
+     * La propriété système `backautodoc.historique=true` enregistre les ventes pour la route `/historique`.
+     * Les propriétés système `backautodoc.sessions.max` et `backautodoc.sessions.inactivite` (en minutes)
+ * bornent le nombre de sessions et leur durée sans requête (par défaut 100 000 sessions et 30 minutes).
+ * La propriété système `backautodoc.jfr` démarre un enregistrement JFR continu ({@link EvenementsJfr}).
+     */
+    public static void main(String[] args) throws IOException {
+        EvenementsJfr.demarrerSiDemande();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : PORT_PAR_DEFAUT;
+        PrixArticles prixArticles = args.length > 1
+                ? new PrixArticles(CataloguePrix.ouvrir(Path.of(args[1])))
+                : new PrixArticles();
+        int nombrePieces = args.length > 2 ? Integer.parseInt(args[2]) : Pieces.NOMBRE_PIECES_BASE;
+
+        ServeurHttp serveur = new ServeurHttp(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                prixArticles, nombrePieces);
+        serveur.setLimitesSessions(Integer.getInteger("backautodoc.sessions.max", SESSIONS_MAX_DEFAUT),
+                Duration.ofMinutes(Long.getLong("backautodoc.sessions.inactivite", INACTIVITE_MAX_DEFAUT.toMinutes())));
+        String regles = System.getProperty("backautodoc.regles");
+        if (regles != null) {
+            serveur.setGrilleTarifaire(ReglesTarifaires.lire(Path.of(regles), nombrePieces).compiler());
+        }
+        String stockInitial = System.getProperty("backautodoc.stock");
+        if (stockInitial != null) {
+            StockPieces stock = new StockPieces(nombrePieces, DUREE_RESERVATION);
+            for (int pieceId = 0; pieceId < nombrePieces; pieceId++) {
+                stock.ajouterStock(pieceId, Integer.parseInt(stockInitial));
+            }
+            serveur.setStock(stock);
+        }
+        String capaciteDevis = System.getProperty("backautodoc.devis");
+        if (capaciteDevis != null) {
+            serveur.setCacheDevis(new CacheDevis(Integer.parseInt(capaciteDevis)));
+        }
+        if (Boolean.getBoolean("backautodoc.historique")) {
+            serveur.setHistorique(new HistoriqueCommandes());
+        }
+        String fichierNumerotation = System.getProperty("backautodoc.numerotation");
+        if (fichierNumerotation != null) {
+            serveur.setNumerotation(NumerotationFactures.ouvrir(Path.of(fichierNumerotation)));
+        }
+        if (args.length > 3) {
+            Path dossierJournal = Path.of(args[3]);
+            Path dossierInstantanes = dossierJournal.resolve("instantanes");
+            serveur.setJournal(new JournalCommandes(dossierJournal, TAILLE_SEGMENT_JOURNAL));
+            long debut = System.nanoTime();
+            int restaurees = serveur.restaurer(dossierInstantanes, dossierJournal);
+            System.out.println(restaurees + " paniers restaurés en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+            serveur.activerInstantanes(dossierInstantanes, PERIODE_INSTANTANES_SECONDES);
+        }
+        if (args.length > 3 || fichierNumerotation != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(serveur::arreter));
+        }
+        serveur.demarrer();
+        System.out.println("Serveur AutoDoc à l'écoute sur http://localhost:" + serveur.getPort());
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.backautodoc;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cette classe gère le stock disponible de chaque pièce, partagé par tous les postes et toutes les sessions.
+ *
+ * Rôles principaux :
+ * 1. Réserver atomiquement toutes les lignes d'une commande : soit toutes sont réservées, soit aucune.
+ * 2. Libérer une réservation quand la commande est annulée, ou automatiquement après un délai.
+ * 3. Confirmer une réservation : les pièces sont alors définitivement vendues.
+ *
+ * Fonctionnement :
+ * - Le stock disponible de chaque pièce est un compteur modifié par compare-and-set ({@link VarHandle}),
+ *   sans verrou : deux commandes de pièces différentes ne se gênent jamais, et une pièce très demandée
+ *   ne bloque que les commandes qui la contiennent.
+ * - Pour un petit catalogue, chaque compteur occupe sa propre ligne de cache (64 octets) : deux pièces
+ *   voisines très demandées ne se ralentissent pas mutuellement (faux partage).
+ * - Si une ligne ne peut pas être réservée, les lignes déjà réservées sont rendues avant de refuser.
+ * - Chaque réservation est ajoutée à une file sans verrou ({@link ConcurrentLinkedQueue}). Le délai étant
+ *   le même pour toutes, la file est rangée par échéance : un thread libère la tête de file à échéance,
+ *   et ignore les réservations déjà confirmées ou annulées (aucune suppression au milieu de la file).
+ * - L'état d'une réservation ne change qu'une fois (confirmée, annulée ou expirée), par CAS.
+ *
+ * Liens avec d'autres classes :
+ * - {@link MoteurCommandes} : Réserve le stock dans {@link MoteurCommandes#commander()}.
+ * - {@link Commande} : Les lignes à réserver.
+ */
+public class StockPieces implements Closeable {
+
+    private static final VarHandle DISPONIBLES = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int PIECES_MAX_ESPACEES = 1 << 16;  // Au-delà, les compteurs sont contigus
+    private static final int ESPACEMENT_LIGNE_CACHE = 16;    // 16 int = 64 octets
+    private static final long ATTENTE_FILE_VIDE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final int[] disponibles;  // Stock disponible, case `pieceId * espacement`, accédé via DISPONIBLES
+    private final int espacement;
+    private final int nombrePieces;
+    private final long dureeReservationNanos;
+    private final AtomicLong prochainId = new AtomicLong();
+    private final ConcurrentLinkedQueue<Reservation> echeances = new ConcurrentLinkedQueue<>();
+    private final LongAdder reservationsExpirees = new LongAdder();
+    private final Thread expiration;
+
+    /**
+     * Crée un stock vide.
+     *
+     * @param nombrePieces Le nombre de références du catalogue.
+     * @param dureeReservation Le délai après lequel une réservation non confirmée est libérée.
+     */
+    public StockPieces(int nombrePieces, Duration dureeReservation) {
+        if (nombrePieces < 0) {
+            throw new IllegalArgumentException("Nombre de pièces négatif : " + nombrePieces);
+        }
+        this.nombrePieces = nombrePieces;
+        this.espacement = nombrePieces <= PIECES_MAX_ESPACEES ? ESPACEMENT_LIGNE_CACHE : 1;
+        this.disponibles = new int[nombrePieces * espacement];
+        this.dureeReservationNanos = dureeReservation.toNanos();
+        this.expiration = Thread.ofPlatform().daemon().name("stock-expiration").start(this::expirer);
+    }
+
+    /**
+     * Ajoute (ou retire) des pièces au stock disponible, par exemple à la réception d'une livraison.
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @param delta Le nombre de pièces ajoutées (négatif pour un retrait ; le stock ne descend pas sous 0).
+     * @return true si l'opération a été effectuée, sinon false (identifiant hors du catalogue).
+     */
+    public boolean ajouterStock(int pieceId, int delta) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return false;
+        }
+        int indice = pieceId * espacement;
+        while (true) {
+            int ancien = (int) DISPONIBLES.getVolatile(disponibles, indice);
+            int nouveau = Math.max(0, ancien + delta);
+            if (nouveau == ancien || DISPONIBLES.compareAndSet(disponibles, indice, ancien, nouveau)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Retourne le stock disponible d'une pièce (hors quantités réservées).
+     *
+     * @param pieceId L'identifiant de la pièce.
+     * @return Le nombre de pièces disponibles, ou 0 si l'identifiant n'existe pas.
+     */
+    public int getDisponible(int pieceId) {
+        if (pieceId < 0 || pieceId >= nombrePieces) {
+            return 0;
+        }
+        return (int) DISPONIBLES.getAcquire(disponibles, pieceId * espacement);
+    }
+
+    /**
+     * Réserve toutes les lignes d'une commande, ou aucune.
+     *
+     * @param commande La commande à réserver.
+     * @return La réservation ; si elle est refusée, {@link Reservation#isAcceptee()} est false et
+     *         {@link Reservation#getPieceManquante()} indique la première pièce en rupture.
+     */
+    public Reservation reserver(Commande commande) {
+        int n = commande.getNombreLignes();
+        for (int i = 0; i < n; i++) {
+            if (!prendre(commande.getPiece(i), commande.getQuantite(i))) {
+                // Rend les lignes déjà prises : la réservation est tout ou rien
+                for (int j = 0; j < i; j++) {
+                    rendre(commande.getPiece(j), commande.getQuantite(j));
+                }
+                return new Reservation(this, -1, commande, commande.getPiece(i), 0);
+            }
+        }
+        Reservation reservation = new Reservation(this, prochainId.incrementAndGet(), commande, -1,
+                System.nanoTime() + dureeReservationNanos);
+        echeances.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * Retourne le nombre de réservations libérées parce qu'elles n'ont pas été confirmées à temps.
+     */
+    public long getReservationsExpirees() {
+        return reservationsExpirees.sum();
+    }
+
+    public int getNombrePieces() {
+        return nombrePieces;
+    }
+
+    /**
+     * Arrête le thread d'expiration. Les réservations encore en attente ne seront plus libérées automatiquement.
+     */
+    @Override
+    public void close() {
+        expiration.interrupt();
+    }
+
+    private boolean prendre(int pieceId, int quantite) {
+        if (pieceId < 0 || pieceId >= nombrePieces || quantite < 0) {
+            return false;
+        }
+        int indice = pieceId * espacement;
+        int actuel = (int) DISPONIBLES.getVolatile(disponibles, indice);
+        while (actuel >= quantite) {
+            int temoin = (int) DISPONIBLES.compareAndExchange(disponibles, indice, actuel, actuel - quantite);
+            if (temoin == actuel) {
+                return true;
+            }
+            actuel = temoin; // Un autre thread est passé avant : on réessaie avec la valeur qu'il a laissée
+        }
+        return false;
+    }
+
+    private void rendre(int pieceId, int quantite) {
+        DISPONIBLES.getAndAdd(disponibles, pieceId * espacement, quantite);
+    }
+
+    private void expirer() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Reservation tete = echeances.peek();
+            if (tete == null) {
+                LockSupport.parkNanos(ATTENTE_FILE_VIDE_NANOS);
+                continue;
+            }
+            long attente = tete.echeanceNanos - System.nanoTime();
+            if (attente > 0) {
+                LockSupport.parkNanos(attente);
+                continue;
+            }
+            echeances.poll();
+            if (tete.terminer(Reservation.EXPIREE)) {
+                reservationsExpirees.increment();
+            }
+        }
+    }
+
+    /**
+     * Réservation des lignes d'une commande, en attente de confirmation ou d'annulation.
+     */
+    public static final class Reservation {
+        static final int EN_ATTENTE = 0;
+        static final int CONFIRMEE = 1;
+        static final int ANNULEE = 2;
+        static final int EXPIREE = 3;
+        private static final VarHandle ETAT;
+
+        static {
+            try {
+                ETAT = MethodHandles.lookup().findVarHandle(Reservation.class, "etat", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final StockPieces stock;
+        private final long id;
+        private final Commande commande;
+        private final int pieceManquante;
+        private final long echeanceNanos;
+        private volatile int etat;
+
+        private Reservation(StockPieces stock, long id, Commande commande, int pieceManquante, long echeanceNanos) {
+            this.stock = stock;
+            this.id = id;
+            this.commande = commande;
+            this.pieceManquante = pieceManquante;
+            this.echeanceNanos = echeanceNanos;
+            this.etat = pieceManquante < 0 ? EN_ATTENTE : ANNULEE;
+        }
+
+        /**
+         * Confirme la vente : les pièces réservées ne seront plus rendues au stock.
+         *
+         * @return true si la réservation était encore en attente, false si elle a déjà expiré ou été annulée.
+         */
+        public boolean confirmer() {
+            return ETAT.compareAndSet(this, EN_ATTENTE, CONFIRMEE);
+        }
+
+        /**
+         * Annule la réservation et rend les pièces au stock.
+         *
+         * @return true si la réservation était encore en attente.
+         */
+        public boolean annuler() {
+            return terminer(ANNULEE);
+        }
+
+        private boolean terminer(int etatFinal) {
+            if (!ETAT.compareAndSet(this, EN_ATTENTE, etatFinal)) {
+                return false;
+            }
+            for (int i = 0; i < commande.getNombreLignes(); i++) {
+                stock.rendre(commande.getPiece(i), commande.getQuantite(i));
+            }
+            return true;
+        }
+
+        public boolean isAcceptee() {
+            return pieceManquante < 0;
+        }
+
+        public boolean isEnAttente() {
+            return etat == EN_ATTENTE;
+        }
+
+        public boolean isExpiree() {
+            return etat == EXPIREE;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public int getPieceManquante() {
+            return pieceManquante;
+        }
+
+        public Commande getCommande() {
+            return commande;
+        }
+    }
+}
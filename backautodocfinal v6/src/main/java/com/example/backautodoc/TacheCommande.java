@@ -0,0 +1,68 @@
+package com.example.backautodoc;
+
+import javafx.concurrent.Task;
+
+/**
+ * Cette classe passe une commande en dehors du thread JavaFX.
+ *
+ * Rôles principaux :
+ * 1. Exécuter {@link MoteurCommandes#commander()} (réservation du stock, écriture durable dans le journal,
+ *    génération de la facture) sans bloquer l'affichage.
+ * 2. Publier l'avancement (message et indicateur de progression) pour l'interface.
+ * 3. Permettre l'annulation par l'utilisateur.
+ *
+ * Fonctionnement :
+ * - L'annulation est coopérative : le thread n'est jamais interrompu, car une interruption pendant
+ *   l'écriture du journal fermerait son fichier pour toutes les sessions. Elle est vérifiée avant la commande,
+ *   puis juste après : une commande déjà passée est alors annulée ({@link MoteurCommandes#annulerCommande()},
+ *   qui rend les pièces réservées au stock). Sans stock, elle est déjà écrite dans le journal et ne peut plus
+ *   être défaite : elle reste passée et son résultat est conservé ({@link #getCommandeMaintenue()}).
+ * - Le moteur n'est pas thread-safe : l'interface ne doit pas le modifier tant que {@link #run()} n'est pas
+ *   terminé (et pas seulement jusqu'à l'état CANCELLED, atteint dès la demande d'annulation).
+ *
+ * Liens avec d'autres classes :
+ * - {@link HelloController} : Lance la tâche sur un thread virtuel, désactive le panier pendant son exécution,
+ *   puis affiche le résultat.
+ * - {@link EvenementsJfr.PassageCommande} : Chaque exécution émet cet événement JFR.
+ */
+public class TacheCommande extends Task<ResultatOperation> {
+
+    private final MoteurCommandes moteur;
+    private volatile ResultatOperation commandeMaintenue; // Commande passée malgré l'annulation, ou null
+
+    public TacheCommande(MoteurCommandes moteur) {
+        this.moteur = moteur;
+    }
+
+    @Override
+    protected ResultatOperation call() {
+        EvenementsJfr.PassageCommande evenement = new EvenementsJfr.PassageCommande();
+        evenement.begin();
+        updateProgress(-1, 1);
+        if (isCancelled()) {
+            return null;
+        }
+        updateMessage("Enregistrement de la commande…");
+        ResultatOperation resultat = moteur.commander();
+        evenement.terminer(moteur.getMarque(), moteur.getGestionQuantites().getNombreLignes(), resultat.isSucces());
+        if (isCancelled() && resultat.isSucces()) {
+            // Annulée pendant l'enregistrement : la commande passée n'est pas confirmée, son stock est rendu
+            if (moteur.annulerCommande().isSucces()) {
+                return null;
+            }
+            // Pas de réservation à annuler : la commande est déjà vendue
+            commandeMaintenue = resultat;
+        }
+        updateMessage(resultat.isSucces() ? "Commande enregistrée" : resultat.getEntete());
+        updateProgress(1, 1);
+        return resultat;
+    }
+
+    /**
+     * Retourne le résultat d'une commande passée malgré la demande d'annulation (elle ne pouvait plus être
+     * défaite), ou null. La tâche est alors dans l'état CANCELLED et {@link #getValue()} ne le contient pas.
+     */
+    public ResultatOperation getCommandeMaintenue() {
+        return commandeMaintenue;
+    }
+}
@@ -1,8 +1,14 @@
 module com.example.backautodoc {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
+    requires java.net.http;
+    requires java.management;
+    requires jdk.jfr;
+    requires static jdk.incubator.vector;
 
 
+    // Uniquement pour le chargement par FXMLLoader (-Dbackautodoc.fxml=true) : la vue générée n'utilise pas la réflexion
     opens com.example.backautodoc to javafx.fxml;
     exports com.example.backautodoc;
 }
\ No newline at end of file
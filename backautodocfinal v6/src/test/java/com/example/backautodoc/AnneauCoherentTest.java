@@ -0,0 +1,51 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnneauCoherentTest {
+
+    private static final int CLES = 10_000;
+
+    @Test
+    void ajoutNeDeplaceQueVersLeNouveauNoeud() {
+        AnneauCoherent anneau = new AnneauCoherent(List.of("a", "b", "c"), AnneauCoherent.NOEUDS_VIRTUELS_DEFAUT);
+        AnneauCoherent agrandi = anneau.avec("d");
+        int deplacees = 0;
+        for (int i = 0; i < CLES; i++) {
+            String cle = "session-" + i;
+            String avant = anneau.noeudDe(cle);
+            String apres = agrandi.noeudDe(cle);
+            if (!avant.equals(apres)) {
+                assertEquals("d", apres, cle);
+                deplacees++;
+            }
+        }
+        // Environ un quart des clés rejoint le quatrième nœud
+        assertTrue(deplacees > CLES / 8 && deplacees < CLES / 2, "Clés déplacées : " + deplacees);
+    }
+
+    @Test
+    void retraitNeDeplaceQueLesClesDuNoeudRetire() {
+        AnneauCoherent anneau = new AnneauCoherent(List.of("a", "b", "c"), AnneauCoherent.NOEUDS_VIRTUELS_DEFAUT);
+        AnneauCoherent reduit = anneau.sans("b");
+        Map<String, Integer> parNoeud = new HashMap<>();
+        for (int i = 0; i < CLES; i++) {
+            String cle = "session-" + i;
+            String avant = anneau.noeudDe(cle);
+            parNoeud.merge(avant, 1, Integer::sum);
+            if (!avant.equals("b")) {
+                assertEquals(avant, reduit.noeudDe(cle), cle);
+            }
+        }
+        for (int part : parNoeud.values()) {
+            assertTrue(part > CLES / 5 && part < CLES / 2, "Répartition : " + parNoeud);
+        }
+    }
+}
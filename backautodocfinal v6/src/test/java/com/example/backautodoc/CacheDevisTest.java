@@ -0,0 +1,81 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheDevisTest {
+
+    private final PrixArticles prixArticles = new PrixArticles();
+
+    @Test
+    void memePanierMemeDevis() {
+        CacheDevis cache = new CacheDevis(10);
+        CacheDevis.Cle cle = cle(cache, 3, "Toyota");
+        assertEquals(cle, cle(cache, 3, "Toyota"));
+        assertNotEquals(cle, cle(cache, 3, "Ford"));
+        assertNotEquals(cle, cle(cache, 4, "Toyota"));
+
+        assertNull(cache.get(cle));
+        cache.put(cle, new CacheDevis.Devis(600, 570, null));
+        assertEquals(new CacheDevis.Devis(600, 570, null), cache.get(cle(cache, 3, "Toyota")));
+        assertEquals(1, cache.getSucces());
+        assertEquals(1, cache.getEchecs());
+
+        // Une nouvelle version des prix change la clé
+        prixArticles.signalerChangementPrix();
+        assertNull(cache.get(cle(cache, 3, "Toyota")));
+    }
+
+    @Test
+    void tailleBorneeParLaCapacite() {
+        CacheDevis cache = new CacheDevis(100);
+        for (int i = 1; i <= 1_000; i++) {
+            cache.put(cle(cache, i, "Toyota"), new CacheDevis.Devis(i, i, null));
+        }
+        assertTrue(cache.getTaille() <= cache.getCapacite(), "taille " + cache.getTaille());
+        assertEquals(1_000 - cache.getTaille(), cache.getEvictions());
+    }
+
+    @Test
+    void panierFrequentResisteAUnBalayage() {
+        CacheDevis cache = new CacheDevis(100);
+        for (int i = 1; i <= 20; i++) {
+            cache.put(cle(cache, i, "Toyota"), new CacheDevis.Devis(i, i, null));
+        }
+        cache.put(cle(cache, 999, "Ford"), new CacheDevis.Devis(0, 0, null)); // Fait sortir le dernier de la fenêtre
+        for (int acces = 0; acces < 10; acces++) {
+            for (int i = 1; i <= 20; i++) {
+                cache.get(cle(cache, i, "Toyota"));
+            }
+        }
+        // Des milliers de paniers vus une seule fois ne chassent pas les forfaits demandés souvent
+        for (int i = 1_000; i < 5_000; i++) {
+            cache.put(cle(cache, i, "Ford"), new CacheDevis.Devis(i, i, null));
+        }
+        for (int i = 1; i <= 20; i++) {
+            assertNotNull(cache.get(cle(cache, i, "Toyota")), "forfait " + i);
+        }
+        assertTrue(cache.getTaille() <= cache.getCapacite());
+    }
+
+    @Test
+    void grandPanierPasMisEnCache() {
+        CacheDevis cache = new CacheDevis(10);
+        GestionQuantites panier = new GestionQuantites(CacheDevis.LIGNES_MAX + 1);
+        for (int pieceId = 0; pieceId <= CacheDevis.LIGNES_MAX; pieceId++) {
+            panier.modifierQuantite(pieceId, 1);
+        }
+        assertNull(cache.cle(panier, prixArticles, GrilleTarifaire.VIDE, "Toyota"));
+    }
+
+    private CacheDevis.Cle cle(CacheDevis cache, int quantiteFreins, String marque) {
+        GestionQuantites panier = new GestionQuantites(Pieces.NOMBRE_PIECES_BASE);
+        panier.modifierQuantite(Pieces.FREINS, quantiteFreins);
+        return cache.cle(panier, prixArticles, GrilleTarifaire.VIDE, marque);
+    }
+}
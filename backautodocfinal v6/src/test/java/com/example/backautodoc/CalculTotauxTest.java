@@ -0,0 +1,82 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CalculTotauxTest {
+
+    @Test
+    void vectoriseEtScalaireDonnentLeMemeTotal() {
+        SplittableRandom aleatoire = new SplittableRandom(12);
+        // Longueurs autour des largeurs de vecteur : la fin de tableau passe par la boucle de reste
+        for (int longueur : new int[]{0, 1, 7, 8, 9, 15, 16, 17, 31, 33, 64, 1_000, 100_003}) {
+            int[] quantites = new int[longueur + 5];
+            int[] prix = new int[longueur + 5];
+            for (int i = 0; i < quantites.length; i++) {
+                quantites[i] = aleatoire.nextInt(1_000);
+                prix[i] = aleatoire.nextInt(100_000);
+            }
+            assertEquals(CalculTotaux.produitScalaireScalaire(quantites, prix, longueur),
+                    CalculTotaux.produitScalaire(quantites, prix, longueur), "longueur " + longueur);
+        }
+    }
+
+    @Test
+    void totalExactAuDelaDUnInt() {
+        int[] quantites = new int[1_024];
+        int[] prix = new int[1_024];
+        // Chaque produit dépasse déjà Integer.MAX_VALUE
+        Arrays.fill(quantites, 1_000_000);
+        Arrays.fill(prix, 100_000);
+        long attendu = 1_000_000L * 100_000 * 1_024;
+        assertEquals(attendu, CalculTotaux.produitScalaireScalaire(quantites, prix, 1_024));
+        assertEquals(attendu, CalculTotaux.produitScalaire(quantites, prix, 1_024));
+    }
+
+    @Test
+    void produitDecaleSurUnBloc() {
+        int[] quantites = {9, 9, 1, 2, 3, 9};
+        int[] prix = {10, 100, 1_000, 7};
+        assertEquals(3_210, CalculTotaux.produitScalaire(quantites, 2, prix, 3));
+        assertEquals(3_210, CalculTotaux.produitScalaireScalaire(quantites, 2, prix, 3));
+        assertThrows(IllegalArgumentException.class, () -> CalculTotaux.produitScalaire(quantites, 4, prix, 3));
+    }
+
+    @Test
+    void prixLusParBlocsDansLeCatalogue(@TempDir Path dossier) throws IOException {
+        // Plusieurs blocs de prix, le dernier incomplet
+        int nombrePieces = 10_007;
+        CatalogueMappe catalogue = CatalogueMappe.creer(dossier.resolve("catalogue.bin"), nombrePieces);
+        PrixArticles prixArticles = new PrixArticles(catalogue);
+        int[] quantites = new int[nombrePieces];
+        long attendu = 0;
+        for (int pieceId = 0; pieceId < nombrePieces; pieceId++) {
+            catalogue.setPrix(pieceId, pieceId % 97);
+            quantites[pieceId] = pieceId % 5;
+            attendu += (long) (pieceId % 97) * (pieceId % 5);
+        }
+        assertEquals(attendu, prixArticles.produitScalaire(quantites, nombrePieces));
+
+        // Aucune copie des prix n'est conservée : un prix modifié sur place compte dès le calcul suivant
+        catalogue.setPrix(nombrePieces - 1, 1_000_000);
+        attendu += (long) quantites[nombrePieces - 1] * (1_000_000 - (nombrePieces - 1) % 97);
+        assertEquals(attendu, prixArticles.produitScalaire(quantites, nombrePieces));
+    }
+
+    @Test
+    void longueurInvalideRefusee() {
+        int[] quantites = new int[4];
+        int[] prix = new int[3];
+        assertThrows(IllegalArgumentException.class, () -> CalculTotaux.produitScalaire(quantites, prix, 4));
+        assertThrows(IllegalArgumentException.class, () -> CalculTotaux.produitScalaire(quantites, prix, -1));
+        assertEquals(0, CalculTotaux.produitScalaire(quantites, prix, 0));
+    }
+}
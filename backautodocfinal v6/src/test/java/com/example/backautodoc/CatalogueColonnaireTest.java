@@ -0,0 +1,99 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogueColonnaireTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void toutesLesColonnesRelues() throws IOException {
+        Path fichier = dossier.resolve("catalogue.adcc");
+        CatalogueColonnaire.ecrire(fichier, new long[]{1001, 1002, 1003, 1004}, new int[]{120, 45, 30, 7},
+                new int[]{0b01, 0b10, 0b11, 0}, List.of("Toyota", "Peugeot"),
+                new String[]{"Freins", "Huile", "Filtre", "Freins"});
+
+        CatalogueColonnaire catalogue = CatalogueColonnaire.ouvrir(fichier);
+        assertEquals(4, catalogue.getNombrePieces());
+        assertEquals(CatalogueColonnaire.VERSION, catalogue.getVersion());
+        assertEquals(45, catalogue.getPrix(1));
+        assertEquals(0, catalogue.getPrix(4));
+        assertEquals(1003, catalogue.getReference(2));
+        assertEquals("Freins", catalogue.getLibelle(3));
+        assertEquals("Filtre", catalogue.getLibelle(2));
+        assertNull(catalogue.getLibelle(-1));
+        assertEquals(List.of("Toyota", "Peugeot"), catalogue.getNomsMarques());
+        assertTrue(catalogue.estCompatible(0, "Toyota"));
+        assertFalse(catalogue.estCompatible(0, "Peugeot"));
+        assertFalse(catalogue.estCompatible(3, "Toyota"));
+        assertFalse(catalogue.estCompatible(0, "Ford"));
+        assertEquals(List.of("Toyota", "Peugeot"), catalogue.getMarquesCompatibles(2));
+
+        int[] prix = new int[6];
+        catalogue.copierPrix(prix);
+        assertEquals(List.of(120, 45, 30, 7, 0, 0), List.of(prix[0], prix[1], prix[2], prix[3], prix[4], prix[5]));
+    }
+
+    @Test
+    void colonnesFacultativesAbsentes() throws IOException {
+        Path fichier = dossier.resolve("catalogue.adcc");
+        CatalogueColonnaire.ecrire(fichier, null, new int[]{10, 20}, null, null, null);
+
+        CatalogueColonnaire catalogue = CatalogueColonnaire.ouvrir(fichier);
+        assertEquals(20, catalogue.getPrix(1));
+        assertEquals(0, catalogue.getReference(1));
+        assertNull(catalogue.getLibelle(1));
+        assertTrue(catalogue.estCompatible(1, "Toyota"));
+        assertEquals(List.of(), catalogue.getMarquesCompatibles(1));
+        // Le format est reconnu à sa signature
+        assertInstanceOf(CatalogueColonnaire.class, CataloguePrix.ouvrir(fichier));
+    }
+
+    @Test
+    void versionPlusRecenteRefusee() throws IOException {
+        Path fichier = dossier.resolve("catalogue.adcc");
+        CatalogueColonnaire.ecrire(fichier, null, new int[]{10}, null, null, null);
+        ecrireEntier(fichier, 4, CatalogueColonnaire.VERSION + 1);
+        assertThrows(IOException.class, () -> CatalogueColonnaire.ouvrir(fichier));
+    }
+
+    @Test
+    void libellesCorrompusRefusesALOuverture() throws IOException {
+        Path fichier = dossier.resolve("catalogue.adcc");
+        // En-tête (16 octets), prix à 16, codes des libellés à 24, dictionnaire à 32 : taille, débuts 0, 1, 2, "AB"
+        CatalogueColonnaire.ecrire(fichier, null, new int[]{10, 20}, null, null, new String[]{"A", "B"});
+        assertEquals("B", CatalogueColonnaire.ouvrir(fichier).getLibelle(1));
+
+        ecrireEntier(fichier, 28, 7);
+        IOException code = assertThrows(IOException.class, () -> CatalogueColonnaire.ouvrir(fichier));
+        assertTrue(code.getMessage().contains("Code de libellé 7"), code.getMessage());
+
+        ecrireEntier(fichier, 28, 1);
+        ecrireEntier(fichier, 40, 5);
+        IOException debuts = assertThrows(IOException.class, () -> CatalogueColonnaire.ouvrir(fichier));
+        assertTrue(debuts.getMessage().contains("non croissants"), debuts.getMessage());
+    }
+
+    private static void ecrireEntier(Path fichier, long position, int valeur) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, valeur), position);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogueMappeTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void prixRelusDepuisLeFichierProjete() throws IOException {
+        int[] prix = new int[100_000];
+        for (int i = 0; i < prix.length; i++) {
+            prix[i] = i % 997;
+        }
+        Path fichier = dossier.resolve("catalogue.bin");
+        CatalogueMappe.ecrire(fichier, prix);
+
+        CatalogueMappe catalogue = CatalogueMappe.ouvrir(fichier);
+        assertEquals(prix.length, catalogue.getNombrePieces());
+        for (int i = 0; i < prix.length; i += 101) {
+            assertEquals(prix[i], catalogue.getPrix(i));
+        }
+        assertEquals(prix[prix.length - 1], catalogue.getPrix(prix.length - 1));
+        // Hors du catalogue : prix nul, comme une pièce inconnue
+        assertEquals(0, catalogue.getPrix(-1));
+        assertEquals(0, catalogue.getPrix(prix.length));
+    }
+
+    @Test
+    void prixArticlesLitLeCatalogue() throws IOException {
+        Path fichier = dossier.resolve("catalogue.bin");
+        CatalogueMappe.ecrire(fichier, new int[]{120, 45, 30, 7});
+
+        PrixArticles prixArticles = new PrixArticles(CatalogueMappe.ouvrir(fichier));
+        assertEquals(120, prixArticles.getPrixFrein());
+        assertEquals(45, prixArticles.getPrixHuile());
+        assertEquals(30, prixArticles.getPrixFiltre());
+        assertEquals(7, prixArticles.getPrix(3));
+        assertEquals(4, prixArticles.getNombrePieces());
+    }
+
+    @Test
+    void fichierTronqueOuEtrangerRefuse() throws IOException {
+        Path fichier = dossier.resolve("catalogue.bin");
+        int[] prix = new int[10];
+        Arrays.fill(prix, 5);
+        CatalogueMappe.ecrire(fichier, prix);
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.WRITE)) {
+            canal.truncate(Files.size(fichier) - 1);
+        }
+        assertThrows(IOException.class, () -> CatalogueMappe.ouvrir(fichier));
+
+        Path court = dossier.resolve("court.bin");
+        Files.write(court, new byte[8]);
+        assertThrows(IOException.class, () -> CatalogueMappe.ouvrir(court));
+
+        Path etranger = dossier.resolve("etranger.bin");
+        ByteBuffer entete = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putInt(0x12345678).putInt(1).putInt(0).putInt(4);
+        Files.write(etranger, entete.array());
+        assertThrows(IOException.class, () -> CatalogueMappe.ouvrir(etranger));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FacturationLotTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void paniersVidesEntreDeuxCommandes() throws Exception {
+        FacturationLot lot = new FacturationLot(new PrixArticles(), Pieces.NOMBRE_PIECES_BASE, dossier, 1 << 20, 1);
+        // Deuxième ligne refusée (quantité cumulée > Integer.MAX_VALUE) : rien ne doit rester pour la commande suivante
+        Commande debordement = new Commande("Toyota", new int[]{Pieces.FREINS, Pieces.FREINS},
+                new int[]{Integer.MAX_VALUE, 5});
+        Commande huile = new Commande("Ford", new int[]{Pieces.HUILE}, new int[]{2});
+        RapportLot rapport = lot.executer(List.of(debordement, huile).iterator());
+
+        assertEquals(2, rapport.getNombreCommandes());
+        String factures = Files.readString(dossier.resolve("factures-00000.txt"), StandardCharsets.UTF_8);
+        String derniere = factures.substring(factures.indexOf("Facture pour la marque Ford"));
+        assertFalse(derniere.contains("Freins"), derniere);
+        assertTrue(derniere.contains("Huile: 2 x"), derniere);
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void fluxEnEchecArreteLesTravailleurs() {
+        FacturationLot lot = new FacturationLot(new PrixArticles(), Pieces.NOMBRE_PIECES_BASE, dossier, 1 << 20, 4);
+        Iterator<Commande> commandes = new Iterator<>() {
+            private int lues;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Commande next() {
+                if (++lues > 5000) {
+                    throw new IllegalStateException("Flux coupé");
+                }
+                return new Commande("Toyota", new int[]{Pieces.FREINS}, new int[]{1});
+            }
+        };
+        IllegalStateException erreur = assertThrows(IllegalStateException.class, () -> lot.executer(commandes));
+        assertEquals("Flux coupé", erreur.getMessage());
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("facturation-ecrivain"))
+                .allMatch(Thread::isDaemon));
+    }
+
+    @Test
+    void quantiteNegativeRefusee() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Commande("Toyota", new int[]{Pieces.FREINS}, new int[]{-5}));
+    }
+}
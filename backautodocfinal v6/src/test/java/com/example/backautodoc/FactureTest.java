@@ -0,0 +1,40 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FactureTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void changementDePrixRepercuteMalgreLeCache() throws Exception {
+        CatalogueMappe catalogue = CatalogueMappe.creer(dossier.resolve("catalogue.bin"), Pieces.NOMBRE_PIECES_BASE);
+        catalogue.setPrix(Pieces.FREINS, 200);
+        PrixArticles prix = new PrixArticles(catalogue);
+        CacheDevis cache = new CacheDevis(16);
+
+        Facture facture = nouvelleFacture(prix, cache, 2);
+        assertEquals(400, facture.calculerPrixTotal("Toyota"));
+
+        catalogue.setPrix(Pieces.FREINS, 300);
+        prix.signalerChangementPrix();
+        assertEquals(600, facture.calculerPrixTotal("Toyota"));
+        assertEquals(600, facture.calculerPrixTotal());
+        // Un panier identique créé ensuite lit le devis mis en cache pour la nouvelle version
+        assertEquals(600, nouvelleFacture(prix, cache, 2).calculerPrixTotal("Toyota"));
+    }
+
+    private static Facture nouvelleFacture(PrixArticles prix, CacheDevis cache, int freins) {
+        GestionQuantites panier = new GestionQuantites(Pieces.NOMBRE_PIECES_BASE, prix);
+        panier.modifierQuantite(Pieces.FREINS, freins);
+        Facture facture = new Facture(panier, prix);
+        facture.setCacheDevis(cache);
+        return facture;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GestionQuantitesTest {
+
+    @Test
+    void panierCreuxSuitUnPanierDenseDeReference() {
+        int nombrePieces = 100_000;
+        GestionQuantites panier = new GestionQuantites(nombrePieces);
+        assertFalse(panier.estDense());
+        int[] reference = new int[nombrePieces];
+        SplittableRandom aleatoire = new SplittableRandom(1);
+        for (int i = 0; i < 200_000; i++) {
+            int pieceId = aleatoire.nextInt(5_000);
+            int delta = aleatoire.nextInt(7) - 3;
+            assertTrue(panier.modifierQuantite(pieceId, delta));
+            reference[pieceId] = Math.max(0, reference[pieceId] + delta);
+        }
+        assertFalse(panier.estDense());
+        assertArrayEquals(reference, panier.getAllQuantities());
+        int lignes = 0;
+        for (int quantite : reference) {
+            lignes += quantite > 0 ? 1 : 0;
+        }
+        assertEquals(lignes, panier.getNombreLignes());
+        for (int i = 0; i < panier.getNombreLignes(); i++) {
+            assertTrue(reference[panier.getPieceLigne(i)] > 0);
+        }
+    }
+
+    @Test
+    void panierCreuxPasseEnDenseQuandIlSeRemplit() {
+        GestionQuantites panier = new GestionQuantites(10_000);
+        for (int pieceId = 0; pieceId < 2_000; pieceId++) {
+            panier.modifierQuantite(pieceId, pieceId + 1);
+        }
+        assertTrue(panier.estDense());
+        for (int pieceId = 0; pieceId < 2_000; pieceId++) {
+            assertEquals(pieceId + 1, panier.getQuantite(pieceId));
+        }
+        assertEquals(2_000, panier.getNombreLignes());
+    }
+
+    @Test
+    void totalIncrementalEgalAuRecalcul() {
+        PrixArticles prix = new PrixArticles();
+        GestionQuantites panier = new GestionQuantites(Pieces.NOMBRE_PIECES_BASE, prix);
+        panier.modifierQuantite(Pieces.FREINS, 3);
+        panier.modifierQuantite(Pieces.HUILE, 2);
+        panier.modifierQuantite(Pieces.FREINS, -5);
+        assertEquals(2L * prix.getPrix(Pieces.HUILE), panier.getTotal());
+        assertEquals(0, panier.getFreinsQty());
+    }
+
+    @Test
+    void depassementDeCapaciteRefuse() {
+        GestionQuantites panier = new GestionQuantites();
+        assertTrue(panier.modifierQuantite(Pieces.FREINS, Integer.MAX_VALUE));
+        assertFalse(panier.modifierQuantite(Pieces.FREINS, 1));
+        assertEquals(Integer.MAX_VALUE, panier.getFreinsQty());
+        assertFalse(new GestionQuantites(1_000_000).modifierQuantite(1_000_000, 1));
+    }
+}
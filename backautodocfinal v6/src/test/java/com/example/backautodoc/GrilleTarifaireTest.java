@@ -0,0 +1,62 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GrilleTarifaireTest {
+
+    private final PrixArticles prix = new PrixArticles();
+    private final GrilleTarifaire grille = new ReglesTarifaires()
+            .palier(Pieces.FREINS, 10, 500)
+            .palier(Pieces.FREINS, 20, 1000)
+            .lot(15, Pieces.FREINS, Pieces.FILTRES)
+            .remiseMarque("BMW", 300)
+            .compiler();
+
+    @Test
+    void palierLotEtMarqueCumules() {
+        GestionQuantites panier = panier(12, 3);
+        assertEquals(2430, panier.getTotal());
+        // 2430 - 5 % de 2400 (palier) - 3 x 15 (lots) = 2265, puis 3 % (BMW) tronqué, donc arrondi en faveur du magasin
+        assertEquals(2265, grille.appliquer(panier, prix, "Toyota", 2430));
+        assertEquals(2198, grille.appliquer(panier, prix, "BMW", 2430));
+    }
+
+    @Test
+    void palierLePlusHautAtteint() {
+        GestionQuantites panier = panier(20, 0);
+        assertEquals(3600, grille.appliquer(panier, prix, null, panier.getTotal()));
+    }
+
+    @Test
+    void grilleVideSansEffet() {
+        GestionQuantites panier = panier(12, 3);
+        assertEquals(2430, GrilleTarifaire.VIDE.appliquer(panier, prix, "BMW", 2430));
+    }
+
+    @Test
+    void pieceHorsDuCatalogueRefusee(@TempDir Path dossier) throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new ReglesTarifaires().palier(Pieces.NOMBRE_PIECES_BASE, 1, 100));
+        assertEquals(1, new ReglesTarifaires(10).palier(9, 1, 100).getNombreRegles());
+        assertThrows(IllegalArgumentException.class, () -> new ReglesTarifaires(10).lot(5, 2, 10));
+
+        // Sans cette limite, la grille compilée aurait deux milliards de cases
+        Path fichier = dossier.resolve("regles.txt");
+        Files.writeString(fichier, "palier 2000000000 1 100\n");
+        assertThrows(IOException.class, () -> ReglesTarifaires.lire(fichier, 1_000));
+    }
+
+    private GestionQuantites panier(int freins, int filtres) {
+        GestionQuantites panier = new GestionQuantites(Pieces.NOMBRE_PIECES_BASE, prix);
+        panier.modifierQuantite(Pieces.FREINS, freins);
+        panier.modifierQuantite(Pieces.FILTRES, filtres);
+        return panier;
+    }
+}
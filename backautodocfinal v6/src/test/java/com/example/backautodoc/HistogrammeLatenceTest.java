@@ -0,0 +1,42 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogrammeLatenceTest {
+
+    @Test
+    void percentilesALaPrecisionDesIntervalles() {
+        HistogrammeLatence histogramme = new HistogrammeLatence("commander", Metriques.TOUTES_MARQUES);
+        for (int i = 1; i <= 1_000; i++) {
+            histogramme.enregistrer(i * 1_000L); // 1 µs à 1 ms
+        }
+        HistogrammeLatence.Resume resume = histogramme.resumer();
+        assertEquals(1_000, resume.nombre());
+        assertEquals(500_500, resume.moyenne(), 1e-6);
+        assertEquals(1_000_000, resume.max());
+        // Chaque percentile est la borne supérieure de son intervalle : au plus 1/32 au-dessus de la valeur exacte
+        verifierProche(500_000, resume.p50());
+        verifierProche(990_000, resume.p99());
+        verifierProche(999_000, resume.p999());
+    }
+
+    @Test
+    void histogrammeVideEtDureesNegatives() {
+        HistogrammeLatence histogramme = new HistogrammeLatence("commander", "Toyota");
+        assertEquals(new HistogrammeLatence.Resume(0, 0, 0, 0, 0, 0), histogramme.resumer());
+        histogramme.enregistrer(-5);
+        histogramme.enregistrer(3);
+        HistogrammeLatence.Resume resume = histogramme.resumer();
+        assertEquals(2, resume.nombre());
+        assertEquals(3, resume.max());
+        assertEquals(0, resume.p50());
+        assertEquals("Toyota", histogramme.getMarque());
+    }
+
+    private static void verifierProche(long exact, long percentile) {
+        assertTrue(percentile >= exact && percentile <= exact + exact / 32, exact + " ≈ " + percentile);
+    }
+}
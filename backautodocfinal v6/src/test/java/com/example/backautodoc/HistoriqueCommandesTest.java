@@ -0,0 +1,46 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistoriqueCommandesTest {
+
+    @Test
+    void topBorneAuNombreDeGroupes() {
+        HistoriqueCommandes historique = new HistoriqueCommandes();
+        PrixArticles prix = new PrixArticles();
+        LocalDate jour = LocalDate.of(2026, 1, 15);
+        historique.ajouter(jour, new Commande("Toyota", new int[]{Pieces.FREINS}, new int[]{1}), prix);
+        historique.ajouter(jour, new Commande("Ford", new int[]{Pieces.HUILE}, new int[]{3}), prix);
+        historique.ajouter(jour, new Commande("Toyota", new int[]{Pieces.FILTRES}, new int[]{2}), prix);
+
+        // Demande démesurée : aucun tas de cette taille n'est alloué
+        List<HistoriqueCommandes.Groupe> groupes = historique.agreger(HistoriqueCommandes.Axe.PIECE, null, null, null)
+                .top(2_000_000_000);
+        assertEquals(List.of(Pieces.FREINS, Pieces.FILTRES, Pieces.HUILE), groupes.stream().map(HistoriqueCommandes.Groupe::cle).toList());
+        assertEquals(List.of(200L, 20L, 18L), groupes.stream().map(HistoriqueCommandes.Groupe::chiffreAffaires).toList());
+    }
+
+    @Test
+    void remiseRepartieEntreLesLignes() {
+        PrixArticles prix = new PrixArticles();
+        Commande commande = new Commande("Toyota", new int[]{Pieces.FREINS, Pieces.FILTRES}, new int[]{12, 3});
+        // 2400 + 30 facturés 2265 : la remise de 165 est répartie au prorata, l'arrondi retiré de la première ligne
+        long[] montants = HistoriqueCommandes.montantsNets(commande, prix, 2265);
+        assertArrayEquals(new long[]{2237, 28}, montants);
+        assertArrayEquals(new long[]{2400, 30}, HistoriqueCommandes.montantsNets(commande, prix, -1));
+        assertThrows(IllegalArgumentException.class, () -> HistoriqueCommandes.montantsNets(commande, prix, 2431));
+
+        HistoriqueCommandes historique = new HistoriqueCommandes();
+        historique.ajouter(LocalDate.of(2026, 1, 15), commande, montants);
+        assertEquals(2265, historique.agreger(HistoriqueCommandes.Axe.MARQUE, null, null, null).getChiffreAffairesTotal());
+        assertEquals(List.of(2237L, 28L), historique.agreger(HistoriqueCommandes.Axe.PIECE, null, null, null)
+                .getGroupes().stream().map(HistoriqueCommandes.Groupe::chiffreAffaires).toList());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportTarifsTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void lignesValidesImportees() throws IOException {
+        Path csv = ecrire("piece;prix\r\n"
+                + "0;200\r\n"
+                + "\n"
+                + "# commentaire\n"
+                + "  1 , 12.50  # arrondi à l'euro le plus proche\n"
+                + "2;7.49\n"
+                + "4;99");
+        CatalogueMappe catalogue = CatalogueMappe.creer(dossier.resolve("catalogue.bin"), 5);
+
+        ImportTarifs.Bilan bilan = ImportTarifs.importer(csv, catalogue, 2);
+        assertEquals(4, bilan.lignes());
+        assertEquals(0, bilan.rejetees());
+        assertNull(bilan.premiereErreur());
+        assertEquals(200, catalogue.getPrix(0));
+        assertEquals(13, catalogue.getPrix(1));
+        assertEquals(7, catalogue.getPrix(2));
+        assertEquals(0, catalogue.getPrix(3));
+        assertEquals(99, catalogue.getPrix(4));
+    }
+
+    @Test
+    void lignesInvalidesRejeteesAvecLaPremiereErreur() throws IOException {
+        String debut = "0;10\n";
+        Path csv = ecrire(debut
+                + "9;10\n"              // hors du catalogue
+                + "x;10\n"              // pas d'identifiant (ce n'est plus la première ligne)
+                + "1;\n"                // prix manquant
+                + "2 10\n"              // séparateur manquant
+                + "3;10 €\n"            // texte après le prix
+                + "4;99999999999\n"     // prix trop grand
+                + "1;20\n");
+        CatalogueMappe catalogue = CatalogueMappe.creer(dossier.resolve("catalogue.bin"), 5);
+
+        ImportTarifs.Bilan bilan = ImportTarifs.importer(csv, catalogue, 1);
+        assertEquals(2, bilan.lignes());
+        assertEquals(6, bilan.rejetees());
+        assertTrue(bilan.premiereErreur().startsWith("octet " + debut.length() + " : "), bilan.premiereErreur());
+        assertTrue(bilan.premiereErreur().contains("hors du catalogue"), bilan.premiereErreur());
+        assertEquals(10, catalogue.getPrix(0));
+        assertEquals(20, catalogue.getPrix(1));
+        // Les lignes rejetées n'écrivent rien
+        assertEquals(0, catalogue.getPrix(3));
+        assertEquals(0, catalogue.getPrix(4));
+    }
+
+    @Test
+    void tarifPartielGardeLesAutresPrix() throws IOException {
+        Path destination = dossier.resolve("catalogue.bin");
+        CatalogueMappe.ecrire(destination, new int[]{10, 20, 30});
+
+        ImportTarifs.remplacerCatalogue(ecrire("1;25\n"), destination, -1, false);
+        CatalogueMappe catalogue = CatalogueMappe.ouvrir(destination);
+        assertEquals(3, catalogue.getNombrePieces());
+        assertEquals(10, catalogue.getPrix(0));
+        assertEquals(25, catalogue.getPrix(1));
+        assertEquals(30, catalogue.getPrix(2));
+    }
+
+    @Test
+    void piecesSansPrixRefuseesSaufForce() throws IOException {
+        Path destination = dossier.resolve("catalogue.bin");
+        CatalogueMappe.ecrire(destination, new int[]{10, 20, 30});
+        Path csv = ecrire("3;40\n");
+
+        // Catalogue agrandi à 5 pièces : la pièce 4 n'a de prix ni dans l'ancien catalogue ni dans le tarif
+        IOException refus = assertThrows(IOException.class,
+                () -> ImportTarifs.remplacerCatalogue(csv, destination, 5, false));
+        assertTrue(refus.getMessage().contains("1 pièce(s) sans prix"), refus.getMessage());
+        assertEquals(3, CatalogueMappe.ouvrir(destination).getNombrePieces());
+        assertFalse(Files.exists(dossier.resolve("catalogue.bin.import")));
+
+        ImportTarifs.remplacerCatalogue(csv, destination, 5, true);
+        CatalogueMappe catalogue = CatalogueMappe.ouvrir(destination);
+        assertEquals(5, catalogue.getNombrePieces());
+        assertEquals(30, catalogue.getPrix(2));
+        assertEquals(40, catalogue.getPrix(3));
+        assertEquals(0, catalogue.getPrix(4));
+    }
+
+    private Path ecrire(String contenu) throws IOException {
+        Path csv = dossier.resolve("tarif.csv");
+        Files.writeString(csv, contenu, StandardCharsets.UTF_8);
+        return csv;
+    }
+}
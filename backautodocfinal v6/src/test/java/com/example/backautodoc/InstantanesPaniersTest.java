@@ -0,0 +1,120 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstantanesPaniersTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void instantaneRelu() throws Exception {
+        Map<String, MoteurCommandes> sessions = new HashMap<>();
+        sessions.put("client-1", panier("Toyota", 3));
+        sessions.put("client-2", new MoteurCommandes());
+        InstantanesPaniers.ecrire(dossier, 42, sessions);
+
+        Map<String, MoteurCommandes> relues = new HashMap<>();
+        assertEquals(42, InstantanesPaniers.charger(dossier, relues, sessionId -> new MoteurCommandes()));
+        assertEquals(2, relues.size());
+        verifierPanier(relues.get("client-1"), "Toyota", 3);
+        assertNull(relues.get("client-2").getMarque());
+    }
+
+    @Test
+    void plusAncienInstantaneConserve() throws Exception {
+        assertEquals(0, InstantanesPaniers.lsnPlusAncien(dossier));
+        InstantanesPaniers.ecrire(dossier, 5, Map.of());
+        InstantanesPaniers.ecrire(dossier, 9, Map.of());
+        assertEquals(5, InstantanesPaniers.lsnPlusAncien(dossier));
+        InstantanesPaniers.ecrire(dossier, 12, Map.of());
+        assertEquals(9, InstantanesPaniers.lsnPlusAncien(dossier));
+    }
+
+    @Test
+    void instantaneCorrompuRemplaceParLePrecedent() throws Exception {
+        InstantanesPaniers.ecrire(dossier, 1, Map.of("client-1", panier("Toyota", 3)));
+        Path dernier = InstantanesPaniers.ecrire(dossier, 2, Map.of("client-1", panier("Ford", 7)));
+        byte[] octets = Files.readAllBytes(dernier);
+        octets[octets.length - 1] ^= 0x5A;
+        Files.write(dernier, octets);
+
+        Map<String, MoteurCommandes> relues = new HashMap<>();
+        assertEquals(1, InstantanesPaniers.charger(dossier, relues, sessionId -> new MoteurCommandes()));
+        verifierPanier(relues.get("client-1"), "Toyota", 3);
+    }
+
+    @Test
+    void restaurationRejoueLaFinDuJournal() throws Exception {
+        Path instantanes = dossier.resolve("instantanes");
+        Path dossierJournal = dossier.resolve("journal");
+        try (JournalCommandes journal = new JournalCommandes(dossierJournal, 1 << 20)) {
+            MoteurCommandes client1 = new MoteurCommandes();
+            client1.setJournal(journal, "client-1");
+            MoteurCommandes client2 = new MoteurCommandes();
+            client2.setJournal(journal, "client-2");
+            client1.selectionnerMarque("Toyota");
+            client1.selectionnerPiece(Pieces.FREINS, true);
+            client1.modifierQuantite(Pieces.FREINS, 3);
+            client2.selectionnerMarque("Ford");
+            // Attend que les ajouts asynchrones précédents soient durables
+            journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("client-3"));
+            InstantanesPaniers.ecrire(instantanes, journal.getDernierLsn(),
+                    Map.of("client-1", client1, "client-2", client2));
+
+            // Après l'instantané : seuls ces événements sont rejoués
+            client1.modifierQuantite(Pieces.FREINS, 2);
+            journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("client-2"));
+        }
+
+        Map<String, MoteurCommandes> restaurees = new HashMap<>();
+        InstantanesPaniers.restaurer(instantanes, dossierJournal, restaurees, sessionId -> new MoteurCommandes());
+        assertEquals(1, restaurees.size());
+        verifierPanier(restaurees.get("client-1"), "Toyota", 5);
+    }
+
+    @Test
+    void identifiantTropLongRefuseSansCorrompreLExport() throws Exception {
+        MoteurCommandes moteur = new MoteurCommandes();
+        moteur.selectionnerMarque("Toyota");
+        InstantanesPaniers.Export export = new InstantanesPaniers.Export();
+        export.ajouter("client-1", moteur);
+        assertThrows(IllegalArgumentException.class, () -> export.ajouter("x".repeat(70_000), moteur));
+        export.ajouter("client-2", moteur);
+
+        Map<String, MoteurCommandes> importees = new HashMap<>();
+        assertEquals(2, InstantanesPaniers.importer(ByteBuffer.wrap(export.terminer()), importees,
+                sessionId -> new MoteurCommandes()));
+        assertEquals("Toyota", importees.get("client-1").getMarque());
+        assertEquals("Toyota", importees.get("client-2").getMarque());
+    }
+
+    private static MoteurCommandes panier(String marque, int freins) {
+        MoteurCommandes moteur = new MoteurCommandes();
+        moteur.selectionnerMarque(marque);
+        moteur.selectionnerPiece(Pieces.FREINS, true);
+        moteur.modifierQuantite(Pieces.FREINS, freins);
+        return moteur;
+    }
+
+    private static void verifierPanier(MoteurCommandes moteur, String marque, int freins) {
+        assertEquals(marque, moteur.getMarque());
+        assertTrue(moteur.isPieceSelectionnee(Pieces.FREINS));
+        assertFalse(moteur.isPieceSelectionnee(Pieces.HUILE));
+        assertEquals(freins, moteur.getQuantite(Pieces.FREINS));
+        assertEquals(0, moteur.getQuantite(Pieces.HUILE));
+    }
+}
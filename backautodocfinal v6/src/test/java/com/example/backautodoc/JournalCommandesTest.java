@@ -0,0 +1,223 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class JournalCommandesTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void relectureDansLOrdreSurPlusieursSegments() throws Exception {
+        Commande commande = new Commande("Toyota", new int[]{Pieces.FREINS, Pieces.HUILE}, new int[]{2, 5});
+        // Segments minuscules : un nouveau segment à chaque enregistrement
+        try (JournalCommandes journal = new JournalCommandes(dossier, 32)) {
+            assertEquals(1, journal.ajouter(JournalCommandes.TYPE_MARQUE, JournalCommandes.encoderMarque("a", "Ford")));
+            assertEquals(2, journal.ajouterCommande("a", commande));
+            assertEquals(3, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("a")));
+        }
+        assertTrue(Files.exists(dossier.resolve("journal-00000002.log")));
+        List<Long> lsns = new ArrayList<>();
+        List<Commande> commandes = new ArrayList<>();
+        assertEquals(3, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> {
+            lsns.add(lsn);
+            if (type == JournalCommandes.TYPE_COMMANDE) {
+                assertEquals("a", JournalCommandes.lireSession(contenu));
+                commandes.add(JournalCommandes.lireCommande(contenu));
+            }
+        }));
+        assertEquals(List.of(1L, 2L, 3L), lsns);
+        assertEquals("Toyota", commandes.get(0).getMarque());
+        assertArrayEquals(new int[]{2, 5}, new int[]{commandes.get(0).getQuantite(0), commandes.get(0).getQuantite(1)});
+
+        lsns.clear();
+        JournalCommandes.relire(dossier, 2, (type, lsn, contenu) -> lsns.add(lsn));
+        assertEquals(List.of(3L), lsns);
+        try (JournalCommandes journal = new JournalCommandes(dossier, 32)) {
+            assertEquals(4, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("b")));
+        }
+    }
+
+    @Test
+    void enregistrementIncompletEnFinIgnorePuisTronque() throws Exception {
+        Path segment = ecrireTroisEnregistrements();
+        try (FileChannel canal = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 3); // Arrêt brutal au milieu de la dernière écriture
+        }
+        assertEquals(2, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+        try (JournalCommandes journal = new JournalCommandes(dossier, 1 << 20)) {
+            assertEquals(3, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("d")));
+        }
+        assertEquals(3, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+    }
+
+    @Test
+    void crcInvalideEnFinIgnore() throws Exception {
+        Path segment = ecrireTroisEnregistrements();
+        byte[] octets = Files.readAllBytes(segment);
+        octets[octets.length - 1] ^= 0x5A;
+        Files.write(segment, octets);
+        List<Long> lsns = new ArrayList<>();
+        assertEquals(2, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> lsns.add(lsn)));
+        assertEquals(List.of(1L, 2L), lsns);
+    }
+
+    private Path ecrireTroisEnregistrements() throws Exception {
+        try (JournalCommandes journal = new JournalCommandes(dossier, 1 << 20)) {
+            for (String session : List.of("a", "b", "c")) {
+                journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession(session));
+            }
+        }
+        return dossier.resolve("journal-00000000.log");
+    }
+
+    @Test
+    void ajoutsConcurrentsALaFermetureTousTermines() throws Exception {
+        for (int essai = 0; essai < 20; essai++) {
+            JournalCommandes journal = new JournalCommandes(dossier.resolve("essai-" + essai), 1 << 20);
+            List<CompletableFuture<Long>> resultats = new ArrayList<>();
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Thread> producteurs = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                producteurs.add(Thread.ofPlatform().start(() -> {
+                    List<CompletableFuture<Long>> propres = new ArrayList<>();
+                    try {
+                        depart.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 2_000; i++) {
+                        propres.add(journal.ajouterAsync(JournalCommandes.TYPE_FIN_SESSION,
+                                JournalCommandes.encoderFinSession("s" + i)));
+                    }
+                    synchronized (resultats) {
+                        resultats.addAll(propres);
+                    }
+                }));
+            }
+            depart.countDown();
+            journal.close();
+            for (Thread producteur : producteurs) {
+                producteur.join();
+            }
+            // Chaque ajout est soit écrit, soit refusé (journal fermé) : aucun futur ne reste en suspens
+            for (CompletableFuture<Long> resultat : resultats) {
+                try {
+                    resultat.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    // Refusé : journal fermé
+                } catch (TimeoutException e) {
+                    fail("Ajout jamais terminé après la fermeture du journal");
+                }
+            }
+        }
+    }
+
+    @Test
+    void dernierSegmentSansEnTeteIgnorePuisSupprime() throws Exception {
+        try (JournalCommandes journal = new JournalCommandes(dossier, 1 << 20)) {
+            journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("a"));
+            journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("b"));
+        }
+        // Arrêt brutal entre la création du segment suivant et l'écriture de son en-tête
+        Path dechire = dossier.resolve("journal-00000001.log");
+        Files.write(dechire, new byte[7]);
+
+        assertEquals(2, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+        try (JournalCommandes journal = new JournalCommandes(dossier, 1 << 20)) {
+            assertFalse(Files.exists(dechire));
+            assertEquals(3, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("c")));
+        }
+        assertEquals(3, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+    }
+
+    @Test
+    void seulSegmentSansEnTeteReecrit() throws Exception {
+        Files.createDirectories(dossier);
+        Files.write(dossier.resolve("journal-00000000.log"), new byte[16]);
+        assertEquals(0, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+        try (JournalCommandes journal = new JournalCommandes(dossier, 1 << 20)) {
+            assertEquals(1, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("a")));
+        }
+        assertEquals(1, JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+    }
+
+    @Test
+    void segmentSuivantImpossibleACreerLotRefuseSegmentCourantConserve() throws Exception {
+        try (JournalCommandes journal = new JournalCommandes(dossier, 32)) {
+            // Un dossier à la place du segment suivant : sa création échoue
+            Path bloque = Files.createDirectories(dossier.resolve("journal-00000001.log"));
+            assertEquals(1, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("a")));
+            assertThrows(IOException.class,
+                    () -> journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("b")));
+            assertEquals(1, journal.getDernierLsn());
+
+            Files.delete(bloque);
+            assertEquals(2, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("c")));
+        }
+        List<String> sessions = new ArrayList<>();
+        assertEquals(2, JournalCommandes.relire(dossier, 0,
+                (type, lsn, contenu) -> sessions.add(JournalCommandes.lireSession(contenu))));
+        assertEquals(List.of("a", "c"), sessions);
+    }
+
+    @Test
+    void segmentCorrompuAvantLeDernierRefuse() throws Exception {
+        try (JournalCommandes journal = new JournalCommandes(dossier, 32)) {
+            for (String session : List.of("a", "b", "c")) {
+                journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession(session));
+            }
+        }
+        // Un octet du corps du premier enregistrement altéré : son CRC ne correspond plus
+        try (FileChannel canal = FileChannel.open(dossier.resolve("journal-00000000.log"), StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{0x7F}), canal.size() - 1);
+        }
+        assertThrows(IOException.class, () -> JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> { }));
+        // Le segment altéré est entièrement antérieur au LSN demandé : il n'est pas relu
+        assertEquals(3, JournalCommandes.relire(dossier, 1, (type, lsn, contenu) -> { }));
+    }
+
+    @Test
+    void segmentsCouvertsParUnInstantaneSupprimes() throws Exception {
+        try (JournalCommandes journal = new JournalCommandes(dossier, 32)) {
+            for (String session : List.of("a", "b", "c", "d")) {
+                journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession(session));
+            }
+            // Segments 0 à 3, un enregistrement chacun : seuls les LSN 1 et 2 sont couverts
+            assertEquals(2, journal.supprimerSegmentsAvant(2));
+            assertFalse(Files.exists(dossier.resolve("journal-00000001.log")));
+            assertTrue(Files.exists(dossier.resolve("journal-00000002.log")));
+            // Le segment en cours d'écriture reste, même entièrement couvert
+            assertEquals(1, journal.supprimerSegmentsAvant(4));
+            assertTrue(Files.exists(dossier.resolve("journal-00000003.log")));
+            assertEquals(5, journal.ajouter(JournalCommandes.TYPE_FIN_SESSION, JournalCommandes.encoderFinSession("e")));
+        }
+        List<Long> lsns = new ArrayList<>();
+        assertEquals(5, JournalCommandes.relire(dossier, 3, (type, lsn, contenu) -> lsns.add(lsn)));
+        assertEquals(List.of(4L, 5L), lsns);
+        // Les enregistrements qui suivent le LSN 1 n'existent plus : la relecture ne les ignore pas en silence
+        assertThrows(IOException.class, () -> JournalCommandes.relire(dossier, 1, (type, lsn, contenu) -> { }));
+    }
+}
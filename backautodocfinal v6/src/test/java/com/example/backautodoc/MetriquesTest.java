@@ -0,0 +1,44 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetriquesTest {
+
+    @Test
+    void mesuresParMarqueEtPourToutesLesMarques() {
+        // Les mesures sont communes au processus : une marque propre au test, et des écarts pour les totaux
+        Metriques metriques = Metriques.global();
+        String marque = "Marque \"test\" " + System.nanoTime();
+        long toutesAvant = metriques.getHistogramme(Metriques.Operation.COMMANDER, Metriques.TOUTES_MARQUES).getNombre();
+        long refusAvant = metriques.getRefus(Metriques.Operation.COMMANDER);
+
+        metriques.enregistrer(Metriques.Operation.COMMANDER, marque, metriques.debut(), true);
+        metriques.enregistrer(Metriques.Operation.COMMANDER, marque, metriques.debut(), false);
+        metriques.enregistrer(Metriques.Operation.GENERER_FACTURE, marque, metriques.debut(), true);
+
+        assertEquals(2, metriques.getHistogramme(Metriques.Operation.COMMANDER, marque).getNombre());
+        assertEquals(1, metriques.getHistogramme(Metriques.Operation.GENERER_FACTURE, marque).getNombre());
+        assertEquals(0, metriques.getHistogramme(Metriques.Operation.MODIFIER_QUANTITE, marque).getNombre());
+        assertTrue(metriques.getHistogramme(Metriques.Operation.COMMANDER, Metriques.TOUTES_MARQUES).getNombre()
+                >= toutesAvant + 2);
+        assertTrue(metriques.getRefus(Metriques.Operation.COMMANDER) >= refusAvant + 1);
+    }
+
+    @Test
+    void texteAuFormatPrometheus() {
+        Metriques metriques = Metriques.global();
+        String marque = "Texte\"" + System.nanoTime();
+        metriques.enregistrer(Metriques.Operation.MODIFIER_QUANTITE, marque, metriques.debut(), true);
+
+        StringBuilder texte = new StringBuilder();
+        metriques.ecrireTexte(texte);
+        String etiquettes = "operation=\"modifierQuantite\",marque=\"" + marque.replace("\"", "\\\"") + "\"";
+        assertTrue(texte.indexOf("# TYPE backautodoc_latence_secondes summary\n") >= 0, texte.toString());
+        assertTrue(texte.indexOf("backautodoc_latence_secondes_count{" + etiquettes + "} 1\n") >= 0, texte.toString());
+        assertTrue(texte.indexOf("backautodoc_latence_secondes{" + etiquettes + ",quantile=\"0.99\"} ") >= 0);
+        assertTrue(texte.indexOf("backautodoc_refus_total{operation=\"commander\"} ") >= 0);
+    }
+}
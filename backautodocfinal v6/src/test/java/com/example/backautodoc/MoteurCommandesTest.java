@@ -0,0 +1,93 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoteurCommandesTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void avecStockSeulesLesVentesConfirmeesSontJournalisees() throws Exception {
+        try (JournalCommandes journal = new JournalCommandes(dossier, 1 << 20);
+             StockPieces stock = new StockPieces(Pieces.NOMBRE_PIECES_BASE, Duration.ofMinutes(5))) {
+            stock.ajouterStock(Pieces.FREINS, 10);
+            MoteurCommandes moteur = new MoteurCommandes();
+            moteur.setJournal(journal, "client-1");
+            moteur.setStock(stock);
+            moteur.selectionnerMarque("Toyota");
+            moteur.selectionnerPiece(Pieces.FREINS, true);
+            moteur.modifierQuantite(Pieces.FREINS, 2);
+
+            assertTrue(moteur.commander().isSucces());
+            assertTrue(moteur.annulerCommande().isSucces());
+            assertTrue(moteur.commander().isSucces());
+            assertTrue(moteur.confirmerCommande().isSucces());
+            assertEquals(8, stock.getDisponible(Pieces.FREINS));
+        }
+        List<Byte> types = new ArrayList<>();
+        JournalCommandes.relire(dossier, 0, (type, lsn, contenu) -> types.add(type));
+        assertEquals(1, types.stream().filter(type -> type == JournalCommandes.TYPE_COMMANDE).count());
+    }
+
+    @Test
+    void avecStockLeNumeroEstAttribueALaConfirmation() throws Exception {
+        try (NumerotationFactures numerotation = NumerotationFactures.ouvrir(dossier.resolve("numeros.bin"));
+             StockPieces stock = new StockPieces(Pieces.NOMBRE_PIECES_BASE, Duration.ofMinutes(5))) {
+            stock.ajouterStock(Pieces.FREINS, 10);
+            MoteurCommandes moteur = new MoteurCommandes();
+            moteur.setNumerotation(numerotation);
+            moteur.setStock(stock);
+            moteur.selectionnerMarque("Toyota");
+            moteur.selectionnerPiece(Pieces.FREINS, true);
+            moteur.modifierQuantite(Pieces.FREINS, 2);
+
+            // Commande annulée : aucun numéro consommé
+            assertFalse(moteur.commander().getFacture().contains(RenduFacture.EN_TETE_NUMERO));
+            assertTrue(moteur.annulerCommande().isSucces());
+            ResultatOperation commande = moteur.commander();
+            assertFalse(commande.getFacture().contains(RenduFacture.EN_TETE_NUMERO));
+
+            ResultatOperation confirmation = moteur.confirmerCommande();
+            assertTrue(confirmation.isSucces());
+            assertEquals(RenduFacture.EN_TETE_NUMERO + "1\n" + commande.getFacture(), confirmation.getFacture());
+        }
+    }
+
+    @Test
+    void venteConfirmeeEnregistreeAuMontantFacture() throws Exception {
+        try (StockPieces stock = new StockPieces(Pieces.NOMBRE_PIECES_BASE, Duration.ofMinutes(5))) {
+            stock.ajouterStock(Pieces.FREINS, 20);
+            stock.ajouterStock(Pieces.FILTRES, 20);
+            HistoriqueCommandes historique = new HistoriqueCommandes();
+            MoteurCommandes moteur = new MoteurCommandes();
+            moteur.setStock(stock);
+            moteur.setHistorique(historique);
+            moteur.setGrilleTarifaire(new ReglesTarifaires()
+                    .palier(Pieces.FREINS, 10, 500)
+                    .lot(15, Pieces.FREINS, Pieces.FILTRES)
+                    .compiler());
+            moteur.selectionnerMarque("Toyota");
+            moteur.selectionnerPiece(Pieces.FREINS, true);
+            moteur.selectionnerPiece(Pieces.FILTRES, true);
+            moteur.modifierQuantite(Pieces.FREINS, 12);
+            moteur.modifierQuantite(Pieces.FILTRES, 3);
+
+            assertTrue(moteur.commander().isSucces());
+            assertEquals(0, historique.getNombreLignes());
+            assertTrue(moteur.confirmerCommande().isSucces());
+            // Brut 2430, facturé 2265 après le palier et les lots
+            assertEquals(2265, historique.agreger(HistoriqueCommandes.Axe.MARQUE, null, null, null).getChiffreAffairesTotal());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumerotationFacturesTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void numerosUniquesEtJamaisReutilisesApresReouverture() throws Exception {
+        Path fichier = dossier.resolve("numeros.bin");
+        Set<Long> numeros = new HashSet<>();
+        long plusGrand = 0;
+        try (NumerotationFactures numerotation = NumerotationFactures.ouvrir(fichier, 4, 2)) {
+            // Plusieurs baux : 10 blocs de 4 numéros pour des baux de 8
+            for (int b = 0; b < 10; b++) {
+                NumerotationFactures.Bloc bloc = numerotation.reserverBloc();
+                long precedent = -1;
+                while (bloc.restant()) {
+                    long numero = bloc.suivant();
+                    assertTrue(precedent < 0 || numero == precedent + 1);
+                    assertTrue(numeros.add(numero), "Numéro attribué deux fois : " + numero);
+                    precedent = numero;
+                    plusGrand = Math.max(plusGrand, numero);
+                }
+            }
+        }
+        assertEquals(40, numeros.size());
+        try (NumerotationFactures numerotation = NumerotationFactures.ouvrir(fichier, 4, 2)) {
+            assertEquals(plusGrand + 1, numerotation.reserverBloc().suivant());
+        }
+    }
+
+    @Test
+    void numerosPartagesEntreThreadsSansBlocParUtilisateur() throws Exception {
+        Set<Long> numeros = ConcurrentHashMap.newKeySet();
+        try (NumerotationFactures numerotation = NumerotationFactures.ouvrir(dossier.resolve("numeros.bin"));
+             ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> taches = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                taches.add(executeur.submit(() -> {
+                    assertTrue(numeros.add(numerotation.numeroSuivant()));
+                    return null;
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get();
+            }
+            assertEquals(1_000, numeros.size());
+            // Un bloc par voie au plus, plus ceux épuisés : pas un bloc par thread
+            int voies = Runtime.getRuntime().availableProcessors();
+            assertTrue(numerotation.getBlocsDistribues() <= voies + 1_000 / NumerotationFactures.TAILLE_BLOC_DEFAUT,
+                    "Blocs distribués : " + numerotation.getBlocsDistribues());
+        }
+    }
+}
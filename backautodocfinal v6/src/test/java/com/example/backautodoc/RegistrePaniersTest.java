@@ -0,0 +1,97 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistrePaniersTest {
+
+    @Test
+    void modificationsConcurrentesToutesAppliquees() throws Exception {
+        RegistrePaniers<GestionQuantites> registre = new RegistrePaniers<>(id -> new GestionQuantites());
+        int taches = 16;
+        int ajouts = 5_000;
+        try (ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> resultats = new ArrayList<>();
+            for (int t = 0; t < taches; t++) {
+                String sessionId = "client-" + (t % 4);
+                int pieceId = t % Pieces.NOMBRE_PIECES_BASE;
+                resultats.add(executeur.submit(() -> {
+                    for (int i = 0; i < ajouts; i++) {
+                        registre.executer(sessionId, panier -> panier.modifierQuantite(pieceId, 1));
+                    }
+                }));
+            }
+            for (Future<?> resultat : resultats) {
+                resultat.get();
+            }
+        }
+        assertEquals(4, registre.getNombrePaniers());
+        Map<String, Integer> totaux = new HashMap<>();
+        registre.pourChaque((sessionId, panier) -> totaux.put(sessionId,
+                panier.getFreinsQty() + panier.getHuileQty() + panier.getFiltresQty()));
+        for (int c = 0; c < 4; c++) {
+            assertEquals(taches / 4 * ajouts, totaux.get("client-" + c), "client-" + c);
+        }
+    }
+
+    @Test
+    void suppressionSousConditionPuisRecreation() {
+        RegistrePaniers<GestionQuantites> registre = new RegistrePaniers<>(id -> new GestionQuantites());
+        assertNull(registre.verrouillerExistant("client-1"));
+        assertEquals(0, registre.getNombrePaniers());
+
+        RegistrePaniers.Panier<GestionQuantites> panier = registre.verrouiller("client-1");
+        GestionQuantites premier = panier.get();
+        premier.modifierQuantite(Pieces.FREINS, 2);
+        panier.deverrouiller();
+
+        assertFalse(registre.supprimer("client-1", contenu -> contenu.getFreinsQty() == 0));
+        assertSame(premier, registre.executer("client-1", contenu -> contenu));
+        assertTrue(registre.supprimer("client-1", contenu -> true));
+        assertFalse(registre.supprimer("client-1", contenu -> true));
+        assertNull(registre.verrouillerExistant("client-1"));
+
+        GestionQuantites second = registre.executer("client-1", contenu -> contenu);
+        assertNotSame(premier, second);
+        assertEquals(0, second.getFreinsQty());
+    }
+
+    @Test
+    void suppressionAttendLaFinDeLOperationEnCours() throws Exception {
+        RegistrePaniers<GestionQuantites> registre = new RegistrePaniers<>(id -> new GestionQuantites());
+        RegistrePaniers.Panier<GestionQuantites> panier = registre.verrouiller("client-1");
+        Thread suppression = Thread.ofVirtual().start(() -> registre.supprimer("client-1", contenu -> true));
+        suppression.join(100);
+        assertTrue(suppression.isAlive());
+        panier.get().modifierQuantite(Pieces.HUILE, 1);
+        panier.deverrouiller();
+        suppression.join();
+        assertNull(registre.verrouillerExistant("client-1"));
+    }
+
+    @Test
+    void panierPlaceRemplaceLAncien() {
+        RegistrePaniers<GestionQuantites> registre = new RegistrePaniers<>(id -> new GestionQuantites());
+        GestionQuantites ancien = registre.executer("client-1", contenu -> contenu);
+        GestionQuantites restaure = new GestionQuantites();
+        restaure.modifierQuantite(Pieces.FILTRES, 3);
+        registre.placer("client-1", restaure);
+        assertSame(restaure, registre.executer("client-1", contenu -> contenu));
+        assertNotSame(ancien, restaure);
+        assertEquals(1, registre.getNombrePaniers());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenduFactureTest {
+
+    /**
+     * Catalogue en mémoire dont un libellé sort du plan multilingue de base (deux `char` en UTF-16).
+     */
+    private static final class CatalogueLibelles implements CataloguePrix {
+        private final String[] libelles = {"Freins", "Huile 🛢 5W30", "Filtres à air"};
+
+        @Override
+        public int getPrix(int pieceId) {
+            return 10 + pieceId;
+        }
+
+        @Override
+        public void copierPrix(int[] destination) {
+            for (int i = 0; i < Math.min(destination.length, libelles.length); i++) {
+                destination[i] = getPrix(i);
+            }
+        }
+
+        @Override
+        public int getNombrePieces() {
+            return libelles.length;
+        }
+
+        @Override
+        public String getLibelle(int pieceId) {
+            return libelles[pieceId];
+        }
+    }
+
+    @Test
+    void sortieCanalEgaleAuTexteEnUtf8() throws IOException {
+        PrixArticles prix = new PrixArticles(new CatalogueLibelles());
+        GestionQuantites panier = new GestionQuantites(3, prix);
+        panier.modifierQuantite(Pieces.HUILE, 2);
+        panier.modifierQuantite(Pieces.FILTRES, 1);
+        RenduFacture rendu = new RenduFacture(panier, prix);
+
+        StringBuilder texte = new StringBuilder();
+        rendu.ecrire(texte, "Škoda", panier.getTotal(), panier.getTotal());
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        // Tampon minimal : oblige à vider entre les octets d'un même texte
+        rendu.ecrire(Channels.newChannel(octets), ByteBuffer.allocate(4), "Škoda", panier.getTotal(), panier.getTotal());
+
+        assertTrue(texte.toString().contains("Huile 🛢 5W30: 2 x 11€"));
+        assertArrayEquals(texte.toString().getBytes(StandardCharsets.UTF_8), octets.toByteArray());
+    }
+}
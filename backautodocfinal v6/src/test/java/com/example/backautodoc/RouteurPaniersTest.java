@@ -0,0 +1,159 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteurPaniersTest {
+
+    private static final int SESSIONS = 40;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private ServeurHttp serveurA;
+    private ServeurHttp serveurB;
+    private RouteurPaniers routeur;
+
+    @BeforeEach
+    void demarrer() throws IOException {
+        serveurA = nouveauServeur();
+        serveurB = nouveauServeur();
+        routeur = new RouteurPaniers(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                List.of(adresse(serveurA)), AnneauCoherent.NOEUDS_VIRTUELS_DEFAUT);
+        routeur.demarrer();
+    }
+
+    @AfterEach
+    void arreter() {
+        routeur.arreter();
+        serveurA.arreter();
+        serveurB.arreter();
+    }
+
+    @Test
+    void ajoutPuisRetraitDUnServeurDeplacentLesPaniers() throws Exception {
+        for (int i = 0; i < SESSIONS; i++) {
+            String session = "/sessions/client-" + i;
+            assertEquals(200, envoyer("POST", routeur.getPort(), session + "/marque?nom=Toyota").statusCode());
+            assertEquals(200, envoyer("POST", routeur.getPort(), session + "/selection?piece=freins&actif=true").statusCode());
+            assertEquals(200, envoyer("POST", routeur.getPort(), session + "/quantite?piece=freins&delta=" + (i + 1)).statusCode());
+        }
+        assertEquals(SESSIONS, sessions(serveurA).size());
+
+        // Seuls les paniers que le nouvel anneau attribue à B le rejoignent
+        AnneauCoherent agrandi = new AnneauCoherent(List.of(adresse(serveurA), adresse(serveurB)),
+                AnneauCoherent.NOEUDS_VIRTUELS_DEFAUT);
+        Set<String> versB = new HashSet<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            if (agrandi.noeudDe("client-" + i).equals(adresse(serveurB))) {
+                versB.add("client-" + i);
+            }
+        }
+        assertTrue(!versB.isEmpty() && versB.size() < SESSIONS, versB.toString());
+        assertEquals(versB.size(), routeur.ajouterNoeud(adresse(serveurB)));
+        assertEquals(versB, sessions(serveurB));
+        assertEquals(SESSIONS - versB.size(), sessions(serveurA).size());
+        verifierPaniers();
+
+        assertEquals(versB.size(), routeur.retirerNoeud(adresse(serveurB)));
+        assertEquals(Set.of(), sessions(serveurB));
+        assertEquals(SESSIONS, sessions(serveurA).size());
+        assertEquals(List.of(adresse(serveurA)), routeur.getNoeuds());
+        verifierPaniers();
+    }
+
+    @Test
+    void routeDesNoeuds() throws Exception {
+        HttpResponse<String> liste = envoyer("GET", routeur.getPort(), "/noeuds");
+        assertEquals(200, liste.statusCode());
+        assertEquals("{\"noeuds\":[\"" + adresse(serveurA) + "\"]}", liste.body());
+        assertEquals(400, envoyer("POST", routeur.getPort(), "/noeuds").statusCode());
+        assertEquals(400, envoyer("DELETE", routeur.getPort(), "/noeuds?adresse=" + adresse(serveurA)).statusCode());
+
+        HttpResponse<String> ajout = envoyer("POST", routeur.getPort(), "/noeuds?adresse=" + adresse(serveurB) + "/");
+        assertEquals(200, ajout.statusCode());
+        assertTrue(ajout.body().contains("\"deplacees\":0"), ajout.body());
+        assertEquals(List.of(adresse(serveurA), adresse(serveurB)), routeur.getNoeuds());
+
+        // Le message d'erreur reprend l'adresse reçue : guillemets et caractères de contrôle sont échappés
+        HttpResponse<String> invalide = envoyer("POST", routeur.getPort(), "/noeuds?adresse=%22%01a");
+        assertEquals(400, invalide.statusCode());
+        assertTrue(invalide.body().endsWith(": \\\"\\u0001a\"}"), invalide.body());
+    }
+
+    @Test
+    void commandeEnAttenteAnnuleeAvantLeDeplacement() throws Exception {
+        try (StockPieces stock = new StockPieces(Pieces.NOMBRE_PIECES_BASE, Duration.ofMinutes(5))) {
+            stock.ajouterStock(Pieces.FREINS, 1_000);
+            ServeurHttp serveurC = new ServeurHttp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    new PrixArticles(), Pieces.NOMBRE_PIECES_BASE);
+            serveurC.setStock(stock);
+            serveurC.demarrer();
+            RouteurPaniers routeurC = new RouteurPaniers(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    List.of(adresse(serveurC)), AnneauCoherent.NOEUDS_VIRTUELS_DEFAUT);
+            routeurC.demarrer();
+            try {
+                for (int i = 0; i < SESSIONS; i++) {
+                    String session = "/sessions/client-" + i;
+                    envoyer("POST", routeurC.getPort(), session + "/marque?nom=Toyota");
+                    envoyer("POST", routeurC.getPort(), session + "/selection?piece=freins&actif=true");
+                    envoyer("POST", routeurC.getPort(), session + "/quantite?piece=freins&delta=1");
+                    assertEquals(200, envoyer("POST", routeurC.getPort(), session + "/commande").statusCode());
+                }
+                assertEquals(1_000 - SESSIONS, stock.getDisponible(Pieces.FREINS));
+
+                int deplacees = routeurC.ajouterNoeud(adresse(serveurB));
+                assertTrue(deplacees > 0);
+                // Les pièces des commandes déplacées sont rendues au stock de l'ancien serveur
+                assertEquals(1_000 - SESSIONS + deplacees, stock.getDisponible(Pieces.FREINS));
+            } finally {
+                routeurC.arreter();
+                serveurC.arreter();
+            }
+        }
+    }
+
+    private void verifierPaniers() throws IOException, InterruptedException {
+        for (int i = 0; i < SESSIONS; i++) {
+            HttpResponse<String> etat = envoyer("GET", routeur.getPort(), "/sessions/client-" + i);
+            assertEquals(200, etat.statusCode(), "client-" + i);
+            assertTrue(etat.body().contains("\"quantite\":" + (i + 1) + ","), etat.body());
+        }
+    }
+
+    private Set<String> sessions(ServeurHttp serveur) throws IOException, InterruptedException {
+        return new HashSet<>(envoyer("GET", serveur.getPort(), "/migration").body().lines().toList());
+    }
+
+    private static ServeurHttp nouveauServeur() throws IOException {
+        ServeurHttp serveur = new ServeurHttp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new PrixArticles(), Pieces.NOMBRE_PIECES_BASE);
+        serveur.demarrer();
+        return serveur;
+    }
+
+    private static String adresse(ServeurHttp serveur) {
+        return "http://127.0.0.1:" + serveur.getPort();
+    }
+
+    private HttpResponse<String> envoyer(String methode, int port, String chemin) throws IOException, InterruptedException {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + chemin))
+                .method(methode, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(requete, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServeurHttpTest {
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private ServeurHttp serveur;
+
+    @BeforeEach
+    void demarrer() throws IOException {
+        serveur = new ServeurHttp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new PrixArticles(), Pieces.NOMBRE_PIECES_BASE);
+    }
+
+    @AfterEach
+    void arreter() {
+        serveur.arreter();
+    }
+
+    @Test
+    void seulesLesActionsPostValidesCreentUneSession() throws Exception {
+        serveur.demarrer();
+        assertEquals(404, envoyer("GET", "/sessions/client-1").statusCode());
+        assertEquals(405, envoyer("PUT", "/sessions/client-1/marque?nom=Toyota").statusCode());
+        assertEquals(404, envoyer("POST", "/sessions/client-1/inconnue").statusCode());
+        assertEquals(204, envoyer("DELETE", "/sessions/client-1").statusCode());
+        assertEquals("", envoyer("GET", "/migration").body());
+
+        assertEquals(200, envoyer("POST", "/sessions/client-1/marque?nom=Toyota").statusCode());
+        HttpResponse<String> etat = envoyer("GET", "/sessions/client-1");
+        assertEquals(200, etat.statusCode());
+        assertTrue(etat.body().contains("\"marque\":\"Toyota\""), etat.body());
+    }
+
+    @Test
+    void nombreDeSessionsBorne() throws Exception {
+        serveur.setLimitesSessions(2, Duration.ofMinutes(30));
+        serveur.demarrer();
+        assertEquals(200, envoyer("POST", "/sessions/a/marque?nom=Toyota").statusCode());
+        assertEquals(200, envoyer("POST", "/sessions/b/marque?nom=Toyota").statusCode());
+        assertEquals(503, envoyer("POST", "/sessions/c/marque?nom=Toyota").statusCode());
+        // Une session existante reste utilisable
+        assertEquals(200, envoyer("POST", "/sessions/a/marque?nom=Ford").statusCode());
+    }
+
+    @Test
+    void sessionsInactivesFermees() throws Exception {
+        serveur.setLimitesSessions(10, Duration.ofMillis(50));
+        serveur.demarrer();
+        assertEquals(200, envoyer("POST", "/sessions/a/marque?nom=Toyota").statusCode());
+        Thread.sleep(100);
+        assertEquals(200, envoyer("POST", "/sessions/b/marque?nom=Toyota").statusCode());
+        assertEquals(1, serveur.fermerSessionsInactives());
+        assertEquals(404, envoyer("GET", "/sessions/a").statusCode());
+        assertEquals(200, envoyer("GET", "/sessions/b").statusCode());
+    }
+
+    @Test
+    void identifiantsDeSessionInvalidesRefuses() throws Exception {
+        serveur.demarrer();
+        assertEquals(400, envoyer("POST", "/sessions/" + "x".repeat(70_000) + "/marque?nom=Toyota").statusCode());
+        assertEquals(400, envoyer("POST", "/sessions/client%0A2/marque?nom=Toyota").statusCode());
+        assertEquals(400, envoyer("GET", "/sessions/caf%C3%A9").statusCode());
+        assertEquals(200, envoyer("POST", "/sessions/" + "x".repeat(255) + "/marque?nom=Toyota").statusCode());
+        assertEquals("x".repeat(255) + "\n", envoyer("GET", "/migration").body());
+    }
+
+    @Test
+    void migrationRefuseLesIdentifiantsHorsFormat() throws Exception {
+        serveur.demarrer();
+        assertEquals(200, envoyer("POST", "/sessions/client-1/marque?nom=Toyota").statusCode());
+        assertEquals(400, envoyer("POST", "/migration/export", "client-1\nclient 2".getBytes(StandardCharsets.UTF_8)).statusCode());
+        assertEquals(400, envoyer("POST", "/migration/suppression", "client-1\ncli%0Aent".getBytes(StandardCharsets.UTF_8)).statusCode());
+        assertEquals(200, envoyer("GET", "/sessions/client-1").statusCode());
+
+        MoteurCommandes moteur = new MoteurCommandes();
+        InstantanesPaniers.Export export = new InstantanesPaniers.Export();
+        export.ajouter("client-2", moteur);
+        export.ajouter("client\n3", moteur);
+        assertEquals(400, envoyer("POST", "/migration/import", export.terminer()).statusCode());
+        assertEquals("client-1\n", envoyer("GET", "/migration").body());
+    }
+
+    @Test
+    void topDeLHistoriqueBorne() throws Exception {
+        serveur.setHistorique(new HistoriqueCommandes());
+        serveur.demarrer();
+        assertEquals(400, envoyer("GET", "/historique?axe=piece&top=2000000000").statusCode());
+        assertEquals(200, envoyer("GET", "/historique?axe=piece&top=1000").statusCode());
+    }
+
+    @Test
+    void echappementInvalideRefuseAvecUneReponse() throws Exception {
+        serveur.setHistorique(new HistoriqueCommandes());
+        serveur.demarrer();
+        // HttpClient refuse de construire ces adresses : la requête est écrite directement sur le socket
+        for (String chemin : new String[]{"/sessions/a/selection?piece=%ZZ&actif=true", "/historique?axe=%2"}) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), serveur.getPort())) {
+                socket.getOutputStream().write(("POST " + chemin + " HTTP/1.1\r\nHost: localhost\r\n"
+                        + "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                String reponse = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(reponse.startsWith("HTTP/1.1 400 "), chemin + " : " + reponse);
+            }
+        }
+        assertEquals(404, envoyer("GET", "/sessions/a").statusCode());
+    }
+
+    private HttpResponse<String> envoyer(String methode, String chemin) throws IOException, InterruptedException {
+        return envoyer(methode, chemin, new byte[0]);
+    }
+
+    private HttpResponse<String> envoyer(String methode, String chemin, byte[] corps) throws IOException, InterruptedException {
+        HttpRequest requete = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + serveur.getPort() + chemin))
+                .method(methode, corps.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(corps))
+                .build();
+        return client.send(requete, HttpResponse.BodyHandlers.ofString());
+    }
+}
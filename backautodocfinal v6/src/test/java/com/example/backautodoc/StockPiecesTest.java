@@ -0,0 +1,75 @@
+package com.example.backautodoc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockPiecesTest {
+
+    private static final Commande COMMANDE = new Commande("Toyota", new int[]{Pieces.FREINS, Pieces.HUILE}, new int[]{2, 3});
+
+    @Test
+    void reservationToutOuRien() {
+        try (StockPieces stock = new StockPieces(Pieces.NOMBRE_PIECES_BASE, Duration.ofMinutes(5))) {
+            stock.ajouterStock(Pieces.FREINS, 5);
+            stock.ajouterStock(Pieces.HUILE, 1);
+            StockPieces.Reservation reservation = stock.reserver(COMMANDE);
+            assertFalse(reservation.isAcceptee());
+            assertEquals(Pieces.HUILE, reservation.getPieceManquante());
+            assertEquals(5, stock.getDisponible(Pieces.FREINS));
+            assertEquals(1, stock.getDisponible(Pieces.HUILE));
+        }
+    }
+
+    @Test
+    void annulationRendLesPieces() {
+        try (StockPieces stock = stockPlein(Duration.ofMinutes(5))) {
+            StockPieces.Reservation reservation = stock.reserver(COMMANDE);
+            assertTrue(reservation.isAcceptee());
+            assertEquals(8, stock.getDisponible(Pieces.FREINS));
+            assertTrue(reservation.annuler());
+            assertFalse(reservation.annuler());
+            assertFalse(reservation.confirmer());
+            assertEquals(10, stock.getDisponible(Pieces.FREINS));
+            assertEquals(10, stock.getDisponible(Pieces.HUILE));
+        }
+    }
+
+    @Test
+    void confirmationGardeLesPieces() {
+        try (StockPieces stock = stockPlein(Duration.ofMinutes(5))) {
+            StockPieces.Reservation reservation = stock.reserver(COMMANDE);
+            assertTrue(reservation.confirmer());
+            assertFalse(reservation.annuler());
+            assertEquals(8, stock.getDisponible(Pieces.FREINS));
+            assertEquals(7, stock.getDisponible(Pieces.HUILE));
+        }
+    }
+
+    @Test
+    void reservationNonConfirmeeExpiree() throws InterruptedException {
+        try (StockPieces stock = stockPlein(Duration.ofMillis(20))) {
+            StockPieces.Reservation reservation = stock.reserver(COMMANDE);
+            long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (reservation.isEnAttente() && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+            assertTrue(reservation.isExpiree());
+            assertFalse(reservation.confirmer());
+            assertEquals(1, stock.getReservationsExpirees());
+            assertEquals(10, stock.getDisponible(Pieces.FREINS));
+            assertEquals(10, stock.getDisponible(Pieces.HUILE));
+        }
+    }
+
+    private static StockPieces stockPlein(Duration dureeReservation) {
+        StockPieces stock = new StockPieces(Pieces.NOMBRE_PIECES_BASE, dureeReservation);
+        stock.ajouterStock(Pieces.FREINS, 10);
+        stock.ajouterStock(Pieces.HUILE, 10);
+        return stock;
+    }
+}